@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.api.location;
 
+import java.util.List;
 import java.util.Map;
 
 import com.google.common.annotations.Beta;
@@ -88,4 +89,21 @@ public class MachineManagementMixins {
         MachineLocation resumeMachine(Map<?, ?> flags);
     }
 
+    /**
+     * Implement to indicate that a location can obtain many machines at once more efficiently than
+     * by repeated calls to {@link MachineProvisioningLocation#obtain(Map)}.
+     */
+    @Beta
+    public interface ObtainsMachinesInBulk<T extends MachineLocation> {
+        /**
+         * Obtains up to {@code count} machines, each configured with the given flags.
+         * <p>
+         * May return fewer machines than requested if some could not be provisioned; the caller
+         * is responsible for releasing all machines returned.
+         *
+         * @throws NoMachinesAvailableException if no machines could be obtained
+         */
+        List<T> obtain(Map<?, ?> flags, int count) throws NoMachinesAvailableException;
+    }
+
 }
\ No newline at end of file
@@ -32,6 +32,7 @@ import org.apache.brooklyn.api.policy.PolicySpec;
 import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicate;
 
 /**
@@ -97,6 +98,25 @@ public interface EntityManager {
      */
     Collection<Entity> findEntitiesInApplication(Application application, Predicate<? super Entity> filter);
 
+    /**
+     * All entities under control of this management plane that are instances of the given type
+     * (normally an entity interface, as entities are usually proxies)
+     */
+    @Beta
+    <T extends Entity> Collection<T> findEntitiesOfType(Class<T> type);
+
+    /**
+     * All entities under control of this management plane that have the given tag
+     */
+    @Beta
+    Collection<Entity> findEntitiesWithTag(Object tag);
+
+    /**
+     * All entities under control of this management plane that were created from the given catalog item
+     */
+    @Beta
+    Collection<Entity> findEntitiesFromCatalogItem(String catalogItemId);
+
     /**
      * Returns the entity with the given identifier (may be a full instance, or a proxy to one which is remote),
      * or null.
@@ -132,6 +132,13 @@ public class BrooklynFeatureEnablement {
 
     public static final String FEATURE_VALIDATE_LOCATION_SSH_KEYS = "brooklyn.validate.locationSshKeys";
 
+    /**
+     * Whether entity proxies should be generated classes which call the entity's non-effector methods
+     * directly, rather than {@link java.lang.reflect.Proxy} instances which call every method reflectively.
+     * Entity types whose interfaces cannot be implemented by a generated class still use {@code Proxy}.
+     */
+    public static final String FEATURE_GENERATED_ENTITY_PROXIES = FEATURE_PROPERTY_PREFIX+".generatedEntityProxies";
+
     /**
      * Values explicitly set by Java calls.
      */
@@ -170,6 +177,7 @@ public class BrooklynFeatureEnablement {
         setDefault(FEATURE_AUTO_FIX_CATALOG_REF_ON_REBIND, false);
         setDefault(FEATURE_SSH_ASYNC_EXEC, false);
         setDefault(FEATURE_VALIDATE_LOCATION_SSH_KEYS, true);
+        setDefault(FEATURE_GENERATED_ENTITY_PROXIES, false);
     }
     
     static {
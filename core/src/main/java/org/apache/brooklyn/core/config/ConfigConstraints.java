@@ -128,9 +128,11 @@ public abstract class ConfigConstraints<T extends BrooklynObject> {
             getBrooklynObject() instanceof AbstractEntityAdjunct ? ((AbstractEntityAdjunct)getBrooklynObject()).getExecutionContext() :
             null;
         if (exec!=null) {
+            // transient so it is deleted when done, rather than kept for as long as the entity
             return exec.get(
-                Tasks.<Iterable<ConfigKey<?>>>builder().dynamic(false).displayName("Validating config").body(
-                    () -> validateAll() ).build() );
+                Tasks.<Iterable<ConfigKey<?>>>builder().dynamic(false).displayName("Validating config")
+                    .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                    .body( () -> validateAll() ).build() );
         } else {
             return validateAll();
         }
@@ -24,12 +24,15 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.api.mgmt.TaskFactory;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.config.ConfigInheritance;
@@ -52,12 +55,15 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.internal.ConfigKeySelfExtracting;
 import org.apache.brooklyn.util.core.task.DeferredSupplier;
+import org.apache.brooklyn.util.core.task.ImmediateSupplier;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ValueResolver;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.ReferenceWithError;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.guava.Maybe.MaybeSupplier;
+import org.apache.brooklyn.util.javalang.Boxing;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +97,22 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
      */
     protected final Map<ConfigKey<?>,Object> ownConfig;
 
+    /** Source of {@link #generation} stamps, shared by all config maps so stamps can be compared across an ancestor chain. */
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    /**
+     * Stamp of the most recent change to {@link #ownConfig} (or to the parent or declared keys of the container).
+     * The maximum across a container and its ancestors therefore increases whenever anything which might affect
+     * a resolved value changes; see {@link #getGenerationIncludingAncestors()}.
+     */
+    private transient volatile long generation = GENERATIONS.incrementAndGet();
+
+    /**
+     * Resolved and coerced values returned by {@link #getConfig(ConfigKey)}, for keys whose values are not deferred;
+     * entries are only used while {@link #getGenerationIncludingAncestors()} is unchanged.
+     */
+    private final transient Map<ConfigKey<?>,ResolvedValue> resolvedValues = new ConcurrentHashMap<ConfigKey<?>,ResolvedValue>();
+
     protected AbstractConfigMapImpl(TContainer bo) {
         // Not using ConcurrentMap, because want to (continue to) allow null values.
         // Could use ConcurrentMapAcceptingNullVals (with the associated performance hit on entrySet() etc).
@@ -111,12 +133,92 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     @Override
     public <T> T getConfig(ConfigKey<T> key) {
-        return getConfigImpl(key, false).getWithoutError().get();
+        return getConfigCached(key);
     }
     
     @Override
     public <T> T getConfig(HasConfigKey<T> key) {
-        return getConfigImpl(key.getConfigKey(), false).getWithoutError().get();
+        return getConfigCached(key.getConfigKey());
+    }
+
+    /**
+     * As {@link #getConfigImpl(ConfigKey, boolean)} returning the value, but reusing a previously resolved value
+     * if nothing in this container or its ancestors has changed since, and the value found was neither deferred
+     * nor of a type which might be mutated by the caller.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T getConfigCached(ConfigKey<T> key) {
+        if (key==null) return getConfigImpl(key, false).getWithoutError().get();
+        
+        // read the stamp before resolving, so that any change made concurrently with resolution invalidates the entry
+        long stamp = getGenerationIncludingAncestors();
+        ResolvedValue cached = resolvedValues.get(key);
+        if (cached!=null && cached.key==key && cached.generation==stamp) {
+            return (T) cached.value;
+        }
+        
+        DeferredValueTracker tracker = new DeferredValueTracker();
+        T result = getConfigImpl(key, false, tracker).getWithoutError().get();
+        if (!tracker.deferred && isCacheableResolvedValue(result)) {
+            resolvedValues.put(key, new ResolvedValue(key, result, stamp));
+        } else if (cached!=null) {
+            resolvedValues.remove(key, cached);
+        }
+        return result;
+    }
+
+    /** Whether a resolved value can safely be shared between callers: null, or an immutable value type. */
+    protected boolean isCacheableResolvedValue(Object value) {
+        return value==null || value instanceof String || value instanceof Enum || value instanceof Duration 
+                || Boxing.isPrimitiveOrBoxedObject(value);
+    }
+
+    /**
+     * Marks the config here as changed, so that values cached by this container and its descendants are not reused.
+     * Called automatically when config is set or removed, and should be called by containers when their parent 
+     * or declared config keys change.
+     */
+    public void invalidateResolvedValues() {
+        generation = GENERATIONS.incrementAndGet();
+        resolvedValues.clear();
+    }
+
+    /** The most recent {@link #generation} of this container and its ancestors. */
+    protected long getGenerationIncludingAncestors() {
+        long result = generation;
+        TContainer c = getParentOfContainer(getContainer());
+        while (c!=null) {
+            AbstractConfigMapImpl<?> cm = (AbstractConfigMapImpl<?>) ((BrooklynObjectInternal)c).config().getInternalConfigMap();
+            result = Math.max(result, cm.generation);
+            c = getParentOfContainer(c);
+        }
+        return result;
+    }
+
+    private static class ResolvedValue {
+        final ConfigKey<?> key;
+        final Object value;
+        final long generation;
+        ResolvedValue(ConfigKey<?> key, Object value, long generation) {
+            this.key = key;
+            this.value = value;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Records whether any raw value encountered while resolving a key was deferred, in which case it must not be cached;
+     * that is, of any type which {@link ValueResolver} evaluates afresh on each lookup.
+     */
+    protected static class DeferredValueTracker {
+        boolean deferred = false;
+        void observe(Maybe<?> rawValue) {
+            if (rawValue!=null && rawValue.isPresent()) observe(rawValue.get());
+        }
+        void observe(Object v) {
+            if ((v instanceof Future) || (v instanceof DeferredSupplier) || (v instanceof ImmediateSupplier)
+                    || (v instanceof TaskFactory) || (v instanceof TaskAdaptable)) deferred = true;
+        }
     }
 
     @Override
@@ -184,6 +286,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
         } else {
             oldVal = ownConfig.put(ownKey, val);
         }
+        invalidateResolvedValues();
         postSetConfig();
         return oldVal;
     }
@@ -195,6 +298,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
             ownConfig.clear();
             ownConfig.putAll(vals);
         }
+        invalidateResolvedValues();
     }
 
     @SuppressWarnings("unchecked")
@@ -214,10 +318,12 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     public void removeKey(String key) {
         ownConfig.remove(ConfigKeys.newConfigKey(Object.class, key));
+        invalidateResolvedValues();
     }
 
     public void removeKey(ConfigKey<?> key) {
         ownConfig.remove(key);
+        invalidateResolvedValues();
     }
 
     protected final TContainer getParent() {
@@ -388,6 +494,11 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
     }
 
     protected <T> ReferenceWithError<ConfigValueAtContainer<TContainer,T>> getConfigImpl(final ConfigKey<T> queryKey, final boolean raw) {
+        return getConfigImpl(queryKey, raw, null);
+    }
+
+    protected <T> ReferenceWithError<ConfigValueAtContainer<TContainer,T>> getConfigImpl(final ConfigKey<T> queryKey, final boolean raw, 
+            @Nullable final DeferredValueTracker tracker) {
         if (queryKey==null) {
             return ReferenceWithError.newInstanceThrowingError(new BasicConfigValueAtContainer<TContainer,T>(getContainer(), null, null, false,
                     null),
@@ -419,6 +530,10 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
                 return new MaybeSupplier<T>(() -> (coerceDefaultValue(getContainer(), ownKey.getName(), input.get(), type)));
             }
         };
+        if (tracker!=null) {
+            tracker.observe(ownKey.getDefaultValue());
+            tracker.observe(queryKey.getDefaultValue());
+        }
         // prefer default and type of ownKey
         Maybe<T> defaultValue = raw ? Maybe.<T>absent() :
             ownKey.hasDefaultValue() ? coerceFn.apply(Maybe.of((Object)ownKey.getDefaultValue())) : 
@@ -431,6 +546,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
                 @Override public Maybe<Object> apply(TContainer input) {
                     // lookup against ownKey as it may do extra resolution (eg grab *.* subkeys if a map)
                     Maybe<Object> result = getRawValueAtContainer(input, ownKey);
+                    if (tracker!=null) tracker.observe(result);
                     if (!raw) result = resolveRawValueFromContainer(input, ownKey, result);
                     return result;
                 }
@@ -78,6 +78,7 @@ import org.apache.brooklyn.core.internal.storage.impl.BasicReference;
 import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.core.mgmt.BrooklynTags;
 import org.apache.brooklyn.core.mgmt.BrooklynTags.NamedStringTag;
+import org.apache.brooklyn.core.mgmt.internal.BasicSubscriptionContext;
 import org.apache.brooklyn.core.mgmt.internal.EffectorUtils;
 import org.apache.brooklyn.core.mgmt.internal.EntityManagementSupport;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
@@ -588,6 +589,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         if (parent.isNull()) return;
         Entity oldParent = parent.get();
         parent.clear();
+        config().refreshInheritedConfig();
         if (oldParent != null) {
             if (!Entities.isNoLongerManaged(oldParent)) 
                 oldParent.removeChild(getProxyIfAvailable());
@@ -951,8 +953,48 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             if (LOG.isTraceEnabled())
                 LOG.trace(""+AbstractEntity.this+" setAttribute "+attribute+" "+val);
             
+            warnIfReadOnly(attribute, val);
+            T result = attributesInternal.update(attribute, val);
+            if (result == null) {
+                // could be this is a new sensor
+                entityType.addSensorIfAbsent(attribute);
+            }
+            
+            if (!Objects.equal(result, val)) {
+                getManagementSupport().getEntityChangeListener().onAttributeChanged(attribute);
+            }
+            
+            return result;
+        }
+
+        @Beta
+        @Override
+        public void setAll(Map<? extends AttributeSensor<?>, ?> values) {
+            if (LOG.isTraceEnabled())
+                LOG.trace(""+AbstractEntity.this+" setAttributes "+values);
+            if (values.isEmpty()) return;
+            
+            for (Map.Entry<? extends AttributeSensor<?>, ?> entry : values.entrySet()) {
+                warnIfReadOnly(entry.getKey(), entry.getValue());
+            }
+            // ensure sensors added in same lock block
+            Locks.withLock(getLockInternal(), () -> {
+                Map<AttributeSensor<?>, Object> oldValues = attributesInternal.updateAll(values);
+                for (Map.Entry<AttributeSensor<?>, Object> entry : oldValues.entrySet()) {
+                    if (entry.getValue() == null) {
+                        // could be this is a new sensor
+                        entityType.addSensorIfAbsent(entry.getKey());
+                    }
+                    if (!Objects.equal(entry.getValue(), values.get(entry.getKey()))) {
+                        getManagementSupport().getEntityChangeListener().onAttributeChanged(entry.getKey());
+                    }
+                }
+            });
+        }
+
+        private void warnIfReadOnly(AttributeSensor<?> attribute, Object val) {
             if (Boolean.TRUE.equals(getManagementSupport().isReadOnlyRaw())) {
-                T oldVal = getAttribute(attribute);
+                Object oldVal = getAttribute(attribute);
                 if (Equals.approximately(val, oldVal)) {
                     // ignore, probably an enricher resetting values or something on init
                 } else {
@@ -968,17 +1010,6 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
                     }
                 }
             }
-            T result = attributesInternal.update(attribute, val);
-            if (result == null) {
-                // could be this is a new sensor
-                entityType.addSensorIfAbsent(attribute);
-            }
-            
-            if (!Objects.equal(result, val)) {
-                getManagementSupport().getEntityChangeListener().onAttributeChanged(attribute);
-            }
-            
-            return result;
         }
 
         @Override
@@ -1084,6 +1115,29 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             SubscriptionContext subsContext = subscriptions().getSubscriptionContext();
             if (subsContext != null) subsContext.publish(sensor.newEvent(getProxyIfAvailable(), val));
         }
+        
+        /** As {@link #emitInternal(Sensor, Object)} for each of the given values, publishing them as one batch where supported. */
+        @Beta
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public void emitAllInternal(Map<? extends Sensor<?>, ?> values) {
+            if (getManagementSupport().isNoLongerManaged())
+                throw new IllegalStateException("Entity "+AbstractEntity.this+" is no longer managed, when trying to publish "+values);
+
+            SubscriptionContext subsContext = subscriptions().getSubscriptionContext();
+            if (subsContext == null) return;
+            Entity source = getProxyIfAvailable();
+            List<SensorEvent<?>> events = Lists.newArrayListWithCapacity(values.size());
+            for (Map.Entry<? extends Sensor<?>, ?> entry : values.entrySet()) {
+                events.add(((Sensor) entry.getKey()).newEvent(source, entry.getValue()));
+            }
+            if (subsContext instanceof BasicSubscriptionContext) {
+                ((BasicSubscriptionContext) subsContext).publishAll(events);
+            } else {
+                for (SensorEvent<?> event : events) {
+                    subsContext.publish(event);
+                }
+            }
+        }
     }
     
     /**
@@ -1107,8 +1161,9 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
 
         @Override
         public void refreshInheritedConfig() {
-            // no-op, for now, because the impl always looks at ancestors
-            // but in a distributed impl it will need to clear any local cache
+            // the impl always looks at ancestors, but resolved values may be cached locally;
+            // descendants check the ancestors' generation so don't strictly need telling
+            configsInternal.invalidateResolvedValues();
             refreshInheritedConfigOfChildren();
         }
         
@@ -23,7 +23,6 @@ import static org.apache.brooklyn.util.guava.Functionals.isSatisfied;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Writer;
-import java.lang.reflect.Proxy;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -71,6 +70,7 @@ import org.apache.brooklyn.core.mgmt.internal.EntityManagerInternal;
 import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.internal.NonDeploymentManagementContext;
+import org.apache.brooklyn.core.objs.proxy.EntityProxy;
 import org.apache.brooklyn.core.objs.proxy.EntityProxyImpl;
 import org.apache.brooklyn.core.sensor.DependentConfiguration;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -809,11 +809,12 @@ public class Entities {
      * For normal operations, callers should ensure the method is available on an interface and accessed via the proxy. */
     @Beta @VisibleForTesting
     public static AbstractEntity deproxy(Entity e) {
-        if (!(Proxy.isProxyClass(e.getClass()))) {
+        EntityProxyImpl handler = EntityProxyImpl.getProxyHandler(e);
+        if (handler == null) {
             log.warn("Attempt to deproxy non-proxy "+e, new Throwable("Location of attempt to deproxy non-proxy "+e));
             return (AbstractEntity) e;
         }
-        return (AbstractEntity) ((EntityProxyImpl)Proxy.getInvocationHandler(e)).getDelegate();
+        return (AbstractEntity) handler.getDelegate();
     }
     
     /** 
@@ -827,7 +828,7 @@ public class Entities {
     @Beta
     @SuppressWarnings("unchecked")
     public static <T extends Entity> T proxy(T e) {
-        return (e == null) ? null : e instanceof Proxy ? e : (T) ((AbstractEntity)e).getProxyIfAvailable();
+        return (e == null) ? null : e instanceof EntityProxy ? e : (T) ((AbstractEntity)e).getProxyIfAvailable();
     }
     
     /**
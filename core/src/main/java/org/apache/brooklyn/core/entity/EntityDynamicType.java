@@ -23,8 +23,10 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.brooklyn.api.effector.Effector;
 import org.apache.brooklyn.api.entity.Entity;
@@ -41,6 +43,7 @@ import org.apache.brooklyn.core.effector.Effectors;
 import org.apache.brooklyn.core.effector.MethodEffector;
 import org.apache.brooklyn.core.objs.BrooklynDynamicType;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.javalang.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +52,8 @@ import com.google.common.annotations.Beta;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 
 /** This is the actual type of an entity instance at runtime,
@@ -60,6 +65,12 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityDynamicType.class);
 
+    /** The effectors and sensors declared by each class, so they are found once rather than for every entity created. */
+    @SuppressWarnings("rawtypes")
+    private static final Cache<Class, Map<String,Effector<?>>> effectorsByClass = CacheBuilder.newBuilder().weakKeys().softValues().build();
+    @SuppressWarnings("rawtypes")
+    private static final Cache<Class, Map<String,Sensor<?>>> sensorsByClass = CacheBuilder.newBuilder().weakKeys().softValues().build();
+
     /** 
      * Effectors on this entity, by name.
      */
@@ -81,11 +92,11 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
         super(clazz, entity);
         String id = entity==null ? clazz.getName() : entity.getId();
         
-        effectors.putAll(findEffectors(clazz, null));
+        effectors.putAll(getDeclaredEffectors(clazz));
         if (LOG.isTraceEnabled())
             LOG.trace("Entity {} effectors: {}", id, Joiner.on(", ").join(effectors.keySet()));
         
-        sensors.putAll(findSensors(clazz, null));
+        sensors.putAll(getDeclaredSensors(clazz));
         if (LOG.isTraceEnabled())
             LOG.trace("Entity {} sensors: {}", id, Joiner.on(", ").join(sensors.keySet()));
         
@@ -234,6 +245,7 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
     public void addConfigKey(ConfigKey<?> newKey) {
         configKeys.put(newKey.getName(), new FieldAndValue<ConfigKey<?>>(null, newKey));
         invalidateSnapshot();
+        instance.config().refreshInheritedConfig();
         instance.sensors().emit(AbstractEntity.CONFIG_KEY_ADDED, newKey);
     }
     
@@ -253,6 +265,7 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
         FieldAndValue<ConfigKey<?>> result = configKeys.remove(key.getName());
         if (result != null) {
             invalidateSnapshot();
+            instance.config().refreshInheritedConfig();
             ConfigKey<?> removedKey = result.value;
             instance.sensors().emit(AbstractEntity.CONFIG_KEY_REMOVED, removedKey);
             return true;
@@ -265,6 +278,7 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
         Map<String, FieldAndValue<ConfigKey<?>>> oldKeys = MutableMap.copyOf(configKeys);
         configKeys.clear();
         invalidateSnapshot();
+        instance.config().refreshInheritedConfig();
         for (FieldAndValue<ConfigKey<?>> k: oldKeys.values()) {
             instance.sensors().emit(AbstractEntity.CONFIG_KEY_REMOVED, k.value);
         }
@@ -277,6 +291,30 @@ public class EntityDynamicType extends BrooklynDynamicType<Entity, AbstractEntit
         return new EntityTypeSnapshot(name, value(configKeys), sensors, effectors.values());
     }
     
+    private static Map<String,Effector<?>> getDeclaredEffectors(final Class<? extends Entity> clazz) {
+        try {
+            return effectorsByClass.get(clazz, new Callable<Map<String,Effector<?>>>() {
+                @Override
+                public Map<String,Effector<?>> call() {
+                    return Collections.unmodifiableMap(findEffectors(clazz, null));
+                }});
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
+    private static Map<String,Sensor<?>> getDeclaredSensors(final Class<? extends Entity> clazz) {
+        try {
+            return sensorsByClass.get(clazz, new Callable<Map<String,Sensor<?>>>() {
+                @Override
+                public Map<String,Sensor<?>> call() {
+                    return Collections.unmodifiableMap(findSensors(clazz, null));
+                }});
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
     /**
      * Finds the effectors defined on the entity's class, statics and optionally any non-static (discouraged).
      */
@@ -156,6 +156,15 @@ public interface EntityInternal extends BrooklynObjectInternal, EntityLocal, Reb
          */
         <T> T setWithoutPublishing(AttributeSensor<T> sensor, T val);
 
+        /**
+         * Like {@link #set(AttributeSensor, Object)} for each of the given values, but applied under a single
+         * acquisition of the attribute lock, with the resulting events published to subscribers as one batch.
+         * Subscribers still receive an individual event per attribute, in the iteration order of the map.
+         * Intended for feeds which update many attributes on each poll.
+         */
+        @Beta
+        void setAll(Map<? extends AttributeSensor<?>, ?> values);
+
         @Beta
         void remove(AttributeSensor<?> attribute);
     }
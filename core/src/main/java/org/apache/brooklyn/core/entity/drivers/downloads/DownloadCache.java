@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity.drivers.downloads;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.config.BasicConfigKey;
+import org.apache.brooklyn.util.core.ResourceUtils;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A cache of downloaded artifacts on the management node, so that many entities installing the same
+ * artifact only fetch it from the internet (or a mirror) once; the drivers then copy it to their machines.
+ * <p>
+ * Concurrent requests for the same URL share a single fetch. Where a checksum is given, the artifact is
+ * verified when first fetched, and a cached artifact which no longer matches is fetched again.
+ * Checksums are hex strings, optionally prefixed with the algorithm (e.g. {@code sha256:...}); without a
+ * prefix the algorithm is inferred from the length (MD5, SHA-1, SHA-256 or SHA-512).
+ * <p>
+ * Once the cached artifacts exceed {@link #MAX_SIZE}, the least recently used are deleted, other than those
+ * in use: callers must {@link #release(File) release} each file returned by {@code get} once they have
+ * finished with it (e.g. copied it to a machine).
+ * <p>
+ * Enabled with {@link #ENABLED} in the brooklyn properties; see {@link #getInstance(StringConfigMap)}.
+ */
+public class DownloadCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownloadCache.class);
+
+    public static final ConfigKey<Boolean> ENABLED = BasicConfigKey.builder(Boolean.class)
+            .name(DownloadProducerFromProperties.DOWNLOAD_CONF_PREFIX+"cache.enabled")
+            .description("Whether to fetch artifacts on the management node and copy them to the machines, "
+                    + "sharing one download between all the entities installing the same artifact")
+            .defaultValue(false)
+            .build();
+
+    public static final ConfigKey<String> PATH = BasicConfigKey.builder(String.class)
+            .name(DownloadProducerFromProperties.DOWNLOAD_CONF_PREFIX+"cache.path")
+            .description("Directory on the management node for cached artifacts (defaults to ~/.brooklyn/download-cache)")
+            .build();
+
+    public static final ConfigKey<Long> MAX_SIZE = BasicConfigKey.builder(Long.class)
+            .name(DownloadProducerFromProperties.DOWNLOAD_CONF_PREFIX+"cache.maxSize")
+            .description("Maximum total size in bytes of the cached artifacts; when a fetch takes the cache over this, "
+                    + "the least recently used artifacts are deleted (defaults to 10GB)")
+            .defaultValue(10L*1024*1024*1024)
+            .build();
+
+    private static final ConcurrentMap<String, DownloadCache> INSTANCES = new ConcurrentHashMap<String, DownloadCache>();
+
+    /**
+     * The cache configured in the given properties, shared with anything else using the same directory,
+     * or null if the cache is not {@link #ENABLED enabled}.
+     */
+    @Nullable
+    public static DownloadCache getInstance(StringConfigMap config) {
+        if (!Boolean.TRUE.equals(config.getConfig(ENABLED))) return null;
+        String path = config.getConfig(PATH);
+        if (Strings.isBlank(path)) path = Os.mergePaths(Os.home(), ".brooklyn", "download-cache");
+        DownloadCache result = getInstance(new File(Os.tidyPath(path)));
+        Long maxSize = config.getConfig(MAX_SIZE);
+        if (maxSize != null) result.setMaxSize(maxSize);
+        return result;
+    }
+
+    public static DownloadCache getInstance(File dir) {
+        String key = dir.getAbsolutePath();
+        DownloadCache result = INSTANCES.get(key);
+        if (result == null) {
+            INSTANCES.putIfAbsent(key, new DownloadCache(dir));
+            result = INSTANCES.get(key);
+        }
+        return result;
+    }
+
+    private final File dir;
+    private volatile long maxSize = MAX_SIZE.getDefaultValue();
+    // keyed by the path of the cached file; completed fetches are kept so later requests need not check the file
+    private final ConcurrentMap<String, SettableFuture<File>> fetches = new ConcurrentHashMap<String, SettableFuture<File>>();
+    // the checksums each cached file is known to match, so large files are not hashed for every request
+    private final ConcurrentMap<String, String> verifiedChecksums = new ConcurrentHashMap<String, String>();
+    // the number of callers using each cached file (returned by get but not yet released), by path; guarded by this
+    private final Map<String, Integer> inUse = Maps.newHashMap();
+    // where a URL is now cached, by its usual path, if the file there did not match a checksum while in use
+    private final ConcurrentMap<String, File> replacements = new ConcurrentHashMap<String, File>();
+    // paths of cached files replaced while in use, to be deleted once released; guarded by this
+    private final Set<String> superseded = Sets.newHashSet();
+
+    protected DownloadCache(File dir) {
+        this.dir = checkNotNull(dir, "dir");
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached copy of the first of the given URLs which can be fetched (and which matches
+     * the checksum, if any), fetching it if no other caller has already done so. A blank checksum is
+     * treated as none. The caller must {@link #release(File) release} the file once finished with it.
+     *
+     * @throws IllegalStateException if none of the URLs could be fetched, or none matched the checksum
+     */
+    public File get(ResourceUtils resolver, List<String> urls, String filename, @Nullable String checksum) {
+        Exception lastError = null;
+        for (String url : urls) {
+            try {
+                return get(resolver, url, filename, checksum);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Unable to fetch {} into download cache {} (trying next URL, if any): {}", new Object[] {url, dir, e.getMessage()});
+                lastError = e;
+            }
+        }
+        throw new IllegalStateException("Unable to fetch "+filename+" into download cache "+dir+"; tried: "+urls, lastError);
+    }
+
+    /**
+     * Returns the cached copy of the given URL, fetching it if no other caller has already done so.
+     * The caller must {@link #release(File) release} the file once finished with it.
+     *
+     * @throws IllegalStateException if the URL could not be fetched, or did not match the checksum
+     */
+    public File get(ResourceUtils resolver, String url, String filename, @Nullable String checksum) {
+        if (Strings.isBlank(checksum)) checksum = null;
+        File usual = new File(new File(dir, Hashing.sha256().hashString(url, Charsets.UTF_8).toString().substring(0, 16)), filename);
+
+        File result = acquire(resolver, url, usual, checksum);
+        boolean returned = false;
+        try {
+            if (checksum != null && !checksum.equalsIgnoreCase(verifiedChecksums.get(result.getAbsolutePath()))) {
+                if (!matches(result, checksum)) {
+                    // changed since it was cached (or cached before a checksum was given), so fetch again
+                    LOG.info("Cached copy of {} does not match checksum {}; fetching again", url, checksum);
+                    File mismatched = result;
+                    release(result);
+                    result = null;
+                    replace(usual, mismatched, checksum);
+                    result = acquire(resolver, url, usual, checksum);
+                    // another caller may have fetched it again first, with a different checksum or none
+                    if (!checksum.equalsIgnoreCase(verifiedChecksums.get(result.getAbsolutePath())) && !matches(result, checksum)) {
+                        throw new IllegalStateException("Download of "+url+" does not match checksum "+checksum);
+                    }
+                }
+                verifiedChecksums.put(result.getAbsolutePath(), checksum);
+            }
+            // the last-modified time records when each artifact was last used, for evicting the least recently used
+            if (!result.setLastModified(System.currentTimeMillis())) {
+                LOG.debug("Unable to set last-modified time of {} in download cache", result);
+            }
+            returned = true;
+            return result;
+        } finally {
+            if (!returned && result != null) release(result);
+        }
+    }
+
+    /**
+     * Marks a file returned by {@code get} as no longer used by the caller, so that it can be evicted
+     * once no other caller is using it.
+     */
+    public synchronized void release(File file) {
+        String key = file.getAbsolutePath();
+        Integer count = inUse.get(key);
+        if (count == null) {
+            LOG.debug("Ignoring release of {} from download cache {}, which is not in use", file, dir);
+        } else if (count <= 1) {
+            inUse.remove(key);
+            if (superseded.remove(key)) delete(file);
+        } else {
+            inUse.put(key, count-1);
+        }
+    }
+
+    /**
+     * Gets or fetches the URL whose usual path is given, marking the file in use before another caller's
+     * eviction can delete it.
+     */
+    private File acquire(ResourceUtils resolver, String url, File usual, String checksum) {
+        while (true) {
+            File target = currentTarget(usual);
+            File result = getOrFetch(resolver, url, target, checksum);
+            synchronized (this) {
+                if (result.isFile() && !superseded.contains(result.getAbsolutePath())) {
+                    String key = result.getAbsolutePath();
+                    Integer count = inUse.get(key);
+                    inUse.put(key, (count == null) ? 1 : count+1);
+                    return result;
+                }
+            }
+            // evicted since it was fetched, by another caller's fetch, or replaced; getOrFetch will fetch it again
+            LOG.debug("Cached copy {} evicted or replaced before use; fetching again", target);
+        }
+    }
+
+    /** Where the URL whose usual path is given is now cached. */
+    private File currentTarget(File usual) {
+        File result = replacements.get(usual.getAbsolutePath());
+        return (result != null) ? result : usual;
+    }
+
+    /**
+     * Arranges for a fresh copy of the cached file, which did not match the checksum, to be fetched. If no other
+     * caller is using it, it is deleted so is fetched again at the same path; otherwise (as they may still be
+     * copying it) the URL is fetched to a new path, and the old file deleted once released.
+     */
+    private synchronized void replace(File usual, File mismatched, String checksum) {
+        String key = mismatched.getAbsolutePath();
+        // already replaced by another caller
+        if (!currentTarget(usual).equals(mismatched) || checksum.equalsIgnoreCase(verifiedChecksums.get(key))) return;
+
+        if (!inUse.containsKey(key)) {
+            invalidate(mismatched);
+            return;
+        }
+        verifiedChecksums.remove(key);
+        fetches.remove(key);
+        superseded.add(key);
+        replacements.put(usual.getAbsolutePath(), new File(new File(dir, usual.getParentFile().getName()+"-"+Identifiers.makeRandomId(8)), usual.getName()));
+    }
+
+    private File getOrFetch(ResourceUtils resolver, String url, File target, String checksum) {
+        String key = target.getAbsolutePath();
+        SettableFuture<File> fetch = SettableFuture.create();
+        SettableFuture<File> existing = fetches.putIfAbsent(key, fetch);
+        if (existing != null) {
+            try {
+                File result = existing.get();
+                if (result.isFile()) return result;
+            } catch (ExecutionException e) {
+                // the other fetch failed, so try again ourselves
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+            fetches.remove(key, existing);
+            return getOrFetch(resolver, url, target, checksum);
+        }
+
+        try {
+            boolean fetched = false;
+            if (!target.isFile()) {
+                fetch(resolver, url, target, checksum);
+                fetched = true;
+            }
+            fetch.set(target);
+            if (fetched) evict(target);
+            return target;
+        } catch (Exception e) {
+            fetches.remove(key, fetch);
+            fetch.setException(e);
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private void invalidate(File target) {
+        String key = target.getAbsolutePath();
+        verifiedChecksums.remove(key);
+        fetches.remove(key);
+        if (target.exists() && !target.delete()) {
+            LOG.warn("Unable to delete {} from download cache", target);
+        }
+    }
+
+    private void delete(File file) {
+        invalidate(file);
+        File parent = file.getParentFile();
+        String[] remaining = parent.list();
+        if (remaining != null && remaining.length == 0) parent.delete();
+    }
+
+    /**
+     * Deletes the least recently used artifacts (other than the given one, and those in use) until the
+     * cache is no larger than its {@link #getMaxSize() maximum size}.
+     */
+    protected synchronized void evict(File keep) {
+        List<File> files = Lists.newArrayList();
+        long totalSize = 0;
+        for (File subdir : listFiles(dir)) {
+            for (File file : listFiles(subdir)) {
+                if (file.isFile() && !file.getName().endsWith(".tmp")) {
+                    files.add(file);
+                    totalSize += file.length();
+                }
+            }
+        }
+        if (totalSize <= maxSize) return;
+
+        Collections.sort(files, new Comparator<File>() {
+            @Override public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (totalSize <= maxSize) break;
+            if (file.equals(keep) || inUse.containsKey(file.getAbsolutePath())) continue;
+            long size = file.length();
+            LOG.debug("Evicting {} from download cache {}, which is over its maximum size of {} bytes", new Object[] {file, dir, maxSize});
+            delete(file);
+            if (!file.exists()) totalSize -= size;
+        }
+    }
+
+    private static List<File> listFiles(File dir) {
+        File[] result = dir.listFiles();
+        return (result == null) ? Collections.<File>emptyList() : Arrays.asList(result);
+    }
+
+    /**
+     * Fetches the URL, writing it to a temporary file which is renamed to the target once complete
+     * (and verified against the checksum, if any).
+     */
+    protected void fetch(ResourceUtils resolver, String url, File target, @Nullable String checksum) throws IOException {
+        LOG.debug("Fetching {} into download cache as {}", url, target);
+        File parent = target.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Unable to create directory "+parent+" for download cache");
+        }
+        File tmp = new File(parent, target.getName()+"."+Identifiers.makeRandomId(8)+".tmp");
+        try {
+            InputStream in = resolver.getResourceFromUrl(url);
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                Streams.copy(in, out);
+            } finally {
+                Streams.closeQuietly(in);
+                Streams.closeQuietly(out);
+            }
+            if (checksum != null && !matches(tmp, checksum)) {
+                throw new IllegalStateException("Download of "+url+" does not match checksum "+checksum);
+            }
+            if (!tmp.renameTo(target)) {
+                throw new IOException("Unable to rename "+tmp+" to "+target);
+            }
+            if (checksum != null) verifiedChecksums.put(target.getAbsolutePath(), checksum);
+        } finally {
+            if (tmp.exists() && !tmp.delete()) {
+                LOG.debug("Unable to delete temporary file {} of download cache", tmp);
+            }
+        }
+    }
+
+    /** Whether the file's contents match the checksum. */
+    public static boolean matches(File file, String checksum) {
+        try {
+            return Files.hash(file, hashFunction(algorithm(checksum))).toString().equalsIgnoreCase(digest(checksum));
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * The algorithm of the checksum: {@code md5}, {@code sha1}, {@code sha256} or {@code sha512}, as given
+     * in its prefix or inferred from its length.
+     */
+    public static String algorithm(String checksum) {
+        String expected = checksum.trim();
+        int colon = expected.indexOf(':');
+        String hex = digest(checksum);
+        String name = (colon >= 0) ? expected.substring(0, colon).trim().toLowerCase().replace("-", "") : null;
+        if ("md5".equals(name) || (name == null && hex.length() == 32)) return "md5";
+        if ("sha1".equals(name) || (name == null && hex.length() == 40)) return "sha1";
+        if ("sha256".equals(name) || (name == null && hex.length() == 64)) return "sha256";
+        if ("sha512".equals(name) || (name == null && hex.length() == 128)) return "sha512";
+        throw new IllegalArgumentException("Unsupported checksum "+(name == null ? "of length "+hex.length() : "algorithm "+name)
+                +"; expected md5, sha1, sha256 or sha512");
+    }
+
+    /** The hex digest of the checksum, without any algorithm prefix. */
+    public static String digest(String checksum) {
+        String expected = checksum.trim();
+        int colon = expected.indexOf(':');
+        return (colon >= 0) ? expected.substring(colon+1).trim() : expected;
+    }
+
+    private static HashFunction hashFunction(String algorithm) {
+        switch (algorithm) {
+        case "md5": return Hashing.md5();
+        case "sha1": return Hashing.sha1();
+        case "sha256": return Hashing.sha256();
+        default: return Hashing.sha512();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadCache["+dir+"]";
+    }
+}
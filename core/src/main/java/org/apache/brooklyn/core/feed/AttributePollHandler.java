@@ -20,6 +20,9 @@ package org.apache.brooklyn.core.feed;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.core.entity.Attributes;
@@ -48,6 +51,12 @@ public class AttributePollHandler<V> implements PollHandler<V> {
 
     public static final Logger log = LoggerFactory.getLogger(AttributePollHandler.class);
 
+    /**
+     * Values set by handlers on this thread while a {@link DelegatingPollHandler} passes them a result,
+     * to be published together when it is done; null when not batching.
+     */
+    private static final ThreadLocal<Map<AttributeSensor<?>, Object>> BATCH = new ThreadLocal<Map<AttributeSensor<?>, Object>>();
+
     private final FeedConfig<V,?,?> config;
     private final Entity entity;
     @SuppressWarnings("rawtypes")
@@ -206,14 +215,20 @@ public class AttributePollHandler<V> implements PollHandler<V> {
         if (v == FeedConfig.UNCHANGED) {
             // nothing
         } else if (v == FeedConfig.REMOVE) {
+            Map<AttributeSensor<?>, Object> batch = BATCH.get();
+            if (batch != null) batch.remove(sensor);
             ((EntityInternal)entity).sensors().remove(sensor);
             feed.onRemoveSensor(sensor);
         } else if (sensor == FeedConfig.NO_SENSOR) {
             // nothing
         } else {
             Object coercedV = TypeCoercions.coerce(v, sensor.getType());
-            if (suppressDuplicates && Objects.equal(coercedV, entity.getAttribute(sensor))) {
+            Map<AttributeSensor<?>, Object> batch = BATCH.get();
+            Object oldV = (batch != null && batch.containsKey(sensor)) ? batch.get(sensor) : entity.getAttribute(sensor);
+            if (suppressDuplicates && Objects.equal(coercedV, oldV)) {
                 // no change; nothing
+            } else if (batch != null) {
+                batch.put(sensor, coercedV);
             } else {
                 entity.sensors().set(sensor, coercedV);
                 feed.onPublishSensor(sensor, coercedV);
@@ -221,6 +236,33 @@ public class AttributePollHandler<V> implements PollHandler<V> {
         }
     }
 
+    Entity getEntity() {
+        return entity;
+    }
+
+    AbstractFeed getFeed() {
+        return feed;
+    }
+
+    /**
+     * Collects the values set by handlers on this thread until {@link #publishBatch(Entity, AbstractFeed)},
+     * rather than setting each one as it is computed.
+     */
+    static void startBatch() {
+        BATCH.set(new LinkedHashMap<AttributeSensor<?>, Object>());
+    }
+
+    /** Sets the values collected since {@link #startBatch()} on the entity, with a single {@code setAll}. */
+    static void publishBatch(Entity entity, AbstractFeed feed) {
+        Map<AttributeSensor<?>, Object> batch = BATCH.get();
+        BATCH.remove();
+        if (batch == null || batch.isEmpty()) return;
+        ((EntityInternal)entity).sensors().setAll(batch);
+        for (Map.Entry<AttributeSensor<?>, Object> entry : batch.entrySet()) {
+            feed.onPublishSensor(entry.getKey(), entry.getValue());
+        }
+    }
+
     @Override
     public String toString() {
         return super.toString()+"["+getDescription()+"]";
@@ -23,17 +23,31 @@ import java.util.List;
 import com.google.common.collect.ImmutableList;
 
 /**
- * A poll handler that delegates each call to a set of poll handlers.
+ * A poll handler that delegates each call to a set of poll handlers. Where they are all for the same
+ * entity, the sensor values they compute from a result are set on it together.
  * 
  * @author aled
  */
 public class DelegatingPollHandler<V> implements PollHandler<V> {
 
     private final List<AttributePollHandler<? super V>> delegates;
+    /** Whether the delegates' values can be set together; only if they are all for the same entity and feed. */
+    private final boolean batched;
 
     public DelegatingPollHandler(Iterable<AttributePollHandler<? super V>> delegates) {
         super();
         this.delegates = ImmutableList.copyOf(delegates);
+        this.batched = isSameEntityAndFeed(this.delegates);
+    }
+
+    private static boolean isSameEntityAndFeed(List<? extends AttributePollHandler<?>> delegates) {
+        if (delegates.size() < 2) return false;
+        AttributePollHandler<?> first = delegates.get(0);
+        for (AttributePollHandler<?> delegate : delegates) {
+            if (delegate.getEntity() != first.getEntity() || delegate.getFeed() != first.getFeed())
+                return false;
+        }
+        return true;
     }
 
     @Override
@@ -47,24 +61,48 @@ public class DelegatingPollHandler<V> implements PollHandler<V> {
 
     @Override
     public void onSuccess(V val) {
-        for (AttributePollHandler<? super V> delegate : delegates) {
-            delegate.onSuccess(val);
+        startBatch();
+        try {
+            for (AttributePollHandler<? super V> delegate : delegates) {
+                delegate.onSuccess(val);
+            }
+        } finally {
+            publishBatch();
         }
     }
 
     @Override
     public void onFailure(V val) {
-        for (AttributePollHandler<? super V> delegate : delegates) {
-            delegate.onFailure(val);
+        startBatch();
+        try {
+            for (AttributePollHandler<? super V> delegate : delegates) {
+                delegate.onFailure(val);
+            }
+        } finally {
+            publishBatch();
         }
     }
 
     @Override
     public void onException(Exception exception) {
-        for (AttributePollHandler<? super V> delegate : delegates) {
-            delegate.onException(exception);
+        startBatch();
+        try {
+            for (AttributePollHandler<? super V> delegate : delegates) {
+                delegate.onException(exception);
+            }
+        } finally {
+            publishBatch();
         }
     }
+
+    /** Sensor values set by the delegates are then published together, in one call to the entity. */
+    private void startBatch() {
+        if (batched) AttributePollHandler.startBatch();
+    }
+
+    private void publishBatch() {
+        if (batched) AttributePollHandler.publishBatch(delegates.get(0).getEntity(), delegates.get(0).getFeed());
+    }
     
     @Override
     public String toString() {
@@ -19,20 +19,25 @@
 package org.apache.brooklyn.core.feed;
 
 import java.util.LinkedHashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.ExecutionManager;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
 import org.apache.brooklyn.util.core.task.DynamicSequentialTask;
-import org.apache.brooklyn.util.core.task.ScheduledTask;
 import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,26 +49,38 @@ import com.google.common.base.MoreObjects;
  * For executing periodic polls.
  * Jobs are added to the schedule, and then the poller is started.
  * The jobs will then be executed periodically, and the handler called for the result/failure.
+ * <p>
+ * Polls are triggered from the {@link BasicExecutionManager#getSharedScheduler() shared scheduler}
+ * of the management context, rather than each job having its own {@link org.apache.brooklyn.util.core.task.ScheduledTask}.
+ * When a poll is due a transient task is submitted in the entity's execution context to run it,
+ * and on completion the next poll is scheduled for one period later (with a little jitter,
+ * so that polls of entities started together drift apart). A job is never run concurrently with itself.
  * 
  * Assumes the schedule+start will be done single threaded, and that stop will not be done concurrently.
  */
 public class Poller<V> {
     public static final Logger log = LoggerFactory.getLogger(Poller.class);
 
+    /** Fraction of the poll period by which each delay is randomly varied, half either side. */
+    private static final double JITTER_FRACTION = 0.1;
+
     private final Entity entity;
     private final AbstractFeed feed;
     private final boolean onlyIfServiceUp;
     private final Set<Callable<?>> oneOffJobs = new LinkedHashSet<Callable<?>>();
     private final Set<PollJob<V>> pollJobs = new LinkedHashSet<PollJob<V>>();
     private final Set<Task<?>> oneOffTasks = new LinkedHashSet<Task<?>>();
-    private final Set<ScheduledTask> tasks = new LinkedHashSet<ScheduledTask>();
     private volatile boolean started = false;
+    /** Incremented on each start and stop, so that polls scheduled by a previous run are ignored. */
+    private volatile long generation = 0;
     
     private static class PollJob<V> {
         final PollHandler<? super V> handler;
         final Duration pollPeriod;
         final Runnable wrappedJob;
         private boolean loggedPreviousException = false;
+        volatile ScheduledFuture<?> nextPoll;
+        volatile Task<?> currentPoll;
         
         PollJob(final Callable<V> job, final PollHandler<? super V> handler, Duration period) {
             this.handler = handler;
@@ -142,30 +159,11 @@ public class Poller<V> {
             oneOffTasks.add(feed.getExecutionContext().submit(task));
         }
         
+        long generation = ++this.generation;
         Duration minPeriod = null;
         for (final PollJob<V> pollJob : pollJobs) {
-            final String scheduleName = pollJob.handler.getDescription();
             if (pollJob.pollPeriod.compareTo(Duration.ZERO) > 0) {
-                ScheduledTask t = ScheduledTask.builder(() -> {
-                            DynamicSequentialTask<Void> task = new DynamicSequentialTask<Void>(MutableMap.of("displayName", scheduleName, "entity", entity), 
-                                new Callable<Void>() { @Override public Void call() {
-                                    if (!Entities.isManaged(entity)) {
-                                        return null;
-                                    }
-                                    if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
-                                        return null;
-                                    }
-                                    pollJob.wrappedJob.run();
-                                    return null; 
-                                } } );
-                            BrooklynTaskTags.setTransient(task);
-                            return task;
-                        })
-                        .displayName("scheduled:" + scheduleName)
-                        .period(pollJob.pollPeriod)
-                        .cancelOnException(false)
-                        .build();
-                tasks.add(Entities.submit(entity, t));
+                schedule(pollJob, generation, Duration.ZERO);
                 if (minPeriod==null || (pollJob.pollPeriod.isShorterThan(minPeriod))) {
                     minPeriod = pollJob.pollPeriod;
                 }
@@ -179,6 +177,75 @@ public class Poller<V> {
         }
     }
     
+    private boolean isCurrent(long generation) {
+        return started && this.generation == generation;
+    }
+    
+    private void schedule(final PollJob<V> pollJob, final long generation, Duration delay) {
+        if (!isCurrent(generation)) return;
+        try {
+            // the poll may run, and schedule the next, before schedule returns; so that the next is
+            // not overwritten with this (then done) one, it waits for this one to be recorded
+            synchronized (pollJob) {
+                pollJob.nextPoll = getScheduler().schedule(() -> dispatch(pollJob, generation), delay.toNanoseconds(), TimeUnit.NANOSECONDS);
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            // typically the management context is shutting down
+            if (log.isDebugEnabled()) log.debug("Unable to schedule poll for "+entity+" (using "+this+"); no further polls: "+e);
+        }
+    }
+    
+    /** Runs on the shared scheduler, so must only submit the poll. */
+    private void dispatch(final PollJob<V> pollJob, final long generation) {
+        if (!isCurrent(generation)) return;
+        if (Entities.isNoLongerManaged(entity)) {
+            if (log.isDebugEnabled()) log.debug("Not polling {} (using {}), as no longer managed; no further polls", entity, this);
+            return;
+        }
+        
+        DynamicSequentialTask<Void> task = new DynamicSequentialTask<Void>(MutableMap.of("displayName", pollJob.handler.getDescription(), "entity", entity), 
+            new Callable<Void>() { @Override public Void call() {
+                try {
+                    if (!Entities.isManaged(entity)) {
+                        return null;
+                    }
+                    if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
+                        return null;
+                    }
+                    pollJob.wrappedJob.run();
+                    return null;
+                } finally {
+                    schedule(pollJob, generation, nextDelay(pollJob));
+                }
+            } } );
+        BrooklynTaskTags.setTransient(task);
+        try {
+            pollJob.currentPoll = ((EntityInternal)entity).getExecutionContext().submit(task);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            if (((EntityInternal)entity).getManagementContext().isRunning()) {
+                log.warn("Unable to submit poll for "+entity+" (using "+this+"); will retry: "+e);
+                schedule(pollJob, generation, pollJob.pollPeriod);
+            } else {
+                if (log.isDebugEnabled()) log.debug("Unable to submit poll for "+entity+" (using "+this+"); no further polls: "+e);
+            }
+        }
+    }
+    
+    private Duration nextDelay(PollJob<V> pollJob) {
+        double jitter = (ThreadLocalRandom.current().nextDouble() - 0.5) * JITTER_FRACTION;
+        return pollJob.pollPeriod.multiply(1 + jitter);
+    }
+    
+    private ScheduledExecutorService getScheduler() {
+        ExecutionManager executionManager = ((EntityInternal)entity).getManagementContext().getExecutionManager();
+        if (executionManager instanceof BasicExecutionManager) {
+            return ((BasicExecutionManager)executionManager).getSharedScheduler();
+        }
+        throw new IllegalStateException("Cannot poll "+entity+" using "+executionManager+"; requires a "+BasicExecutionManager.class.getSimpleName());
+    }
+    
     public void stop() {
         if (log.isDebugEnabled()) log.debug("Stopping poll for {} (using {})", new Object[] {entity, this});
         if (!started) { 
@@ -187,26 +254,36 @@ public class Poller<V> {
         }
         
         started = false;
+        generation++;
         for (Task<?> task : oneOffTasks) {
             if (task != null) task.cancel(true);
         }
-        for (ScheduledTask task : tasks) {
-            if (task != null) task.cancel();
+        for (PollJob<V> pollJob : pollJobs) {
+            ScheduledFuture<?> nextPoll = pollJob.nextPoll;
+            if (nextPoll != null) nextPoll.cancel(false);
+            Task<?> currentPoll = pollJob.currentPoll;
+            if (currentPoll != null) currentPoll.cancel(true);
+            pollJob.nextPoll = null;
+            pollJob.currentPoll = null;
         }
         oneOffTasks.clear();
-        tasks.clear();
     }
 
     public boolean isRunning() {
         boolean hasActiveTasks = false;
-        for (Task<?> task: tasks) {
-            if (task.isBegun() && !task.isDone()) {
-                hasActiveTasks = true;
-                break;
+        // polls stop once the entity is unmanaged or the management context is stopped, but pending ones are not cancelled
+        if (!Entities.isNoLongerManaged(entity) && ((EntityInternal)entity).getManagementContext().isRunning()) {
+            for (PollJob<V> pollJob : pollJobs) {
+                ScheduledFuture<?> nextPoll = pollJob.nextPoll;
+                Task<?> currentPoll = pollJob.currentPoll;
+                if ((nextPoll != null && !nextPoll.isDone()) || (currentPoll != null && !currentPoll.isDone())) {
+                    hasActiveTasks = true;
+                    break;
+                }
             }
         }
         if (!started && hasActiveTasks) {
-            log.warn("Poller should not be running, but has active tasks, tasks: "+tasks);
+            log.warn("Poller should not be running, but has active polls, jobs: "+pollJobs);
         }
         return started && hasActiveTasks;
     }
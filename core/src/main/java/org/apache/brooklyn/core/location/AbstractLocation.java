@@ -333,6 +333,7 @@ public abstract class AbstractLocation extends AbstractBrooklynObject implements
             if (updateChildListParents)
                 ((AbstractLocation)newParent).addChild(this);
         }
+        configMap.invalidateResolvedValues();
         
         onChanged();
     }
@@ -21,6 +21,7 @@ package org.apache.brooklyn.core.mgmt.internal;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -34,6 +35,7 @@ import org.apache.brooklyn.util.text.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 
@@ -50,6 +52,17 @@ public abstract class AbstractSubscriptionManager implements SubscriptionManager
     /** performs the actual publishing -- ie distribution to subscriptions */
     @Override
     public abstract <T> void publish(final SensorEvent<T> event);
+    
+    /**
+     * Publishes the given events, in order. Implementations may deliver these to each subscriber
+     * as a single batch, but subscribers still receive each event individually.
+     */
+    @Beta
+    public void publishAll(List<? extends SensorEvent<?>> events) {
+        for (SensorEvent<?> event : events) {
+            publish(event);
+        }
+    }
 
     public static class EntitySensorToken {
         Entity e;
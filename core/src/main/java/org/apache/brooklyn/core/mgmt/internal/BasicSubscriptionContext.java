@@ -22,6 +22,7 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.mapOf;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -36,6 +37,7 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -176,6 +178,21 @@ public class BasicSubscriptionContext implements SubscriptionContext {
         manager.publish(event);
     }
 
+    /**
+     * Publishes the given events, in order, as a single batch where the manager supports it.
+     * @see AbstractSubscriptionManager#publishAll(List)
+     */
+    @Beta
+    public void publishAll(List<? extends SensorEvent<?>> events) {
+        if (manager instanceof AbstractSubscriptionManager) {
+            ((AbstractSubscriptionManager)manager).publishAll(events);
+        } else {
+            for (SensorEvent<?> event : events) {
+                manager.publish(event);
+            }
+        }
+    }
+
     /** Return the subscriptions associated with this context */
     @Override
     public Set<SubscriptionHandle> getSubscriptions() {
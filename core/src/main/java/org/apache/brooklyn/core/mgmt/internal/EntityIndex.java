@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.entity.Entity;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Indexes of the managed entities, by application, type, catalog item and tag, so that such queries
+ * need not check every entity; for use by {@link LocalEntityManager} only.
+ * <p>
+ * Entities are indexed by the values they have when managed, except for tags which are re-indexed
+ * as they change. The type is the class of the given entity (normally the proxy), so it is indexed
+ * under each of the entity's interfaces.
+ */
+class EntityIndex {
+
+    private static class Indexed {
+        final Entity entity;
+        final String applicationId;
+        final String catalogItemId;
+        Set<Object> tags;
+
+        Indexed(Entity entity, String applicationId, String catalogItemId, Set<Object> tags) {
+            this.entity = entity;
+            this.applicationId = applicationId;
+            this.catalogItemId = catalogItemId;
+            this.tags = tags;
+        }
+    }
+
+    // all guarded by synchronizing on this
+    private final Map<String, Indexed> indexedById = Maps.newHashMap();
+    private final SetMultimap<String, Entity> byApplicationId = LinkedHashMultimap.create();
+    private final SetMultimap<Class<?>, Entity> byType = LinkedHashMultimap.create();
+    private final SetMultimap<String, Entity> byCatalogItemId = LinkedHashMultimap.create();
+    private final SetMultimap<Object, Entity> byTag = LinkedHashMultimap.create();
+
+    /**
+     * Indexes the entity (replacing any previous entry with its id).
+     *
+     * @param entity The entity to be returned from queries (normally the proxy)
+     * @param real The entity to read the indexed values from
+     */
+    void add(Entity entity, Entity real) {
+        // read outside of the lock, as calls to the entity
+        String applicationId = real.getApplicationId();
+        String catalogItemId = real.getCatalogItemId();
+        synchronized (this) {
+            // but tags read under the lock (only taking the entity's lock on its tags, briefly), so that
+            // concurrent changes to them are indexed in the order they were made
+            Indexed indexed = new Indexed(entity, applicationId, catalogItemId, real.tags().getTags());
+            removeIndexed(entity.getId());
+            indexedById.put(entity.getId(), indexed);
+            if (indexed.applicationId != null) byApplicationId.put(indexed.applicationId, entity);
+            byType.put(entity.getClass(), entity);
+            if (indexed.catalogItemId != null) byCatalogItemId.put(indexed.catalogItemId, entity);
+            for (Object tag : indexed.tags) {
+                byTag.put(tag, entity);
+            }
+        }
+    }
+
+    synchronized void remove(String entityId) {
+        removeIndexed(entityId);
+    }
+
+    /** Re-indexes the tags of the entity, if it is indexed. */
+    synchronized void updateTags(String entityId, Entity real) {
+        Indexed indexed = indexedById.get(entityId);
+        if (indexed == null) return;
+        // read under the lock, as for add, so a slower concurrent update cannot apply older tags
+        Set<Object> tags = real.tags().getTags();
+        for (Object tag : indexed.tags) {
+            byTag.remove(tag, indexed.entity);
+        }
+        indexed.tags = tags;
+        for (Object tag : tags) {
+            byTag.put(tag, indexed.entity);
+        }
+    }
+
+    private void removeIndexed(String entityId) {
+        Indexed indexed = indexedById.remove(entityId);
+        if (indexed == null) return;
+        if (indexed.applicationId != null) byApplicationId.remove(indexed.applicationId, indexed.entity);
+        byType.remove(indexed.entity.getClass(), indexed.entity);
+        if (indexed.catalogItemId != null) byCatalogItemId.remove(indexed.catalogItemId, indexed.entity);
+        for (Object tag : indexed.tags) {
+            byTag.remove(tag, indexed.entity);
+        }
+    }
+
+    synchronized List<Entity> getByApplicationId(String applicationId) {
+        return ImmutableList.copyOf(byApplicationId.get(applicationId));
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T extends Entity> List<T> getByType(Class<T> type) {
+        ImmutableSet.Builder<T> result = ImmutableSet.builder();
+        for (Class<?> clazz : byType.keySet()) {
+            if (type.isAssignableFrom(clazz)) {
+                result.addAll((Set<T>) byType.get(clazz));
+            }
+        }
+        return result.build().asList();
+    }
+
+    synchronized List<Entity> getByCatalogItemId(String catalogItemId) {
+        return ImmutableList.copyOf(byCatalogItemId.get(catalogItemId));
+    }
+
+    synchronized List<Entity> getByTag(Object tag) {
+        return ImmutableList.copyOf(byTag.get(tag));
+    }
+}
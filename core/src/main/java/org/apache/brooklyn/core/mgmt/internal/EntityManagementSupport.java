@@ -26,6 +26,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.brooklyn.api.effector.Effector;
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.EntityManager;
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.SubscriptionContext;
@@ -431,6 +432,10 @@ public class EntityManagementSupport {
         @Override
         public void onTagsChanged() {
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
+            EntityManager entityManager = getManagementContext().getEntityManager();
+            if (entityManager instanceof LocalEntityManager) {
+                ((LocalEntityManager) entityManager).onTagsChanged(entity);
+            }
         }
         @Override
         public void onMembersChanged() {
@@ -20,7 +20,6 @@ package org.apache.brooklyn.core.mgmt.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.lang.reflect.Proxy;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -78,6 +77,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -122,6 +122,12 @@ public class LocalEntityManager implements EntityManagerInternal {
      */
     private final ObservableSet<Entity> entities = new ObservableSet<Entity>();
     
+    /** Indexes of the managed entities (proxies), for common queries */
+    private final EntityIndex index = new EntityIndex();
+    
+    /** Listeners for the entities of just one application, keyed by application id, so others need not be notified */
+    private final ConcurrentMap<String,Set<CollectionChangeListener<Entity>>> applicationEntitySetListeners = Maps.newConcurrentMap();
+    
     /** Proxies of the managed entities that are applications */
     private final Set<Application> applications = Sets.newConcurrentHashSet();
 
@@ -222,8 +228,7 @@ public class LocalEntityManager implements EntityManagerInternal {
     
     @Override
     public Collection<Entity> getEntitiesInApplication(Application application) {
-        Predicate<Entity> predicate = EntityPredicates.applicationIdEqualTo(application.getId());
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return index.getByApplicationId(application.getId());
     }
 
     @Override
@@ -233,8 +238,22 @@ public class LocalEntityManager implements EntityManagerInternal {
     
     @Override
     public Collection<Entity> findEntitiesInApplication(Application application, Predicate<? super Entity> filter) {
-        Predicate<Entity> predicate = Predicates.and(EntityPredicates.applicationIdEqualTo(application.getId()), filter);
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return ImmutableList.copyOf(Iterables.filter(index.getByApplicationId(application.getId()), filter));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> findEntitiesOfType(Class<T> type) {
+        return index.getByType(type);
+    }
+
+    @Override
+    public Collection<Entity> findEntitiesWithTag(Object tag) {
+        return index.getByTag(tag);
+    }
+
+    @Override
+    public Collection<Entity> findEntitiesFromCatalogItem(String catalogItemId) {
+        return index.getByCatalogItemId(catalogItemId);
     }
 
     @Override
@@ -760,7 +779,7 @@ public class LocalEntityManager implements EntityManagerInternal {
             }
             // make the old proxy point at this new delegate
             // (some other tricks done in the call below)
-            ((EntityProxyImpl)(Proxy.getInvocationHandler(oldProxy))).resetDelegate(oldProxy, oldProxy, realE);
+            EntityProxyImpl.getProxyHandler(oldProxy).resetDelegate(oldProxy, oldProxy, realE);
             proxyE = oldProxy;
         } else {
             proxyE = toProxyEntityIfAvailable(e);
@@ -774,8 +793,13 @@ public class LocalEntityManager implements EntityManagerInternal {
             applications.add((Application)proxyE);
             applicationIds.add(e.getId());
         }
-        if (!entities.contains(proxyE)) 
+        index.add(proxyE, realE);
+        if (!entities.contains(proxyE)) {
             entities.add(proxyE);
+            for (CollectionChangeListener<Entity> listener : getApplicationEntitySetListeners(e)) {
+                listener.onItemAdded(proxyE);
+            }
+        }
         
         if (old!=null && old!=e) {
             // passing the transition info will ensure the right shutdown steps invoked for old instance
@@ -831,9 +855,14 @@ public class LocalEntityManager implements EntityManagerInternal {
                 applicationIds.remove(e.getId());
             }
 
-            entities.remove(proxyE);
+            if (entities.remove(proxyE)) {
+                for (CollectionChangeListener<Entity> listener : getApplicationEntitySetListeners(e)) {
+                    listener.onItemRemoved(proxyE);
+                }
+            }
             entityProxiesById.remove(e.getId());
             entityModesById.remove(e.getId());
+            index.remove(e.getId());
             
             Object old = entitiesById.remove(e.getId());
 
@@ -870,6 +899,13 @@ public class LocalEntityManager implements EntityManagerInternal {
         }
     }
 
+    /** Re-indexes the entity's tags, following a change to them. */
+    void onTagsChanged(Entity e) {
+        if (isManaged(e)) {
+            index.updateTags(e.getId(), deproxyIfNecessary(e));
+        }
+    }
+
     void addEntitySetListener(CollectionChangeListener<Entity> listener) {
         //must notify listener in a different thread to avoid deadlock (issue #378)
         AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
@@ -880,6 +916,26 @@ public class LocalEntityManager implements EntityManagerInternal {
         AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
         entities.removeListener(wrappedListener);
     }
+
+    void addEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener) {
+        AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
+        applicationEntitySetListeners.computeIfAbsent(checkNotNull(applicationId, "applicationId"), k -> Sets.newCopyOnWriteArraySet())
+                .add(wrappedListener);
+    }
+
+    void removeEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener) {
+        AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
+        applicationEntitySetListeners.computeIfPresent(checkNotNull(applicationId, "applicationId"), (k, listeners) -> {
+            listeners.remove(wrappedListener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    private Set<CollectionChangeListener<Entity>> getApplicationEntitySetListeners(Entity e) {
+        String applicationId = e.getApplicationId();
+        Set<CollectionChangeListener<Entity>> result = (applicationId == null) ? null : applicationEntitySetListeners.get(applicationId);
+        return (result == null) ? ImmutableSet.<CollectionChangeListener<Entity>>of() : result;
+    }
     
     private boolean shouldSkipUnmanagement(Entity e) {
         if (e==null) {
@@ -239,6 +239,16 @@ public class LocalManagementContext extends AbstractManagementContext {
         getEntityManager().removeEntitySetListener(listener);
     }
 
+    @Override
+    public void addEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener) {
+        getEntityManager().addEntitySetListener(applicationId, listener);
+    }
+
+    @Override
+    public void removeEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener) {
+        getEntityManager().removeEntitySetListener(applicationId, listener);
+    }
+
     @Override
     protected void manageIfNecessary(Entity entity, Object context) {
         getEntityManager().manageIfNecessary(entity, context);
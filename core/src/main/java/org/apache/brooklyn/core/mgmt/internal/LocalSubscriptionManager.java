@@ -24,6 +24,7 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.join;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -63,6 +64,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimaps;
 
 /**
@@ -275,10 +277,77 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         }
     }
     
+    /**
+     * Publishes the given events, in order, submitting a single delivery task for each run of events
+     * to the same subscription, rather than one per event per subscription. Each listener still receives
+     * the individual events, and each subscriber receives them in the order given, across all of its
+     * subscriptions, as if they had been published one at a time.
+     * <p>
+     * Batching applies where all events have the same source; otherwise they are published individually.
+     */
+    @Override
     @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void publishAll(List<? extends SensorEvent<?>> events) {
+        if (events.size() <= 1 || !isSameSource(events)) {
+            super.publishAll(events);
+            return;
+        }
+        if (LOG.isTraceEnabled()) LOG.trace("{} got events {}", this, events);
+        totalEventsPublishedCount.addAndGet(events.size());
+        
+        // a subscriber's delivery tasks run in the order submitted (on its single-threaded scheduler),
+        // so a run for one subscription ends when another subscription of the same subscriber gets an event
+        List<Map.Entry<Subscription, List<SensorEvent<?>>>> runs = MutableList.of();
+        Map<Object, Map.Entry<Subscription, List<SensorEvent<?>>>> lastRunBySubscriber = new HashMap<>();
+        for (SensorEvent<?> event : events) {
+            Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
+            if (groovyTruth(subs)) {
+                for (Subscription s : subs) {
+                    Map.Entry<Subscription, List<SensorEvent<?>>> run = lastRunBySubscriber.get(s.subscriberExecutionManagerTag);
+                    if (run == null || run.getKey() != s) {
+                        run = Maps.<Subscription, List<SensorEvent<?>>>immutableEntry(s, MutableList.<SensorEvent<?>>of());
+                        runs.add(run);
+                        lastRunBySubscriber.put(s.subscriberExecutionManagerTag, run);
+                    }
+                    run.getValue().add(event);
+                }
+            }
+        }
+        for (Map.Entry<Subscription, List<SensorEvent<?>>> entry : runs) {
+            if (LOG.isTraceEnabled()) LOG.trace("sending {} to {}", entry.getValue(), entry.getKey());
+            submitPublishEvents(entry.getKey(), entry.getValue(), false);
+            totalEventsDeliveredCount.addAndGet(entry.getValue().size());
+        }
+    }
+    
+    private static boolean isSameSource(List<? extends SensorEvent<?>> events) {
+        Entity source = events.get(0).getSource();
+        for (SensorEvent<?> event : events) {
+            if (!Objects.equal(source, event.getSource())) return false;
+        }
+        return true;
+    }
+    
+    @SuppressWarnings({ "rawtypes" })
     private void submitPublishEvent(final Subscription s, final SensorEvent<?> event, final boolean isInitialPublicationOfOldValueInCorrectScheduledThread) {
-        if (s.eventFilter!=null && !s.eventFilter.apply(event))
+        submitPublishEvents(s, ImmutableList.<SensorEvent<?>>of(event), isInitialPublicationOfOldValueInCorrectScheduledThread);
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void submitPublishEvents(final Subscription s, final List<SensorEvent<?>> allEvents, final boolean isInitialPublicationOfOldValueInCorrectScheduledThread) {
+        final List<SensorEvent<?>> events;
+        if (s.eventFilter==null) {
+            events = allEvents;
+        } else {
+            events = MutableList.of();
+            for (SensorEvent<?> event : allEvents) {
+                if (s.eventFilter.apply(event)) events.add(event);
+            }
+        }
+        if (events.isEmpty())
             return;
+        // all events in a batch have the same source, so describe the task by the first
+        final SensorEvent<?> event = events.get(0);
         
         List<Object> tags = getPublishTags(s, event.getSource()).asUnmodifiable();
         
@@ -302,7 +371,14 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             description.append(s.subscriptionDescription);
         }
         
-        if (includeDescriptionForSensorTask(event)) {
+        if (events.size() > 1) {
+            name.append(" (and ");
+            name.append(events.size()-1);
+            name.append(" more)");
+            description.append(", batch of ");
+            description.append(events.size());
+            description.append(" events");
+        } else if (includeDescriptionForSensorTask(event)) {
             name.append(" ");
             name.append(event.getValue());
             description.append(", value: ");
@@ -320,6 +396,8 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             public String toString() {
                 if (isInitialPublicationOfOldValueInCorrectScheduledThread) {
                     return "LSM.publishInitial("+event+")";
+                } else if (events.size() > 1) {
+                    return "LSM.publishAll("+events+")";
                 } else {
                     return "LSM.publish("+event+")";
                 }
@@ -345,6 +423,15 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                          */
                         synchronized (((EntityInternal)s.subscriber).getManagementSupport()) {}
                     }
+                    for (SensorEvent<?> event : events) {
+                        deliver(event);
+                    }
+                } finally {
+                    BasicExecutionContext.setPerThreadExecutionContext(oldEC);
+                }
+            }
+            private void deliver(SensorEvent event) {
+                try {
                     int count = s.eventCount.incrementAndGet();
                     if (count > 0 && count % 1000 == 0) LOG.debug("{} events for subscriber {}", count, s);
                     
@@ -356,8 +443,6 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                     } else {
                         LOG.warn("Error processing subscriptions to "+this+": "+t, t);
                     }
-                } finally {
-                    BasicExecutionContext.setPerThreadExecutionContext(oldEC);
                 }
             }};
         if (!isInitialPublicationOfOldValueInCorrectScheduledThread) {
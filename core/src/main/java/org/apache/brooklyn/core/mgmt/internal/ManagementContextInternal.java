@@ -65,6 +65,14 @@ public interface ManagementContextInternal extends ManagementContext {
 
     void removeEntitySetListener(CollectionChangeListener<Entity> listener);
 
+    /**
+     * As {@link #addEntitySetListener(CollectionChangeListener)}, but only notified of entities in the given
+     * application, so that many listeners each interested in one application are cheap to maintain.
+     */
+    void addEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener);
+
+    void removeEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener);
+
     void terminate();
     
     long getTotalEffectorInvocations();
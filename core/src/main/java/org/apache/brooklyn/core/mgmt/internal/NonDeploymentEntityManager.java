@@ -129,6 +129,33 @@ public class NonDeploymentEntityManager implements EntityManagerInternal {
         }
     }
 
+    @Override
+    public <T extends Entity> Collection<T> findEntitiesOfType(Class<T> type) {
+        if (isInitialManagementContextReal()) {
+            return initialManagementContext.getEntityManager().findEntitiesOfType(type);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public Collection<Entity> findEntitiesWithTag(Object tag) {
+        if (isInitialManagementContextReal()) {
+            return initialManagementContext.getEntityManager().findEntitiesWithTag(tag);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public Collection<Entity> findEntitiesFromCatalogItem(String catalogItemId) {
+        if (isInitialManagementContextReal()) {
+            return initialManagementContext.getEntityManager().findEntitiesFromCatalogItem(catalogItemId);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
     @Override
     public Entity getEntity(String id) {
         if (isInitialManagementContextReal()) {
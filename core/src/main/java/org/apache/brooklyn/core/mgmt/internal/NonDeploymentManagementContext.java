@@ -422,6 +422,18 @@ public class NonDeploymentManagementContext implements ManagementContextInternal
         initialManagementContext.removeEntitySetListener(listener);
     }
 
+    @Override
+    public void addEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener) {
+        checkInitialManagementContextReal();
+        initialManagementContext.addEntitySetListener(applicationId, listener);
+    }
+
+    @Override
+    public void removeEntitySetListener(String applicationId, CollectionChangeListener<Entity> listener) {
+        checkInitialManagementContextReal();
+        initialManagementContext.removeEntitySetListener(applicationId, listener);
+    }
+
     @Override
     public void terminate() {
         if (isInitialManagementContextReal()) {
@@ -71,6 +71,16 @@ public class QueueingSubscriptionManager extends AbstractSubscriptionManager {
         queuedSensorEvents.add(event);
     }
 
+    @Override
+    public synchronized void publishAll(List<? extends SensorEvent<?>> events) {
+        if (useDelegateForPublishing) {
+            delegate.publishAll(events);
+            return;
+        }
+        
+        queuedSensorEvents.addAll(events);
+    }
+
     public void setDelegate(AbstractSubscriptionManager delegate) {
         this.delegate = delegate;
     }
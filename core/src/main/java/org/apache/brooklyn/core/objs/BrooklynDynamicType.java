@@ -30,7 +30,9 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.brooklyn.api.objs.BrooklynObject;
@@ -42,6 +44,7 @@ import org.apache.brooklyn.core.config.BasicConfigKey.BasicConfigKeyOverwriting;
 import org.apache.brooklyn.core.config.ConfigKeys.InheritanceContext;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.flags.FlagUtils;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.javalang.Reflections;
 import org.apache.brooklyn.util.text.Strings;
 import org.slf4j.Logger;
@@ -49,6 +52,8 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
@@ -63,6 +68,10 @@ public abstract class BrooklynDynamicType<T extends BrooklynObject, AbstractT ex
 
     private static final Logger LOG = LoggerFactory.getLogger(BrooklynDynamicType.class);
 
+    /** The config keys declared by each class, so they are found once rather than for every instance created. */
+    @SuppressWarnings("rawtypes")
+    private static final Cache<Class, Map<String,FieldAndValue<ConfigKey<?>>>> configKeysByClass = CacheBuilder.newBuilder().weakKeys().softValues().build();
+
     protected final Class<? extends T> brooklynClass;
     protected final AbstractT instance;
     protected volatile String name;
@@ -88,7 +97,7 @@ public abstract class BrooklynDynamicType<T extends BrooklynObject, AbstractT ex
         // NB: official name is usually injected later, e.g. from AbstractEntity.setManagementContext
         this.name = (clazz.getCanonicalName() == null) ? clazz.getName() : clazz.getCanonicalName();
         
-        buildConfigKeys(clazz, null, configKeys);
+        configKeys.putAll(getDeclaredConfigKeys(clazz));
         if (LOG.isTraceEnabled())
             LOG.trace("Entity {} config keys: {}", (instance==null ? clazz.getName() : instance.getId()), Joiner.on(", ").join(configKeys.keySet()));
     }
@@ -143,6 +152,20 @@ public abstract class BrooklynDynamicType<T extends BrooklynObject, AbstractT ex
         return snapshot;
     }
 
+    private static Map<String,FieldAndValue<ConfigKey<?>>> getDeclaredConfigKeys(final Class<? extends BrooklynObject> clazz) {
+        try {
+            return configKeysByClass.get(clazz, new Callable<Map<String,FieldAndValue<ConfigKey<?>>>>() {
+                @Override
+                public Map<String,FieldAndValue<ConfigKey<?>>> call() {
+                    Map<String,FieldAndValue<ConfigKey<?>>> result = new LinkedHashMap<String,FieldAndValue<ConfigKey<?>>>();
+                    buildConfigKeys(clazz, null, result);
+                    return Collections.unmodifiableMap(result);
+                }});
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
     /**
      * Finds the config keys defined on the entity's class, statics and optionally any non-static (discouraged).
      * Prefers keys which overwrite other keys, and prefers keys which are lower in the hierarchy;
@@ -20,12 +20,14 @@ package org.apache.brooklyn.core.objs.proxy;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.lang.reflect.Constructor;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.brooklyn.util.javalang.AggregateClassLoader;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -42,6 +44,9 @@ import com.google.common.collect.Sets;
  * to return that same classloader instance. This is very important when using {@code newProxyInstance}
  * because if a different ClassLoader instance is used then it will reflectively create a new Proxy class.
  * See https://issues.apache.org/jira/browse/BROOKLYN-528.
+ * 
+ * Likewise caches the proxy classes generated by {@link EntityProxyClassGenerator} for the given
+ * class+interfaces, defined using that classloader.
  */
 class ClassLoaderCache {
 
@@ -50,6 +55,7 @@ class ClassLoaderCache {
     // (the AggregateClassLoader) will also reference the class.
 
     private final ConcurrentMap<TypesKey, AggregateClassLoader> cache = Maps.newConcurrentMap();
+    private final ConcurrentMap<TypesKey, Optional<Constructor<?>>> generatedProxyConstructors = Maps.newConcurrentMap();
     
     public AggregateClassLoader getClassLoaderForProxy(Class<?> clazz, Set<Class<?>> interfaces) {
         TypesKey typesKey = new TypesKey(clazz, interfaces);
@@ -62,6 +68,22 @@ class ClassLoaderCache {
         return result;
     }
     
+    /**
+     * The constructor of a generated proxy class for the given class+interfaces (taking the {@link EntityProxyImpl}),
+     * or null if one cannot be generated for those interfaces.
+     */
+    public Constructor<?> getGeneratedProxyConstructor(Class<?> clazz, Set<Class<?>> interfaces) {
+        TypesKey typesKey = new TypesKey(clazz, interfaces);
+        Optional<Constructor<?>> result = generatedProxyConstructors.get(typesKey);
+        if (result == null) {
+            // may occasionally generate a class which is not used, if called concurrently for the same types
+            result = Optional.<Constructor<?>>fromNullable(EntityProxyClassGenerator.generate(getClassLoaderForProxy(clazz, interfaces), interfaces));
+            Optional<Constructor<?>> oldVal = generatedProxyConstructors.putIfAbsent(typesKey, result);
+            if (oldVal != null) result = oldVal;
+        }
+        return result.orNull();
+    }
+    
     private AggregateClassLoader newClassLoader(Class<?> clazz, Set<Class<?>> interfaces) {
         Set<ClassLoader> loaders = Sets.newLinkedHashSet();
         addClassLoaders(clazz, loaders);
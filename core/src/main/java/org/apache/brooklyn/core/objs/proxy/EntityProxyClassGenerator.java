@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.objs.proxy;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.AASTORE;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ANEWARRAY;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.SWAP;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.core.objs.proxy.EntityProxyImpl.Dispatch;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Generates entity proxy classes, as an alternative to {@link java.lang.reflect.Proxy}, which call
+ * the entity's non-effector methods directly rather than reflectively (so the calls can be inlined),
+ * and pass other calls to the {@link EntityProxyImpl} handler as a {@code Proxy} would.
+ * <p>
+ * For each method of the interfaces, the generated class behaves as {@link EntityProxyImpl#invoke(Object, Method, Object[])}:
+ * methods always permitted are called on the entity; other {@link Entity} methods are called on the entity
+ * once {@link EntityProxyImpl#getDelegateForDirectCall(Method)} has checked they are permitted; and any
+ * other method (which may be an effector) is passed to the handler. Results which are the entity itself
+ * are replaced by its proxy. The classes also implement {@link GeneratedEntityProxy}.
+ * <p>
+ * Only public interfaces whose methods use only public types can be implemented; otherwise
+ * {@link #generate(ClassLoader, Set)} returns null, and a {@code Proxy} should be used.
+ */
+class EntityProxyClassGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityProxyClassGenerator.class);
+
+    private static final String CLASS_NAME_PREFIX = EntityProxyClassGenerator.class.getPackage().getName()+".$GeneratedEntityProxy$";
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String ENTITY = Type.getInternalName(Entity.class);
+    private static final String METHOD = Type.getInternalName(Method.class);
+    private static final String HANDLER = Type.getInternalName(EntityProxyImpl.class);
+    private static final String HANDLER_FIELD = "handler";
+    private static final String HANDLER_FIELD_DESC = Type.getDescriptor(EntityProxyImpl.class);
+    private static final String METHODS_FIELD = "methods";
+    private static final String METHODS_FIELD_DESC = Type.getDescriptor(Method[].class);
+
+    /** The methods of {@link Object} which a {@link java.lang.reflect.Proxy} passes to its handler. */
+    private static final Method[] OBJECT_METHODS;
+    static {
+        try {
+            OBJECT_METHODS = new Method[] {
+                    Object.class.getMethod("equals", Object.class),
+                    Object.class.getMethod("hashCode"),
+                    Object.class.getMethod("toString")};
+        } catch (NoSuchMethodException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * Defines a proxy class, loading the types it uses from the given loader
+     * except for those of this package, which must be the same classes as used here.
+     */
+    private static class DefiningClassLoader extends ClassLoader {
+        DefiningClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.equals(EntityProxyImpl.class.getName())) return EntityProxyImpl.class;
+            if (name.equals(GeneratedEntityProxy.class.getName())) return GeneratedEntityProxy.class;
+            return super.loadClass(name, resolve);
+        }
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Generates a proxy class implementing the given interfaces, whose classes (and those of their methods)
+     * must be visible from the given class loader, returning its constructor (which takes the {@link EntityProxyImpl}),
+     * or null if a proxy class cannot be generated for these interfaces.
+     */
+    static Constructor<?> generate(ClassLoader loader, Set<Class<?>> interfaces) {
+        Map<String, Method> methods = getMethods(interfaces);
+        if (methods == null) return null;
+
+        Method[] methodArray = methods.values().toArray(new Method[methods.size()]);
+        String className = CLASS_NAME_PREFIX + COUNTER.incrementAndGet();
+        try {
+            byte[] bytes = generateClass(className, interfaces, methodArray);
+            Class<?> clazz = new DefiningClassLoader(loader).define(className, bytes);
+            clazz.getField(METHODS_FIELD).set(null, methodArray);
+            return clazz.getConstructor(EntityProxyImpl.class);
+        } catch (LinkageError e) {
+            // e.g. if a type used by the methods resolves to a different class from the loader
+            LOG.debug("Unable to generate entity proxy class for "+interfaces+"; will use java.lang.reflect.Proxy", e);
+            return null;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to generate entity proxy class for "+interfaces+"; will use java.lang.reflect.Proxy", e);
+            return null;
+        }
+    }
+
+    /**
+     * The methods to implement, keyed by name and descriptor, or null if any cannot be implemented
+     * (because they are on, or use, types not accessible from the generated class).
+     */
+    private static Map<String, Method> getMethods(Set<Class<?>> interfaces) {
+        Map<String, Method> result = Maps.newLinkedHashMap();
+        for (Method m : OBJECT_METHODS) {
+            result.put(m.getName()+Type.getMethodDescriptor(m), m);
+        }
+
+        for (Class<?> iface : interfaces) {
+            if (!iface.isInterface() || !Modifier.isPublic(iface.getModifiers())) return null;
+            for (Method m : iface.getMethods()) {
+                if (Modifier.isStatic(m.getModifiers())) continue;
+                String key = m.getName()+Type.getMethodDescriptor(m);
+                if (result.containsKey(key)) continue;
+                if (!isPublic(m.getReturnType())) return null;
+                for (Class<?> type : m.getParameterTypes()) {
+                    if (!isPublic(type)) return null;
+                }
+                for (Class<?> type : m.getExceptionTypes()) {
+                    if (!isPublic(type)) return null;
+                }
+                result.put(key, m);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) return true;
+        for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) return false;
+        }
+        return true;
+    }
+
+    private static byte[] generateClass(String className, Set<Class<?>> interfaces, Method[] methods) {
+        String internalName = className.replace('.', '/');
+        String[] interfaceNames = new String[interfaces.size()+1];
+        int i = 0;
+        for (Class<?> iface : interfaces) {
+            interfaceNames[i++] = Type.getInternalName(iface);
+        }
+        interfaceNames[i] = Type.getInternalName(GeneratedEntityProxy.class);
+
+        // straight-line code only, so there are no stack map frames to compute
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null, OBJECT, interfaceNames);
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, HANDLER_FIELD, HANDLER_FIELD_DESC, null, null).visitEnd();
+        cw.visitField(ACC_PUBLIC | ACC_STATIC, METHODS_FIELD, METHODS_FIELD_DESC, null, null).visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "("+HANDLER_FIELD_DESC+")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, internalName, HANDLER_FIELD, HANDLER_FIELD_DESC);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC | ACC_FINAL, "getEntityProxyHandler", "()"+HANDLER_FIELD_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, HANDLER_FIELD, HANDLER_FIELD_DESC);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (i = 0; i < methods.length; i++) {
+            Method m = methods[i];
+            String[] exceptions = new String[m.getExceptionTypes().length];
+            for (int j = 0; j < exceptions.length; j++) {
+                exceptions[j] = Type.getInternalName(m.getExceptionTypes()[j]);
+            }
+            mv = cw.visitMethod(ACC_PUBLIC | ACC_FINAL, m.getName(), Type.getMethodDescriptor(m), null, exceptions);
+            mv.visitCode();
+            if (EntityProxyImpl.getDispatch(m) == Dispatch.EFFECTOR) {
+                generateHandlerCall(mv, internalName, m, i);
+            } else {
+                generateDirectCall(mv, internalName, m, i);
+            }
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** Calls the method on the entity, as returned by the handler, returning the proxy if the result is the entity. */
+    private static void generateDirectCall(MethodVisitor mv, String internalName, Method m, int index) {
+        boolean isObjectMethod = m.getDeclaringClass() == Object.class;
+        String owner = Type.getInternalName(m.getDeclaringClass());
+        Type returnType = Type.getReturnType(m);
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, HANDLER_FIELD, HANDLER_FIELD_DESC);
+        if (EntityProxyImpl.getDispatch(m) == Dispatch.ALWAYS_DIRECT) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, HANDLER, "getDelegate", "()L"+ENTITY+";", false);
+        } else {
+            loadMethod(mv, internalName, index);
+            mv.visitMethodInsn(INVOKEVIRTUAL, HANDLER, "getDelegateForDirectCall", "(L"+METHOD+";)L"+ENTITY+";", false);
+        }
+        if (!isObjectMethod) {
+            mv.visitTypeInsn(CHECKCAST, owner);
+        }
+        int slot = 1;
+        for (Type arg : Type.getArgumentTypes(m)) {
+            mv.visitVarInsn(arg.getOpcode(ILOAD), slot);
+            slot += arg.getSize();
+        }
+        if (isObjectMethod) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, owner, m.getName(), Type.getMethodDescriptor(m), false);
+        } else {
+            mv.visitMethodInsn(INVOKEINTERFACE, owner, m.getName(), Type.getMethodDescriptor(m), true);
+        }
+        if (isReference(returnType)) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, internalName, HANDLER_FIELD, HANDLER_FIELD_DESC);
+            mv.visitInsn(SWAP);
+            mv.visitMethodInsn(INVOKEVIRTUAL, HANDLER, "toProxyIfDelegate", "(L"+OBJECT+";)L"+OBJECT+";", false);
+            mv.visitTypeInsn(CHECKCAST, returnType.getInternalName());
+        }
+        mv.visitInsn(returnType.getOpcode(IRETURN));
+    }
+
+    /** Passes the call to {@link EntityProxyImpl#invokeFromGeneratedProxy(Object, Method, Object[])}. */
+    private static void generateHandlerCall(MethodVisitor mv, String internalName, Method m, int index) {
+        Type[] argTypes = Type.getArgumentTypes(m);
+        Type returnType = Type.getReturnType(m);
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, HANDLER_FIELD, HANDLER_FIELD_DESC);
+        mv.visitVarInsn(ALOAD, 0);
+        loadMethod(mv, internalName, index);
+        pushInt(mv, argTypes.length);
+        mv.visitTypeInsn(ANEWARRAY, OBJECT);
+        int slot = 1;
+        for (int i = 0; i < argTypes.length; i++) {
+            mv.visitInsn(DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(argTypes[i].getOpcode(ILOAD), slot);
+            box(mv, argTypes[i]);
+            mv.visitInsn(AASTORE);
+            slot += argTypes[i].getSize();
+        }
+        mv.visitMethodInsn(INVOKEVIRTUAL, HANDLER, "invokeFromGeneratedProxy", 
+                "(L"+OBJECT+";L"+METHOD+";[L"+OBJECT+";)L"+OBJECT+";", false);
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(POP);
+            mv.visitInsn(RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(returnType.getOpcode(IRETURN));
+        }
+    }
+
+    private static void loadMethod(MethodVisitor mv, String internalName, int index) {
+        mv.visitFieldInsn(GETSTATIC, internalName, METHODS_FIELD, METHODS_FIELD_DESC);
+        pushInt(mv, index);
+        mv.visitInsn(AALOAD);
+    }
+
+    private static void pushInt(MethodVisitor mv, int val) {
+        if (val <= 5) {
+            mv.visitInsn(ICONST_0 + val);
+        } else if (val <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, val);
+        } else if (val <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, val);
+        } else {
+            mv.visitLdcInsn(val);
+        }
+    }
+
+    private static boolean isReference(Type type) {
+        return type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY;
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        if (isReference(type)) return;
+        Type boxed = boxedType(type);
+        mv.visitMethodInsn(INVOKESTATIC, boxed.getInternalName(), "valueOf", "("+type.getDescriptor()+")"+boxed.getDescriptor(), false);
+    }
+
+    private static void unbox(MethodVisitor mv, Type type) {
+        if (isReference(type)) {
+            mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+        } else {
+            Type boxed = boxedType(type);
+            mv.visitTypeInsn(CHECKCAST, boxed.getInternalName());
+            mv.visitMethodInsn(INVOKEVIRTUAL, boxed.getInternalName(), type.getClassName()+"Value", "()"+type.getDescriptor(), false);
+        }
+    }
+
+    private static Type boxedType(Type type) {
+        switch (type.getSort()) {
+        case Type.BOOLEAN: return Type.getType(Boolean.class);
+        case Type.CHAR: return Type.getType(Character.class);
+        case Type.BYTE: return Type.getType(Byte.class);
+        case Type.SHORT: return Type.getType(Short.class);
+        case Type.INT: return Type.getType(Integer.class);
+        case Type.FLOAT: return Type.getType(Float.class);
+        case Type.LONG: return Type.getType(Long.class);
+        case Type.DOUBLE: return Type.getType(Double.class);
+        default: throw new IllegalArgumentException("Not a primitive type: "+type);
+        }
+    }
+}
@@ -22,11 +22,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.effector.Effector;
 import org.apache.brooklyn.api.entity.Entity;
@@ -56,6 +61,10 @@ import com.google.common.collect.Sets;
  * A dynamic proxy for an entity. Other entities etc should use these proxies when interacting
  * with the entity, rather than holding a reference to the specific object. That makes remoting
  * etc much simpler.
+ * <p>
+ * The proxy is normally a {@link Proxy} with this as its handler, but may be a class generated by
+ * {@link EntityProxyClassGenerator} which calls this only for effectors; use {@link #getProxyHandler(Object)}
+ * rather than {@link Proxy#getInvocationHandler(Object)} to find the handler of either.
  * 
  * @author aled
  */
@@ -107,9 +116,60 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
         }
     }
     
+    /** How a call to a method is handled, decided once per method rather than on every call. */
+    enum Dispatch {
+        /** invoked directly, even on a read-only entity */
+        ALWAYS_DIRECT,
+        /** invoked directly, if the entity is master */
+        DIRECT,
+        /** invoked as an effector, if the entity has an effector of that name, otherwise directly */
+        EFFECTOR
+    }
+
+    /** Dispatch of the methods of each interface, keyed by the declaring class so as not to keep classes from being unloaded. */
+    private static final ClassValue<ConcurrentMap<Method, Dispatch>> DISPATCH = new ClassValue<ConcurrentMap<Method, Dispatch>>() {
+        @Override
+        protected ConcurrentMap<Method, Dispatch> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Method, Dispatch>();
+        }
+    };
+
+    static Dispatch getDispatch(Method m) {
+        ConcurrentMap<Method, Dispatch> dispatches = DISPATCH.get(m.getDeclaringClass());
+        Dispatch result = dispatches.get(m);
+        if (result == null) {
+            MethodSignature sig = new MethodSignature(m);
+            if (OBJECT_METHODS.contains(sig) || ENTITY_PERMITTED_READ_ONLY_METHODS.contains(sig)) {
+                result = Dispatch.ALWAYS_DIRECT;
+            } else if (ENTITY_NON_EFFECTOR_METHODS.contains(sig)) {
+                result = Dispatch.DIRECT;
+            } else {
+                result = Dispatch.EFFECTOR;
+            }
+            dispatches.put(m, result);
+        }
+        return result;
+    }
+
     public EntityProxyImpl(Entity entity) {
         this.delegate = checkNotNull(entity, "entity");
     }
+
+    /**
+     * The handler of the given entity proxy, whether a {@link Proxy} or a generated proxy,
+     * or null if it is not an entity proxy.
+     */
+    @Nullable
+    public static EntityProxyImpl getProxyHandler(Object proxy) {
+        if (proxy instanceof GeneratedEntityProxy) {
+            return ((GeneratedEntityProxy)proxy).getEntityProxyHandler();
+        } else if (proxy != null && Proxy.isProxyClass(proxy.getClass())) {
+            Object handler = Proxy.getInvocationHandler(proxy);
+            return (handler instanceof EntityProxyImpl) ? (EntityProxyImpl) handler : null;
+        } else {
+            return null;
+        }
+    }
     
     /** invoked to specify that a different underlying delegate should be used, 
      * e.g. because we are switching copy impls or switching primary/copy*/
@@ -144,7 +204,7 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
         // update any proxies which might be in use
         for (Entity tp: temporaryProxies.keySet()) {
             if (tp==thisProxy || tp==preferredProxy) continue;
-            ((EntityProxyImpl)(Proxy.getInvocationHandler(tp))).resetDelegate(tp, preferredProxy, newDelegate);
+            getProxyHandler(tp).resetDelegate(tp, preferredProxy, newDelegate);
         }
     }
     
@@ -180,12 +240,10 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
             throw new IllegalArgumentException("Static methods not supported via proxy on entity "+delegate);
         }
         
-        MethodSignature sig = new MethodSignature(m);
+        Dispatch dispatch = getDispatch(m);
 
         Object result;
-        if (OBJECT_METHODS.contains(sig)) {
-            result = m.invoke(delegate, args);
-        } else if (ENTITY_PERMITTED_READ_ONLY_METHODS.contains(sig)) {
+        if (dispatch == Dispatch.ALWAYS_DIRECT) {
             result = m.invoke(delegate, args);
         } else {
             if (!isMaster()) {
@@ -195,9 +253,9 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
                     // but including in it may allow us to tighten the methods in EntityTransientCopyInternal) 
                     result = m.invoke(delegate, args);
                 } else {
-                    throw new UnsupportedOperationException("Call to '"+sig+"' not permitted on read-only entity "+delegate);
+                    throw new UnsupportedOperationException("Call to '"+new MethodSignature(m)+"' not permitted on read-only entity "+delegate);
                 }
-            } else if (ENTITY_NON_EFFECTOR_METHODS.contains(sig)) {
+            } else if (dispatch == Dispatch.DIRECT) {
                 result = m.invoke(delegate, args);
             } else {
                 Object[] nonNullArgs = (args == null) ? new Object[0] : args;
@@ -216,8 +274,50 @@ public class EntityProxyImpl implements java.lang.reflect.InvocationHandler {
             }
         }
         
+        return toProxyIfDelegate(result);
+    }
+
+    /**
+     * For generated proxies, the entity on which to call a {@link Dispatch#DIRECT} method,
+     * checking (as {@link #invoke(Object, Method, Object[])} does) that it is permitted.
+     */
+    public Entity getDelegateForDirectCall(Method m) {
+        if (!isMaster() && isMaster!=null && !RebindTracker.isRebinding()) {
+            throw new UnsupportedOperationException("Call to '"+new MethodSignature(m)+"' not permitted on read-only entity "+delegate);
+        }
+        return delegate;
+    }
+
+    /** For generated proxies, the result to return from a method call, so that the entity's proxy is returned rather than the entity itself. */
+    public Object toProxyIfDelegate(Object result) {
         return (result == delegate && delegate instanceof AbstractEntity) ? ((AbstractEntity)result).getProxy() : result;
     }
+
+    /**
+     * For generated proxies, as {@link #invoke(Object, Method, Object[])}, but wrapping checked exceptions
+     * not declared by the method in an {@link UndeclaredThrowableException} (as a {@link Proxy} does).
+     */
+    public Object invokeFromGeneratedProxy(Object proxy, Method m, Object[] args) {
+        try {
+            return invoke(proxy, m, args);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            for (Class<?> declared : m.getExceptionTypes()) {
+                if (declared.isInstance(t)) {
+                    throw EntityProxyImpl.<RuntimeException>sneakyThrow(t);
+                }
+            }
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E sneakyThrow(Throwable t) throws E {
+        throw (E) t;
+    }
     
     private Effector<?> findEffector(Method m, Object[] args) {
         String name = m.getName();
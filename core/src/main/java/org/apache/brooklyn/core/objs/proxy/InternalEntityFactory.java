@@ -21,6 +21,7 @@ package org.apache.brooklyn.core.objs.proxy;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,7 @@ import org.apache.brooklyn.api.objs.SpecParameter;
 import org.apache.brooklyn.api.policy.PolicySpec;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.config.ConfigConstraints;
 import org.apache.brooklyn.core.entity.AbstractApplication;
 import org.apache.brooklyn.core.entity.AbstractEntity;
@@ -136,6 +138,17 @@ public class InternalEntityFactory extends InternalFactory {
         // references with their own class loaders which in our case are different).
         AggregateClassLoader aggregateClassLoader = classLoaderCache.getClassLoaderForProxy(entity.getClass(), allInterfaces);
 
+        if (BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_GENERATED_ENTITY_PROXIES)) {
+            Constructor<?> generatedProxyConstructor = classLoaderCache.getGeneratedProxyConstructor(entity.getClass(), allInterfaces);
+            if (generatedProxyConstructor != null) {
+                try {
+                    return (T) generatedProxyConstructor.newInstance(new EntityProxyImpl(entity));
+                } catch (Exception e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+        }
+
         return (T) java.lang.reflect.Proxy.newProxyInstance(
                 aggregateClassLoader,
                 allInterfaces.toArray(new Class[allInterfaces.size()]),
@@ -24,6 +24,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.brooklyn.api.internal.AbstractBrooklynObjectSpec;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
@@ -35,12 +37,20 @@ import org.apache.brooklyn.util.javalang.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  */
 public class InternalFactory {
 
     private static final Logger LOG = LoggerFactory.getLogger(InternalFactory.class);
     
+    /** The no-arg constructor of each class (if any), as it is looked up for every instance created. */
+    @SuppressWarnings("rawtypes")
+    private static final Cache<Class, Optional<Constructor<?>>> noArgConstructors = CacheBuilder.newBuilder().weakKeys().softValues().build();
+
     protected final ManagementContextInternal managementContext;
 
     /**
@@ -73,11 +83,22 @@ public class InternalFactory {
      * @param clazz
      */
     public static boolean isNewStyle(Class<?> clazz) {
+        return getNoArgConstructor(clazz).isPresent();
+    }
+
+    private static Optional<Constructor<?>> getNoArgConstructor(final Class<?> clazz) {
         try {
-            clazz.getDeclaredConstructor(new Class[0]);
-            return true;
-        } catch (NoSuchMethodException e) {
-            return false;
+            return noArgConstructors.get(clazz, new Callable<Optional<Constructor<?>>>() {
+                @Override
+                public Optional<Constructor<?>> call() {
+                    try {
+                        return Optional.<Constructor<?>>of(clazz.getDeclaredConstructor(new Class[0]));
+                    } catch (NoSuchMethodException e) {
+                        return Optional.absent();
+                    }
+                }});
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
         }
     }
     
@@ -128,15 +149,18 @@ public class InternalFactory {
     /**
      * Constructs a new instance (fails if no no-arg constructor).
      */
+    @SuppressWarnings("unchecked")
     protected <T> T constructNewStyle(Class<T> clazz) {
-        if (!isNewStyle(clazz)) {
+        Optional<Constructor<?>> noArgConstructor = getNoArgConstructor(clazz);
+        if (!noArgConstructor.isPresent()) {
             throw new IllegalStateException("Class "+clazz+" must have a no-arg constructor");
         }
         
         try {
             FactoryConstructionTracker.setConstructing();
             try {
-                Constructor<T> constructor = clazz.getDeclaredConstructor(new Class[0]);
+                // shared by all callers, so only set accessible (and warned about) the first time
+                Constructor<T> constructor = (Constructor<T>) noArgConstructor.get();
                 if (!(Modifier.isPublic(clazz.getModifiers()) && Modifier.isPublic(constructor.getModifiers()))
                         && !constructor.isAccessible()) {
                     try {
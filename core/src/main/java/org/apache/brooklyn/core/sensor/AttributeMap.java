@@ -22,8 +22,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -42,7 +48,10 @@ import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -53,13 +62,46 @@ public final class AttributeMap {
     static final Logger log = LoggerFactory.getLogger(AttributeMap.class);
 
     private static enum Marker {
-        NULL;
+        NULL,
+        REMOVED;
     }
     
     private final AbstractEntity entity;
 
-    // Assumed to be something like a ConcurrentMap passed in.
-    private final Map<Collection<String>, Object> values;
+    /**
+     * Holds the value of one attribute, with {@link Marker#NULL} for null values.
+     * Once created the slot is updated in place, so updating an existing attribute does not touch the map.
+     * A removed attribute's slot is set to {@link Marker#REMOVED} before it leaves the map, and is never
+     * updated again, so a concurrent update cannot be lost in a slot which is no longer in the map.
+     * The {@link #order} records when the attribute was first set, so that {@link AttributeMap#asMap()}
+     * preserves insertion order (which persisted state relies on).
+     */
+    private static class Slot extends AtomicReference<Object> {
+        private static final long serialVersionUID = -3587432137391523415L;
+        final long order;
+        Slot(long order, Object value) {
+            super(value);
+            this.order = order;
+        }
+    }
+
+    private static final Comparator<Map.Entry<String, Slot>> INSERTION_ORDER = new Comparator<Map.Entry<String, Slot>>() {
+        @Override
+        public int compare(Map.Entry<String, Slot> o1, Map.Entry<String, Slot> o2) {
+            return Long.compare(o1.getValue().order, o2.getValue().order);
+        }
+    };
+
+    /**
+     * Values keyed by sensor name.
+     * <p>
+     * The sensor name is the per-sensor handle: it is held by the sensor and its hash is cached,
+     * so lookups allocate nothing, and as this is a {@link ConcurrentMap} reads take no lock.
+     * The dotted path form is only computed for the legacy path-based methods and {@link #asRawMap()}.
+     */
+    private final ConcurrentMap<String, Slot> values;
+
+    private final AtomicLong nextOrder = new AtomicLong();
 
     /**
      * Creates a new AttributeMap.
@@ -68,21 +110,27 @@ public final class AttributeMap {
      * @throws NullPointerException if entity is null
      */
     public AttributeMap(AbstractEntity entity) {
-        // Not using ConcurrentMap, because want to (continue to) allow null values.
-        // Could use ConcurrentMapAcceptingNullVals (with the associated performance hit on entrySet() etc).
-        this(entity, Collections.synchronizedMap(Maps.<Collection<String>, Object>newLinkedHashMap()));
+        this.entity = checkNotNull(entity, "entity must be specified");
+        this.values = new ConcurrentHashMap<String, Slot>();
     }
 
     /**
-     * Creates a new AttributeMap.
+     * Creates a new AttributeMap, initially containing the values in the given map.
      *
      * @param entity  the Entity this AttributeMap belongs to.
-     * @param storage the Map in which to store the values - should be concurrent or synchronized.
+     * @param storage values to copy in; the map is not used subsequently.
      * @throws NullPointerException if entity is null
+     * @deprecated since 1.0.0 values are now held in a concurrent map keyed by sensor name; use {@link #AttributeMap(AbstractEntity)}
      */
+    @Deprecated
     public AttributeMap(AbstractEntity entity, Map<Collection<String>, Object> storage) {
-        this.entity = checkNotNull(entity, "entity must be specified");
-        this.values = checkNotNull(storage, "storage map must not be null");
+        this(entity);
+        checkNotNull(storage, "storage map must not be null");
+        synchronized (storage) {
+            for (Map.Entry<Collection<String>, Object> entry : storage.entrySet()) {
+                updateByName(toName(entry.getKey()), entry.getValue());
+            }
+        }
     }
 
     /** 
@@ -90,8 +138,7 @@ public final class AttributeMap {
      * any sensor value at a time.  Methods which set, modify, and publish values
      * acquire this lock.
      * <p>
-     * Reads are not blocked by this, although this synchs on {@link #values}
-     * when actually changing the low-level value to ensure consistency there.
+     * Reads are not blocked by this, nor by anything else, as {@link #values} is concurrent.
      * <p>
      * See {@link #getLockInternal()}
      */
@@ -114,23 +161,39 @@ public final class AttributeMap {
     }
     
     public Map<Collection<String>, Object> asRawMap() {
-        synchronized (values) {
-            return ImmutableMap.copyOf(values);
+        ImmutableMap.Builder<Collection<String>, Object> result = ImmutableMap.builder();
+        for (Map.Entry<String, Slot> entry : sortedEntries()) {
+            Object val = entry.getValue().get();
+            if (isRemoved(val)) continue;
+            result.put(toPath(entry.getKey()), val);
         }
+        return result.build();
     }
 
     public Map<String, Object> asMap() {
         Map<String, Object> result = Maps.newLinkedHashMap();
-        synchronized (values) {
-            for (Map.Entry<Collection<String>, Object> entry : values.entrySet()) {
-                String sensorName = Joiner.on('.').join(entry.getKey());
-                Object val = (isNull(entry.getValue())) ? null : entry.getValue();
-                result.put(sensorName, val);
-            }
+        for (Map.Entry<String, Slot> entry : sortedEntries()) {
+            Object val = entry.getValue().get();
+            if (isRemoved(val)) continue;
+            result.put(entry.getKey(), isNull(val) ? null : val);
         }
         return result;
     }
     
+    private List<Map.Entry<String, Slot>> sortedEntries() {
+        List<Map.Entry<String, Slot>> result = Lists.newArrayList(values.entrySet());
+        Collections.sort(result, INSERTION_ORDER);
+        return result;
+    }
+    
+    private static String toName(Collection<String> path) {
+        return Joiner.on('.').join(path);
+    }
+    
+    private static Collection<String> toPath(String name) {
+        return ImmutableList.copyOf(Splitter.on('.').split(name));
+    }
+    
     /**
      * Updates the value.
      *
@@ -146,18 +209,45 @@ public final class AttributeMap {
     // (is there even any point to the path?  it was for returning maps by querying a prefix but that's ancient!)
     public <T> T update(Collection<String> path, T newValue) {
         checkPath(path);
+        return updateByName(toName(path), newValue);
+    }
 
+    private <T> T updateByName(String name, T newValue) {
         if (newValue == null) {
             newValue = typedNull();
         }
 
         if (log.isTraceEnabled()) {
-            log.trace("setting sensor {}={} for {}", new Object[] {path, newValue, entity});
+            log.trace("setting sensor {}={} for {}", new Object[] {name, newValue, entity});
         }
 
-        @SuppressWarnings("unchecked")
-        T oldValue = (T) values.put(path, newValue);
-        return (isNull(oldValue)) ? null : oldValue;
+        while (true) {
+            Slot slot = values.get(name);
+            if (slot == null) {
+                slot = new Slot(nextOrder.incrementAndGet(), newValue);
+                Slot existing = values.putIfAbsent(name, slot);
+                if (existing == null) return null;
+                slot = existing;
+            }
+            @SuppressWarnings("unchecked")
+            T oldValue = (T) slot.get();
+            if (isRemoved(oldValue)) {
+                // being removed concurrently; retry once it has left the map, setting it afresh
+                Thread.yield();
+                continue;
+            }
+            if (slot.compareAndSet(oldValue, newValue)) {
+                return (isNull(oldValue)) ? null : oldValue;
+            }
+        }
+    }
+
+    private void removeByName(String name) {
+        Slot slot = values.get(name);
+        if (slot != null) {
+            slot.set(Marker.REMOVED);
+            values.remove(name, slot);
+        }
     }
 
     private void checkPath(Collection<String> path) {
@@ -187,6 +277,29 @@ public final class AttributeMap {
         });
     }
     
+    /**
+     * Updates all the given attributes under a single acquisition of {@link #getLockInternal()},
+     * then publishes the changes as one batch (subscribers still receive an event per attribute,
+     * in the iteration order of the given map).
+     * <p>
+     * Constraints of {@link #getLockInternal()} apply, as for {@link #update(AttributeSensor, Object)}.
+     * 
+     * @return the old values, keyed by sensor, with null where the attribute was not previously set
+     */
+    @Beta
+    public Map<AttributeSensor<?>, Object> updateAll(Map<? extends AttributeSensor<?>, ?> newValues) {
+        return withLock(() -> {
+            Map<AttributeSensor<?>, Object> oldValues = Maps.newLinkedHashMap();
+            for (Map.Entry<? extends AttributeSensor<?>, ?> entry : newValues.entrySet()) {
+                @SuppressWarnings("unchecked")
+                AttributeSensor<Object> attribute = (AttributeSensor<Object>) entry.getKey();
+                oldValues.put(attribute, updateInternalWithoutLockOrPublish(attribute, entry.getValue()));
+            }
+            entity.sensors().emitAllInternal(newValues);
+            return oldValues;
+        });
+    }
+    
     /** @deprecated since 1.0.0 this is becoming an internal method, {@link #updateInternalWithoutLockOrPublish(AttributeSensor, Object)} */
     @Deprecated
     public <T> T updateWithoutPublishing(AttributeSensor<T> attribute, T newValue) {
@@ -195,19 +308,16 @@ public final class AttributeMap {
     
     @Beta
     public <T> T updateInternalWithoutLockOrPublish(AttributeSensor<T> attribute, T newValue) {
-        synchronized (values) {
-            if (log.isTraceEnabled()) {
-                Object oldValue = getValue(attribute);
-                if (!Objects.equal(oldValue, newValue != null)) {
-                    log.trace("setting attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
-                } else {
-                    log.trace("setting attribute {} to {} (unchanged) on {}", new Object[] {attribute.getName(), newValue, this});
-                }
+        if (log.isTraceEnabled()) {
+            Object oldValue = getValue(attribute);
+            if (!Objects.equal(oldValue, newValue != null)) {
+                log.trace("setting attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
+            } else {
+                log.trace("setting attribute {} to {} (unchanged) on {}", new Object[] {attribute.getName(), newValue, this});
             }
-    
-            T oldValue = update(attribute.getNameParts(), newValue);
-            return (isNull(oldValue)) ? null : oldValue;
         }
+
+        return updateByName(attribute.getName(), newValue);
     }
 
     private <T> T withLock(Callable<T> body) { return Locks.withLock(getLockInternal(), body); }
@@ -243,7 +353,7 @@ public final class AttributeMap {
     public void remove(AttributeSensor<?> attribute) {
         BrooklynLogging.log(log, BrooklynLogging.levelDebugOrTraceIfReadOnly(entity),
             "removing attribute {} on {}", attribute.getName(), entity);
-        withLock(() -> remove(attribute.getNameParts()) );
+        withLock(() -> { removeByName(attribute.getName()); } );
     }
 
     // TODO path must be ordered(and legal to contain duplicates like "a.b.a"; list would be better
@@ -257,7 +367,7 @@ public final class AttributeMap {
             log.trace("removing sensor {} for {}", new Object[] {path, entity});
         }
 
-        values.remove(path);
+        removeByName(toName(path));
     }
 
     /**
@@ -271,13 +381,22 @@ public final class AttributeMap {
     @Deprecated
     public Object getValue(Collection<String> path) {
         checkPath(path);
-        Object result = values.get(path);
-        return (isNull(result)) ? null : result;
+        return getValueByName(toName(path));
+    }
+
+    private Object getValueByName(String name) {
+        Slot slot = values.get(name);
+        if (slot == null) return null;
+        Object result = slot.get();
+        return (isNull(result) || isRemoved(result)) ? null : result;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getValue(AttributeSensor<T> sensor) {
-        return (T) TypeCoercions.coerce(getValue(sensor.getNameParts()), sensor.getType());
+        Object result = getValueByName(sensor.getName());
+        // fast path for the usual case, avoiding the coercion machinery
+        if (result == null || sensor.getType().isInstance(result)) return (T) result;
+        return (T) TypeCoercions.coerce(result, sensor.getType());
     }
 
     @SuppressWarnings("unchecked")
@@ -288,4 +407,8 @@ public final class AttributeMap {
     private boolean isNull(Object t) {
         return t == Marker.NULL;
     }
+
+    private boolean isRemoved(Object t) {
+        return t == Marker.REMOVED;
+    }
 }
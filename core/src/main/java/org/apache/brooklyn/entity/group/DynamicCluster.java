@@ -208,6 +208,32 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
             .defaultValue(0)
             .build();
 
+    @Beta
+    @SetFromFlag("memberStartRampUpInterval")
+    ConfigKey<Duration> MEMBER_START_RAMP_UP_INTERVAL = ConfigKeys.builder(Duration.class)
+            .name("dynamiccluster.memberStart.rampUpInterval")
+            .description("[Beta] The minimum time between starting successive members when the cluster grows, limiting "
+                    + "the rate at which members are provisioned (whereas maxConcurrentChildCommands limits how many "
+                    + "start at once). Null or zero means each member starts as soon as it has a permit")
+            .build();
+
+    @Beta
+    @SetFromFlag("memberStartFailureBudget")
+    ConfigKey<Integer> MEMBER_START_FAILURE_BUDGET = ConfigKeys.builder(Integer.class)
+            .name("dynamiccluster.memberStart.failureBudget")
+            .description("[Beta] The number of members which may fail to start when the cluster grows; once more have "
+                    + "failed, members still waiting to start are discarded without being started. Null means there is "
+                    + "no limit")
+            .build();
+
+    AttributeSensor<Duration> MEMBER_START_QUEUE_TIME = Sensors.newSensor(Duration.class,
+            "dynamiccluster.memberStart.queueTime", "Set on a member, when the cluster has a ramp-up interval or failure budget: "
+                    + "how long it waited (e.g. for a permit) before the cluster started it");
+
+    AttributeSensor<Duration> MEMBER_START_EXECUTION_TIME = Sensors.newSensor(Duration.class,
+            "dynamiccluster.memberStart.executionTime", "Set on a member, when the cluster has a ramp-up interval or failure budget: "
+                    + "how long its start effector took when the cluster started it");
+
     AttributeSensor<List<Location>> SUB_LOCATIONS = new BasicAttributeSensor<List<Location>>(
             new TypeToken<List<Location>>() {},
             "dynamiccluster.subLocations", "Locations for each availability zone to use");
@@ -66,6 +66,7 @@ import org.apache.brooklyn.feed.function.FunctionFeed;
 import org.apache.brooklyn.feed.function.FunctionPollConfig;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
@@ -80,6 +81,7 @@ import org.apache.brooklyn.util.javalang.Reflections;
 import org.apache.brooklyn.util.text.StringPredicates;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -894,6 +896,10 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         List<Entity> addedEntities = Lists.newArrayList();
         Map<Entity, Location> addedEntityLocations = Maps.newLinkedHashMap();
         Map<Entity, Task<?>> tasks = Maps.newLinkedHashMap();
+        Duration rampUpInterval = config().get(MEMBER_START_RAMP_UP_INTERVAL);
+        Integer failureBudget = config().get(MEMBER_START_FAILURE_BUDGET);
+        // only needed (with its extra task and listener per member) if either is set
+        MemberStartBatch batch = (rampUpInterval != null || failureBudget != null) ? new MemberStartBatch(rampUpInterval, failureBudget) : null;
 
         for (Location loc : locations) {
             Entity entity = addNode(loc, flags);
@@ -904,7 +910,18 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
                 // before they start; make sure they're in the first batch.
                 boolean privileged = entity.equals(AbstractGroup.getFirst(this));
                 Map<String, ?> args = ImmutableMap.of("locations", MutableList.builder().addIfNotNull(loc).buildImmutable());
-                Task<?> task = newThrottledEffectorTask(entity, Startable.START, args, privileged);
+                Task<?> task;
+                if (batch == null) {
+                    task = newThrottledEffectorTask(entity, Startable.START, args, privileged);
+                } else {
+                    // passed this way so that subclasses overriding newThrottledEffectorTask still see every start
+                    CURRENT_MEMBER_START_BATCH.set(batch);
+                    try {
+                        task = newThrottledEffectorTask(entity, Startable.START, args, privileged);
+                    } finally {
+                        CURRENT_MEMBER_START_BATCH.remove();
+                    }
+                }
                 tasks.put(entity, task);
             }
         }
@@ -913,12 +930,19 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         TaskTags.markInessential(parallel);
         DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
         Map<Entity, Throwable> errors = waitForTasksOnEntityStart(tasks);
+        // not started because too many others failed, so neither quarantined nor counted as failures of their location
+        Set<Entity> abandoned = MutableSet.copyOf(Maps.filterValues(errors, IS_START_ABANDONED).keySet());
+        if (!abandoned.isEmpty()) {
+            // only a batch abandons members, so it is non-null here
+            LOG.warn("Cluster {} abandoned starting {} member{}, after {} failed to start", new Object[] {this, abandoned.size(), Strings.s(abandoned.size()), batch.getFailures()});
+        }
 
         // if tracking, then report success/fail to the ZoneFailureDetector
         if (isAvailabilityZoneEnabled()) {
             for (Map.Entry<Entity, Location> entry : addedEntityLocations.entrySet()) {
                 Entity entity = entry.getKey();
                 Location loc = entry.getValue();
+                if (abandoned.contains(entity)) continue;
                 Throwable err = errors.get(entity);
                 if (err == null) {
                     getZoneFailureDetector().onStartupSuccess(loc, entity);
@@ -935,12 +959,22 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
 
         // quarantine/cleanup as necessary
         if (!errors.isEmpty()) {
+            Map<Entity, Throwable> failures = MutableMap.copyOf(Maps.filterKeys(errors, Predicates.not(Predicates.in(abandoned))));
             if (isQuarantineEnabled()) {
-                quarantineFailedNodes(errors);
+                quarantineFailedNodes(failures);
             } else {
-                cleanupFailedNodes(errors.keySet());
+                cleanupFailedNodes(failures.keySet());
             }
-            return ReferenceWithError.newInstanceMaskingError(result, Exceptions.create(errors.values()));
+            cleanupFailedNodes(abandoned);
+
+            List<Throwable> exceptions = MutableList.of();
+            if (!abandoned.isEmpty()) {
+                // first, so the summary leads the combined message
+                exceptions.add(new IllegalStateException("Abandoned starting "+abandoned.size()+" member"+Strings.s(abandoned.size())
+                        +" of "+this+", after "+batch.getFailures()+" failed to start"));
+            }
+            exceptions.addAll(failures.values());
+            return ReferenceWithError.newInstanceMaskingError(result, Exceptions.create(exceptions));
         }
 
         return ReferenceWithError.newInstanceWithoutError(result);
@@ -980,6 +1014,11 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             } catch (InterruptedException e) {
                 throw Exceptions.propagate(e);
             } catch (Throwable t) {
+                if (IS_START_ABANDONED.apply(t)) {
+                    LOG.debug("Cluster "+this+" abandoned starting entity "+entity+" (removing)");
+                    errors.put(entity, t);
+                    continue;
+                }
                 Throwable interesting = Exceptions.getFirstInteresting(t);
                 LOG.error("Cluster "+this+" failed to start entity "+entity+" (removing): "+interesting, interesting);
                 LOG.debug("Trace for: Cluster "+this+" failed to start entity "+entity+" (removing): "+t, t);
@@ -1133,6 +1172,13 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      * Creates tasks that obtain permits from {@link #childTaskSemaphore} before invoking <code>effector</code>
      * on <code>target</code>. Permits are released in a {@link ListenableFuture#addListener listener}. No
      * permits are obtained if {@link #childTaskSemaphore} is <code>null</code>.
+     * <p>
+     * When called while {@link #addInEachLocation(Iterable, Map)} starts members with a
+     * {@link DynamicCluster#MEMBER_START_RAMP_UP_INTERVAL ramp-up interval} or
+     * {@link DynamicCluster#MEMBER_START_FAILURE_BUDGET failure budget}, an unprivileged task first waits for
+     * the ramp-up interval, and fails without invoking the effector if too many other members have failed.
+     * The time <code>target</code> waited and the time the effector took are then recorded on it as
+     * {@link #MEMBER_START_QUEUE_TIME} and {@link #MEMBER_START_EXECUTION_TIME}.
      * @param target Entity to invoke effector on
      * @param effector Effector to invoke on target
      * @param arguments Effector arguments
@@ -1141,58 +1187,172 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      *                     returns a task that sequentially obtains a permit then runs the effector.
      * @return An unsubmitted task.
      */
-    protected <T> Task<?> newThrottledEffectorTask(Entity target, Effector<T> effector, Map<?, ?> arguments, boolean isPrivileged) {
+    protected <T> Task<?> newThrottledEffectorTask(final Entity target, Effector<T> effector, Map<?, ?> arguments, boolean isPrivileged) {
+        final MemberStartBatch batch = CURRENT_MEMBER_START_BATCH.get();
         final Task<?> toSubmit;
         final Task<T> effectorTask = Effectors.invocation(target, effector, arguments).asTask();
-        if (getChildTaskSemaphore() != null) {
+        final Semaphore semaphore = getChildTaskSemaphore();
+        if (semaphore != null || batch != null) {
             // permitObtained communicates to the release task whether the permit should really be released
             // or not. ObtainPermit sets it to true when a permit is acquired.
             final AtomicBoolean permitObtained = new AtomicBoolean();
-            final String description = "Waiting for permit to run " + effector.getName() + " on " + target;
-            final Runnable obtain = new ObtainPermit(getChildTaskSemaphore(), description, permitObtained);
+            final String description = (semaphore != null ? "Waiting for permit to run " : "Waiting to run ") + effector.getName() + " on " + target;
             // Acquire the permit now for the privileged task and just queue the effector invocation.
             // If it's unprivileged then queue a task to obtain a permit first.
             if (isPrivileged) {
-                obtain.run();
-                toSubmit = effectorTask;
+                new ObtainPermit(semaphore, description, permitObtained, target, null).run();
+                // the batch inspects the effector task's outcome, so must listen to a task wrapping it
+                toSubmit = (batch != null) ? Tasks.sequential("Running " + effector.getName() + " on " + target, effectorTask) : effectorTask;
             } else {
                 Task<?> obtainMutex = Tasks.builder()
                         .description(description)
-                        .body(new ObtainPermit(getChildTaskSemaphore(), description, permitObtained))
+                        .body(new ObtainPermit(semaphore, description, permitObtained, target, batch))
                         .build();
                 toSubmit = Tasks.sequential(
-                        "Waiting for permit then running " + effector.getName() + " on " + target,
+                        (semaphore != null ? "Waiting for permit then running " : "Waiting then running ") + effector.getName() + " on " + target,
                         obtainMutex, effectorTask);
             }
-            toSubmit.addListener(new ReleasePermit(getChildTaskSemaphore(), permitObtained), MoreExecutors.sameThreadExecutor());
+            if (batch != null) {
+                // before releasing the permit, so the next member to get it sees this one's failure
+                toSubmit.addListener(batch.new RecordStart(target, toSubmit, effectorTask), MoreExecutors.sameThreadExecutor());
+            }
+            if (semaphore != null) {
+                toSubmit.addListener(new ReleasePermit(semaphore, permitObtained), MoreExecutors.sameThreadExecutor());
+            }
         } else {
             toSubmit = effectorTask;
         }
         return toSubmit;
     }
 
+    /** The batch of members being started by {@link #addInEachLocation(Iterable, Map)} on this thread, if any. */
+    private static final ThreadLocal<MemberStartBatch> CURRENT_MEMBER_START_BATCH = new ThreadLocal<MemberStartBatch>();
+
+    private static final Predicate<Throwable> IS_START_ABANDONED = new Predicate<Throwable>() {
+        @Override
+        public boolean apply(Throwable input) {
+            return Exceptions.getFirstThrowableOfType(input, MemberStartAbandonedException.class) != null;
+        }
+    };
+
+    private static class MemberStartAbandonedException extends IllegalStateException {
+        private static final long serialVersionUID = -2846409574052349185L;
+
+        private MemberStartAbandonedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The members started by one call to {@link DynamicClusterImpl#addInEachLocation(Iterable, Map)}, which
+     * share a {@link DynamicCluster#MEMBER_START_FAILURE_BUDGET failure budget} and are started no more often
+     * than the {@link DynamicCluster#MEMBER_START_RAMP_UP_INTERVAL ramp-up interval}.
+     */
+    private static class MemberStartBatch {
+        private final Duration rampUpInterval;
+        private final Integer failureBudget;
+        private final AtomicInteger failures = new AtomicInteger();
+        // guarded by this
+        private long nextStartTime;
+
+        private MemberStartBatch(@Nullable Duration rampUpInterval, @Nullable Integer failureBudget) {
+            this.rampUpInterval = rampUpInterval;
+            this.failureBudget = failureBudget;
+        }
+
+        public int getFailures() {
+            return failures.get();
+        }
+
+        /** Waits for the ramp-up interval, then throws if the member should no longer be started. */
+        void beforeStart(Entity member) {
+            checkFailureBudget(member);
+            if (rampUpInterval != null && rampUpInterval.toMilliseconds() > 0) {
+                long startTime;
+                synchronized (this) {
+                    startTime = Math.max(System.currentTimeMillis(), nextStartTime);
+                    nextStartTime = startTime + rampUpInterval.toMilliseconds();
+                }
+                long delay = startTime - System.currentTimeMillis();
+                if (delay > 0) {
+                    String oldDetails = Tasks.setBlockingDetails("Waiting "+Duration.millis(delay)+" to ramp up starting "+member);
+                    try {
+                        Time.sleep(delay);
+                    } finally {
+                        Tasks.setBlockingDetails(oldDetails);
+                    }
+                }
+                // others may have failed while waiting
+                checkFailureBudget(member);
+            }
+        }
+
+        private void checkFailureBudget(Entity member) {
+            if (failureBudget != null && failures.get() > failureBudget) {
+                throw new MemberStartAbandonedException("Not starting "+member+": "+failures.get()+" member"+Strings.s(failures.get())
+                        +" failed to start, exceeding failure budget of "+failureBudget);
+            }
+        }
+
+        class RecordStart implements Runnable {
+            private final Entity member;
+            private final Task<?> task;
+            private final Task<?> effectorTask;
+
+            RecordStart(Entity member, Task<?> task, Task<?> effectorTask) {
+                this.member = member;
+                this.task = task;
+                this.effectorTask = effectorTask;
+            }
+
+            @Override
+            public void run() {
+                if (!effectorTask.isBegun()) return;
+                if (effectorTask.isError()) failures.incrementAndGet();
+                if (Entities.isManaged(member)) {
+                    member.sensors().set(MEMBER_START_QUEUE_TIME, Duration.millis(effectorTask.getStartTimeUtc() - task.getSubmitTimeUtc()));
+                    member.sensors().set(MEMBER_START_EXECUTION_TIME, Duration.millis(effectorTask.getEndTimeUtc() - effectorTask.getStartTimeUtc()));
+                }
+            }
+        }
+    }
+
     private static class ObtainPermit implements Runnable {
         private final Semaphore permit;
         private final String description;
         private final AtomicBoolean hasObtainedPermit;
+        private final Entity target;
+        private final MemberStartBatch batch;
 
-        private ObtainPermit(Semaphore permit, String description, AtomicBoolean hasObtainedPermit) {
+        private ObtainPermit(@Nullable Semaphore permit, String description, AtomicBoolean hasObtainedPermit, Entity target, @Nullable MemberStartBatch batch) {
             this.permit = permit;
             this.description = description;
             this.hasObtainedPermit = hasObtainedPermit;
+            this.target = target;
+            this.batch = batch;
         }
 
         @Override
         public void run() {
-            String oldDetails = Tasks.setBlockingDetails(description);
-            LOG.debug("{} acquiring permit from {}", this, permit);
-            try {
-                permit.acquire();
-                hasObtainedPermit.set(true);
-            } catch (InterruptedException e) {
-                throw Exceptions.propagate(e);
-            } finally {
-                Tasks.setBlockingDetails(oldDetails);
+            if (batch != null) {
+                // before taking a permit, so members waiting to ramp up do not hold permits others could use
+                batch.beforeStart(target);
+            }
+            if (permit != null) {
+                String oldDetails = Tasks.setBlockingDetails(description);
+                LOG.debug("{} acquiring permit from {}", this, permit);
+                try {
+                    permit.acquire();
+                    hasObtainedPermit.set(true);
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                } finally {
+                    Tasks.setBlockingDetails(oldDetails);
+                }
+                if (batch != null) {
+                    // others may have failed while waiting for the permit
+                    batch.checkFailureBudget(target);
+                }
             }
         }
     }
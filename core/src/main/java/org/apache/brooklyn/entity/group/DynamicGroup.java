@@ -32,6 +32,7 @@ import org.apache.brooklyn.core.effector.MethodEffector;
 import org.apache.brooklyn.core.entity.trait.Startable;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
+import org.apache.brooklyn.util.time.Duration;
 
 import com.google.common.base.Predicate;
 import com.google.common.reflect.TypeToken;
@@ -46,6 +47,17 @@ public interface DynamicGroup extends AbstractGroup {
             "dynamicgroup.entityfilter", 
             "Filter for entities which will automatically be in the group");
 
+    /**
+     * Membership is maintained as entities are added to and removed from the application, and as
+     * {@link #addSubscription(Entity, Sensor) subscribed} sensors change; a periodic rescan is only
+     * needed where the filter depends on something else.
+     */
+    @SetFromFlag("rescanPeriod")
+    ConfigKey<Duration> RESCAN_PERIOD = ConfigKeys.newDurationConfigKey(
+            "dynamicgroup.rescanPeriod",
+            "How often to rescan all entities as a consistency check of the membership (by default, never)",
+            null);
+
     AttributeSensor<Boolean> RUNNING = Sensors.newBooleanSensor(
             "dynamicgroup.running", "Whether the entity is running, and will automatically update group membership");
 
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.entity.group;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.Task;
@@ -27,18 +28,18 @@ import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.BrooklynLogging.LoggingLevel;
-import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.mgmt.internal.CollectionChangeListener;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 
 public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup {
@@ -49,6 +50,8 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
 
     private volatile MyEntitySetChangeListener setChangeListener = null;
 
+    private volatile ScheduledTask periodicRescan = null;
+
     @Override
     public void init() {
         super.init();
@@ -90,8 +93,9 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     public void stop() {
         sensors().set(RUNNING, false);
         if (setChangeListener != null) {
-            ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
+            removeEntitySetListener(setChangeListener);
         }
+        cancelPeriodicRescan();
     }
 
     @Override
@@ -145,6 +149,9 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     }
 
     private class MyEntitySetChangeListener implements CollectionChangeListener<Entity> {
+        /** Where known, only told of entities in this application, rather than of every entity under management */
+        final String applicationId;
+        MyEntitySetChangeListener(String applicationId) { this.applicationId = applicationId; }
         @Override
         public void onItemAdded(Entity item) { onEntityAdded(item); }
         @Override
@@ -157,22 +164,40 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             log.warn("{} becoming master twice", this);
             return;
         }
-        setChangeListener = new MyEntitySetChangeListener();
-        ((ManagementContextInternal) getManagementContext()).addEntitySetListener(setChangeListener);
-        Task<Object> rescan = Tasks.builder().displayName("rescan entities").body(
+        setChangeListener = new MyEntitySetChangeListener(getApplicationId());
+        addEntitySetListener(setChangeListener);
+        getExecutionContext().submit(newRescanTask());
+
+        Duration period = config().get(RESCAN_PERIOD);
+        if (period != null && period.isPositive()) {
+            periodicRescan = ScheduledTask.builder(new Callable<Task<?>>() {
+                        @Override
+                        public Task<?> call() {
+                            return newRescanTask();
+                        }})
+                    .displayName("scheduled:[rescan entities]")
+                    .tagTransient()
+                    .delay(period)
+                    .period(period)
+                    .build();
+            getExecutionContext().submit(periodicRescan);
+        }
+    }
+
+    private Task<Object> newRescanTask() {
+        return Tasks.builder().displayName("rescan entities").body(
             new Runnable() {
                 @Override
                 public void run() {
                     try {
                         rescanEntities();
                     } catch (Exception e) {
-                        log.warn("Error rescanning entities on management of "+DynamicGroupImpl.this+"; may be a group set against an unknown entity: "+e);
+                        log.warn("Error rescanning entities for "+DynamicGroupImpl.this+"; may be a group set against an unknown entity: "+e);
                         log.debug("Trace for rescan entities error", e);
                         Exceptions.propagateIfFatal(e);
                     }
                 }
             }).build();
-        getExecutionContext().submit(rescan);
     }
 
     @Override
@@ -181,8 +206,33 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             log.warn("{} no longer master twice", this);
             return;
         }
-        ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
+        removeEntitySetListener(setChangeListener);
         setChangeListener = null;
+        cancelPeriodicRescan();
+    }
+
+    private void addEntitySetListener(MyEntitySetChangeListener listener) {
+        if (listener.applicationId != null) {
+            ((ManagementContextInternal) getManagementContext()).addEntitySetListener(listener.applicationId, listener);
+        } else {
+            ((ManagementContextInternal) getManagementContext()).addEntitySetListener(listener);
+        }
+    }
+
+    private void removeEntitySetListener(MyEntitySetChangeListener listener) {
+        if (listener.applicationId != null) {
+            ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(listener.applicationId, listener);
+        } else {
+            ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(listener);
+        }
+    }
+
+    private void cancelPeriodicRescan() {
+        ScheduledTask task = periodicRescan;
+        if (task != null) {
+            task.cancel(true);
+            periodicRescan = null;
+        }
     }
 
     @Override
@@ -201,9 +251,9 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             Collection<Entity> currentMembers = getMembers();
             Collection<Entity> toRemove = Sets.newLinkedHashSet(currentMembers);
 
-            final Iterable<Entity> unfiltered = Entities.descendantsAndSelf(getApplication());
-            log.debug("{} filtering {} with {}", new Object[]{this, unfiltered, entityFilter()});
-            for (Entity it : Iterables.filter(unfiltered, entityFilter())) {
+            // not logging the entities themselves, as there may be very many
+            if (log.isTraceEnabled()) log.trace("{} filtering entities of {} with {}", new Object[]{this, getApplication(), entityFilter()});
+            for (Entity it : getManagementContext().getEntityManager().findEntitiesInApplication(getApplication(), entityFilter())) {
                 toRemove.remove(it);
                 if (!currentMembers.contains(it)) {
                     if (log.isDebugEnabled()) log.debug("{} rescan detected new item {}", this, it);
@@ -35,17 +35,23 @@ import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.feed.AbstractFeed;
 import org.apache.brooklyn.core.feed.AttributePollHandler;
 import org.apache.brooklyn.core.feed.DelegatingPollHandler;
+import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.core.feed.Poller;
 import org.apache.brooklyn.core.location.Locations;
 import org.apache.brooklyn.feed.ssh.SshPollValue;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
@@ -93,6 +99,10 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
             "machine");
 
     public static final ConfigKey<Boolean> EXEC_AS_COMMAND = ConfigKeys.newBooleanConfigKey("execAsCommand");
+
+    @Beta
+    public static final ConfigKey<Boolean> BATCH_POLLS = ConfigKeys.newBooleanConfigKey("batchPolls",
+            "Whether to run all commands polled at the same period in a single remote invocation (see execBatch)", false);
     
     @SuppressWarnings("serial")
     public static final ConfigKey<SetMultimap<CommandPollIdentifier, CommandPollConfig<?>>> POLLS = ConfigKeys.newConfigKey(
@@ -105,6 +115,7 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
         private Supplier<MachineLocation> machine;
         private Duration period = Duration.of(500, TimeUnit.MILLISECONDS);
         private boolean execAsCommand = false;
+        private boolean batchPolls = false;
         private String uniqueTag;
         private volatile boolean built;
         
@@ -145,6 +156,19 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
             execAsCommand = false;
             return self();
         }
+        /**
+         * Runs the commands for all polls with the same period in a single invocation on the machine,
+         * rather than one invocation per distinct command.
+         */
+        @Beta
+        public B batchPolls() {
+            return batchPolls(true);
+        }
+        @Beta
+        public B batchPolls(boolean val) {
+            batchPolls = val;
+            return self();
+        }
         public B uniqueTag(String uniqueTag) {
             this.uniqueTag = uniqueTag;
             return self();
@@ -203,6 +227,7 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
         config().set(ONLY_IF_SERVICE_UP, builder.onlyIfServiceUp);
         config().set(MACHINE, builder.machine);
         config().set(EXEC_AS_COMMAND, builder.execAsCommand);
+        config().set(BATCH_POLLS, builder.batchPolls);
         
         SetMultimap<CommandPollIdentifier, CommandPollConfig<?>> polls = HashMultimap.<CommandPollIdentifier,CommandPollConfig<?>>create();
         for (CommandPollConfig<?> config : (List<CommandPollConfig<?>>)builder.getPolls()) {
@@ -227,6 +252,9 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
     @Override
     protected void preStart() {
         SetMultimap<CommandPollIdentifier, CommandPollConfig<?>> polls = config().get(POLLS);
+        boolean batchPolls = Boolean.TRUE.equals(config().get(BATCH_POLLS));
+        Map<Long, List<CommandPollIdentifier>> batches = Maps.newLinkedHashMap();
+        Map<CommandPollIdentifier, DelegatingPollHandler<SshPollValue>> batchHandlers = Maps.newLinkedHashMap();
         
         for (final CommandPollIdentifier pollInfo : polls.keySet()) {
             Set<CommandPollConfig<?>> configs = polls.get(pollInfo);
@@ -238,6 +266,17 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
             
+            if (batchPolls) {
+                List<CommandPollIdentifier> batch = batches.get(minPeriod);
+                if (batch == null) {
+                    batch = Lists.newArrayList();
+                    batches.put(minPeriod, batch);
+                }
+                batch.add(pollInfo);
+                batchHandlers.put(pollInfo, new DelegatingPollHandler<SshPollValue>(handlers));
+                continue;
+            }
+            
             getPoller().scheduleAtFixedRate(
                     new Callable<SshPollValue>() {
                         @Override
@@ -247,6 +286,127 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
                     new DelegatingPollHandler<SshPollValue>(handlers),
                     minPeriod);
         }
+        
+        for (Map.Entry<Long, List<CommandPollIdentifier>> entry : batches.entrySet()) {
+            final List<CommandPollIdentifier> batch = entry.getValue();
+            List<DelegatingPollHandler<SshPollValue>> handlers = Lists.newArrayList();
+            for (CommandPollIdentifier pollInfo : batch) {
+                handlers.add(batchHandlers.get(pollInfo));
+            }
+            Supplier<List<String>> commands = new Supplier<List<String>>() {
+                @Override public List<String> get() {
+                    List<String> result = Lists.newArrayList();
+                    for (CommandPollIdentifier pollInfo : batch) {
+                        result.add(pollInfo.command.get());
+                    }
+                    return result;
+                }};
+            Supplier<List<Map<String, String>>> envs = new Supplier<List<Map<String, String>>>() {
+                @Override public List<Map<String, String>> get() {
+                    List<Map<String, String>> result = Lists.newArrayList();
+                    for (CommandPollIdentifier pollInfo : batch) {
+                        result.add(pollInfo.env.get());
+                    }
+                    return result;
+                }};
+            BatchPollHandler handler = new BatchPollHandler(handlers);
+            getBatchPoller().scheduleAtFixedRate(
+                    newBatchJob(commands, envs, handler, Duration.millis(entry.getKey())),
+                    handler,
+                    entry.getKey());
+        }
+    }
+    
+    /**
+     * Creates the poll job for a batch of commands, when {@link #BATCH_POLLS} is set. The default
+     * job returns the result of {@link #execBatch(List, List)}. A job may instead pass results to the
+     * handler itself as they become available (e.g. if streamed from the machine), returning null.
+     */
+    @Beta
+    protected Callable<List<SshPollValue>> newBatchJob(final Supplier<List<String>> commands, final Supplier<List<Map<String, String>>> envs,
+            PollHandler<List<SshPollValue>> handler, Duration period) {
+        return new Callable<List<SshPollValue>>() {
+            @Override
+            public List<SshPollValue> call() throws Exception {
+                return execBatch(commands.get(), envs.get());
+            }};
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Poller<List<SshPollValue>> getBatchPoller() {
+        return (Poller<List<SshPollValue>>) super.getPoller();
+    }
+    
+    /**
+     * Passes each of a batch's results to the handler for the corresponding command. A handler which
+     * throws is passed its exception, without affecting the other handlers.
+     */
+    private static class BatchPollHandler implements PollHandler<List<SshPollValue>> {
+        private final List<DelegatingPollHandler<SshPollValue>> delegates;
+
+        BatchPollHandler(List<DelegatingPollHandler<SshPollValue>> delegates) {
+            this.delegates = ImmutableList.copyOf(delegates);
+        }
+
+        @Override
+        public boolean checkSuccess(List<SshPollValue> val) {
+            // success or failure is decided per command, in onSuccess
+            return true;
+        }
+
+        @Override
+        public void onSuccess(List<SshPollValue> val) {
+            if (val == null) {
+                // results already passed to the handler by the job
+                return;
+            }
+            for (int i = 0; i < delegates.size(); i++) {
+                DelegatingPollHandler<SshPollValue> delegate = delegates.get(i);
+                SshPollValue result = val.get(i);
+                try {
+                    if (delegate.checkSuccess(result)) {
+                        delegate.onSuccess(result);
+                    } else {
+                        delegate.onFailure(result);
+                    }
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    if (log.isDebugEnabled()) log.debug("Batched poll handler "+delegate.getDescription()+" failed handling "+result+"; passing it the exception: "+e);
+                    onException(delegate, e);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(List<SshPollValue> val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (DelegatingPollHandler<SshPollValue> delegate : delegates) {
+                onException(delegate, exception);
+            }
+        }
+
+        private void onException(DelegatingPollHandler<SshPollValue> delegate, Exception exception) {
+            try {
+                delegate.onException(exception);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                log.warn("Batched poll handler "+delegate.getDescription()+" failed handling exception "+exception+"; continuing with other handlers: "+e, e);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            StringBuilder sb = new StringBuilder("batch[");
+            for (int i = 0; i < delegates.size(); i++) {
+                if (i > 0) sb.append("; ");
+                sb.append(delegates.get(i).getDescription());
+            }
+            return sb.append("]").toString();
+        }
     }
     
     @Override
@@ -256,4 +416,18 @@ public abstract class AbstractCommandFeed extends AbstractFeed {
     }
     
     protected abstract SshPollValue exec(String command, Map<String,String> env) throws IOException;
+
+    /**
+     * Executes a batch of commands, returning a result for each (in the same order), when
+     * {@link #BATCH_POLLS} is set. The default runs each with {@link #exec(String, Map)};
+     * subclasses can override to run them all in a single invocation on the machine.
+     */
+    @Beta
+    protected List<SshPollValue> execBatch(List<String> commands, List<Map<String,String>> envs) throws IOException {
+        List<SshPollValue> result = Lists.newArrayList();
+        for (int i = 0; i < commands.size(); i++) {
+            result.add(exec(commands.get(i), envs.get(i)));
+        }
+        return result;
+    }
 }
@@ -18,19 +18,38 @@
  */
 package org.apache.brooklyn.feed.ssh;
 
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.feed.CommandPollConfig;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides a feed of attribute values, by polling over ssh.
@@ -69,8 +88,14 @@ import java.util.Map;
 public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
     public static final Logger log = LoggerFactory.getLogger(SshFeed.class);
 
+    @Beta
+    public static final ConfigKey<Duration> COLLECTOR_LIFETIME = ConfigKeys.newDurationConfigKey("collectorLifetime",
+            "If set, each batch of commands is run repeatedly by a collector script left running on the machine for "
+            + "(at most) this long, streaming results back over a single ssh session, rather than by a new ssh command every period");
+
     public static class Builder extends org.apache.brooklyn.feed.AbstractCommandFeed.Builder<SshFeed, Builder> {
         private List<CommandPollConfig<?>> polls = Lists.newArrayList();
+        private Duration collectorLifetime;
 
         @Override
         public Builder poll(CommandPollConfig<?> config) {
@@ -83,6 +108,22 @@ public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
             return polls;
         }
 
+        /**
+         * Batches the polls (as for {@link #batchPolls()}), and runs each batch in a loop on the machine
+         * for up to 10 minutes at a time, streaming back the results.
+         * 
+         * @see SshFeed#COLLECTOR_LIFETIME
+         */
+        @Beta
+        public Builder persistentCollector() {
+            return persistentCollector(Duration.minutes(10));
+        }
+        @Beta
+        public Builder persistentCollector(Duration maxLifetime) {
+            this.collectorLifetime = maxLifetime;
+            return self();
+        }
+
         @Override
         protected Builder self() {
            return this;
@@ -104,31 +145,301 @@ public class SshFeed extends org.apache.brooklyn.feed.AbstractCommandFeed {
     public SshFeed() {
     }
 
+    /** Collector scripts currently running, by pid on the machine; only those started by this instance are known. */
+    private final transient ConcurrentMap<String, SshMachineLocation> collectors = Maps.newConcurrentMap();
+
     public SshFeed(final Builder builder) {
         super(builder);
+        if (builder.collectorLifetime != null) {
+            config().set(COLLECTOR_LIFETIME, builder.collectorLifetime);
+            config().set(BATCH_POLLS, true);
+        }
     }
 
     @Override
     protected SshPollValue exec(String command, Map<String,String> env) throws IOException {
         SshMachineLocation machine = (SshMachineLocation)getMachine();
-        Boolean execAsCommand = config().get(EXEC_AS_COMMAND);
         if (log.isTraceEnabled()) log.trace("Ssh polling for {}, executing {} with env {}", new Object[] {machine, command, env});
         ByteArrayOutputStream stdout = new ByteArrayOutputStream();
         ByteArrayOutputStream stderr = new ByteArrayOutputStream();
 
+        int exitStatus = execOnMachine(machine, command, env, stdout, stderr);
+
+        return new SshPollValue(machine, exitStatus, new String(stdout.toByteArray()), new String(stderr.toByteArray()));
+    }
+
+    /**
+     * Runs all the commands in one script, each in its own subshell with its own env. The stdout and
+     * stderr of each are captured to temporary files on the machine, then written back one after the
+     * other, after a header line giving the command's exit status.
+     */
+    @Override
+    protected List<SshPollValue> execBatch(List<String> commands, List<Map<String,String>> envs) throws IOException {
+        if (commands.size() == 1) {
+            return ImmutableList.of(exec(commands.get(0), envs.get(0)));
+        }
+        SshMachineLocation machine = (SshMachineLocation)getMachine();
+        String marker = "BROOKLYN_SSH_FEED_" + Identifiers.makeRandomId(8);
+        if (log.isTraceEnabled()) log.trace("Ssh polling for {}, executing batch {} with envs {}", new Object[] {machine, commands, envs});
+        BatchOutputParser stdout = new BatchOutputParser(machine, marker, commands.size());
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        int exitStatus = execOnMachine(machine, toBatchScript(marker, commands, envs), ImmutableMap.<String,String>of(), stdout, stderr);
+
+        if (stdout.getRounds().isEmpty()) {
+            throw new IllegalStateException("Batch of "+commands.size()+" commands on "+machine+" failed (exit status "+exitStatus+")"
+                    + "; stderr: "+new String(stderr.toByteArray()));
+        }
+        return stdout.getRounds().get(0);
+    }
+
+    /**
+     * If {@link #COLLECTOR_LIFETIME} is set, returns a job which runs a collector script for the batch
+     * (see {@link #toCollectorScript(String, List, List, Duration, Duration)}), passing each round of results
+     * to the handler as it is read. The job returns null when the collector exits, and the poller starts
+     * a new collector after the period.
+     */
+    @Override
+    protected Callable<List<SshPollValue>> newBatchJob(final Supplier<List<String>> commands, final Supplier<List<Map<String, String>>> envs,
+            final PollHandler<List<SshPollValue>> handler, final Duration period) {
+        final Duration lifetime = config().get(COLLECTOR_LIFETIME);
+        if (lifetime == null) {
+            return super.newBatchJob(commands, envs, handler, period);
+        }
+        return new Callable<List<SshPollValue>>() {
+            @Override
+            public List<SshPollValue> call() throws Exception {
+                return runCollector(commands.get(), envs.get(), handler, period, lifetime);
+            }};
+    }
+
+    private List<SshPollValue> runCollector(List<String> commands, List<Map<String,String>> envs,
+            final PollHandler<List<SshPollValue>> handler, Duration period, Duration lifetime) {
+        final SshMachineLocation machine = (SshMachineLocation)getMachine();
+        String marker = "BROOKLYN_SSH_FEED_" + Identifiers.makeRandomId(8);
+        if (log.isDebugEnabled()) log.debug("Ssh feed for {} starting collector on {}, for commands {} with envs {}", new Object[] {getEntity(), machine, commands, envs});
+        final String[] pid = new String[1];
+        BatchOutputParser stdout = new BatchOutputParser(machine, marker, commands.size()) {
+            @Override
+            protected void onPid(String val) {
+                pid[0] = val;
+                collectors.put(val, machine);
+            }
+            @Override
+            protected void onRound(List<SshPollValue> results) {
+                if (!isRunning()) return;
+                try {
+                    if (handler.checkSuccess(results)) {
+                        handler.onSuccess(results);
+                    } else {
+                        handler.onFailure(results);
+                    }
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    log.warn("Problem handling results from collector on "+machine+" for "+getEntity()+" (continuing): "+e, e);
+                }
+            }
+        };
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
         int exitStatus;
+        try {
+            exitStatus = execOnMachine(machine, toCollectorScript(marker, commands, envs, period, lifetime), ImmutableMap.<String,String>of(), stdout, stderr);
+        } finally {
+            if (pid[0] != null) collectors.remove(pid[0]);
+        }
+
+        if (exitStatus != 0 && isRunning()) {
+            throw new IllegalStateException("Collector for "+commands.size()+" commands on "+machine+" failed (exit status "+exitStatus+")"
+                    + "; stderr: "+new String(stderr.toByteArray()));
+        }
+        return null;
+    }
+
+    /**
+     * Kills any collectors still running, without waiting. They would otherwise exit on their own by the
+     * end of their lifetime, or on next writing output once the ssh session has gone.
+     */
+    @Override
+    protected void postStop() {
+        super.postStop();
+        if (collectors.isEmpty()) return;
+        final Map<String, SshMachineLocation> toKill = ImmutableMap.copyOf(collectors);
+        collectors.keySet().removeAll(toKill.keySet());
+        ManagementContext mgmt = getManagementContext();
+        if (mgmt == null || !mgmt.isRunning()) return;
+        mgmt.getExecutionManager().submit(MutableMap.of("displayName", "Stopping ssh feed collectors for "+getEntity()), new Runnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<String, SshMachineLocation> entry : toKill.entrySet()) {
+                    try {
+                        entry.getValue().execCommands(MutableMap.of(SshTool.PROP_NO_EXTRA_OUTPUT.getName(), true), "kill-ssh-feed-collector",
+                                ImmutableList.of("kill "+entry.getKey()+" 2>/dev/null || true"));
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        log.debug("Unable to kill ssh feed collector "+entry.getKey()+" on "+entry.getValue()+" (ignoring): "+e);
+                    }
+                }
+            }});
+    }
+
+    private int execOnMachine(SshMachineLocation machine, String command, Map<String,String> env, OutputStream stdout, OutputStream stderr) {
+        Boolean execAsCommand = config().get(EXEC_AS_COMMAND);
         ConfigBag flags = ConfigBag.newInstanceExtending(config().getBag())
             .configure(SshTool.PROP_NO_EXTRA_OUTPUT, true)
             .configure(SshTool.PROP_OUT_STREAM, stdout)
             .configure(SshTool.PROP_ERR_STREAM, stderr);
         if (Boolean.TRUE.equals(execAsCommand)) {
-            exitStatus = machine.execCommands(flags.getAllConfig(),
+            return machine.execCommands(flags.getAllConfig(),
                     "ssh-feed", ImmutableList.of(command), env);
         } else {
-            exitStatus = machine.execScript(flags.getAllConfig(),
+            return machine.execScript(flags.getAllConfig(),
                     "ssh-feed", ImmutableList.of(command), env);
         }
+    }
 
-        return new SshPollValue(machine, exitStatus, new String(stdout.toByteArray()), new String(stderr.toByteArray()));
+    @VisibleForTesting
+    static String toBatchScript(String marker, List<String> commands, List<Map<String,String>> envs) {
+        StringBuilder script = new StringBuilder();
+        script.append("brooklyn_batch_dir=$(mktemp -d 2>/dev/null || mktemp -d -t brooklyn-ssh-feed)\n");
+        appendBatchRound(script, marker, commands, envs);
+        script.append("rm -rf \"$brooklyn_batch_dir\"\n");
+        return script.toString();
+    }
+
+    /**
+     * Like {@link #toBatchScript(String, List, List)}, but repeats the batch every period until the lifetime
+     * has passed, first writing its pid so that it can be killed. It is also ended by SIGPIPE if the ssh
+     * session is lost, the next time it writes output.
+     */
+    @VisibleForTesting
+    static String toCollectorScript(String marker, List<String> commands, List<Map<String,String>> envs, Duration period, Duration lifetime) {
+        StringBuilder script = new StringBuilder();
+        script.append("brooklyn_batch_dir=$(mktemp -d 2>/dev/null || mktemp -d -t brooklyn-ssh-feed)\n");
+        script.append("trap 'rm -rf \"$brooklyn_batch_dir\"' EXIT\n");
+        script.append("trap 'exit 143' TERM HUP PIPE\n");
+        script.append("echo \"").append(marker).append(" pid $$\"\n");
+        script.append("brooklyn_end=$(( $(date +%s) + ").append(Math.max(1, lifetime.toSeconds())).append(" ))\n");
+        script.append("while [ $(date +%s) -lt $brooklyn_end ]; do\n");
+        appendBatchRound(script, marker, commands, envs);
+        long periodMillis = Math.max(1, period.toMilliseconds());
+        String sleep = (periodMillis % 1000 == 0) ? ""+(periodMillis / 1000) : String.format("%d.%03d", periodMillis / 1000, periodMillis % 1000);
+        // not all sleep implementations accept fractions
+        script.append("sleep ").append(sleep).append(" 2>/dev/null || sleep 1\n");
+        script.append("done\n");
+        return script.toString();
+    }
+
+    /**
+     * The output is read line by line (and blank lines dropped) by the ssh tool, so each line of a command's
+     * output is written back prefixed by 'O' (stdout) or 'E' (stderr) and suffixed by '|', to be reconstructed
+     * by {@link BatchOutputParser}.
+     */
+    private static void appendBatchRound(StringBuilder script, String marker, List<String> commands, List<Map<String,String>> envs) {
+        for (int i = 0; i < commands.size(); i++) {
+            script.append("( ");
+            Map<String, String> env = envs.get(i);
+            if (env != null) {
+                for (Map.Entry<String, String> entry : env.entrySet()) {
+                    if (entry.getKey() == null || entry.getValue() == null) continue;
+                    script.append("export ").append(entry.getKey()).append("=\"")
+                            .append(BashStringEscapes.escapeLiteralForDoubleQuotedBash(entry.getValue())).append("\" ; ");
+                }
+            }
+            // newlines rather than ';' around the command, so it may end with a comment or '&'
+            script.append("\n").append(commands.get(i)).append("\n")
+                    .append(") > \"$brooklyn_batch_dir/out\" 2> \"$brooklyn_batch_dir/err\" && brooklyn_rc=0 || brooklyn_rc=$?\n");
+            script.append("echo \"").append(marker).append(" ").append(i).append(" $brooklyn_rc\"\n");
+            // awk rather than sed, so a final line without a newline is still terminated
+            script.append("awk '{ print \"O\" $0 \"|\" }' \"$brooklyn_batch_dir/out\"\n");
+            script.append("awk '{ print \"E\" $0 \"|\" }' \"$brooklyn_batch_dir/err\"\n");
+        }
+        script.append("echo \"").append(marker).append(" end\"\n");
+    }
+
+    /**
+     * Reconstructs the result of each command from the output of a script built by {@link #toBatchScript(String, List, List)}.
+     * The stdout and stderr of each are normalised as the ssh tool does for a single command: blank lines dropped,
+     * trailing whitespace removed, and each line terminated by a newline.
+     */
+    @VisibleForTesting
+    static class BatchOutputParser extends OutputStream {
+        private final SshMachineLocation machine;
+        private final String marker;
+        private final int numCommands;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final List<SshPollValue> round = Lists.newArrayList();
+        private final List<List<SshPollValue>> rounds = Lists.newCopyOnWriteArrayList();
+        private Integer exitStatus;
+        private StringBuilder out;
+        private StringBuilder err;
+
+        BatchOutputParser(SshMachineLocation machine, String marker, int numCommands) {
+            this.machine = machine;
+            this.marker = marker;
+            this.numCommands = numCommands;
+        }
+
+        /** The complete rounds (i.e. a result for every command) read so far. */
+        List<List<SshPollValue>> getRounds() {
+            return rounds;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                onLine(new String(line.toByteArray()));
+                line.reset();
+            } else {
+                line.write(b);
+            }
+        }
+
+        /** Called for each complete round; by default adds it to {@link #getRounds()}. */
+        protected void onRound(List<SshPollValue> results) {
+            rounds.add(results);
+        }
+
+        /** Called with the pid written by a script built by {@link #toCollectorScript(String, List, List, Duration, Duration)}. */
+        protected void onPid(String pid) {
+        }
+
+        private void onLine(String val) {
+            if (val.endsWith("\r")) val = val.substring(0, val.length()-1);
+            if (val.startsWith(marker+" ")) {
+                finishCommand();
+                List<String> fields = Splitter.on(' ').omitEmptyStrings().splitToList(val);
+                if (fields.size() == 3 && fields.get(1).equals("pid")) {
+                    onPid(fields.get(2));
+                } else if (fields.size() == 2 && fields.get(1).equals("end")) {
+                    if (round.size() == numCommands) {
+                        onRound(ImmutableList.copyOf(round));
+                    }
+                    round.clear();
+                } else if (fields.size() == 3 && fields.get(1).equals(""+round.size())) {
+                    exitStatus = Integer.parseInt(fields.get(2));
+                    out = new StringBuilder();
+                    err = new StringBuilder();
+                } else {
+                    // out of sequence; discard this round
+                    round.clear();
+                }
+            } else if (exitStatus != null && val.length() >= 2 && val.endsWith("|")) {
+                String content = CharMatcher.WHITESPACE.trimTrailingFrom(val.substring(1, val.length()-1));
+                if (content.isEmpty()) return;
+                if (val.charAt(0) == 'O') {
+                    out.append(content).append('\n');
+                } else if (val.charAt(0) == 'E') {
+                    err.append(content).append('\n');
+                }
+            }
+        }
+
+        private void finishCommand() {
+            if (exitStatus != null) {
+                round.add(new SshPollValue(machine, exitStatus, out.toString(), err.toString()));
+                exitStatus = null;
+            }
+        }
     }
 }
@@ -92,6 +92,7 @@ import org.apache.brooklyn.util.ssh.BashCommands;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.stream.ReaderInputStream;
 import org.apache.brooklyn.util.stream.StreamGobbler;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
@@ -102,8 +103,10 @@ import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -115,6 +118,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import com.google.common.net.HostAndPort;
 import com.google.common.reflect.TypeToken;
 
@@ -165,6 +170,22 @@ public class SshMachineLocation extends AbstractMachineLocation implements Machi
     public static final ConfigKey<Duration> SSH_CACHE_EXPIRY_DURATION = ConfigKeys.newConfigKey(Duration.class,
             "sshCacheExpiryDuration", "Expiry time for unused cached ssh connections", Duration.FIVE_MINUTES);
 
+    @Beta
+    public static final ConfigKey<Integer> SSH_MAX_SESSIONS_PER_CONNECTION = ConfigKeys.newIntegerConfigKey(
+            "sshMaxSessionsPerConnection", "Maximum number of concurrent operations (each on its own channel) to multiplex "
+                    + "over one cached ssh connection, for ssh tools which support it (currently sshj); "
+                    + "must not exceed the server's MaxSessions (10 by default for OpenSSH); 1 disables sharing", 4);
+
+    @Beta
+    public static final ConfigKey<Long> SSH_COPY_SKIP_UNCHANGED_MIN_SIZE = ConfigKeys.newLongConfigKey(
+            "sshCopySkipUnchangedMinSize", "Local files of at least this many bytes are only copied to the server by copyTo "
+                    + "if the remote file's sha256 checksum differs (checked with one ssh command first, so an extra command "
+                    + "for every such copy); negative (the default) disables the check",
+            -1L);
+
+    /** sha256 of recently copied local files, by path, length and last modified time; for {@link #SSH_COPY_SKIP_UNCHANGED_MIN_SIZE}. */
+    private static final Cache<String, String> LOCAL_FILE_CHECKSUMS = CacheBuilder.newBuilder().maximumSize(100).build();
+
     @SuppressWarnings("serial")
     public static final ConfigKey<Iterable<String>> PRIVATE_ADDRESSES = ConfigKeys.newConfigKey(
             new TypeToken<Iterable<String>>() {},
@@ -369,6 +390,8 @@ public class SshMachineLocation extends AbstractMachineLocation implements Machi
 
     private BasicPool<SshTool> buildPool(final Map<String, ?> properties) {
         return BasicPool.<SshTool>builder()
+                .maxLeasesPerObject(getConfig(SSH_MAX_SESSIONS_PER_CONNECTION))
+                .shareabilityChecker(Predicates.instanceOf(SshjTool.class))
                 .name(getDisplayName()+"@"+address+":"+getPort()+
                         (config().getRaw(SSH_HOST).isPresent() ? "("+getConfig(SSH_HOST)+":"+getPort()+")" : "")+
                         ":hash"+System.identityHashCode(this))
@@ -774,12 +797,54 @@ public class SshMachineLocation extends AbstractMachineLocation implements Machi
     public int copyTo(Map<String,?> props, File src, String destination) {
         Preconditions.checkNotNull(address, "Host address must be specified for scp");
         Preconditions.checkArgument(src.exists(), "File %s must exist for scp", src.getPath());
+        if (isUnchangedOnServer(props, src, destination)) {
+            LOG.debug("Not copying {} to {} on {}: remote file has same checksum", new Object[] {src, destination, this});
+            return 0;
+        }
         try {
             return copyTo(props, new FileInputStream(src), src.length(), destination);
         } catch (FileNotFoundException e) {
             throw Throwables.propagate(e);
         }
     }
+    /**
+     * Checks (for large files) whether the destination already has the same contents as the source file,
+     * setting its permissions as the copy would have done if so.
+     * 
+     * @see #SSH_COPY_SKIP_UNCHANGED_MIN_SIZE
+     */
+    private boolean isUnchangedOnServer(Map<String,?> props, File src, String destination) {
+        Long minSize = getConfig(SSH_COPY_SKIP_UNCHANGED_MIN_SIZE);
+        if (minSize == null || minSize < 0 || src.length() < minSize) return false;
+        if (props.containsKey(SshTool.PROP_OWNER_UID.getName()) || props.containsKey(SshTool.PROP_LAST_MODIFICATION_DATE.getName())
+                || props.containsKey(SshTool.PROP_LAST_ACCESS_DATE.getName())) {
+            // only set by the copy itself
+            return false;
+        }
+        Object permissions = props.get(SshTool.PROP_PERMISSIONS.getName());
+        if (permissions == null) permissions = SshTool.PROP_PERMISSIONS.getDefaultValue();
+        try {
+            String checksum = getLocalChecksum(src);
+            String file = BashStringEscapes.wrapBash(destination);
+            int result = execCommands(props, "checking checksum of "+destination, ImmutableList.of(
+                    "[ \"$( (sha256sum "+file+" || shasum -a 256 "+file+") 2>/dev/null | cut -d ' ' -f 1 )\" = \""+checksum+"\" ]"
+                            + " && chmod "+permissions+" "+file));
+            return result == 0;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to compare checksum of "+src+" with "+destination+" on "+this+" (will copy): "+e);
+            return false;
+        }
+    }
+
+    private static String getLocalChecksum(final File src) throws Exception {
+        return LOCAL_FILE_CHECKSUMS.get(src.getAbsolutePath()+":"+src.length()+":"+src.lastModified(), new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return Files.hash(src, Hashing.sha256()).toString();
+            }});
+    }
+
     public int copyTo(Reader src, String destination) {
         return copyTo(MutableMap.<String,Object>of(), src, destination);
     }
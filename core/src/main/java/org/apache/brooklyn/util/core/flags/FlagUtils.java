@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.brooklyn.api.objs.Configurable;
 import org.apache.brooklyn.api.objs.SpecParameter;
@@ -48,6 +50,10 @@ import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -62,6 +68,10 @@ public class FlagUtils {
 
     public static final Logger log = LoggerFactory.getLogger(FlagUtils.class);
     
+    /** The result of {@link #getAllFields(Class)} for each class, as it is needed for every object configured from flags. */
+    @SuppressWarnings("rawtypes")
+    private static final Cache<Class, List<Field>> allFieldsByClass = CacheBuilder.newBuilder().weakKeys().softValues().build();
+
     private FlagUtils() {}
     
     /** see {@link #setFieldsFromFlags(Object o, ConfigBag)} */
@@ -71,7 +81,7 @@ public class FlagUtils {
 
     /** see {@link #setFieldsFromFlags(Object, ConfigBag)} */
     public static Map<?, ?> setFieldsFromFlags(Map<?, ?> flags, Object o) {
-        return setFieldsFromFlagsInternal(o, getAllFields(o.getClass()), flags, null, true);
+        return setFieldsFromFlagsInternal(o, allFields(o.getClass()), flags, null, true);
     }
     
     /** sets all fields (including private and static, local and inherited) annotated {@link SetFromFlag} on the given object, 
@@ -81,17 +91,17 @@ public class FlagUtils {
      * default values are also applied unless that is specified false on one of the variants of this method which takes such an argument
      */
     public static void setFieldsFromFlags(Object o, ConfigBag configBag) {
-        setFieldsFromFlagsInternal(o, getAllFields(o.getClass()), configBag.getAllConfig(), configBag, true);
+        setFieldsFromFlagsInternal(o, allFields(o.getClass()), configBag.getAllConfig(), configBag, true);
     }
 
     /** as {@link #setFieldsFromFlags(Object, ConfigBag)}, but allowing control over whether default values should be set */
     public static void setFieldsFromFlags(Object o, ConfigBag configBag, boolean setDefaultVals) {
-        setFieldsFromFlagsInternal(o, getAllFields(o.getClass()), configBag.getAllConfig(), configBag, setDefaultVals);
+        setFieldsFromFlagsInternal(o, allFields(o.getClass()), configBag.getAllConfig(), configBag, setDefaultVals);
     }
 
     /** as {@link #setFieldsFromFlags(Object, ConfigBag)}, but specifying a subset of flags to use */
     public static void setFieldsFromFlagsWithBag(Object o, Map<?,?> flags, ConfigBag configBag, boolean setDefaultVals) {
-        setFieldsFromFlagsInternal(o, getAllFields(o.getClass()), flags, configBag, setDefaultVals);
+        setFieldsFromFlagsInternal(o, allFields(o.getClass()), flags, configBag, setDefaultVals);
     }
 
     /**
@@ -102,21 +112,21 @@ public class FlagUtils {
      * @throws IllegalArgumentException If fieldVal is null and the SetFromFlag annotation set nullable=false
      */
     public static boolean setFieldFromFlag(Object o, String flagName, Object fieldVal) {
-        return setFieldFromFlagInternal(checkNotNull(flagName, "flagName"), fieldVal, o, getAllFields(o.getClass()));
+        return setFieldFromFlagInternal(checkNotNull(flagName, "flagName"), fieldVal, o, allFields(o.getClass()));
     }
     
     /** get all fields (including private and static) on the given object and all supertypes, 
      * that are annotated with SetFromFlags. 
      */
     public static Map<String, ?> getFieldsWithFlags(Object o) {
-        return getFieldsWithFlagsInternal(o, getAllFields(o.getClass()));
+        return getFieldsWithFlagsInternal(o, allFields(o.getClass()));
     }
     
     /**
      * Finds the {@link Field} on the given object annotated with the given name flag.
      */
     public static Field findFieldForFlag(String flagName, Object o) {
-        return findFieldForFlagInternal(flagName, o, getAllFields(o.getClass()));
+        return findFieldForFlagInternal(flagName, o, allFields(o.getClass()));
     }
 
     /** get all fields (including private and static) and their values on the given object and all supertypes, 
@@ -124,7 +134,7 @@ public class FlagUtils {
      */
     public static Map<String, Object> getFieldsWithFlagsExcludingModifiers(Object o, int excludingModifiers) {
         List<Field> filteredFields = Lists.newArrayList();
-        for (Field contender : getAllFields(o.getClass())) {
+        for (Field contender : allFields(o.getClass())) {
             if ((contender.getModifiers() & excludingModifiers) == 0) {
                 filteredFields.add(contender);
             }
@@ -137,7 +147,7 @@ public class FlagUtils {
      */
     public static Map<String, Object> getFieldsWithFlagsWithModifiers(Object o, int requiredModifiers) {
         List<Field> filteredFields = Lists.newArrayList();
-        for (Field contender : getAllFields(o.getClass())) {
+        for (Field contender : allFields(o.getClass())) {
             if ((contender.getModifiers() & requiredModifiers) == requiredModifiers) {
                 filteredFields.add(contender);
             }
@@ -156,7 +166,7 @@ public class FlagUtils {
     /** sets _all_ accessible _{@link ConfigKey}_ and {@link HasConfigKey} fields on the given object, 
      * using the indicated flags/config-bag */
     public static void setAllConfigKeys(Configurable o, ConfigBag bag, boolean includeFlags) {
-        for (Field f: getAllFields(o.getClass())) {
+        for (Field f: allFields(o.getClass())) {
             ConfigKey<?> key = getFieldAsConfigKey(o, f);
             if (key!=null) {
                 FlagConfigKeyAndValueRecord record = getFlagConfigKeyRecord(f, key, bag);
@@ -224,7 +234,7 @@ public class FlagUtils {
     /** gets all the config keys for the given type */
     public static <T> List<ConfigKey<?>> findAllConfigKeys(T optionalInstance, Class<? extends T> type) {
         List<ConfigKey<?>> output = new ArrayList<ConfigKey<?>>();
-        for (Field f: getAllFields(type)) {
+        for (Field f: allFields(type)) {
             ConfigKey<?> key = getFieldAsConfigKey(optionalInstance, f);
             if (key != null) output.add(key);
         }
@@ -234,7 +244,7 @@ public class FlagUtils {
     /** gets all the flags/keys in the given config bag which are applicable to the given type's config keys and flags */
     public static <T> List<FlagConfigKeyAndValueRecord> findAllFlagsAndConfigKeys(T optionalInstance, Class<? extends T> type, ConfigBag input) {
         List<FlagConfigKeyAndValueRecord> output = new ArrayList<FlagUtils.FlagConfigKeyAndValueRecord>();
-        for (Field f: getAllFields(type)) {
+        for (Field f: allFields(type)) {
             ConfigKey<?> key = getFieldAsConfigKey(optionalInstance, f);
             FlagConfigKeyAndValueRecord record = getFlagConfigKeyRecord(f, key, input);
             if (record.isValuePresent())
@@ -282,10 +292,21 @@ public class FlagUtils {
         return getAllFields(base, GroovyJavaMethods.<Field>predicateFromClosure(filter));
     }
     public static List<Field> getAllFields(Class<?> base) {
-        return getAllFields(base, Predicates.<Field>alwaysTrue());
+        return Lists.newArrayList(allFields(base));
     }
     public static List<Field> getAllFields(Class<?> base, Predicate<Field> filter) {
-        return getLocalFields(getAllAssignableTypes(base), filter);
+        return Lists.newArrayList(Iterables.filter(allFields(base), filter));
+    }
+    private static List<Field> allFields(final Class<?> base) {
+        try {
+            return allFieldsByClass.get(base, new Callable<List<Field>>() {
+                @Override
+                public List<Field> call() {
+                    return ImmutableList.copyOf(getLocalFields(getAllAssignableTypes(base)));
+                }});
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
     }
     /** returns all fields explicitly declared on the given classes */
     public static List<Field> getLocalFields(List<Class<?>> classes) {
@@ -521,7 +542,7 @@ public class FlagUtils {
     /** returns a map of all fields which are annotated 'SetFromFlag', along with the annotation */
     public static Map<Field,SetFromFlag> getAnnotatedFields(Class<?> type) {
         Map<Field, SetFromFlag> result = Maps.newLinkedHashMap();
-        for (Field f: getAllFields(type)) {
+        for (Field f: allFields(type)) {
             SetFromFlag cf = f.getAnnotation(SetFromFlag.class);
             if (cf != null) result.put(f, cf);
         }
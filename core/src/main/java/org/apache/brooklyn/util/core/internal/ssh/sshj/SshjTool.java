@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -63,10 +64,12 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
 import com.google.common.io.CountingOutputStream;
 import com.google.common.net.HostAndPort;
-import com.google.common.primitives.Ints;
 
+import net.schmizz.sshj.SSHClient;
 import net.schmizz.sshj.connection.ConnectionException;
 import net.schmizz.sshj.connection.channel.direct.PTYMode;
 import net.schmizz.sshj.connection.channel.direct.Session;
@@ -74,6 +77,9 @@ import net.schmizz.sshj.connection.channel.direct.Session.Command;
 import net.schmizz.sshj.connection.channel.direct.Session.Shell;
 import net.schmizz.sshj.connection.channel.direct.SessionChannel;
 import net.schmizz.sshj.sftp.FileAttributes;
+import net.schmizz.sshj.sftp.FileMode;
+import net.schmizz.sshj.sftp.OpenMode;
+import net.schmizz.sshj.sftp.RemoteFile;
 import net.schmizz.sshj.sftp.SFTPClient;
 import net.schmizz.sshj.transport.TransportException;
 import net.schmizz.sshj.xfer.FileSystemFile;
@@ -228,7 +234,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
     @Override
     public int copyToServer(java.util.Map<String,?> props, byte[] contents, String pathAndFileOnRemoteServer) {
-        return copyToServer(props, newInputStreamSupplier(contents), contents.length, pathAndFileOnRemoteServer);
+        return copyToServer(props, newInputStreamSupplier(contents), contents.length, true, pathAndFileOnRemoteServer);
     }
 
     @Override
@@ -243,7 +249,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
          * so we probably don't come here too often.)
          */
         if (contents instanceof KnownSizeInputStream) {
-            return copyToServer(props, Suppliers.ofInstance(contents), ((KnownSizeInputStream)contents).length(), pathAndFileOnRemoteServer);
+            return copyToServer(props, Suppliers.ofInstance(contents), ((KnownSizeInputStream)contents).length(), false, pathAndFileOnRemoteServer);
         } else {
             File tempFile = writeTempFile(contents);
             try {
@@ -256,11 +262,15 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
     @Override
     public int copyToServer(Map<String,?> props, File localFile, String pathAndFileOnRemoteServer) {
-        return copyToServer(props, newInputStreamSupplier(localFile), (int)localFile.length(), pathAndFileOnRemoteServer);
+        return copyToServer(props, newInputStreamSupplier(localFile), localFile.length(), true, pathAndFileOnRemoteServer);
     }
 
-    private int copyToServer(Map<String,?> props, Supplier<InputStream> contentsSupplier, long length, String pathAndFileOnRemoteServer) {
-        acquire(new PutFileAction(props, pathAndFileOnRemoteServer, contentsSupplier, length));
+    /**
+     * @param rereadable whether each stream from the supplier starts from the beginning of the contents,
+     *                   so that a retry can resume a partial upload
+     */
+    private int copyToServer(Map<String,?> props, Supplier<InputStream> contentsSupplier, long length, boolean rereadable, String pathAndFileOnRemoteServer) {
+        acquire(new PutFileAction(props, pathAndFileOnRemoteServer, contentsSupplier, length, rereadable));
         return 0; // TODO Can we assume put will have thrown exception if failed? Rather than exit code != 0?
     }
 
@@ -611,6 +621,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         for (int i = 0; i < sshTries; i++) {
+            SSHClient attemptClient = sshClientConnection.ssh;
             try {
                 action.clear();
                 if (LOG.isTraceEnabled()) LOG.trace(">> ({}) acquiring {}", toString(), action);
@@ -644,10 +655,18 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                 String fullMessage = String.format("%s (attempt %s/%s, in time %s/%s)",
                         errorMessage, (i+1), sshTries, Time.makeTimeStringRounded(stopwatch.elapsed(TimeUnit.MILLISECONDS)),
                         (sshTriesTimeout.equals(Duration.PRACTICALLY_FOREVER) ? "unlimited" : Time.makeTimeStringRounded(sshTriesTimeout)));
-                try {
-                    disconnect();
-                } catch (Exception e2) {
-                    LOG.debug("<< ("+toString()+") error closing connection: "+e+" / "+e2, e);
+                if (action == sshClientConnection) {
+                    try {
+                        disconnect();
+                    } catch (Exception e2) {
+                        LOG.debug("<< ("+toString()+") error closing connection: "+e+" / "+e2, e);
+                    }
+                } else if (isTransportFailure(attemptClient, e)) {
+                    disconnectIfStill(attemptClient, e);
+                } else {
+                    // only this operation's channel failed (e.g. command or sftp error, or session refused
+                    // at the server's MaxSessions); leave the connection for others sharing this tool
+                    closeChannel(action, e);
                 }
                 if (i + 1 == sshTries) {
                     LOG.debug("<< {} (rethrowing, out of retries): {}", fullMessage, e.getMessage());
@@ -659,7 +678,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                     if (LOG.isDebugEnabled()) LOG.debug("<< {}: {}", fullMessage, e.getMessage());
                     backoffForAttempt(i + 1, errorMessage + ": " + e.getMessage());
                     if (action != sshClientConnection)
-                        connect();
+                        connectIfNotConnected();
                     continue;
                 }
             }
@@ -668,7 +687,51 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         return null;
     }
 
-    private final SshAction<SFTPClient> sftpConnection = new SshAction<SFTPClient>() {
+    /**
+     * Whether a failed attempt means the connection itself is broken (rather than just the attempt's channel),
+     * so it must be dropped even if other threads have channels open on it.
+     */
+    private boolean isTransportFailure(SSHClient attemptClient, Exception e) {
+        return attemptClient == null || !attemptClient.isConnected() || !attemptClient.isAuthenticated()
+                || Exceptions.getFirstThrowableOfType(e, TransportException.class) != null;
+    }
+
+    private void closeChannel(SshAction<?> action, Exception cause) {
+        try {
+            action.clear();
+        } catch (Exception e2) {
+            LOG.debug("<< ("+toString()+") error closing channel of "+action+": "+cause+" / "+e2, cause);
+        }
+    }
+
+    /**
+     * Drops the connection used by a failed attempt, unless another thread sharing this tool
+     * has already replaced it (in which case the other thread's sessions are left alone).
+     */
+    private void disconnectIfStill(SSHClient attemptClient, Exception cause) {
+        synchronized (sshClientConnection) {
+            if (sshClientConnection.ssh != attemptClient && isConnected()) {
+                if (LOG.isTraceEnabled()) LOG.trace("<< ({}) not disconnecting after {}; already reconnected by another thread", toString(), cause);
+                return;
+            }
+            try {
+                disconnect();
+            } catch (Exception e2) {
+                LOG.debug("<< ("+toString()+") error closing connection: "+cause+" / "+e2, cause);
+            }
+        }
+    }
+
+    private void connectIfNotConnected() {
+        synchronized (sshClientConnection) {
+            if (!isConnected()) {
+                connect();
+            }
+        }
+    }
+
+    /** A new instance per use, as the same tool may be used concurrently (each use opening its own channel). */
+    private class SftpConnectionAction implements SshAction<SFTPClient> {
 
         private SFTPClient sftp;
 
@@ -689,7 +752,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         public String toString() {
             return "SFTPClient()";
         }
-    };
+    }
 
     private class GetFileAction implements SshAction<LocalDestFile> {
         private final String path;
@@ -710,7 +773,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
         @Override
         public LocalDestFile create() throws Exception {
-            sftp = acquire(sftpConnection);
+            sftp = acquire(new SftpConnectionAction());
             LocalDestFile localDestFile = new FileSystemFile(localFile);
             sftp.get(path, localDestFile);
             return localDestFile;
@@ -722,6 +785,23 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         }
     }
 
+    /**
+     * Uploads are only resumed after at least this many bytes were sent by the failed attempt.
+     */
+    private static final long RESUME_MIN_BYTES = 4*1024*1024;
+
+    /**
+     * A resumed upload starts this many bytes before the remote file's size (or the bytes previously sent, if less),
+     * because writes are pipelined so the last few before a failure may not have been applied, even if later ones were.
+     */
+    private static final long RESUME_MARGIN_BYTES = 1024*1024;
+
+    private static final int MAX_UNCONFIRMED_WRITES = 16;
+
+    /**
+     * If a retry follows a failure part way through a large upload, and the contents can be re-read,
+     * the upload resumes from (a little before) where the remote file ends rather than starting again.
+     */
     private class PutFileAction implements SshAction<Void> {
         // TODO support backup as a property?
 
@@ -732,9 +812,11 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         private final long lastAccessDate;
         private final int uid;
         private final Supplier<InputStream> contentsSupplier;
-        private final Integer length;
+        private final long length;
+        private final boolean rereadable;
+        private long bytesSent;
 
-        PutFileAction(Map<String,?> props, String path, Supplier<InputStream> contentsSupplier, long length) {
+        PutFileAction(Map<String,?> props, String path, Supplier<InputStream> contentsSupplier, long length, boolean rereadable) {
             String permissions = getOptionalVal(props, PROP_PERMISSIONS);
             long lastModificationDateVal = getOptionalVal(props, PROP_LAST_MODIFICATION_DATE);
             long lastAccessDateVal = getOptionalVal(props, PROP_LAST_ACCESS_DATE);
@@ -748,7 +830,8 @@ public class SshjTool extends SshAbstractTool implements SshTool {
             this.uid = getOptionalVal(props, PROP_OWNER_UID);
             this.path = checkNotNull(path, "path");
             this.contentsSupplier = checkNotNull(contentsSupplier, "contents");
-            this.length = Ints.checkedCast(checkNotNull(length, "size"));
+            this.length = length;
+            this.rereadable = rereadable;
         }
 
         @Override
@@ -759,22 +842,31 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
         @Override
         public Void create() throws Exception {
-            final AtomicReference<InputStream> inputStreamRef = new AtomicReference<InputStream>();
-            sftp = acquire(sftpConnection);
+            final AtomicReference<CountingInputStream> inputStreamRef = new AtomicReference<CountingInputStream>();
+            sftp = acquire(new SftpConnectionAction());
+            final long offset = getResumeOffset();
             try {
-                sftp.put(new InMemorySourceFile() {
-                    @Override public String getName() {
-                        return path;
-                    }
-                    @Override public long getLength() {
-                        return length;
-                    }
-                    @Override public InputStream getInputStream() throws IOException {
-                        InputStream contents = contentsSupplier.get();
-                        inputStreamRef.set(contents);
-                        return contents;
-                    }
-                }, path);
+                if (offset > 0) {
+                    LOG.debug("Resuming upload of {} to {}@{} at byte {} of {}", new Object[] {path, getUsername(), getHostAddress(), offset, length});
+                    InputStream contents = contentsSupplier.get();
+                    inputStreamRef.set(new CountingInputStream(contents));
+                    ByteStreams.skipFully(contents, offset);
+                    upload(inputStreamRef.get(), offset);
+                } else {
+                    sftp.put(new InMemorySourceFile() {
+                        @Override public String getName() {
+                            return path;
+                        }
+                        @Override public long getLength() {
+                            return length;
+                        }
+                        @Override public InputStream getInputStream() throws IOException {
+                            CountingInputStream contents = new CountingInputStream(contentsSupplier.get());
+                            inputStreamRef.set(contents);
+                            return contents;
+                        }
+                    }, path);
+                }
                 sftp.chmod(path, permissionsMask);
                 if (uid != -1) {
                     sftp.chown(path, uid);
@@ -785,11 +877,40 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                             .build());
                 }
             } finally {
+                if (inputStreamRef.get() != null) {
+                    bytesSent = Math.max(bytesSent, offset + inputStreamRef.get().getCount());
+                }
                 closeWhispering(inputStreamRef.get(), this);
             }
             return null;
         }
 
+        private long getResumeOffset() throws IOException {
+            if (!rereadable || bytesSent < RESUME_MIN_BYTES) return 0;
+            FileAttributes attributes = sftp.statExistence(path);
+            if (attributes == null || attributes.getType() != FileMode.Type.REGULAR || attributes.getSize() > length) return 0;
+            return Math.max(0, Math.min(attributes.getSize(), bytesSent) - RESUME_MARGIN_BYTES);
+        }
+
+        /** Writes the rest of the contents to the remote file, from the given offset, as {@link SFTPClient#put(String, String)} does. */
+        private void upload(InputStream contents, long offset) throws IOException {
+            RemoteFile remoteFile = sftp.open(path, EnumSet.of(OpenMode.WRITE, OpenMode.CREAT));
+            try {
+                OutputStream out = remoteFile.new RemoteFileOutputStream(offset, MAX_UNCONFIRMED_WRITES);
+                byte[] buffer = new byte[sftp.getSFTPEngine().getSubsystem().getRemoteMaxPacketSize() - remoteFile.getOutgoingPacketOverhead()];
+                int len;
+                while ((len = contents.read(buffer)) != -1) {
+                    out.write(buffer, 0, len);
+                }
+                out.close();
+                if (offset + ((CountingInputStream)contents).getCount() < length) {
+                    throw new IOException("Contents for "+path+" ended early, at "+(offset + ((CountingInputStream)contents).getCount())+" of "+length+" bytes");
+                }
+            } finally {
+                closeWhispering(remoteFile, this);
+            }
+        }
+
         @Override
         public String toString() {
             return "Put(path=[" + path + " "+length+"])";
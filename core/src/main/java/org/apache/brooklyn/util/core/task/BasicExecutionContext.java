@@ -49,6 +49,7 @@ import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags.WrappedEntity;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags.WrappedItem;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
+import org.apache.brooklyn.core.objs.proxy.EntityProxy;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.core.task.ImmediateSupplier.ImmediateUnsupportedException;
@@ -116,7 +117,8 @@ public class BasicExecutionContext extends AbstractExecutionContext {
         // (could remove this check if generalizing; it has been here for a long time and the problem seems gone)
         for (Object tag: tags) {
             if (tag instanceof BrooklynTaskTags.WrappedItem) {
-                if (Proxy.isProxyClass(((WrappedItem<?>)tag).unwrap().getClass())) {
+                Object item = ((WrappedItem<?>)tag).unwrap();
+                if (Proxy.isProxyClass(item.getClass()) || item instanceof EntityProxy) {
                     log.warn(""+this+" has entity proxy in "+tag);
                 }
             }
@@ -29,6 +29,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,6 +39,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
@@ -75,7 +77,10 @@ import com.google.common.base.CaseFormat;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Callables;
 import com.google.common.util.concurrent.ExecutionList;
@@ -114,6 +119,8 @@ public class BasicExecutionManager implements ExecutionManager {
         
     private final ScheduledExecutorService delayedRunner;
 
+    private final ScheduledExecutorService sharedScheduler;
+
     // inefficient having so many records, and also doing searches through ...
     // many things in here could be more efficient however (different types of lookup etc),
     // do that when we need to.
@@ -127,6 +134,10 @@ public class BasicExecutionManager implements ExecutionManager {
     
     private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
 
+    /** tasks by the id of the task which submitted them, so cancelling a task need not check every task
+     * (which is done for every "get immediately", so was slow once many tasks were kept) */
+    private final SetMultimap<String,Task<?>> tasksBySubmittedById = Multimaps.synchronizedSetMultimap(HashMultimap.<String,Task<?>>create());
+
     private ConcurrentMap<Object, TaskScheduler> schedulerByTag = new ConcurrentHashMap<Object, TaskScheduler>();
 
     /** count of all tasks submitted, including finished */
@@ -161,6 +172,7 @@ public class BasicExecutionManager implements ExecutionManager {
                 daemonThreadFactory);
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
+        sharedScheduler = new SharedScheduler(delayedRunner);
 
         if (jitterThreads) {
             log.info("Task startup jittering enabled with a maximum of " + jitterThreadsMaxDelay + " delay.");
@@ -262,6 +274,9 @@ public class BasicExecutionManager implements ExecutionManager {
         }
         Task<?> removed = tasksById.remove(task.getId());
         incompleteTaskIds.remove(task.getId());
+        if (removed!=null && removed.getSubmittedByTaskId()!=null) {
+            tasksBySubmittedById.remove(removed.getSubmittedByTaskId(), removed);
+        }
         if (removed!=null && removed.isSubmitted() && !removed.isDone(true)) {
             Entity context = BrooklynTaskTags.getContextEntity(removed);
             if (context!=null && !Entities.isManaged(context)) {
@@ -323,6 +338,13 @@ public class BasicExecutionManager implements ExecutionManager {
         return tasksById.get(id);
     }
     
+    /** tasks kept in memory which were submitted by the given task */
+    public List<Task<?>> getTasksSubmittedBy(Task<?> task) {
+        synchronized (tasksBySubmittedById) {
+            return MutableList.copyOf(tasksBySubmittedById.get(task.getId()));
+        }
+    }
+
     /** not on interface because potentially expensive */
     public List<Task<?>> getAllTasks() {
         // not sure if synching makes any difference; have not observed CME's yet
@@ -416,6 +438,68 @@ public class BasicExecutionManager implements ExecutionManager {
         }
     }
 
+    /**
+     * Returns the scheduler used to trigger each iteration of a {@link ScheduledTask}, for use by other
+     * periodic work which does not need a task of its own between iterations (such as feed polling).
+     * It has a single thread shared by everything using this manager, so work run directly on it
+     * must be short and non-blocking, typically just submitting a task.
+     * <p>
+     * The scheduler is shut down with this manager; it cannot be shut down by callers.
+     */
+    @Beta
+    public ScheduledExecutorService getSharedScheduler() {
+        return sharedScheduler;
+    }
+
+    /** Forwards to the manager's scheduler, but refuses to shut it down. */
+    private static class SharedScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+        private final ScheduledExecutorService delegate;
+
+        SharedScheduler(ScheduledExecutorService delegate) {
+            this.delegate = delegate;
+        }
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(command);
+        }
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            return delegate.schedule(command, delay, unit);
+        }
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            return delegate.schedule(callable, delay, unit);
+        }
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            return delegate.scheduleAtFixedRate(command, initialDelay, period, unit);
+        }
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            return delegate.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+        }
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException("The shared scheduler is shut down with its execution manager");
+        }
+        @Override
+        public List<Runnable> shutdownNow() {
+            throw new UnsupportedOperationException("The shared scheduler is shut down with its execution manager");
+        }
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
     protected Task<?> submitNewScheduledTask(final Map<?,?> flags, final ScheduledTask task) {
         beforeSubmitScheduledTaskAllIterations(flags, task);
         
@@ -636,17 +720,15 @@ public class BasicExecutionManager implements ExecutionManager {
                         }
                     }
                 }
-                for (Task<?> t: execMgmt.getAllTasks()) {
-                    if (task.equals(t.getSubmittedByTask())) {
-                        if (mode.isAllowedToInterruptAllSubmittedTasks() || BrooklynTaskTags.isTransient(t)) {
-                            if (log.isTraceEnabled()) {
-                                log.trace("Cancelling "+t+" on recursive cancellation of "+task);
-                            }
-                            subtasksFound++;
-                            if (((TaskInternal<?>)t).cancel(mode)) {
-                                result = true;
-                                subtasksReallyCancelled++;
-                            }
+                for (Task<?> t: execMgmt.getTasksSubmittedBy(task)) {
+                    if (mode.isAllowedToInterruptAllSubmittedTasks() || BrooklynTaskTags.isTransient(t)) {
+                        if (log.isTraceEnabled()) {
+                            log.trace("Cancelling "+t+" on recursive cancellation of "+task);
+                        }
+                        subtasksFound++;
+                        if (((TaskInternal<?>)t).cancel(mode)) {
+                            result = true;
+                            subtasksReallyCancelled++;
                         }
                     }
                 }
@@ -771,6 +853,7 @@ public class BasicExecutionManager implements ExecutionManager {
         }
         
         tasksById.put(task.getId(), task);
+        if (task.getSubmittedByTaskId()!=null) tasksBySubmittedById.put(task.getSubmittedByTaskId(), task);
         totalTaskCount.incrementAndGet();
     }
     
@@ -21,9 +21,9 @@ package org.apache.brooklyn.core.entity;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -38,7 +38,6 @@ import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.entity.TestEntityImpl;
 import org.apache.brooklyn.test.Asserts;
-import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -64,7 +63,7 @@ public class AttributeMapTest {
         app = TestApplication.Factory.newManagedInstanceForTests();
         TestEntity entity = app.addChild(EntitySpec.create(TestEntity.class));
         entityImpl = (TestEntityImpl) Entities.deproxy(entity);
-        map = new AttributeMap(entityImpl, Collections.synchronizedMap(MutableMap.<Collection<String>,Object>of()));
+        map = new AttributeMap(entityImpl);
         executor = Executors.newCachedThreadPool();
     }
     
@@ -160,6 +159,47 @@ public class AttributeMapTest {
         assertEquals(map.getValue(ImmutableList.of("b","c")), "2val");
     }
         
+    @Test
+    public void testUpdateAllReturnsOldValues() throws Exception {
+        AttributeSensor<String> sensor1 = Sensors.newStringSensor("a", "");
+        AttributeSensor<Integer> sensor2 = Sensors.newIntegerSensor("b.c", "");
+        map.update(sensor1, "1val");
+        
+        Map<AttributeSensor<?>, Object> newValues = new LinkedHashMap<>();
+        newValues.put(sensor1, "1val-new");
+        newValues.put(sensor2, 2);
+        Map<AttributeSensor<?>, Object> oldValues = map.updateAll(newValues);
+        
+        assertEquals(ImmutableList.copyOf(oldValues.keySet()), ImmutableList.of(sensor1, sensor2));
+        assertEquals(oldValues.get(sensor1), "1val");
+        assertEquals(oldValues.get(sensor2), null);
+        assertEquals(map.getValue(sensor1), "1val-new");
+        assertEquals(map.getValue(sensor2), (Integer)2);
+    }
+        
+    @Test
+    public void testAsMapPreservesInsertionOrder() throws Exception {
+        AttributeSensor<String> sensorZ = Sensors.newStringSensor("z", "");
+        AttributeSensor<String> sensorA = Sensors.newStringSensor("a.b", "");
+        AttributeSensor<String> sensorM = Sensors.newStringSensor("m", "");
+        
+        map.update(sensorZ, "z1");
+        map.update(sensorA, "a1");
+        map.update(sensorM, null);
+        map.update(sensorZ, "z2");
+        
+        assertEquals(ImmutableList.copyOf(map.asMap().keySet()), ImmutableList.of("z", "a.b", "m"));
+        assertEquals(map.asMap().get("z"), "z2");
+        assertTrue(map.asMap().containsKey("m"));
+        assertEquals(map.asMap().get("m"), null);
+        assertEquals(ImmutableList.copyOf(map.asRawMap().keySet()), 
+                ImmutableList.of(ImmutableList.of("z"), ImmutableList.of("a", "b"), ImmutableList.of("m")));
+        
+        map.remove(sensorZ);
+        map.update(sensorZ, "z3");
+        assertEquals(ImmutableList.copyOf(map.asMap().keySet()), ImmutableList.of("a.b", "m", "z"));
+    }
+    
     @Test
     public void testCanStoreSensorThenChildSensor() throws Exception {
         AttributeSensor<String> sensor = Sensors.newStringSensor("a", "");
@@ -32,6 +32,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
@@ -606,6 +607,73 @@ public class EntityConfigTest extends BrooklynAppUnitTestSupport {
         Asserts.assertSize(filteredKeys, 2);
     }
 
+    @Test
+    public void testGetConfigSeesChangesOnAncestorsAfterResolving() throws Exception {
+        TestEntity child = app.addChild(EntitySpec.create(TestEntity.class));
+        TestEntity grandchild = child.addChild(EntitySpec.create(TestEntity.class));
+
+        app.config().set(TestEntity.CONF_NAME, "v1");
+        assertEquals(grandchild.getConfig(TestEntity.CONF_NAME), "v1");
+        assertEquals(grandchild.getConfig(TestEntity.CONF_NAME), "v1");
+
+        app.config().set(TestEntity.CONF_NAME, "v2");
+        assertEquals(grandchild.getConfig(TestEntity.CONF_NAME), "v2");
+
+        child.config().set(TestEntity.CONF_NAME, "v3");
+        assertEquals(grandchild.getConfig(TestEntity.CONF_NAME), "v3");
+
+        child.config().removeKey(TestEntity.CONF_NAME);
+        assertEquals(grandchild.getConfig(TestEntity.CONF_NAME), "v2");
+
+        grandchild.config().set(TestEntity.CONF_NAME, "v4");
+        assertEquals(grandchild.getConfig(TestEntity.CONF_NAME), "v4");
+        assertEquals(child.getConfig(TestEntity.CONF_NAME), "v2");
+    }
+
+    @Test
+    public void testGetConfigSeesChangedDeclaredKey() throws Exception {
+        ConfigKey<String> key = ConfigKeys.newStringConfigKey("dynamic.key", "", "default1");
+        EntityInternal entity = (EntityInternal) app.addChild(EntitySpec.create(TestEntity.class));
+        assertEquals(entity.getConfig(key), "default1");
+
+        entity.getMutableEntityType().addConfigKey(ConfigKeys.newStringConfigKey("dynamic.key", "", "default2"));
+        assertEquals(entity.getConfig(key), "default2");
+    }
+
+    @Test
+    public void testGetConfigImmediatelySeesChangedImmediateSupplier() throws Exception {
+        final AtomicReference<String> value = new AtomicReference<String>("v1");
+        ImmediateSupplier<String> supplier = new ImmediateSupplier<String>() {
+            @Override public Maybe<String> getImmediately() {
+                return Maybe.of(value.get());
+            }
+            @Override public String get() {
+                return value.get();
+            }
+        };
+        // map entries are stored without coercion, so can be an ImmediateSupplier
+        @SuppressWarnings("unchecked")
+        final TestEntity entity = app.addChild(EntitySpec.create(TestEntity.class)
+                .configure((ConfigKey<Object>)(ConfigKey<?>)TestEntity.CONF_MAP_THING, ImmutableMap.of("mysub", supplier)));
+        
+        final ConfigKey<String> subKey = TestEntity.CONF_MAP_THING.subKey("mysub");
+        
+        // resolved immediately, as in a non-blocking get of a structured key
+        Callable<String> getConfig = new Callable<String>() {
+            @Override public String call() {
+                return entity.config().get(subKey);
+            }
+        };
+        assertEquals(getImmediately(entity, getConfig), "v1");
+        value.set("v2");
+        assertEquals(getImmediately(entity, getConfig), "v2");
+    }
+
+    private <T> T getImmediately(Entity entity, Callable<T> job) {
+        Task<T> task = Tasks.<T>builder().dynamic(false).body(job).build();
+        return ((EntityInternal)entity).getExecutionContext().getImmediately(task).get();
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Test(expectedExceptions=IllegalArgumentException.class)
     public void testFailFastOnInvalidConfigKeyCoercion() throws Exception {
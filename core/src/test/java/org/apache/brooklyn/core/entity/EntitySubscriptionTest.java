@@ -20,14 +20,20 @@ package org.apache.brooklyn.core.entity;
 
 import static org.testng.Assert.assertEquals;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
 import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
+import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.core.location.SimulatedLocation;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.sensor.BasicSensorEvent;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.policy.TestEnricher;
@@ -40,6 +46,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -263,6 +270,59 @@ public class EntitySubscriptionTest extends BrooklynAppUnitTestSupport {
             }});
     }
 
+    @Test
+    public void testSubscriptionReceivesEventsFromSetAll() {
+        entity.subscriptions().subscribe(observedEntity, TestEntity.SEQUENCE, listener);
+        entity.subscriptions().subscribe(observedEntity, TestEntity.NAME, listener);
+        entity.subscriptions().subscribe(null, TestEntity.NAME, listener);
+        
+        Map<AttributeSensor<?>, Object> values = new LinkedHashMap<>();
+        values.put(TestEntity.NAME, "myname");
+        values.put(TestEntity.SEQUENCE, 123);
+        values.put(TestEntity.SERVICE_UP, true);
+        ((EntityInternal)observedEntity).sensors().setAll(values);
+        
+        assertEquals(observedEntity.sensors().get(TestEntity.NAME), "myname");
+        assertEquals(observedEntity.sensors().get(TestEntity.SEQUENCE), (Integer)123);
+        assertEquals(observedEntity.sensors().get(TestEntity.SERVICE_UP), Boolean.TRUE);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(listener.getEvents(), ImmutableList.of(
+                        new BasicSensorEvent<String>(TestEntity.NAME, observedEntity, "myname"),
+                        new BasicSensorEvent<String>(TestEntity.NAME, observedEntity, "myname"),
+                        new BasicSensorEvent<Integer>(TestEntity.SEQUENCE, observedEntity, 123)));
+            }});
+    }
+
+    @Test
+    public void testSubscriberReceivesEventsFromSetAllInOrderAcrossSubscriptions() {
+        final AttributeSensor<String> sensorA = Sensors.newStringSensor("test.a");
+        final AttributeSensor<String> sensorB = Sensors.newStringSensor("test.b");
+        final AttributeSensor<String> sensorC = Sensors.newStringSensor("test.c");
+        entity.subscriptions().subscribe(observedEntity, null, listener);
+        entity.subscriptions().subscribe(observedEntity, sensorB, listener);
+        
+        Map<AttributeSensor<?>, Object> values = new LinkedHashMap<>();
+        values.put(sensorA, "a");
+        values.put(sensorB, "b");
+        values.put(sensorC, "c");
+        ((EntityInternal)observedEntity).sensors().setAll(values);
+        
+        // as if each had been set in turn: c is not delivered (to any subscription) before b
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Iterable<SensorEvent<Object>> events = Iterables.filter(listener.getEvents(), new Predicate<SensorEvent<?>>() {
+                    @Override public boolean apply(SensorEvent<?> input) {
+                        return ImmutableList.of(sensorA, sensorB, sensorC).contains(input.getSensor());
+                    }});
+                assertEquals(ImmutableList.copyOf(events), ImmutableList.of(
+                        new BasicSensorEvent<String>(sensorA, observedEntity, "a"),
+                        new BasicSensorEvent<String>(sensorB, observedEntity, "b"),
+                        new BasicSensorEvent<String>(sensorB, observedEntity, "b"),
+                        new BasicSensorEvent<String>(sensorC, observedEntity, "c")));
+            }});
+    }
+
     @Test
     public void testSubscriptionReceivesInitialValueEvents() {
         observedEntity.sensors().set(TestEntity.SEQUENCE, 123);
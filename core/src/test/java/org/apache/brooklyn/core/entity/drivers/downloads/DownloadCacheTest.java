@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity.drivers.downloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.core.ResourceUtils;
+import org.apache.brooklyn.util.os.Os;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class DownloadCacheTest {
+
+    private File tempDir;
+    private File source;
+    private String sourceUrl;
+    private ResourceUtils resolver;
+    private AtomicInteger fetches;
+    private CountDownLatch fetchLatch;
+    private DownloadCache cache;
+    private ListeningExecutorService executor;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        tempDir = Os.newTempDir(getClass());
+        source = new File(tempDir, "source.tar.gz");
+        Files.write("my artifact", source, Charsets.UTF_8);
+        sourceUrl = source.toURI().toString();
+        resolver = ResourceUtils.create(this);
+        fetches = new AtomicInteger();
+        fetchLatch = new CountDownLatch(0);
+        cache = new DownloadCache(new File(tempDir, "cache")) {
+            @Override
+            protected void fetch(ResourceUtils resolver, String url, File target, String checksum) throws IOException {
+                fetches.incrementAndGet();
+                try {
+                    fetchLatch.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.fetch(resolver, url, target, checksum);
+            }
+        };
+        executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        if (tempDir != null) Os.deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void testFetchesOnce() throws Exception {
+        File result1 = cache.get(resolver, sourceUrl, "artifact.tar.gz", null);
+        File result2 = cache.get(resolver, sourceUrl, "artifact.tar.gz", null);
+
+        assertEquals(result1, result2);
+        assertEquals(result1.getName(), "artifact.tar.gz");
+        assertEquals(Files.toString(result1, Charsets.UTF_8), "my artifact");
+        assertEquals(fetches.get(), 1);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareFetch() throws Exception {
+        fetchLatch = new CountDownLatch(1);
+        List<ListenableFuture<File>> futures = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            futures.add(executor.submit(new Callable<File>() {
+                @Override public File call() {
+                    return cache.get(resolver, sourceUrl, "artifact.tar.gz", null);
+                }}));
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(fetches.get(), 1);
+            }});
+        fetchLatch.countDown();
+
+        List<File> results = Futures.allAsList(futures).get(Asserts.DEFAULT_LONG_TIMEOUT.toMilliseconds(), TimeUnit.MILLISECONDS);
+        assertEquals(fetches.get(), 1);
+        for (File result : results) {
+            assertEquals(result, results.get(0));
+        }
+    }
+
+    @Test
+    public void testVerifiesChecksum() throws Exception {
+        String sha256 = Files.hash(source, Hashing.sha256()).toString();
+        String md5 = Files.hash(source, Hashing.md5()).toString();
+
+        assertTrue(DownloadCache.matches(source, sha256));
+        assertTrue(DownloadCache.matches(source, "sha256:"+sha256.toUpperCase()));
+        assertTrue(DownloadCache.matches(source, "MD5:"+md5));
+        assertFalse(DownloadCache.matches(source, "md5:"+sha256.substring(0, 32)));
+
+        File result = cache.get(resolver, sourceUrl, "artifact.tar.gz", "sha256:"+sha256);
+        assertEquals(Files.toString(result, Charsets.UTF_8), "my artifact");
+    }
+
+    @Test
+    public void testRejectsChecksumMismatch() throws Exception {
+        String wrong = Hashing.sha256().hashString("something else", Charsets.UTF_8).toString();
+        try {
+            cache.get(resolver, sourceUrl, "artifact.tar.gz", wrong);
+            Asserts.shouldHaveFailedPreviously();
+        } catch (Exception e) {
+            Asserts.expectedFailureContains(e, "does not match checksum");
+        }
+
+        // nothing left behind, so fetched again when asked without a checksum
+        cache.get(resolver, sourceUrl, "artifact.tar.gz", null);
+        assertEquals(fetches.get(), 2);
+    }
+
+    @Test
+    public void testRefetchesWhenCachedCopyDoesNotMatchChecksum() throws Exception {
+        File result = cache.get(resolver, sourceUrl, "artifact.tar.gz", null);
+        Files.write("corrupted", result, Charsets.UTF_8);
+
+        String sha256 = Files.hash(source, Hashing.sha256()).toString();
+        result = cache.get(resolver, sourceUrl, "artifact.tar.gz", sha256);
+        assertEquals(Files.toString(result, Charsets.UTF_8), "my artifact");
+        assertEquals(fetches.get(), 2);
+
+        // verified, so not hashed or fetched again
+        cache.get(resolver, sourceUrl, "artifact.tar.gz", sha256);
+        assertEquals(fetches.get(), 2);
+    }
+
+    @Test
+    public void testDoesNotDeleteMismatchedCopyWhileInUse() throws Exception {
+        // still being copied to a machine by the caller which got it
+        File inUse = cache.get(resolver, sourceUrl, "artifact.tar.gz", null);
+        Files.write("corrupted", inUse, Charsets.UTF_8);
+
+        String sha256 = Files.hash(source, Hashing.sha256()).toString();
+        File result = cache.get(resolver, sourceUrl, "artifact.tar.gz", sha256);
+        assertEquals(Files.toString(result, Charsets.UTF_8), "my artifact");
+        assertEquals(Files.toString(inUse, Charsets.UTF_8), "corrupted");
+        assertEquals(fetches.get(), 2);
+
+        // the new copy is used from now on, and the old one deleted once released
+        assertEquals(cache.get(resolver, sourceUrl, "artifact.tar.gz", null), result);
+        cache.release(inUse);
+        assertFalse(inUse.exists());
+        assertEquals(cache.get(resolver, sourceUrl, "artifact.tar.gz", sha256), result);
+        assertEquals(fetches.get(), 2);
+    }
+
+    @Test
+    public void testBlankChecksumIsIgnored() throws Exception {
+        File result = cache.get(resolver, sourceUrl, "artifact.tar.gz", " ");
+        assertEquals(Files.toString(result, Charsets.UTF_8), "my artifact");
+    }
+
+    @Test
+    public void testTriesEachUrl() throws Exception {
+        String missing = new File(tempDir, "missing.tar.gz").toURI().toString();
+
+        File result = cache.get(resolver, ImmutableList.of(missing, sourceUrl), "artifact.tar.gz", null);
+        assertEquals(Files.toString(result, Charsets.UTF_8), "my artifact");
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWhenOverMaxSize() throws Exception {
+        List<String> urls = Lists.newArrayList();
+        for (String name : ImmutableList.of("a", "b", "c")) {
+            File file = new File(tempDir, name+".tar.gz");
+            Files.write("my artifact", file, Charsets.UTF_8);
+            urls.add(file.toURI().toString());
+        }
+        cache.setMaxSize(25);
+        File a = cache.get(resolver, urls.get(0), "artifact.tar.gz", null);
+        File b = cache.get(resolver, urls.get(1), "artifact.tar.gz", null);
+        cache.release(a);
+        cache.release(b);
+        // a used more recently than b
+        long now = System.currentTimeMillis();
+        b.setLastModified(now - 60*1000);
+        a.setLastModified(now - 30*1000);
+
+        File c = cache.get(resolver, urls.get(2), "artifact.tar.gz", null);
+        assertTrue(a.isFile());
+        assertFalse(b.exists());
+        assertTrue(c.isFile());
+        assertEquals(fetches.get(), 3);
+
+        // fetched again when next wanted
+        cache.get(resolver, urls.get(1), "artifact.tar.gz", null);
+        assertEquals(fetches.get(), 4);
+    }
+
+    @Test
+    public void testDoesNotEvictFilesInUse() throws Exception {
+        List<String> urls = Lists.newArrayList();
+        for (String name : ImmutableList.of("a", "b", "c")) {
+            File file = new File(tempDir, name+".tar.gz");
+            Files.write("my artifact", file, Charsets.UTF_8);
+            urls.add(file.toURI().toString());
+        }
+        cache.setMaxSize(15);
+        // a is still being used (e.g. copied to a machine) by the caller which got it
+        File a = cache.get(resolver, urls.get(0), "artifact.tar.gz", null);
+        a.setLastModified(System.currentTimeMillis() - 60*1000);
+
+        File b = cache.get(resolver, urls.get(1), "artifact.tar.gz", null);
+        assertTrue(a.isFile());
+        assertTrue(b.isFile());
+
+        // once released, the least recently used is evicted by the next fetch
+        cache.release(a);
+        cache.release(b);
+        File c = cache.get(resolver, urls.get(2), "artifact.tar.gz", null);
+        assertFalse(a.exists());
+        assertTrue(c.isFile());
+    }
+
+    @Test
+    public void testChecksumAlgorithm() throws Exception {
+        assertEquals(DownloadCache.algorithm("SHA-256: abc"), "sha256");
+        assertEquals(DownloadCache.digest("SHA-256: abc"), "abc");
+        assertEquals(DownloadCache.algorithm(Hashing.md5().hashString("x", Charsets.UTF_8).toString()), "md5");
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        assertNull(DownloadCache.getInstance(properties));
+
+        properties.put(DownloadCache.ENABLED, true);
+        properties.put(DownloadCache.PATH, new File(tempDir, "shared").getAbsolutePath());
+        DownloadCache shared = DownloadCache.getInstance(properties);
+        assertEquals(shared.getDirectory(), new File(tempDir, "shared"));
+        assertTrue(DownloadCache.getInstance(properties) == shared);
+    }
+}
@@ -43,6 +43,7 @@ import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.entity.TestEntityImpl;
+import org.apache.brooklyn.entity.stock.BasicEntity;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.text.Identifiers;
@@ -120,6 +121,55 @@ public class EntityManagerTest extends BrooklynAppUnitTestSupport {
         Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesInApplication(app, Predicates.instanceOf(TestApplication.class)), ImmutableList.of(app));
     }
     
+    @Test
+    public void testFindEntitiesOfType() {
+        TestApplication app2 = mgmt.getEntityManager().createEntity(EntitySpec.create(TestApplication.class));
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        BasicEntity basic = app2.createAndManageChild(EntitySpec.create(BasicEntity.class));
+
+        Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesOfType(TestApplication.class), ImmutableList.of(app, app2));
+        Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesOfType(TestEntity.class), ImmutableList.of(entity));
+        Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesOfType(Entity.class), ImmutableList.of(app, app2, entity, basic));
+
+        Entities.unmanage(entity);
+        assertTrue(entityManager.findEntitiesOfType(TestEntity.class).isEmpty());
+    }
+
+    @Test
+    public void testFindEntitiesWithTag() {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class).tag("tag1"));
+        TestEntity entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesWithTag("tag1"), ImmutableList.of(entity));
+
+        // re-indexed as tags change
+        entity2.tags().addTag("tag1");
+        entity.tags().removeTag("tag1");
+        Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesWithTag("tag1"), ImmutableList.of(entity2));
+
+        Entities.unmanage(entity2);
+        assertTrue(entityManager.findEntitiesWithTag("tag1").isEmpty());
+    }
+
+    @Test
+    public void testFindEntitiesFromCatalogItem() {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class).catalogItemId("my-item:1.0"));
+        app.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesFromCatalogItem("my-item:1.0"), ImmutableList.of(entity));
+        assertTrue(entityManager.findEntitiesFromCatalogItem("other-item:1.0").isEmpty());
+    }
+
+    @Test
+    public void testEntitiesInApplicationExcludeUnmanaged() {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity child = entity.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        Entities.unmanage(entity);
+        Asserts.assertEqualsIgnoringOrder(entityManager.getEntitiesInApplication(app), ImmutableList.of(app));
+        assertFalse(entityManager.findEntitiesOfType(TestEntity.class).contains(child));
+    }
+
     @Test
     public void testCreateEntitiesWithDuplicateIdFails() {
         TestApplication origApp = app;
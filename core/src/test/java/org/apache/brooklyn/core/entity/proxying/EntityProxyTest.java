@@ -46,7 +46,7 @@ import com.google.common.collect.Iterables;
 
 public class EntityProxyTest extends BrooklynAppUnitTestSupport {
 
-    private TestEntity entity;
+    protected TestEntity entity;
     
     @BeforeMethod(alwaysRun=true)
     @Override
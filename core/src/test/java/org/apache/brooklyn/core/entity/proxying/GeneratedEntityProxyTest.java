@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity.proxying;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.objs.proxy.EntityProxyImpl;
+import org.apache.brooklyn.core.objs.proxy.GeneratedEntityProxy;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.Asserts;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the {@link EntityProxyTest} tests with {@link BrooklynFeatureEnablement#FEATURE_GENERATED_ENTITY_PROXIES}
+ * enabled, and checks the generated proxies behave as {@link Proxy} ones do.
+ */
+public class GeneratedEntityProxyTest extends EntityProxyTest {
+
+    private boolean origFeatureEnablement;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        origFeatureEnablement = BrooklynFeatureEnablement.enable(BrooklynFeatureEnablement.FEATURE_GENERATED_ENTITY_PROXIES);
+        super.setUp();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            BrooklynFeatureEnablement.setEnablement(BrooklynFeatureEnablement.FEATURE_GENERATED_ENTITY_PROXIES, origFeatureEnablement);
+        }
+    }
+
+    @Test
+    public void testProxiesAreGenerated() {
+        assertTrue(entity instanceof GeneratedEntityProxy, "class="+entity.getClass());
+        assertFalse(Proxy.isProxyClass(entity.getClass()), "class="+entity.getClass());
+        assertTrue(app instanceof GeneratedEntityProxy, "class="+app.getClass());
+    }
+
+    @Test
+    public void testProxyClassIsReusedForSameType() {
+        TestEntity entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        assertSame(entity2.getClass(), entity.getClass());
+    }
+
+    @Test
+    public void testDeproxy() {
+        assertSame(EntityProxyImpl.getProxyHandler(entity).getDelegate(), Entities.deproxy(entity));
+        assertSame(Entities.deproxy(entity).getProxy(), entity);
+        assertSame(Entities.proxy(entity), entity);
+    }
+
+    @Test
+    public void testObjectMethodsCallEntity() {
+        assertEquals(entity, entity);
+        assertEquals(entity.hashCode(), Entities.deproxy(entity).hashCode());
+        assertEquals(entity.toString(), Entities.deproxy(entity).toString());
+    }
+
+    @Test
+    public void testResultOfEntityItselfGivesProxy() {
+        assertSame(app.getApplication(), app);
+    }
+
+    @Test
+    public void testNonEffectorMethods() {
+        entity.setSequenceValue(123);
+        assertEquals(entity.getSequenceValue(), 123);
+        assertEquals(entity.sensors().get(TestEntity.SEQUENCE), (Integer)123);
+    }
+
+    @Test
+    public void testVoidEffector() {
+        entity.myEffector();
+        assertTrue(entity.getCallHistory().contains("myEffector"), "history="+entity.getCallHistory());
+    }
+
+    @Test
+    public void testExceptionFromEntityIsPropagated() {
+        try {
+            entity.createAndManageChild(null);
+            Asserts.shouldHaveFailedPreviously();
+        } catch (Exception e) {
+            Asserts.expectedFailureOfType(e, NullPointerException.class);
+        }
+    }
+}
@@ -18,8 +18,13 @@
  */
 package org.apache.brooklyn.core.feed;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
@@ -29,19 +34,28 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.AbstractEntity;
+import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.EntityAsserts;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.feed.function.FunctionFeed;
 import org.apache.brooklyn.feed.function.FunctionPollConfig;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
+import org.apache.brooklyn.util.core.task.ScheduledTask;
 import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Functions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 
 public class PollerTest extends BrooklynAppUnitTestSupport {
 
@@ -83,6 +97,75 @@ public class PollerTest extends BrooklynAppUnitTestSupport {
         EntityAsserts.assertAttributeEqualsContinually(timeoutFlags, fee, FeedExceptionEntity.FLAG, true);
     }
 
+    @Test
+    public void testPollsUntilStopped() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        Poller<Integer> poller = new Poller<Integer>(app, null, false);
+        poller.scheduleAtFixedRate(new CountingCallable(count), new DelegatingPollHandler<Integer>(ImmutableList.<AttributePollHandler<? super Integer>>of()), Duration.millis(10));
+        poller.start();
+        
+        Asserts.eventually(Suppliers.ofInstance(count), atLeast(3));
+        assertTrue(poller.isRunning());
+        assertTrue(Iterables.isEmpty(Iterables.filter(mgmt.getExecutionManager().getTasksWithTag(BrooklynTaskTags.tagForContextEntity(app)), ScheduledTask.class)),
+                "poller should not need a scheduled task per poll job");
+        
+        poller.stop();
+        assertFalse(poller.isRunning());
+        Time.sleep(Duration.millis(50));
+        final int countAfterStop = count.get();
+        Asserts.succeedsContinually(ImmutableMap.of("timeout", Duration.millis(100)), new Runnable() {
+            @Override public void run() {
+                assertEquals(count.get(), countAfterStop);
+            }});
+        
+        // can be restarted, as done when a feed is resumed
+        poller.start();
+        Asserts.eventually(Suppliers.ofInstance(count), atLeast(countAfterStop+3));
+        poller.stop();
+    }
+
+    @Test
+    public void testPollsOnlyIfServiceUp() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        app.sensors().set(Attributes.SERVICE_UP, false);
+        Poller<Integer> poller = new Poller<Integer>(app, null, true);
+        poller.scheduleAtFixedRate(new CountingCallable(count), new DelegatingPollHandler<Integer>(ImmutableList.<AttributePollHandler<? super Integer>>of()), Duration.millis(10));
+        poller.start();
+        try {
+            Asserts.succeedsContinually(ImmutableMap.of("timeout", Duration.millis(100)), new Runnable() {
+                @Override public void run() {
+                    assertEquals(count.get(), 0);
+                }});
+            
+            app.sensors().set(Attributes.SERVICE_UP, true);
+            Asserts.eventually(Suppliers.ofInstance(count), atLeast(1));
+        } finally {
+            poller.stop();
+        }
+    }
+
+    private static Predicate<AtomicInteger> atLeast(final int min) {
+        return new Predicate<AtomicInteger>() {
+            @Override public boolean apply(AtomicInteger input) {
+                return input.get() >= min;
+            }
+            @Override public String toString() {
+                return "atLeast("+min+")";
+            }
+        };
+    }
+    
+    private static class CountingCallable implements Callable<Integer> {
+        private final AtomicInteger count;
+        CountingCallable(AtomicInteger count) {
+            this.count = count;
+        }
+        @Override
+        public Integer call() {
+            return count.incrementAndGet();
+        }
+    }
+
     @ImplementedBy(FeedExceptionEntityImpl.class)
     public static interface FeedExceptionEntity extends Entity {
         ConfigKey<ThrowingPoller> POLLER = ConfigKeys.newConfigKey(ThrowingPoller.class, "poller");
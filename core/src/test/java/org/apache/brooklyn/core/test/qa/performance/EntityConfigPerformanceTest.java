@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Measures {@code getConfig} throughput on the leaf of a 6-level hierarchy, where the value
+ * is set on the application so must be inherited through every level.
+ */
+public class EntityConfigPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int DEPTH = 6;
+
+    private static final ConfigKey<Duration> DURATION_KEY = ConfigKeys.newDurationConfigKey("test.performance.duration");
+
+    TestEntity leaf;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        app.config().set(TestEntity.CONF_NAME, "inherited");
+        // set by name, so stored as a string and coerced on every get
+        app.config().putAll(ImmutableMap.of(DURATION_KEY.getName(), "5s"));
+
+        Entity parent = app;
+        for (int i = 1; i < DEPTH; i++) {
+            parent = parent.addChild(EntitySpec.create(TestEntity.class));
+        }
+        leaf = (TestEntity) parent;
+        assertEquals(leaf.getConfig(TestEntity.CONF_NAME), "inherited");
+        assertEquals(leaf.getConfig(DURATION_KEY), Duration.FIVE_SECONDS);
+    }
+
+    protected int numIterations() {
+        return 100000;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetInheritedConfig() {
+        int numIterations = numIterations();
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityConfigPerformanceTest.testGetInheritedConfig")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        leaf.getConfig(TestEntity.CONF_NAME);
+                    }}));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetInheritedConfigRequiringCoercion() {
+        int numIterations = numIterations();
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityConfigPerformanceTest.testGetInheritedConfigRequiringCoercion")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        leaf.getConfig(DURATION_KEY);
+                    }}));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetInheritedConfigWhileAncestorChanges() {
+        int numIterations = numIterations();
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger i = new AtomicInteger();
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityConfigPerformanceTest.testGetInheritedConfigWhileAncestorChanges")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (i.incrementAndGet() % 100 == 0) {
+                            app.config().set(TestEntity.CONF_NAME, "inherited-"+i.get());
+                        }
+                        leaf.getConfig(TestEntity.CONF_NAME);
+                    }}));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import static org.testng.Assert.assertEquals;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.objs.proxy.InternalEntityFactory;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.stock.BasicStartable;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+
+/**
+ * Measures creating many entities of the same type, as when deploying a large blueprint.
+ */
+public class EntityCreationPerformanceTest extends AbstractPerformanceTest {
+
+    protected int numIterations() {
+        return 10000;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCreateEntities() {
+        int numIterations = numIterations();
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        final InternalEntityFactory entityFactory = mgmt.getEntityFactory();
+        final EntitySpec<TestEntity> spec = EntitySpec.create(TestEntity.class)
+                .configure(TestEntity.CONF_NAME, "myname");
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityCreationPerformanceTest.testCreateEntities")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        entityFactory.createEntity(spec, Optional.<String>absent());
+                    }}));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCreateAndManageSpecWithManyChildren() {
+        int numChildren = 100;
+        final EntitySpec<BasicStartable> spec = EntitySpec.create(BasicStartable.class);
+        for (int i = 0; i < numChildren; i++) {
+            spec.child(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "myname"));
+        }
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityCreationPerformanceTest.testCreateAndManageSpecWithManyChildren")
+                .iterations(10)
+                .warmupIterations(1)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        Entity parent = app.addChild(spec);
+                        assertEquals(parent.getChildren().size(), spec.getChildren().size());
+                    }}));
+    }
+}
@@ -21,13 +21,18 @@ package org.apache.brooklyn.core.test.qa.performance;
 import static org.testng.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.entity.stock.BasicApplication;
 import org.apache.brooklyn.test.Asserts;
@@ -39,6 +44,7 @@ import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public class EntityPerformanceTest extends AbstractPerformanceTest {
 
@@ -102,6 +108,67 @@ public class EntityPerformanceTest extends AbstractPerformanceTest {
                     }}));
     }
 
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttribute() {
+        int numIterations = numIterations() * 100;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityPerformanceTest.testGetAttribute")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        entity.getAttribute(TestEntity.SEQUENCE);
+                    }}));
+    }
+
+    /** For comparison with {@link #testGetAttribute()}, to show the overhead of calls through the entity's proxy. */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttributeOnDeproxiedEntity() {
+        int numIterations = numIterations() * 100;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        final TestEntity deproxied = (TestEntity) Entities.deproxy(entity);
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityPerformanceTest.testGetAttributeOnDeproxiedEntity")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        deproxied.getAttribute(TestEntity.SEQUENCE);
+                    }}));
+    }
+
+    /** For comparison with {@link #testGetAttribute()}, using a generated proxy class rather than a {@link java.lang.reflect.Proxy}. */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttributeWithGeneratedProxy() {
+        int numIterations = numIterations() * 100;
+        double minRatePerSec = 100000 * PERFORMANCE_EXPECTATION;
+        final TestEntity generated;
+        boolean origFeatureEnablement = BrooklynFeatureEnablement.enable(BrooklynFeatureEnablement.FEATURE_GENERATED_ENTITY_PROXIES);
+        try {
+            generated = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        } finally {
+            BrooklynFeatureEnablement.setEnablement(BrooklynFeatureEnablement.FEATURE_GENERATED_ENTITY_PROXIES, origFeatureEnablement);
+        }
+        generated.sensors().set(TestEntity.SEQUENCE, 1);
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityPerformanceTest.testGetAttributeWithGeneratedProxy")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        generated.getAttribute(TestEntity.SEQUENCE);
+                    }}));
+    }
+
     @Test(groups={"Integration", "Acceptance"})
     public void testUpdateAttributeWithNoopListeners() {
         final int numIterations = numIterations();
@@ -131,6 +198,46 @@ public class EntityPerformanceTest extends AbstractPerformanceTest {
             }});
     }
 
+    @Test(groups={"Integration", "Acceptance"})
+    public void testSetAllAttributesWithNoopListeners() {
+        final int numIterations = numIterations();
+        final int numSensors = 20;
+        double minRatePerSec = 100 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger i = new AtomicInteger();
+        final AtomicInteger lastVal = new AtomicInteger();
+        
+        final List<AttributeSensor<Integer>> sensors = Lists.newArrayList();
+        for (int j = 0; j < numSensors; j++) {
+            AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("test.performance.sensor"+j);
+            sensors.add(sensor);
+            app.subscriptions().subscribe(entity, sensor, new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        lastVal.set(event.getValue());
+                    }});
+        }
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("EntityPerformanceTest.testSetAllAttributesWithNoopListeners")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        int val = i.getAndIncrement();
+                        Map<AttributeSensor<?>, Object> values = Maps.newLinkedHashMap();
+                        for (AttributeSensor<Integer> sensor : sensors) {
+                            values.put(sensor, val);
+                        }
+                        ((EntityInternal)entity).sensors().setAll(values);
+                    }}));
+        
+        Asserts.succeedsEventually(MutableMap.of("timeout", TIMEOUT_MS), new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(lastVal.get() >= numIterations-1, "lastVal="+lastVal+"; numIterations="+numIterations);
+            }});
+    }
+
     @Test(groups={"Integration", "Acceptance"})
     public void testInvokeEffector() {
         int numIterations = numIterations();
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import static org.testng.Assert.assertEquals;
+
+import java.net.URI;
+
+import org.apache.brooklyn.test.http.TestHttpRequestHandler;
+import org.apache.brooklyn.test.http.TestHttpServer;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.http.executor.HttpExecutor;
+import org.apache.brooklyn.util.http.executor.HttpRequest;
+import org.apache.brooklyn.util.http.executor.apacheclient.HttpExecutorImpl;
+import org.apache.brooklyn.util.http.executor.apacheclient.PooledHttpExecutorImpl;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the request rate of {@link HttpExecutorImpl}, which builds a new client per request,
+ * with {@link PooledHttpExecutorImpl}, which reuses pooled keep-alive connections, against a
+ * local server standing in for a polled endpoint.
+ */
+public class HttpExecutorPerformanceTest extends AbstractPerformanceTest {
+
+    private TestHttpServer server;
+    private URI uri;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        server = new TestHttpServer()
+                .handler("/status", new TestHttpRequestHandler().response("{\"status\":\"up\"}"))
+                .start();
+        uri = URI.create(server.getUrl() + "/status");
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            if (server != null) server.stop();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    protected int numIterations() {
+        return 5000;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testHttpExecutorImpl() {
+        measureExecutor("HttpExecutorPerformanceTest.testHttpExecutorImpl", HttpExecutorImpl.newInstance(), 100);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testPooledHttpExecutorImpl() {
+        measureExecutor("HttpExecutorPerformanceTest.testPooledHttpExecutorImpl", PooledHttpExecutorImpl.newInstance(), 1000);
+    }
+
+    protected void measureExecutor(String summary, final HttpExecutor executor, double expectedRatePerSec) {
+        final HttpRequest request = new HttpRequest.Builder()
+                .method("GET")
+                .uri(uri)
+                .build();
+
+        measure(PerformanceTestDescriptor.create()
+                .summary(summary)
+                .iterations(numIterations())
+                .minAcceptablePerSecond(expectedRatePerSec * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            assertEquals(executor.execute(request).code(), 200);
+                        } catch (Exception e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }}));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.Map;
+
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Measures the rate of common {@link TypeCoercions#coerce(Object, Class)} calls, 
+ * where the same (source class, target type) pair is coerced repeatedly.
+ */
+public class TypeCoercionsPerformanceTest extends AbstractPerformanceTest {
+
+    protected int numIterations() {
+        return 100000;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToDuration() {
+        assertEquals(TypeCoercions.coerce("5s", Duration.class), Duration.FIVE_SECONDS);
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("TypeCoercionsPerformanceTest.testCoerceStringToDuration")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(100000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        TypeCoercions.coerce("5s", Duration.class);
+                    }}));
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToInteger() {
+        assertEquals(TypeCoercions.coerce("123", Integer.class), (Integer)123);
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("TypeCoercionsPerformanceTest.testCoerceStringToInteger")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(100000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        TypeCoercions.coerce("123", Integer.class);
+                    }}));
+    }
+
+    // no adapter is registered for this, so measures the time to discover that no strategy applies
+    @Test(groups={"Integration", "Acceptance"})
+    public void testTryCoerceMapToConfigBag() {
+        final Map<String, Object> map = ImmutableMap.<String, Object>of("a", 1, "b", "two");
+        assertFalse(TypeCoercions.tryCoerce(map, ConfigBag.class).isPresent());
+        
+        measure(PerformanceTestDescriptor.create()
+                .summary("TypeCoercionsPerformanceTest.testTryCoerceMapToConfigBag")
+                .iterations(numIterations())
+                .minAcceptablePerSecond(10000 * PERFORMANCE_EXPECTATION)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        TypeCoercions.tryCoerce(map, ConfigBag.class);
+                    }}));
+    }
+}
@@ -26,6 +26,7 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -1372,6 +1373,51 @@ public class DynamicClusterTest extends AbstractDynamicClusterOrFabricTest {
         }, Asserts.DEFAULT_LONG_TIMEOUT);
     }
 
+    @Test
+    public void testMembersAbandonedWhenFailureBudgetExceeded() throws Exception {
+        final AtomicInteger starts = new AtomicInteger();
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MAX_CONCURRENT_CHILD_COMMANDS, 1)
+                .configure(DynamicCluster.MEMBER_START_FAILURE_BUDGET, 0)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(FailingEntity.class)
+                        .configure(FailingEntity.FAIL_ON_START_CONDITION, new Predicate<FailingEntity>() {
+                            @Override public boolean apply(FailingEntity input) {
+                                starts.incrementAndGet();
+                                return true;
+                            }})));
+        cluster.start(ImmutableList.of(loc));
+
+        try {
+            cluster.resize(4);
+            Asserts.shouldHaveFailedPreviously();
+        } catch (Exception e) {
+            Asserts.expectedFailureContains(e, "Abandoned starting 3 members");
+        }
+        // only the first was started (and quarantined); the rest were discarded once it failed
+        assertEquals(starts.get(), 1);
+        assertEquals(cluster.getCurrentSize(), (Integer)0);
+        assertEquals(Iterables.size(Iterables.filter(cluster.getChildren(), FailingEntity.class)), 1, "children="+cluster.getChildren());
+    }
+
+    @Test
+    public void testRampUpIntervalSpacesMemberStarts() throws Exception {
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_START_RAMP_UP_INTERVAL, Duration.millis(500))
+                .configure(DynamicCluster.INITIAL_SIZE, 3)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class)));
+        cluster.start(ImmutableList.of(loc));
+
+        List<Duration> queueTimes = Lists.newArrayList();
+        for (Entity member : cluster.getMembers()) {
+            queueTimes.add(member.sensors().get(DynamicCluster.MEMBER_START_QUEUE_TIME));
+            assertNotNull(member.sensors().get(DynamicCluster.MEMBER_START_EXECUTION_TIME), "member="+member);
+        }
+        // the first member starts straight away, and the others in turn
+        Duration longest = Collections.max(queueTimes);
+        assertTrue(longest.isLongerThan(Duration.millis(400)), "queueTimes="+queueTimes);
+    }
+
     @Test
     public void testChildCommandPermitNotReleasedWhenMemberStartTaskCancelledBeforeSubmission() {
         // Tests that permits are not released when their start task is cancelled.
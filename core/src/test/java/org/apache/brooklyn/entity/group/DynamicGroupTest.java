@@ -600,6 +600,52 @@ public class DynamicGroupTest extends BrooklynAppUnitTestSupport {
         assertFalse(members.contains(irrelevant), "collection should not contain " + irrelevant + ": " + members);
     }
 
+    @Test
+    public void testNotNotifiedOfEntitiesInOtherApplications() throws Exception {
+        final DynamicGroup group2 = app.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                .impl(DynamicGroupRecordingEntitiesAdded.class)
+                .configure(DynamicGroup.ENTITY_FILTER, Predicates.instanceOf(TestEntity.class)));
+        final List<Entity> entitiesAdded = ((DynamicGroupRecordingEntitiesAdded) Entities.deproxy(group2)).entitiesAdded;
+
+        TestApplication app2 = TestApplication.Factory.newManagedInstanceForTests(app.getManagementContext());
+        TestEntity irrelevant = app2.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final TestEntity e3 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        // notified in order, so by the time e3 is seen the other would have been too
+        assertContainsEventually(entitiesAdded, e3);
+        assertFalse(entitiesAdded.contains(irrelevant), "entitiesAdded="+entitiesAdded);
+        assertFalse(entitiesAdded.contains(app2), "entitiesAdded="+entitiesAdded);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(group2.getMembers().contains(e3), "members="+group2.getMembers());
+            }});
+    }
+    public static class DynamicGroupRecordingEntitiesAdded extends DynamicGroupImpl {
+        final List<Entity> entitiesAdded = new CopyOnWriteArrayList<Entity>();
+
+        @Override
+        protected void onEntityAdded(Entity item) {
+            entitiesAdded.add(item);
+            super.onEntityAdded(item);
+        }
+    }
+
+    @Test
+    public void testPeriodicRescanDetectsChangesNotSubscribedTo() throws Exception {
+        final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
+        final DynamicGroup group2 = app.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                .configure(DynamicGroup.RESCAN_PERIOD, Duration.millis(10))
+                .configure(DynamicGroup.ENTITY_FILTER, EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes")));
+
+        e1.sensors().set(MY_ATTRIBUTE, "yes");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(group2.getMembers().contains(e1), "members="+group2.getMembers());
+            }});
+    }
+
     private <T> void assertContainsEventually(final Collection<? extends T> vals, final T val) {
         Asserts.succeedsEventually(new Runnable() {
             @Override
@@ -23,6 +23,8 @@ import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -42,7 +44,9 @@ import org.apache.brooklyn.core.entity.EntityInternal.FeedSupport;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.entity.TestEntityImpl;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -56,6 +60,7 @@ import com.google.common.base.Functions;
 import com.google.common.base.Predicates;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.Callables;
 
@@ -259,7 +264,45 @@ public class FunctionFeedTest extends BrooklynAppUnitTestSupport {
                 .supplier(Suppliers.ofInstance(1))
                 .onFailureOrException(Functions.<Integer>constant(null));
     }
-    
+
+
+    @Test
+    public void testSensorsFromSamePollAreSetTogether() throws Exception {
+        RecordingSetAllEntityImpl.setAllSensors.clear();
+        EntityLocal entity = app.createAndManageChild(EntitySpec.create(TestEntity.class).impl(RecordingSetAllEntityImpl.class));
+        Callable<Integer> callable = new IncrementingCallable();
+        feed = FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer,Integer>(SENSOR_INT)
+                        .period(Duration.ONE_HOUR)
+                        .callable(callable))
+                .poll(new FunctionPollConfig<Integer,String>(SENSOR_STRING)
+                        .period(Duration.ONE_HOUR)
+                        .callable(callable)
+                        .onSuccess(Functions.toStringFunction()))
+                .build();
+
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_INT, 0);
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING, "0");
+        assertEquals(RecordingSetAllEntityImpl.setAllSensors, ImmutableList.of(ImmutableSet.of(SENSOR_INT, SENSOR_STRING)));
+    }
+
+    public static class RecordingSetAllEntityImpl extends TestEntityImpl {
+        static final List<Set<AttributeSensor<?>>> setAllSensors = new CopyOnWriteArrayList<Set<AttributeSensor<?>>>();
+
+        private final BasicSensorSupport sensors = new BasicSensorSupport() {
+            @Override
+            public void setAll(Map<? extends AttributeSensor<?>, ?> values) {
+                setAllSensors.add(ImmutableSet.copyOf(values.keySet()));
+                super.setAll(values);
+            }
+        };
+
+        @Override
+        public BasicSensorSupport sensors() {
+            return sensors;
+        }
+    }
     
     private void assertFeedIsPolling() {
         final Integer val = entity.getAttribute(SENSOR_INT);
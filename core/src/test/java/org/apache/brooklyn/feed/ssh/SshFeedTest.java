@@ -19,20 +19,27 @@
 package org.apache.brooklyn.feed.ssh;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.LocationSpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.EntityAsserts;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.location.localhost.LocalhostMachineProvisioningLocation;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
@@ -41,11 +48,16 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
 import com.google.common.base.Functions;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 
 public class SshFeedTest extends BrooklynAppUnitTestSupport {
 
@@ -53,6 +65,7 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
     
     final static AttributeSensor<String> SENSOR_STRING = Sensors.newStringSensor("aString", "");
     final static AttributeSensor<String> SENSOR_STRING2 = Sensors.newStringSensor("aString2", "");
+    final static AttributeSensor<String> SENSOR_STRING3 = Sensors.newStringSensor("aString3", "");
 
     private LocalhostMachineProvisioningLocation loc;
     private EntityLocal entity;
@@ -65,6 +78,7 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
         loc = app.newLocalhostProvisioningLocation();
         entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
         RecordingSshMachineLocation.execScriptCalls.clear();
+        LocalBashSshMachineLocation.execScriptCalls.clear();
     }
 
     @AfterMethod(alwaysRun=true)
@@ -74,6 +88,7 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
         super.tearDown();
         if (loc != null) Streams.closeQuietly(loc);
         RecordingSshMachineLocation.execScriptCalls.clear();
+        LocalBashSshMachineLocation.execScriptCalls.clear();
     }
     
     @Test(groups="Integration") // integration because slow 
@@ -165,6 +180,152 @@ public class SshFeedTest extends BrooklynAppUnitTestSupport {
             }});
     }
 
+    @Test
+    public void testBatchesCommandsWithSamePeriod() throws Exception {
+        final LocalBashSshMachineLocation bashMachine = mgmt.getLocationManager().createLocation(LocationSpec.create(LocalBashSshMachineLocation.class));
+        app.start(ImmutableList.of(bashMachine));
+        
+        feed = SshFeed.builder()
+                .period(Duration.PRACTICALLY_FOREVER)
+                .entity(entity)
+                .batchPolls()
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .env(ImmutableMap.of("mykey", "my \"val\""))
+                        .command("echo \"$mykey\"")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .command("echo myerr >&2; exit 3")
+                        .onSuccess(Functions.constant("unexpected"))
+                        .onFailure(Functions.compose(Functions.toStringFunction(), SshValueFunctions.exitStatus())))
+                .poll(new SshPollConfig<String>(SENSOR_STRING3)
+                        .command("echo 'line1  '; echo; printf line2 # trailing comment")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .build();
+        
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING, "my \"val\"\n");
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING2, "3");
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING3, "line1\nline2\n");
+        assertEquals(LocalBashSshMachineLocation.execScriptCalls.size(), 1, "calls="+LocalBashSshMachineLocation.execScriptCalls);
+    }
+
+    @Test
+    public void testBatchedHandlerExceptionDoesNotStopOtherHandlers() throws Exception {
+        final LocalBashSshMachineLocation bashMachine = mgmt.getLocationManager().createLocation(LocationSpec.create(LocalBashSshMachineLocation.class));
+        app.start(ImmutableList.of(bashMachine));
+        
+        feed = SshFeed.builder()
+                .period(Duration.PRACTICALLY_FOREVER)
+                .entity(entity)
+                .batchPolls()
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command("echo first")
+                        .onSuccess(new Function<SshPollValue, String>() {
+                            @Override public String apply(SshPollValue input) {
+                                throw new IllegalStateException("simulated failure handling output");
+                            }})
+                        .onException(Functions.constant("exception")))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .command("echo second")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .build();
+        
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING, "exception");
+        EntityAsserts.assertAttributeEqualsEventually(entity, SENSOR_STRING2, "second\n");
+    }
+
+    @Test
+    public void testPersistentCollectorStreamsResults() throws Exception {
+        final LocalBashSshMachineLocation bashMachine = mgmt.getLocationManager().createLocation(LocationSpec.create(LocalBashSshMachineLocation.class));
+        app.start(ImmutableList.of(bashMachine));
+        
+        feed = SshFeed.builder()
+                .period(Duration.millis(100))
+                .entity(entity)
+                .persistentCollector(Duration.ONE_MINUTE)
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .command("date +%s%N")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .build();
+        
+        final Set<String> vals = Sets.newConcurrentHashSet();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                String val = entity.getAttribute(SENSOR_STRING);
+                if (val != null) vals.add(val);
+                assertTrue(vals.size() >= 3, "vals="+vals);
+            }});
+        assertEquals(LocalBashSshMachineLocation.execScriptCalls.size(), 1, "calls="+LocalBashSshMachineLocation.execScriptCalls);
+        
+        // stopping the feed kills the collector
+        feed.stop();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(LocalBashSshMachineLocation.activeCalls.get(), 0);
+            }});
+    }
+
+    @Test
+    public void testParsesBatchOutput() throws Exception {
+        String marker = "MARKER";
+        SshFeed.BatchOutputParser parser = new SshFeed.BatchOutputParser(null, marker, 2);
+        parser.write((marker+" 0 0\nOabc|\nO|\nOdef  |\n"+marker+" 1 2\nEerr|\n").getBytes());
+        assertEquals(parser.getRounds(), ImmutableList.of());
+        
+        parser.write((marker+" end\n").getBytes());
+        List<SshPollValue> results = Iterables.getOnlyElement(parser.getRounds());
+        assertEquals(results.get(0).getExitStatus(), 0);
+        assertEquals(results.get(0).getStdout(), "abc\ndef\n");
+        assertEquals(results.get(1).getExitStatus(), 2);
+        assertEquals(results.get(1).getStdout(), "");
+        assertEquals(results.get(1).getStderr(), "err\n");
+    }
+
+    @Test
+    public void testParseBatchOutputIgnoresIncompleteRound() throws Exception {
+        String marker = "MARKER";
+        SshFeed.BatchOutputParser parser = new SshFeed.BatchOutputParser(null, marker, 2);
+        parser.write((marker+" 0 0\nOabc|\n"+marker+" end\n").getBytes());
+        assertEquals(parser.getRounds(), ImmutableList.of());
+    }
+
+    /** Runs scripts with a local bash, rather than over ssh. */
+    public static class LocalBashSshMachineLocation extends SshMachineLocation {
+        public static List<List<String>> execScriptCalls = Lists.newCopyOnWriteArrayList();
+        public static AtomicInteger activeCalls = new AtomicInteger();
+
+        @Override
+        public int execCommands(Map<String,?> props, String summaryForLogging, List<String> cmds) {
+            return execScript(props, summaryForLogging, cmds, ImmutableMap.<String,Object>of());
+        }
+
+        @Override 
+        public int execScript(Map<String,?> props, String summaryForLogging, List<String> cmds, Map<String,?> env) {
+            if (!summaryForLogging.startsWith("kill")) execScriptCalls.add(cmds);
+            activeCalls.incrementAndGet();
+            try {
+                ProcessBuilder builder = new ProcessBuilder("bash", "-c", Joiner.on("\n").join(cmds));
+                for (Map.Entry<String, ?> entry : env.entrySet()) {
+                    builder.environment().put(entry.getKey(), entry.getValue().toString());
+                }
+                Process process = builder.start();
+                process.getOutputStream().close();
+                ByteStreams.copy(process.getInputStream(), orNull((OutputStream) props.get(SshTool.PROP_OUT_STREAM.getName())));
+                ByteStreams.copy(process.getErrorStream(), orNull((OutputStream) props.get(SshTool.PROP_ERR_STREAM.getName())));
+                return process.waitFor();
+            } catch (Exception e) {
+                throw Exceptions.propagate(e);
+            } finally {
+                activeCalls.decrementAndGet();
+            }
+        }
+
+        private static OutputStream orNull(OutputStream val) {
+            return (val != null) ? val : ByteStreams.nullOutputStream();
+        }
+    }
+
     public static class RecordingSshMachineLocation extends SshMachineLocation {
         public static List<List<String>> execScriptCalls = Lists.newCopyOnWriteArrayList();
 
@@ -24,6 +24,10 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -42,6 +46,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 /**
  * Tests the re-use of SshTools in SshMachineLocation
@@ -145,6 +150,27 @@ public class SshMachineLocationReuseIntegrationTest {
         assertEquals(RecordingSshjTool.connectionCount.get(), 1, "Expected one SSH connection to have been recorded even though out script header differed.");
     }
 
+    @Test(groups = "Integration")
+    public void testConcurrentOperationsShareConnection() throws Exception {
+        int numConcurrent = host.getConfig(SshMachineLocation.SSH_MAX_SESSIONS_PER_CONNECTION);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            List<Future<Integer>> futures = Lists.newArrayList();
+            for (int i = 0; i < numConcurrent; i++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override public Integer call() {
+                        return host.execScript("mysummary", ImmutableList.of("sleep 1"));
+                    }}));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(future.get(), (Integer)0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(RecordingSshjTool.connectionCount.get(), 1, "Expected concurrent operations to share one SSH connection");
+    }
+
     @Test(groups = "Integration")
     public void testSshCacheExpiresEvenIfNotUsed() throws Exception {
         SshMachineLocation host2 = managementContext.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
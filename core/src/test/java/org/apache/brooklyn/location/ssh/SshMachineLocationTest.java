@@ -26,6 +26,8 @@ import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
@@ -73,6 +75,7 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
@@ -81,6 +84,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
@@ -247,6 +253,54 @@ public class SshMachineLocationTest extends BrooklynAppUnitTestSupport {
         }
     }
     
+    public static class CopyRecordingSshTool extends RecordingSshTool {
+        public static final List<String> copies = Lists.newCopyOnWriteArrayList();
+        
+        public CopyRecordingSshTool(Map<String, ?> props) {
+            super(props);
+        }
+        @Override public int copyToServer(Map<String, ?> props, InputStream contents, String pathAndFileOnRemoteServer) {
+            copies.add(pathAndFileOnRemoteServer);
+            return 0;
+        }
+    }
+    
+    @Test
+    public void testCopyToSkipsFileWithSameRemoteChecksum() throws Exception {
+        CopyRecordingSshTool.copies.clear();
+        SshMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", "1.2.3.4")
+                .configure(SshMachineLocation.SSH_TOOL_CLASS, CopyRecordingSshTool.class.getName())
+                .configure(SshMachineLocation.SSH_COPY_SKIP_UNCHANGED_MIN_SIZE, 10L));
+        File small = Os.newTempFile(getClass(), "txt");
+        File large = Os.newTempFile(getClass(), "txt");
+        try {
+            Files.write("small", small, Charsets.UTF_8);
+            Files.write("larger than ten bytes", large, Charsets.UTF_8);
+            String checksum = Files.hash(large, Hashing.sha256()).toString();
+            
+            // remote file differs (or is absent)
+            RecordingSshTool.setCustomOneOffResponse(".*sha256sum.*", new CustomResponse(1, "", ""));
+            machine.copyTo(large, "/tmp/large");
+            assertEquals(CopyRecordingSshTool.copies, ImmutableList.of("/tmp/large"));
+            String checkCmd = Joiner.on("\n").join(RecordingSshTool.getLastExecCmd().commands);
+            assertTrue(checkCmd.contains(checksum) && checkCmd.contains("chmod 0644"), checkCmd);
+            
+            // remote file has the same contents
+            machine.copyTo(large, "/tmp/large");
+            assertEquals(CopyRecordingSshTool.copies, ImmutableList.of("/tmp/large"));
+            
+            // too small to check
+            RecordingSshTool.clearCmdHistory();
+            machine.copyTo(small, "/tmp/small");
+            assertEquals(CopyRecordingSshTool.copies, ImmutableList.of("/tmp/large", "/tmp/small"));
+            assertEquals(RecordingSshTool.getExecCmds(), ImmutableList.of());
+        } finally {
+            small.delete();
+            large.delete();
+        }
+    }
+    
     @Test
     public void testSshExecScript() throws Exception {
         String expectedName = Os.user();
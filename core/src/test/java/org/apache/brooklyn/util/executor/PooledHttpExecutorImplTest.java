@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.executor;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.apache.brooklyn.util.http.executor.HttpExecutor;
+import org.apache.brooklyn.util.http.executor.HttpRequest;
+import org.apache.brooklyn.util.http.executor.HttpResponse;
+import org.apache.brooklyn.util.http.executor.apacheclient.PooledHttpExecutorImpl;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.mockwebserver.MockResponse;
+
+/**
+ * Runs the {@link HttpExecutorImplTest} cases against {@link PooledHttpExecutorImpl}.
+ */
+public class PooledHttpExecutorImplTest extends HttpExecutorImplTest {
+
+    @Test
+    public void testReusesConnectionForSameRoute() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("first"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("second"));
+        HttpExecutor executor = factory.getHttpExecutor(getProps());
+        HttpRequest executorRequest = new HttpRequest.Builder()
+                .method("GET")
+                .uri(baseUrl.toURI())
+                .build();
+
+        HttpResponse firstResponse = executor.execute(executorRequest);
+        HttpResponse secondResponse = factory.getHttpExecutor(getProps()).execute(executorRequest);
+
+        assertEquals(new String(ByteStreams.toByteArray(firstResponse.getContent())), "first");
+        assertEquals(new String(ByteStreams.toByteArray(secondResponse.getContent())), "second");
+        assertEquals(server.takeRequest().getSequenceNumber(), 0);
+        assertEquals(server.takeRequest().getSequenceNumber(), 1);
+    }
+
+    @Test
+    public void testNewClientAfterClose() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("first"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("second"));
+        HttpExecutor executor = factory.getHttpExecutor(getProps());
+        HttpRequest executorRequest = new HttpRequest.Builder()
+                .method("GET")
+                .uri(baseUrl.toURI())
+                .build();
+
+        HttpResponse firstResponse = executor.execute(executorRequest);
+        PooledHttpExecutorImpl.closeClients();
+        HttpResponse secondResponse = executor.execute(executorRequest);
+
+        assertEquals(new String(ByteStreams.toByteArray(firstResponse.getContent())), "first");
+        assertEquals(new String(ByteStreams.toByteArray(secondResponse.getContent())), "second");
+    }
+
+    @Override
+    protected Map<?, ?> getProps() {
+        return ImmutableMap.of(HttpExecutorFactory.HTTP_EXECUTOR_CLASS_CONFIG, PooledHttpExecutorImpl.class.getName());
+    }
+}
@@ -98,5 +98,17 @@ public interface KubernetesPod extends DockerContainer {
             .description("Pod running the deployment")
             .build();
 
+    AttributeSensor<Integer> KUBERNETES_AVAILABLE_REPLICAS = Sensors.builder(Integer.class, "kubernetes.replicas.available")
+            .description("Number of available replicas of the deployment")
+            .build();
+
+    AttributeSensor<String> KUBERNETES_POD_PHASE = Sensors.builder(String.class, "kubernetes.pod.phase")
+            .description("Phase of the pod running the deployment")
+            .build();
+
+    AttributeSensor<Integer> KUBERNETES_CONTAINER_RESTARTS = Sensors.builder(Integer.class, "kubernetes.container.restarts")
+            .description("Total number of container restarts, across all pods of the deployment")
+            .build();
+
     String EMPTY = "Empty";
 }
@@ -18,8 +18,44 @@
  */
 package org.apache.brooklyn.container.entity.kubernetes;
 
+import org.apache.brooklyn.api.location.MachineProvisioningLocation;
 import org.apache.brooklyn.container.entity.docker.DockerContainerImpl;
+import org.apache.brooklyn.container.location.kubernetes.KubernetesLocation;
+
+import com.google.common.collect.ImmutableMap;
 
 public class KubernetesPodImpl extends DockerContainerImpl implements KubernetesPod {
 
+    private transient KubernetesStatusFeed statusFeed;
+
+    @Override
+    protected void connectSensors() {
+        super.connectSensors();
+        MachineProvisioningLocation<?> location = sensors().get(PROVISIONING_LOCATION);
+        String namespace = sensors().get(KUBERNETES_NAMESPACE);
+        String deployment = sensors().get(KUBERNETES_DEPLOYMENT);
+        if (location instanceof KubernetesLocation && namespace != null && deployment != null) {
+            statusFeed = statusFeedBuilder((KubernetesLocation) location, namespace, deployment).build();
+        }
+    }
+
+    @Override
+    protected void disconnectSensors() {
+        if (statusFeed != null) statusFeed.stop();
+        super.disconnectSensors();
+    }
+
+    /**
+     * The feed reporting the state of the deployment's pods; both {@link KubernetesLocation} and
+     * {@link org.apache.brooklyn.container.location.openshift.OpenShiftLocation} label them with the
+     * deployment name.
+     */
+    protected KubernetesStatusFeed.Builder statusFeedBuilder(KubernetesLocation location, String namespace, String deployment) {
+        return KubernetesStatusFeed.builder()
+                .entity(this)
+                .location(location)
+                .namespace(namespace)
+                .podLabels(ImmutableMap.of("name", deployment))
+                .deployment(deployment);
+    }
 }
@@ -45,6 +45,12 @@ public interface KubernetesResource extends SoftwareProcess {
 
     AttributeSensor<String> KUBERNETES_NAMESPACE = KubernetesPod.KUBERNETES_NAMESPACE;
 
+    AttributeSensor<String> KUBERNETES_POD_PHASE = KubernetesPod.KUBERNETES_POD_PHASE;
+
+    AttributeSensor<Integer> KUBERNETES_CONTAINER_RESTARTS = KubernetesPod.KUBERNETES_CONTAINER_RESTARTS;
+
+    AttributeSensor<Integer> KUBERNETES_AVAILABLE_REPLICAS = KubernetesPod.KUBERNETES_AVAILABLE_REPLICAS;
+
     String POD = "Pod";
     String DEPLOYMENT = "Deployment";
     String REPLICA_SET = "ReplicaSet";
@@ -18,11 +18,15 @@
  */
 package org.apache.brooklyn.container.entity.kubernetes;
 
+import org.apache.brooklyn.api.location.MachineProvisioningLocation;
+import org.apache.brooklyn.container.location.kubernetes.KubernetesLocation;
 import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.entity.software.base.EmptySoftwareProcessImpl;
 
 public class KubernetesResourceImpl extends EmptySoftwareProcessImpl implements KubernetesResource {
 
+    private transient KubernetesStatusFeed statusFeed;
+
     @Override
     public void init() {
         super.init();
@@ -33,4 +37,30 @@ public class KubernetesResourceImpl extends EmptySoftwareProcessImpl implements
         config().set(PROVISIONING_PROPERTIES.subKey("pollForFirstReachableAddress"), false);
         config().set(EmptySoftwareProcessImpl.USE_SSH_MONITORING, false);
     }
+
+    @Override
+    protected void connectSensors() {
+        super.connectSensors();
+        MachineProvisioningLocation<?> location = sensors().get(PROVISIONING_LOCATION);
+        String namespace = sensors().get(KUBERNETES_NAMESPACE);
+        String resourceType = sensors().get(RESOURCE_TYPE);
+        String resourceName = sensors().get(RESOURCE_NAME);
+        if (location instanceof KubernetesLocation && namespace != null && resourceName != null) {
+            KubernetesStatusFeed.Builder builder = KubernetesStatusFeed.builder()
+                    .entity(this)
+                    .location((KubernetesLocation) location)
+                    .namespace(namespace);
+            if (POD.equals(resourceType)) {
+                statusFeed = builder.podName(resourceName).build();
+            } else if (DEPLOYMENT.equals(resourceType)) {
+                statusFeed = builder.deployment(resourceName).build();
+            }
+        }
+    }
+
+    @Override
+    protected void disconnectSensors() {
+        if (statusFeed != null) statusFeed.stop();
+        super.disconnectSensors();
+    }
 }
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.entity.kubernetes;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.container.location.kubernetes.KubernetesLocation;
+import org.apache.brooklyn.container.location.kubernetes.KubernetesResourceCache;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.feed.AbstractFeed;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.reflect.TypeToken;
+
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.extensions.Deployment;
+
+/**
+ * Provides a feed of the state of an entity's pods and deployment, as reported by the Kubernetes API.
+ * <p>
+ * Rather than polling, the feed subscribes to the {@link KubernetesResourceCache caches} of its
+ * location, which share one watch between all the entities in a namespace. It publishes
+ * {@link KubernetesPod#KUBERNETES_POD_PHASE}, {@link KubernetesPod#KUBERNETES_CONTAINER_RESTARTS}
+ * and {@link KubernetesPod#KUBERNETES_AVAILABLE_REPLICAS}.
+ * <p>
+ * Example usage:
+ * <pre>
+ * {@code
+ * feed = KubernetesStatusFeed.builder()
+ *     .entity(this)
+ *     .location(kubernetesLocation)
+ *     .namespace(namespace)
+ *     .podLabels(ImmutableMap.of("name", deployment))
+ *     .deployment(deployment)
+ *     .build();
+ * }
+ * </pre>
+ */
+public class KubernetesStatusFeed extends AbstractFeed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesStatusFeed.class);
+
+    public static final ConfigKey<KubernetesLocation> LOCATION = ConfigKeys.newConfigKey(KubernetesLocation.class, "location");
+
+    public static final ConfigKey<String> NAMESPACE = ConfigKeys.newStringConfigKey("namespace");
+
+    public static final ConfigKey<String> POD_NAME = ConfigKeys.newStringConfigKey("podName");
+
+    @SuppressWarnings("serial")
+    public static final ConfigKey<Map<String, String>> POD_LABELS = ConfigKeys.newConfigKey(
+            new TypeToken<Map<String, String>>() {},
+            "podLabels");
+
+    public static final ConfigKey<String> DEPLOYMENT = ConfigKeys.newStringConfigKey("deployment");
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Entity entity;
+        private KubernetesLocation location;
+        private String namespace;
+        private String podName;
+        private Map<String, String> podLabels;
+        private String deployment;
+        private String uniqueTag;
+
+        public Builder entity(Entity val) {
+            this.entity = val;
+            return this;
+        }
+        public Builder location(KubernetesLocation val) {
+            this.location = val;
+            return this;
+        }
+        public Builder namespace(String val) {
+            this.namespace = val;
+            return this;
+        }
+        /** Reports on the pod with this name. */
+        public Builder podName(String val) {
+            this.podName = val;
+            return this;
+        }
+        /** Reports on the pods with all of these labels. */
+        public Builder podLabels(Map<String, String> val) {
+            this.podLabels = val;
+            return this;
+        }
+        /** Reports on the deployment with this name. */
+        public Builder deployment(String val) {
+            this.deployment = val;
+            return this;
+        }
+        public Builder uniqueTag(String uniqueTag) {
+            this.uniqueTag = uniqueTag;
+            return this;
+        }
+        public KubernetesStatusFeed build() {
+            KubernetesStatusFeed result = new KubernetesStatusFeed(this);
+            result.setEntity(checkNotNull((EntityInternal) entity, "entity"));
+            result.start();
+            return result;
+        }
+    }
+
+    private transient volatile List<KubernetesResourceCache.Subscription> subscriptions;
+
+    /**
+     * For rebind; do not call directly; use builder
+     */
+    public KubernetesStatusFeed() {
+    }
+
+    protected KubernetesStatusFeed(Builder builder) {
+        config().set(LOCATION, checkNotNull(builder.location, "location"));
+        config().set(NAMESPACE, checkNotNull(builder.namespace, "namespace"));
+        config().set(POD_NAME, builder.podName);
+        config().set(POD_LABELS, (builder.podLabels == null) ? null : ImmutableMap.copyOf(builder.podLabels));
+        config().set(DEPLOYMENT, builder.deployment);
+        initUniqueTag(builder.uniqueTag, builder.namespace, builder.podName, builder.podLabels, builder.deployment);
+    }
+
+    @Override
+    protected void preStart() {
+        subscribe();
+    }
+
+    @Override
+    protected void preStop() {
+        unsubscribe();
+    }
+
+    @Override
+    public void suspend() {
+        super.suspend();
+        unsubscribe();
+    }
+
+    @Override
+    public void resume() {
+        super.resume();
+        if (isActivated() && subscriptions == null) subscribe();
+    }
+
+    @Override
+    public boolean isRunning() {
+        // the poller has no jobs, so would never report itself as running
+        return isActivated() && !isSuspended() && !isDestroyed() && subscriptions != null;
+    }
+
+    private synchronized void subscribe() {
+        if (subscriptions != null) return;
+        KubernetesLocation location = getConfig(LOCATION);
+        String namespace = getConfig(NAMESPACE);
+        String podName = getConfig(POD_NAME);
+        Map<String, String> podLabels = getConfig(POD_LABELS);
+        String deployment = getConfig(DEPLOYMENT);
+
+        List<KubernetesResourceCache.Subscription> result = MutableList.of();
+        if (podName != null || podLabels != null) {
+            result.add(location.getPodCache(namespace).subscribe(podFilter(podName, podLabels), this::onPodsChanged));
+        }
+        if (deployment != null) {
+            result.add(location.getDeploymentCache(namespace).subscribe(nameFilter(deployment), this::onDeploymentsChanged));
+        }
+        if (LOG.isDebugEnabled()) LOG.debug("Subscribed {} of {} to {} resource caches of {}", new Object[]{this, entity, result.size(), location});
+        subscriptions = result;
+    }
+
+    private synchronized void unsubscribe() {
+        if (subscriptions == null) return;
+        for (KubernetesResourceCache.Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        subscriptions = null;
+    }
+
+    private void onPodsChanged(Collection<Pod> pods) {
+        if (!isActivated() || isSuspended()) return;
+        // prefer the pod recorded when the entity was provisioned, as long as it still exists
+        String currentPod = entity.sensors().get(KubernetesPod.KUBERNETES_POD);
+        Pod pod = Iterables.find(pods, nameFilter(currentPod), Iterables.getFirst(pods, null));
+        int restarts = 0;
+        for (Pod each : pods) {
+            if (each.getStatus() == null || each.getStatus().getContainerStatuses() == null) continue;
+            for (ContainerStatus status : each.getStatus().getContainerStatuses()) {
+                if (status.getRestartCount() != null) restarts += status.getRestartCount();
+            }
+        }
+        publish(KubernetesPod.KUBERNETES_POD_PHASE, (pod == null || pod.getStatus() == null) ? null : pod.getStatus().getPhase());
+        publish(KubernetesPod.KUBERNETES_CONTAINER_RESTARTS, restarts);
+    }
+
+    private void onDeploymentsChanged(Collection<Deployment> deployments) {
+        if (!isActivated() || isSuspended()) return;
+        Deployment deployment = Iterables.getFirst(deployments, null);
+        publish(KubernetesPod.KUBERNETES_AVAILABLE_REPLICAS, (deployment == null || deployment.getStatus() == null) ? null : deployment.getStatus().getAvailableReplicas());
+    }
+
+    private <T> void publish(AttributeSensor<T> sensor, T value) {
+        if (!Objects.equal(entity.sensors().get(sensor), value)) {
+            entity.sensors().set(sensor, value);
+        }
+    }
+
+    private static Predicate<Pod> podFilter(final String name, final Map<String, String> labels) {
+        return new Predicate<Pod>() {
+            @Override
+            public boolean apply(Pod input) {
+                if (name != null && !name.equals(input.getMetadata().getName())) return false;
+                Map<String, String> podLabels = input.getMetadata().getLabels();
+                return labels == null || (podLabels != null && podLabels.entrySet().containsAll(labels.entrySet()));
+            }
+        };
+    }
+
+    private static Predicate<HasMetadata> nameFilter(final String name) {
+        return new Predicate<HasMetadata>() {
+            @Override
+            public boolean apply(HasMetadata input) {
+                return name != null && name.equals(input.getMetadata().getName());
+            }
+        };
+    }
+}
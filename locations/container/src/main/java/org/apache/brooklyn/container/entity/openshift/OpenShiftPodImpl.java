@@ -19,7 +19,20 @@
 package org.apache.brooklyn.container.entity.openshift;
 
 import org.apache.brooklyn.container.entity.kubernetes.KubernetesPodImpl;
+import org.apache.brooklyn.container.entity.kubernetes.KubernetesStatusFeed;
+import org.apache.brooklyn.container.location.kubernetes.KubernetesLocation;
+
+import com.google.common.collect.ImmutableMap;
 
 public class OpenShiftPodImpl extends KubernetesPodImpl implements OpenShiftPod {
 
+    /** Does not report on the deployment, as OpenShift runs the pods with a deployment config instead. */
+    @Override
+    protected KubernetesStatusFeed.Builder statusFeedBuilder(KubernetesLocation location, String namespace, String deployment) {
+        return KubernetesStatusFeed.builder()
+                .entity(this)
+                .location(location)
+                .namespace(namespace)
+                .podLabels(ImmutableMap.of("name", deployment));
+    }
 }
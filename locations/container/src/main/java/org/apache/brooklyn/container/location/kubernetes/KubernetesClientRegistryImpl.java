@@ -20,13 +20,19 @@ package org.apache.brooklyn.container.location.kubernetes;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.text.Strings;
@@ -36,8 +42,13 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import io.fabric8.kubernetes.api.model.AuthInfo;
 import io.fabric8.kubernetes.api.model.Cluster;
@@ -51,14 +62,90 @@ import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.internal.KubeConfigUtils;
 
+/**
+ * Creates clients from the location configuration, sharing a single client (and so its connection pool)
+ * between all callers with the same endpoint, credentials and kubeconfig context.
+ */
 public class KubernetesClientRegistryImpl implements KubernetesClientRegistry {
 
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesClientRegistryImpl.class);
 
+    /**
+     * Clients that have not been used for this long are discarded from the cache (but not closed, as
+     * locations may still hold a reference to them).
+     */
+    private static final Duration CLIENT_CACHE_EXPIRY = Duration.ONE_HOUR;
+
     public static final KubernetesClientRegistryImpl INSTANCE = new KubernetesClientRegistryImpl();
 
+    /**
+     * The configuration that determines which client is used. Held separately, as {@link KubernetesLocationConfig}
+     * refers to {@link #INSTANCE} while it is being initialised.
+     */
+    private static class ClientConfigKeys {
+        static final List<ConfigKey<?>> KEYS = ImmutableList.<ConfigKey<?>>of(
+                KubernetesLocationConfig.KUBECONFIG,
+                KubernetesLocationConfig.KUBECONFIG_CONTEXT,
+                KubernetesLocationConfig.MASTER_URL,
+                KubernetesLocationConfig.TRUST_CERTS,
+                KubernetesLocationConfig.CA_CERT_DATA,
+                KubernetesLocationConfig.CA_CERT_FILE,
+                KubernetesLocationConfig.CLIENT_CERT_DATA,
+                KubernetesLocationConfig.CLIENT_CERT_FILE,
+                KubernetesLocationConfig.CLIENT_KEY_DATA,
+                KubernetesLocationConfig.CLIENT_KEY_FILE,
+                KubernetesLocationConfig.CLIENT_KEY_ALGO,
+                KubernetesLocationConfig.CLIENT_KEY_PASSPHRASE,
+                KubernetesLocationConfig.ACCESS_IDENTITY,
+                KubernetesLocationConfig.ACCESS_CREDENTIAL,
+                KubernetesLocationConfig.OAUTH_TOKEN,
+                KubernetesLocationConfig.CLIENT_TIMEOUT,
+                KubernetesLocationConfig.ACTION_TIMEOUT);
+    }
+
+    private final Cache<List<Object>, KubernetesClient> clients = CacheBuilder.newBuilder()
+            .expireAfterAccess(CLIENT_CACHE_EXPIRY.toMilliseconds(), TimeUnit.MILLISECONDS)
+            .build();
+
     @Override
-    public KubernetesClient getKubernetesClient(ConfigBag conf) {
+    public KubernetesClient getKubernetesClient(final ConfigBag conf) {
+        try {
+            return clients.get(getClientCacheKey(conf), new Callable<KubernetesClient>() {
+                @Override
+                public KubernetesClient call() {
+                    return newKubernetesClient(conf);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Discards all cached clients, so that subsequent calls to {@link #getKubernetesClient(ConfigBag)}
+     * create new ones.
+     */
+    public void invalidateClients() {
+        clients.invalidateAll();
+    }
+
+    /**
+     * @return the values of everything used to create a client, including the last-modified time of any
+     *         kubeconfig file, so that a changed file results in a new client.
+     */
+    protected List<Object> getClientCacheKey(ConfigBag conf) {
+        List<Object> result = Lists.newArrayList();
+        for (ConfigKey<?> key : ClientConfigKeys.KEYS) {
+            result.add(conf.get(key));
+        }
+        String configFile = conf.get(KubernetesLocationConfig.KUBECONFIG);
+        if (Strings.isNonBlank(configFile)) {
+            result.add(new File(configFile).lastModified());
+        }
+        return result;
+    }
+
+    protected KubernetesClient newKubernetesClient(ConfigBag conf) {
         ConfigBuilder configBuilder = new ConfigBuilder();
 
         String configFile = conf.get(KubernetesLocationConfig.KUBECONFIG);
@@ -65,13 +65,17 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.config.ResolvingConfigBag;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
 import org.apache.brooklyn.util.core.text.TemplateProcessor;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.ReferenceWithError;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.net.Networking;
 import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Identifiers;
 import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.CountdownTimer;
 import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -107,7 +111,6 @@ import io.fabric8.kubernetes.api.model.NamespaceBuilder;
 import io.fabric8.kubernetes.api.model.PersistentVolume;
 import io.fabric8.kubernetes.api.model.PersistentVolumeBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.api.model.PodTemplateSpec;
 import io.fabric8.kubernetes.api.model.PodTemplateSpecBuilder;
 import io.fabric8.kubernetes.api.model.QuantityBuilder;
@@ -125,6 +128,9 @@ import io.fabric8.kubernetes.api.model.extensions.DeploymentBuilder;
 import io.fabric8.kubernetes.api.model.extensions.DeploymentStatus;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.Watchable;
 
 public class KubernetesLocation extends AbstractLocation implements MachineProvisioningLocation<KubernetesMachineLocation>, KubernetesLocationConfig {
 
@@ -162,6 +168,10 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
      */
     public static final String BROOKLYN_ROOT_PASSWORD = "BROOKLYN_ROOT_PASSWORD";
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesLocation.class);
+
+    /** How often resources being watched by {@link #waitForResource} are fetched, in case an event was missed. */
+    public static final Duration WATCH_RESYNC_PERIOD = Duration.seconds(30);
+
     private KubernetesClient client;
 
     public KubernetesLocation() {
@@ -196,6 +206,16 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
         return client;
     }
 
+    /** The cache of pods in the namespace, shared with other locations using the same client. */
+    public KubernetesResourceCache<Pod> getPodCache(String namespace) {
+        return KubernetesResourceCache.forPods(getClient(), namespace);
+    }
+
+    /** The cache of deployments in the namespace, shared with other locations using the same client. */
+    public KubernetesResourceCache<Deployment> getDeploymentCache(String namespace) {
+        return KubernetesResourceCache.forDeployments(getClient(), namespace);
+    }
+
     @Override
     public KubernetesMachineLocation obtain(Map<?, ?> flags) throws NoMachinesAvailableException {
         ConfigBag setupRaw = ConfigBag.newInstanceExtending(config().getBag(), flags);
@@ -229,18 +249,10 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
         undeploy(namespace, deployment, pod);
 
         client.services().inNamespace(namespace).withName(service).delete();
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                return client.services().inNamespace(namespace).withName(service).get() == null;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                return "No service with namespace=" + namespace + ", serviceName=" + service;
-            }
-        };
-        waitForExitCondition(exitCondition);
+        waitForResource("Deletion of service with namespace=" + namespace + ", serviceName=" + service,
+                client.services().inNamespace(namespace).withName(service),
+                () -> client.services().inNamespace(namespace).withName(service).get(),
+                Predicates.isNull());
 
         Boolean delete = machine.config().get(DELETE_EMPTY_NAMESPACE);
         if (delete) {
@@ -286,18 +298,10 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
 
     protected void undeploy(final String namespace, final String deployment, final String pod) {
         client.extensions().deployments().inNamespace(namespace).withName(deployment).delete();
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                return client.extensions().deployments().inNamespace(namespace).withName(deployment).get() == null;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                return "No deployment with namespace=" + namespace + ", deployment=" + deployment;
-            }
-        };
-        waitForExitCondition(exitCondition);
+        waitForResource("Deletion of deployment with namespace=" + namespace + ", deployment=" + deployment,
+                client.extensions().deployments().inNamespace(namespace).withName(deployment),
+                () -> client.extensions().deployments().inNamespace(namespace).withName(deployment).get(),
+                Predicates.isNull());
     }
 
     protected synchronized void deleteEmptyNamespace(final String name) {
@@ -305,18 +309,10 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
             if (client.namespaces().withName(name).get() != null &&
                     !client.namespaces().withName(name).get().getStatus().getPhase().equals(PHASE_TERMINATING)) {
                 client.namespaces().withName(name).delete();
-                ExitCondition exitCondition = new ExitCondition() {
-                    @Override
-                    public Boolean call() {
-                        return client.namespaces().withName(name).get() == null;
-                    }
-
-                    @Override
-                    public String getFailureMessage() {
-                        return "Namespace " + name + " still present";
-                    }
-                };
-                waitForExitCondition(exitCondition);
+                waitForResource("Deletion of namespace " + name,
+                        client.namespaces().withName(name),
+                        () -> client.namespaces().withName(name).get(),
+                        Predicates.isNull());
             }
         }
     }
@@ -559,19 +555,6 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
 
     protected synchronized Namespace createOrGetNamespace(final String name, Boolean create) {
         Namespace namespace = client.namespaces().withName(name).get();
-        ExitCondition namespaceReady = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                Namespace actualNamespace = client.namespaces().withName(name).get();
-                return actualNamespace != null && actualNamespace.getStatus().getPhase().equals(PHASE_ACTIVE);
-            }
-
-            @Override
-            public String getFailureMessage() {
-                Namespace actualNamespace = client.namespaces().withName(name).get();
-                return "Namespace for " + name + " " + (actualNamespace == null ? "absent" : " status " + actualNamespace.getStatus());
-            }
-        };
         if (namespace != null) {
             LOG.debug("Found namespace {}, returning it.", namespace);
         } else if (create) {
@@ -580,44 +563,28 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
         } else {
             throw new IllegalStateException("Namespace " + name + " does not exist and namespace.create is not set");
         }
-        waitForExitCondition(namespaceReady);
-        return client.namespaces().withName(name).get();
+        return waitForResource("Namespace " + name + " active",
+                client.namespaces().withName(name),
+                () -> client.namespaces().withName(name).get(),
+                ns -> ns != null && ns.getStatus() != null && PHASE_ACTIVE.equals(ns.getStatus().getPhase()));
     }
 
     protected Pod getPod(final String namespace, final String name) {
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                Pod result = client.pods().inNamespace(namespace).withName(name).get();
-                return result != null && result.getStatus().getPodIP() != null;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                return "Cannot find pod with name: " + name;
-            }
-        };
-        waitForExitCondition(exitCondition);
-        Pod result = client.pods().inNamespace(namespace).withName(name).get();
-        return result;
+        return waitForResource("Pod with name " + name + " has an IP",
+                client.pods().inNamespace(namespace).withName(name),
+                () -> client.pods().inNamespace(namespace).withName(name).get(),
+                KubernetesLocation::hasPodIp);
     }
 
     protected Pod getPod(final String namespace, final Map<String, String> metadata) {
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                PodList result = client.pods().inNamespace(namespace).withLabels(metadata).list();
-                return result.getItems().size() >= 1 && result.getItems().get(0).getStatus().getPodIP() != null;
-            }
+        return waitForResource("Pod with metadata " + Joiner.on(" ").withKeyValueSeparator("=").join(metadata) + " has an IP",
+                client.pods().inNamespace(namespace).withLabels(metadata),
+                () -> Iterables.find(client.pods().inNamespace(namespace).withLabels(metadata).list().getItems(), KubernetesLocation::hasPodIp, null),
+                KubernetesLocation::hasPodIp);
+    }
 
-            @Override
-            public String getFailureMessage() {
-                return "Cannot find pod with metadata: " + Joiner.on(" ").withKeyValueSeparator("=").join(metadata);
-            }
-        };
-        waitForExitCondition(exitCondition);
-        PodList result = client.pods().inNamespace(namespace).withLabels(metadata).list();
-        return result.getItems().get(0);
+    private static boolean hasPodIp(Pod pod) {
+        return pod != null && pod.getStatus() != null && pod.getStatus().getPodIP() != null;
     }
 
     protected void createSecrets(String namespace, Map<String, String> secrets) {
@@ -648,19 +615,10 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                 throw Throwables.propagate(e);
             }
         }
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                return client.secrets().inNamespace(namespace).withName(secretName).get() != null;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                return "Absent namespace=" + namespace + ", secretName=" + secretName;
-            }
-        };
-        waitForExitCondition(exitCondition);
-        return client.secrets().inNamespace(namespace).withName(secretName).get();
+        return waitForResource("Secret with namespace=" + namespace + ", secretName=" + secretName,
+                client.secrets().inNamespace(namespace).withName(secretName),
+                () -> client.secrets().inNamespace(namespace).withName(secretName).get(),
+                Predicates.notNull());
     }
 
     protected Container buildContainer(String namespace, Map<String, String> metadata, String deploymentName, String imageName, Iterable<Integer> inboundPorts, Map<String, ?> env, Map<String, String> limits, boolean privileged) {
@@ -723,25 +681,15 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                 .endSpec()
                 .build();
         client.extensions().deployments().inNamespace(namespace).create(deployment);
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                Deployment dep = client.extensions().deployments().inNamespace(namespace).withName(deploymentName).get();
-                DeploymentStatus status = (dep == null) ? null : dep.getStatus();
-                Integer replicas = (status == null) ? null : status.getAvailableReplicas();
-                return replicas != null && replicas.intValue() == replicas;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                Deployment dep = client.extensions().deployments().inNamespace(namespace).withName(deploymentName).get();
-                DeploymentStatus status = (dep == null) ? null : dep.getStatus();
-                return "Namespace=" + namespace + "; deploymentName= " + deploymentName + "; Deployment=" + dep
-                        + "; status=" + status
-                        + "; availableReplicas=" + (status == null ? "null" : status.getAvailableReplicas());
-            }
-        };
-        waitForExitCondition(exitCondition);
+        waitForResource("Namespace=" + namespace + "; deploymentName=" + deploymentName + " has " + replicas + " available replicas",
+                client.extensions().deployments().inNamespace(namespace).withName(deploymentName),
+                () -> client.extensions().deployments().inNamespace(namespace).withName(deploymentName).get(),
+                dep -> {
+                    DeploymentStatus status = (dep == null) ? null : dep.getStatus();
+                    Integer available = (status == null) ? null : status.getAvailableReplicas();
+                    entity.sensors().set(KubernetesPod.KUBERNETES_AVAILABLE_REPLICAS, available);
+                    return available != null && available.equals(replicas);
+                });
         LOG.debug("Deployed deployment {} in namespace {}.", deployment, namespace);
     }
 
@@ -765,36 +713,27 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
     }
 
     protected Service getService(final String namespace, final String serviceName) {
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                Service svc = client.services().inNamespace(namespace).withName(serviceName).get();
-                if (svc == null || svc.getStatus() == null) {
-                    return false;
-                }
-                Endpoints endpoints = client.endpoints().inNamespace(namespace).withName(serviceName).get();
-                if (endpoints == null || endpoints.getSubsets().isEmpty()) {
-                    return false;
-                }
-                for (EndpointSubset subset : endpoints.getSubsets()) {
-                    if (subset.getNotReadyAddresses().size() > 0) {
-                        return false;
-                    }
-                }
-                return true;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                Endpoints endpoints = client.endpoints().inNamespace(namespace).withName(serviceName).get();
-                return "Service endpoints in " + namespace + " for serviceName= " + serviceName + " not ready: " + endpoints;
-            }
-        };
-        waitForExitCondition(exitCondition);
+        // The endpoints share the service's name, and are only ready once the service exists
+        waitForResource("Service endpoints in " + namespace + " for serviceName=" + serviceName + " ready",
+                client.endpoints().inNamespace(namespace).withName(serviceName),
+                () -> client.endpoints().inNamespace(namespace).withName(serviceName).get(),
+                KubernetesLocation::isEndpointsReady);
 
         return client.services().inNamespace(namespace).withName(serviceName).get();
     }
 
+    private static boolean isEndpointsReady(Endpoints endpoints) {
+        if (endpoints == null || endpoints.getSubsets().isEmpty()) {
+            return false;
+        }
+        for (EndpointSubset subset : endpoints.getSubsets()) {
+            if (subset.getNotReadyAddresses().size() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected LocationSpec<KubernetesSshMachineLocation> prepareSshableLocationSpec(Entity entity, ConfigBag setup, Namespace namespace, String deploymentName, Service service, Pod pod) {
         InetAddress node = Networking.getInetAddressWithFixedName(pod.getSpec().getNodeName());
         String podAddress = pod.getStatus().getPodIP();
@@ -839,21 +778,10 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
                     .endSpec()
                     .build();
             client.persistentVolumes().create(volume);
-            ExitCondition exitCondition = new ExitCondition() {
-                @Override
-                public Boolean call() {
-                    PersistentVolume pv = client.persistentVolumes().withName(persistentVolume).get();
-                    return pv != null && pv.getStatus() != null
-                            && pv.getStatus().getPhase().equals(PHASE_AVAILABLE);
-                }
-
-                @Override
-                public String getFailureMessage() {
-                    PersistentVolume pv = client.persistentVolumes().withName(persistentVolume).get();
-                    return "PersistentVolume for " + persistentVolume + " " + (pv == null ? "absent" : "pv=" + pv);
-                }
-            };
-            waitForExitCondition(exitCondition);
+            waitForResource("PersistentVolume " + persistentVolume + " available",
+                    client.persistentVolumes().withName(persistentVolume),
+                    () -> client.persistentVolumes().withName(persistentVolume).get(),
+                    pv -> pv != null && pv.getStatus() != null && PHASE_AVAILABLE.equals(pv.getStatus().getPhase()));
         }
     }
 
@@ -1048,7 +976,104 @@ public class KubernetesLocation extends AbstractLocation implements MachineProvi
         }
     }
 
+    /**
+     * Waits until a resource satisfies the given condition, as reported by a watch on the resource, rather
+     * than by polling the API server. The resource is also fetched when the wait starts, and every
+     * {@link #WATCH_RESYNC_PERIOD} thereafter in case an event was missed. If the watch cannot be opened,
+     * or is closed by the server, then the resource is polled instead.
+     *
+     * @param description describes what is being waited for, in the failure message
+     * @param watchable the resource (or resources) to watch
+     * @param getter fetches the current state of the resource, returning null if it is absent
+     * @param condition applied to each state of the resource; a deleted resource is passed as null
+     * @return the state of the resource that satisfied the condition
+     * @throws IllegalStateException if the condition is not satisfied within five minutes
+     */
+    public <T> T waitForResource(String description, Watchable<Watch, Watcher<T>> watchable, Callable<T> getter, Predicate<? super T> condition) {
+        return waitForResource(description, watchable, getter, condition, Duration.FIVE_MINUTES);
+    }
+
+    public <T> T waitForResource(String description, Watchable<Watch, Watcher<T>> watchable, Callable<T> getter, Predicate<? super T> condition, Duration timeout) {
+        ResourceWatcher<T> watcher = new ResourceWatcher<T>(condition);
+        Watch watch = null;
+        try {
+            watch = watchable.watch(watcher);
+        } catch (KubernetesClientException e) {
+            LOG.debug("Unable to watch for {} (polling instead): {}", description, e.getMessage());
+        }
+        try {
+            CountdownTimer timer = timeout.countdownTimer();
+            Duration pollPeriod = Duration.ONE_SECOND;
+            T current = getter.call();
+            while (!condition.apply(current)) {
+                if (timer.isExpired()) {
+                    String err = "Exit condition unsatisfied after " + timeout + ": " + description + "; last seen " + current;
+                    LOG.info(err + " (rethrowing)");
+                    throw new IllegalStateException(err);
+                }
+                if (watch != null && !watcher.isClosed()) {
+                    Maybe<T> matched = watcher.await(Duration.min(WATCH_RESYNC_PERIOD, timer.getDurationRemaining()));
+                    if (matched.isPresent()) return matched.get();
+                } else {
+                    Time.sleep(Duration.min(pollPeriod, timer.getDurationRemaining()));
+                    pollPeriod = Duration.min(pollPeriod.multiply(1.2), WATCH_RESYNC_PERIOD);
+                }
+                current = getter.call();
+            }
+            return current;
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            if (watch != null) watch.close();
+        }
+    }
+
     public static interface ExitCondition extends Callable<Boolean> {
         public String getFailureMessage();
     }
+
+    /**
+     * Records the first state of a watched resource that satisfies a condition.
+     */
+    private static class ResourceWatcher<T> implements Watcher<T> {
+        private final Predicate<? super T> condition;
+        private Maybe<T> matched = Maybe.absent();
+        private boolean closed;
+
+        ResourceWatcher(Predicate<? super T> condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public synchronized void eventReceived(Action action, T resource) {
+            if (action == Action.ERROR || matched.isPresent()) return;
+            T current = (action == Action.DELETED) ? null : resource;
+            if (condition.apply(current)) {
+                matched = Maybe.ofAllowingNull(current);
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void onClose(KubernetesClientException cause) {
+            if (cause != null) {
+                LOG.debug("Watch closed by server (polling instead): {}", cause.getMessage());
+            }
+            closed = true;
+            notifyAll();
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /** Waits up to the given time for a matching state, returning early if the watch is closed. */
+        synchronized Maybe<T> await(Duration timeout) throws InterruptedException {
+            CountdownTimer timer = timeout.countdownTimer();
+            while (!matched.isPresent() && !closed && timer.isNotExpired()) {
+                wait(Math.max(1, timer.getDurationRemaining().toMilliseconds()));
+            }
+            return matched;
+        }
+    }
 }
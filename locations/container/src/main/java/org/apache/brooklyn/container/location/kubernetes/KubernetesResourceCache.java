@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.extensions.Deployment;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.Watchable;
+
+/**
+ * A local copy of all resources of one kind in a namespace, kept up to date by a single watch and shared
+ * by everything interested in those resources, so that monitoring many entities does not need a watch
+ * (or a poll) per entity.
+ * <p>
+ * Subscribers are told about the resources that match their filter whenever one of those resources
+ * changes. The watch is only open while there are subscribers. The resources are also listed every
+ * {@link KubernetesLocation#WATCH_RESYNC_PERIOD}, in case an event was missed (e.g. because the server
+ * closed the watch). Each listing replaces the watch with one starting from the listing's resource version,
+ * so the listing never overrides a newer event, and no event after it is missed.
+ * <p>
+ * Use {@link #forPods(KubernetesClient, String)} or {@link #forDeployments(KubernetesClient, String)} to get
+ * the shared instance for a client.
+ */
+public class KubernetesResourceCache<T extends HasMetadata> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesResourceCache.class);
+
+    private static final ConcurrentMap<List<Object>, KubernetesResourceCache<?>> CACHES = new ConcurrentHashMap<List<Object>, KubernetesResourceCache<?>>();
+
+    /** Schedules resyncs, which run on {@link #RESYNC_EXECUTOR} so one cache's slow listing does not hold up the others. */
+    private static final ScheduledExecutorService RESYNC_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("brooklyn-kubernetes-resource-cache-scheduler-%d").setDaemon(true).build());
+
+    private static final ExecutorService RESYNC_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("brooklyn-kubernetes-resource-cache-%d").setDaemon(true).build());
+
+    public static KubernetesResourceCache<Pod> forPods(final KubernetesClient client, final String namespace) {
+        return getInstance(client, namespace, Pod.class,
+                client.pods().inNamespace(namespace),
+                () -> client.pods().inNamespace(namespace).list());
+    }
+
+    public static KubernetesResourceCache<Deployment> forDeployments(final KubernetesClient client, final String namespace) {
+        return getInstance(client, namespace, Deployment.class,
+                client.extensions().deployments().inNamespace(namespace),
+                () -> client.extensions().deployments().inNamespace(namespace).list());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static <T extends HasMetadata> KubernetesResourceCache<T> getInstance(KubernetesClient client, String namespace, Class<T> type,
+            Watchable<Watch, Watcher<T>> watchable, Callable<? extends KubernetesResourceList> lister) {
+        List<Object> key = ImmutableList.<Object>of(client, namespace, type);
+        String description = type.getSimpleName() + "s in namespace " + namespace;
+        return getOrCreate(key, description, watchable, lister, KubernetesLocation.WATCH_RESYNC_PERIOD);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T extends HasMetadata> KubernetesResourceCache<T> getOrCreate(List<Object> key, String description,
+            Watchable<Watch, Watcher<T>> watchable, Callable<? extends KubernetesResourceList> lister, Duration resyncPeriod) {
+        KubernetesResourceCache<?> result = CACHES.get(key);
+        if (result == null) {
+            KubernetesResourceCache<T> cache = new KubernetesResourceCache<T>(description, watchable, lister, resyncPeriod);
+            cache.key = key;
+            result = CACHES.putIfAbsent(key, cache);
+            if (result == null) result = cache;
+        }
+        return (KubernetesResourceCache<T>) result;
+    }
+
+    /**
+     * Returned by {@link KubernetesResourceCache#subscribe(Predicate, Consumer)}; closing it stops the
+     * subscriber being notified.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final String description;
+    private final Watchable<Watch, Watcher<T>> watchable;
+    @SuppressWarnings("rawtypes")
+    private final Callable<? extends KubernetesResourceList> lister;
+    private final Duration resyncPeriod;
+    private final Map<String, T> resources = new ConcurrentHashMap<String, T>();
+    private final Set<SubscriptionImpl> subscriptions = new CopyOnWriteArraySet<SubscriptionImpl>();
+    // set while a resync is queued or running, so a slow one is not overlapped by the next
+    private final AtomicBoolean resyncPending = new AtomicBoolean();
+
+    // the key in CACHES, if shared from there; removed once unused
+    private volatile List<Object> key;
+
+    // guarded by this
+    private Watch watch;
+    private ScheduledFuture<?> resync;
+    // set when a shared cache is stopped and removed from CACHES; it is not started again, but
+    // subscribers which got it just before are passed on to the instance replacing it
+    private boolean retired;
+    // incremented on start, stop and each new watch, so events from an old watch are ignored
+    private volatile long generation;
+
+    @VisibleForTesting
+    @SuppressWarnings("rawtypes")
+    KubernetesResourceCache(String description, Watchable<Watch, Watcher<T>> watchable, Callable<? extends KubernetesResourceList> lister, Duration resyncPeriod) {
+        this.description = checkNotNull(description, "description");
+        this.watchable = checkNotNull(watchable, "watchable");
+        this.lister = checkNotNull(lister, "lister");
+        this.resyncPeriod = checkNotNull(resyncPeriod, "resyncPeriod");
+    }
+
+    /**
+     * Notifies the listener of the resources matching the filter each time one of them is added, modified
+     * or deleted, and straight away if the resources have already been listed. The listener is called from
+     * the thread handling the watch events, so should not block.
+     */
+    public Subscription subscribe(Predicate<? super T> filter, Consumer<? super Collection<T>> listener) {
+        SubscriptionImpl result = new SubscriptionImpl(filter, listener);
+        boolean started;
+        synchronized (this) {
+            if (!retired) {
+                subscriptions.add(result);
+                started = (resync != null);
+                if (!started) start();
+            } else {
+                started = false;
+                result = null;
+            }
+        }
+        if (result == null) {
+            // stopped since the caller got this from CACHES
+            return getOrCreate(key, description, watchable, lister, resyncPeriod).subscribe(filter, listener);
+        }
+        // otherwise notified once the resources are listed
+        if (started) result.notifyListener();
+        return result;
+    }
+
+    /** The resources currently known, which will be empty if there are no subscribers. */
+    public Collection<T> getResources() {
+        return ImmutableList.copyOf(resources.values());
+    }
+
+    @Override
+    public String toString() {
+        return "KubernetesResourceCache[" + description + "]";
+    }
+
+    private synchronized void start() {
+        LOG.debug("Watching {}", description);
+        generation++;
+        resync = RESYNC_SCHEDULER.scheduleWithFixedDelay(this::submitResync, 0, resyncPeriod.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopIfUnused() {
+        if (!subscriptions.isEmpty() || resync == null) return;
+        LOG.debug("No longer watching {}", description);
+        generation++;
+        resync.cancel(false);
+        resync = null;
+        closeWatch();
+        resources.clear();
+        if (key != null) {
+            // created again by the next caller; under the same lock as subscribe, so none can be added to this one now
+            retired = true;
+            CACHES.remove(key, this);
+        }
+    }
+
+    private void submitResync() {
+        if (resyncPending.compareAndSet(false, true)) {
+            RESYNC_EXECUTOR.execute(() -> {
+                try {
+                    resync();
+                } finally {
+                    resyncPending.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the watch, lists the resources, then watches for changes from the listing's resource version.
+     * The old watch's events were all for changes before the listing, so it holds nothing newer.
+     */
+    private void resync() {
+        try {
+            long listGeneration;
+            synchronized (this) {
+                if (resync == null) return;
+                // ignore any further events from the old watch
+                listGeneration = ++generation;
+                closeWatch();
+            }
+            KubernetesResourceList<?> listed = lister.call();
+            @SuppressWarnings("unchecked")
+            List<T> items = (List<T>) listed.getItems();
+            Set<String> names = Sets.newHashSet();
+            for (T resource : items) {
+                names.add(resource.getMetadata().getName());
+                update(resource.getMetadata().getName(), resource);
+            }
+            for (String name : ImmutableList.copyOf(resources.keySet())) {
+                if (!names.contains(name)) update(name, null);
+            }
+            String resourceVersion = (listed.getMetadata() != null) ? listed.getMetadata().getResourceVersion() : null;
+            synchronized (this) {
+                // unless stopped (and perhaps restarted) meanwhile
+                if (generation != listGeneration) return;
+                try {
+                    CacheWatcher watcher = new CacheWatcher(generation);
+                    watch = (resourceVersion != null) ? watchable.watch(resourceVersion, watcher) : watchable.watch(watcher);
+                } catch (KubernetesClientException e) {
+                    LOG.debug("Unable to watch {}; will list every {}: {}", new Object[]{description, resyncPeriod, e.getMessage()});
+                }
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Problem listing " + description + " (continuing)", e);
+        }
+    }
+
+    private synchronized void closeWatch() {
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (Exception e) {
+                LOG.debug("Problem closing watch of " + description + " (continuing)", e);
+            }
+            watch = null;
+        }
+    }
+
+    private void update(String name, T resource) {
+        T previous = (resource == null) ? resources.remove(name) : resources.put(name, resource);
+        if (previous == null && resource == null) return;
+        if (previous != null && resource != null && isSameVersion(previous, resource)) return;
+
+        for (SubscriptionImpl subscription : subscriptions) {
+            if ((previous != null && subscription.filter.apply(previous)) || (resource != null && subscription.filter.apply(resource))) {
+                subscription.notifyListener();
+            }
+        }
+    }
+
+    private static boolean isSameVersion(HasMetadata a, HasMetadata b) {
+        String version = a.getMetadata().getResourceVersion();
+        return version != null && Objects.equal(version, b.getMetadata().getResourceVersion());
+    }
+
+    private class CacheWatcher implements Watcher<T> {
+        private final long watchGeneration;
+
+        CacheWatcher(long watchGeneration) {
+            this.watchGeneration = watchGeneration;
+        }
+
+        @Override
+        public void eventReceived(Action action, T resource) {
+            if (watchGeneration != generation || resource == null || resource.getMetadata() == null) return;
+            switch (action) {
+                case ADDED:
+                case MODIFIED:
+                    update(resource.getMetadata().getName(), resource);
+                    break;
+                case DELETED:
+                    update(resource.getMetadata().getName(), null);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void onClose(KubernetesClientException cause) {
+            synchronized (KubernetesResourceCache.this) {
+                if (watchGeneration != generation) return;
+                // re-opened on the next resync
+                LOG.debug("Watch of {} closed: {}", description, (cause == null) ? "no cause" : cause.getMessage());
+                watch = null;
+            }
+        }
+    }
+
+    private class SubscriptionImpl implements Subscription {
+        final Predicate<? super T> filter;
+        final Consumer<? super Collection<T>> listener;
+
+        SubscriptionImpl(Predicate<? super T> filter, Consumer<? super Collection<T>> listener) {
+            this.filter = checkNotNull(filter, "filter");
+            this.listener = checkNotNull(listener, "listener");
+        }
+
+        // synchronized, so the listener is not told about older state after newer
+        synchronized void notifyListener() {
+            if (!subscriptions.contains(this)) return;
+            try {
+                listener.accept(ImmutableList.copyOf(Iterables.filter(resources.values(), filter)));
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Problem notifying subscriber of " + description + " (continuing)", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (subscriptions.remove(this)) stopIfUnused();
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.brooklyn.util.net.Networking;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableSet;
 
 import io.fabric8.kubernetes.api.model.Container;
@@ -125,19 +126,6 @@ public class OpenShiftLocation extends KubernetesLocation implements OpenShiftLo
     @Override
     protected synchronized Namespace createOrGetNamespace(final String name, Boolean create) {
         Project project = client.projects().withName(name).get();
-        ExitCondition projectReady = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                Project actualProject = client.projects().withName(name).get();
-                return actualProject != null && actualProject.getStatus().getPhase().equals(PHASE_ACTIVE);
-            }
-
-            @Override
-            public String getFailureMessage() {
-                Project actualProject = client.projects().withName(name).get();
-                return "Project for " + name + " " + (actualProject == null ? "absent" : " status " + actualProject.getStatus());
-            }
-        };
         if (project != null) {
             LOG.debug("Found project {}, returning it.", project);
         } else if (create) {
@@ -146,7 +134,10 @@ public class OpenShiftLocation extends KubernetesLocation implements OpenShiftLo
         } else {
             throw new IllegalStateException("Project " + name + " does not exist and namespace.create is not set");
         }
-        waitForExitCondition(projectReady);
+        waitForResource("Project " + name + " active",
+                client.projects().withName(name),
+                () -> client.projects().withName(name).get(),
+                p -> p != null && p.getStatus() != null && PHASE_ACTIVE.equals(p.getStatus().getPhase()));
         return client.namespaces().withName(name).get();
     }
 
@@ -156,18 +147,10 @@ public class OpenShiftLocation extends KubernetesLocation implements OpenShiftLo
             if (client.projects().withName(name).get() != null &&
                     !client.projects().withName(name).get().getStatus().getPhase().equals(PHASE_TERMINATING)) {
                 client.projects().withName(name).delete();
-                ExitCondition exitCondition = new ExitCondition() {
-                    @Override
-                    public Boolean call() {
-                        return client.projects().withName(name).get() == null;
-                    }
-
-                    @Override
-                    public String getFailureMessage() {
-                        return "Project " + name + " still present";
-                    }
-                };
-                waitForExitCondition(exitCondition);
+                waitForResource("Deletion of project " + name,
+                        client.projects().withName(name),
+                        () -> client.projects().withName(name).get(),
+                        Predicates.isNull());
             }
         }
     }
@@ -218,23 +201,15 @@ public class OpenShiftLocation extends KubernetesLocation implements OpenShiftLo
                 .endSpec()
                 .build();
         client.deploymentConfigs().inNamespace(namespace).create(deployment);
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                DeploymentConfig dc = client.deploymentConfigs().inNamespace(namespace).withName(deploymentName).get();
-                DeploymentConfigStatus status = (dc == null) ? null : dc.getStatus();
-                Integer replicas = (status == null) ? null : status.getAvailableReplicas();
-                return replicas != null && replicas.intValue() == replicas;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                DeploymentConfig dc = client.deploymentConfigs().inNamespace(namespace).withName(deploymentName).get();
-                DeploymentConfigStatus status = (dc == null) ? null : dc.getStatus();
-                return "Namespace=" + namespace + "; deploymentName= " + deploymentName + "; Deployment=" + dc + "; status=" + status;
-            }
-        };
-        waitForExitCondition(exitCondition);
+        waitForResource("Namespace=" + namespace + "; deploymentName=" + deploymentName + " has " + replicas + " available replicas",
+                client.deploymentConfigs().inNamespace(namespace).withName(deploymentName),
+                () -> client.deploymentConfigs().inNamespace(namespace).withName(deploymentName).get(),
+                dc -> {
+                    DeploymentConfigStatus status = (dc == null) ? null : dc.getStatus();
+                    Integer available = (status == null) ? null : status.getAvailableReplicas();
+                    entity.sensors().set(OpenShiftPod.KUBERNETES_AVAILABLE_REPLICAS, available);
+                    return available != null && available.equals(replicas);
+                });
         LOG.debug("Deployed {} to namespace {}.", deployment, namespace);
     }
 
@@ -246,18 +221,10 @@ public class OpenShiftLocation extends KubernetesLocation implements OpenShiftLo
     @Override
     protected void undeploy(final String namespace, final String deployment, final String pod) {
         client.deploymentConfigs().inNamespace(namespace).withName(deployment).delete();
-        ExitCondition exitCondition = new ExitCondition() {
-            @Override
-            public Boolean call() {
-                return client.deploymentConfigs().inNamespace(namespace).withName(deployment).get() == null;
-            }
-
-            @Override
-            public String getFailureMessage() {
-                return "No deployment with namespace=" + namespace + ", deployment=" + deployment;
-            }
-        };
-        waitForExitCondition(exitCondition);
+        waitForResource("Deletion of deployment config with namespace=" + namespace + ", deployment=" + deployment,
+                client.deploymentConfigs().inNamespace(namespace).withName(deployment),
+                () -> client.deploymentConfigs().inNamespace(namespace).withName(deployment).get(),
+                Predicates.isNull());
     }
 
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+
+public class KubernetesClientRegistryImplTest {
+
+    private KubernetesClientRegistryImpl registry;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() {
+        registry = new KubernetesClientRegistryImpl();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        if (registry != null) registry.invalidateClients();
+    }
+
+    @Test
+    public void testClientSharedForSameConfig() {
+        KubernetesClient client1 = registry.getKubernetesClient(newConfig("http://localhost:8080", "user1"));
+        KubernetesClient client2 = registry.getKubernetesClient(newConfig("http://localhost:8080", "user1"));
+        assertSame(client2, client1);
+    }
+
+    @Test
+    public void testClientNotSharedForDifferentEndpointOrCredentials() {
+        KubernetesClient client = registry.getKubernetesClient(newConfig("http://localhost:8080", "user1"));
+        assertNotSame(registry.getKubernetesClient(newConfig("http://localhost:8081", "user1")), client);
+        assertNotSame(registry.getKubernetesClient(newConfig("http://localhost:8080", "user2")), client);
+    }
+
+    @Test
+    public void testNewClientAfterInvalidation() {
+        KubernetesClient client = registry.getKubernetesClient(newConfig("http://localhost:8080", "user1"));
+        registry.invalidateClients();
+        assertNotSame(registry.getKubernetesClient(newConfig("http://localhost:8080", "user1")), client);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidConfigNotCached() {
+        ConfigBag config = newConfig("http://localhost:8080", "user1")
+                .configure(KubernetesLocationConfig.CLIENT_TIMEOUT, org.apache.brooklyn.util.time.Duration.ZERO);
+        registry.getKubernetesClient(config);
+    }
+
+    private ConfigBag newConfig(String masterUrl, String identity) {
+        return ConfigBag.newInstance()
+                .configure(KubernetesLocationConfig.MASTER_URL, masterUrl)
+                .configure(KubernetesLocationConfig.ACCESS_IDENTITY, identity)
+                .configure(KubernetesLocationConfig.ACCESS_CREDENTIAL, "password");
+    }
+}
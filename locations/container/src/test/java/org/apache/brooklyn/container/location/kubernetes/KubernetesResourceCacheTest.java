@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.PodListBuilder;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+import io.fabric8.kubernetes.client.dsl.Watchable;
+
+public class KubernetesResourceCacheTest {
+
+    private RecordingWatchable watchable;
+    private Map<String, Pod> pods;
+    private AtomicInteger lists;
+    private KubernetesResourceCache<Pod> cache;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() throws Exception {
+        watchable = new RecordingWatchable();
+        pods = Maps.newConcurrentMap();
+        lists = new AtomicInteger();
+        cache = newCache(Duration.ONE_MINUTE);
+    }
+
+    private KubernetesResourceCache<Pod> newCache(Duration resyncPeriod) {
+        // not referring to the fields, as caches from earlier tests may still be resyncing
+        final Map<String, Pod> currentPods = pods;
+        final AtomicInteger currentLists = lists;
+        return new KubernetesResourceCache<Pod>("pods", watchable, () -> {
+                    int version = currentLists.incrementAndGet();
+                    return new PodListBuilder()
+                            .withNewMetadata().withResourceVersion("list-" + version).endMetadata()
+                            .withItems(ImmutableList.copyOf(currentPods.values()))
+                            .build();
+                }, resyncPeriod);
+    }
+
+    @Test
+    public void testNotifiesMatchingResourcesWhenListed() throws Exception {
+        addPod("a1", "1", "a", "Running");
+        addPod("b1", "1", "b", "Running");
+        RecordingListener listener = new RecordingListener();
+        cache.subscribe(hasLabel("a"), listener);
+
+        listener.assertLastEventually(ImmutableList.of("a1:Running"));
+        assertEquals(listener.calls.size(), 1);
+    }
+
+    @Test
+    public void testNotifiesOnWatchEvents() throws Exception {
+        addPod("a1", "1", "a", "Pending");
+        RecordingListener listener = new RecordingListener();
+        cache.subscribe(hasLabel("a"), listener);
+        listener.assertLastEventually(ImmutableList.of("a1:Pending"));
+
+        watchable.watcher.eventReceived(Action.MODIFIED, newPod("a1", "2", "a", "Running"));
+        assertEquals(listener.last(), ImmutableList.of("a1:Running"));
+
+        watchable.watcher.eventReceived(Action.ADDED, newPod("a2", "3", "a", "Pending"));
+        assertEquals(listener.last().size(), 2);
+
+        watchable.watcher.eventReceived(Action.DELETED, newPod("a1", "4", "a", "Running"));
+        assertEquals(listener.last(), ImmutableList.of("a2:Pending"));
+    }
+
+    @Test
+    public void testIgnoresUnrelatedAndUnchangedResources() throws Exception {
+        addPod("a1", "1", "a", "Running");
+        RecordingListener listener = new RecordingListener();
+        cache.subscribe(hasLabel("a"), listener);
+        listener.assertLastEventually(ImmutableList.of("a1:Running"));
+
+        watchable.watcher.eventReceived(Action.ADDED, newPod("b1", "2", "b", "Running"));
+        watchable.watcher.eventReceived(Action.MODIFIED, newPod("a1", "1", "a", "Running"));
+        assertEquals(listener.calls.size(), 1);
+    }
+
+    @Test
+    public void testSharesOneWatchBetweenSubscribers() throws Exception {
+        addPod("a1", "1", "a", "Running");
+        addPod("b1", "1", "b", "Running");
+        RecordingListener listenerA = new RecordingListener();
+        RecordingListener listenerB = new RecordingListener();
+        KubernetesResourceCache.Subscription subscriptionA = cache.subscribe(hasLabel("a"), listenerA);
+        listenerA.assertLastEventually(ImmutableList.of("a1:Running"));
+        KubernetesResourceCache.Subscription subscriptionB = cache.subscribe(hasLabel("b"), listenerB);
+
+        // already listed, so told straight away
+        assertEquals(listenerB.last(), ImmutableList.of("b1:Running"));
+        assertEquals(watchable.watches.get(), 1);
+        assertEquals(lists.get(), 1);
+
+        subscriptionA.close();
+        assertFalse(watchable.closed);
+        subscriptionB.close();
+        assertTrue(watchable.closed);
+        assertTrue(cache.getResources().isEmpty());
+    }
+
+    @Test
+    public void testReopensWatchAndRelistsAfterClose() throws Exception {
+        cache = newCache(Duration.millis(10));
+        addPod("a1", "1", "a", "Pending");
+        RecordingListener listener = new RecordingListener();
+        KubernetesResourceCache.Subscription subscription = cache.subscribe(hasLabel("a"), listener);
+        try {
+            listener.assertLastEventually(ImmutableList.of("a1:Pending"));
+
+            watchable.watcher.onClose(new KubernetesClientException("connection reset"));
+            // the event is missed, so is only seen when listed again
+            addPod("a1", "2", "a", "Running");
+
+            listener.assertLastEventually(ImmutableList.of("a1:Running"));
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertTrue(watchable.watches.get() >= 2, "watches="+watchable.watches.get());
+                }});
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    public void testWatchesFromListedVersionAndIgnoresOldWatch() throws Exception {
+        cache = newCache(Duration.millis(10));
+        addPod("a1", "1", "a", "Pending");
+        RecordingListener listener = new RecordingListener();
+        KubernetesResourceCache.Subscription subscription = cache.subscribe(hasLabel("a"), listener);
+        try {
+            listener.assertLastEventually(ImmutableList.of("a1:Pending"));
+            final Watcher<Pod> oldWatcher = watchable.watcher;
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertTrue(watchable.watcher != oldWatcher);
+                    // started from the version of the listing just before it
+                    assertTrue(watchable.resourceVersion.startsWith("list-"), "resourceVersion="+watchable.resourceVersion);
+                }});
+
+            // a late event from the replaced watch does not override the listing
+            oldWatcher.eventReceived(Action.MODIFIED, newPod("a1", "0", "a", "Unknown"));
+            assertEquals(listener.last(), ImmutableList.of("a1:Pending"));
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    public void testSharedInstanceRemovedWhenUnused() throws Exception {
+        KubernetesClient client = new DefaultKubernetesClient("http://localhost:1");
+        try {
+            KubernetesResourceCache<Pod> shared = KubernetesResourceCache.getInstance(client, "ns", Pod.class, watchable, () -> {
+                    return new PodListBuilder().withNewMetadata().withResourceVersion("1").endMetadata().build();
+                });
+            KubernetesResourceCache.Subscription subscription = shared.subscribe(hasLabel("a"), new RecordingListener());
+            assertTrue(KubernetesResourceCache.forPods(client, "ns") == shared);
+
+            subscription.close();
+            assertFalse(KubernetesResourceCache.forPods(client, "ns") == shared);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testSubscribingToRemovedSharedInstanceUsesItsReplacement() throws Exception {
+        KubernetesClient client = new DefaultKubernetesClient("http://localhost:1");
+        try {
+            addPod("a1", "1", "a", "Running");
+            KubernetesResourceCache<Pod> shared = KubernetesResourceCache.getInstance(client, "ns", Pod.class, watchable, () -> {
+                    return new PodListBuilder().withNewMetadata().withResourceVersion("1").endMetadata()
+                            .withItems(ImmutableList.copyOf(pods.values())).build();
+                });
+            shared.subscribe(hasLabel("a"), new RecordingListener()).close();
+
+            // e.g. got by this subscriber just before the last other subscriber closed
+            RecordingListener listener = new RecordingListener();
+            KubernetesResourceCache.Subscription subscription = shared.subscribe(hasLabel("a"), listener);
+            try {
+                listener.assertLastEventually(ImmutableList.of("a1:Running"));
+                KubernetesResourceCache<Pod> replacement = KubernetesResourceCache.forPods(client, "ns");
+                assertFalse(replacement == shared);
+                assertEquals(replacement.getResources().size(), 1);
+                assertTrue(shared.getResources().isEmpty());
+            } finally {
+                subscription.close();
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+    private void addPod(String name, String version, String label, String phase) {
+        pods.put(name, newPod(name, version, label, phase));
+    }
+
+    private static Pod newPod(String name, String version, String label, String phase) {
+        return new PodBuilder()
+                .withNewMetadata().withName(name).withResourceVersion(version).addToLabels("name", label).endMetadata()
+                .withNewStatus().withPhase(phase).endStatus()
+                .build();
+    }
+
+    private static Predicate<Pod> hasLabel(final String label) {
+        return new Predicate<Pod>() {
+            @Override public boolean apply(Pod input) {
+                return label.equals(input.getMetadata().getLabels().get("name"));
+            }};
+    }
+
+    private static class RecordingListener implements Consumer<Collection<Pod>> {
+        final List<List<String>> calls = Lists.newCopyOnWriteArrayList();
+
+        @Override
+        public void accept(Collection<Pod> input) {
+            List<String> call = Lists.newArrayList();
+            for (Pod pod : input) {
+                call.add(pod.getMetadata().getName() + ":" + pod.getStatus().getPhase());
+            }
+            calls.add(call);
+        }
+
+        List<String> last() {
+            return calls.isEmpty() ? null : calls.get(calls.size() - 1);
+        }
+
+        void assertLastEventually(final List<String> expected) {
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    assertEquals(last(), expected);
+                }});
+        }
+    }
+
+    private static class RecordingWatchable implements Watchable<Watch, Watcher<Pod>> {
+        final AtomicInteger watches = new AtomicInteger();
+        volatile Watcher<Pod> watcher;
+        volatile String resourceVersion;
+        volatile boolean closed;
+
+        @Override
+        public Watch watch(Watcher<Pod> watcher) {
+            watches.incrementAndGet();
+            this.watcher = watcher;
+            closed = false;
+            return new Watch() {
+                @Override public void close() {
+                    closed = true;
+                }};
+        }
+
+        @Override
+        public Watch watch(String resourceVersion, Watcher<Pod> watcher) {
+            this.resourceVersion = resourceVersion;
+            return watch(watcher);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.container.location.kubernetes;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.brooklyn.core.test.BrooklynMgmtUnitTestSupport;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+import io.fabric8.kubernetes.client.dsl.Watchable;
+
+public class KubernetesWaitForResourceTest extends BrooklynMgmtUnitTestSupport {
+
+    private ListeningExecutorService executor;
+    private KubernetesLocation loc;
+    private RecordingWatchable watchable;
+    private AtomicReference<String> resource;
+    private AtomicInteger gets;
+    private Callable<String> getter;
+
+    @BeforeMethod(alwaysRun = true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        loc = (KubernetesLocation) mgmt.getLocationRegistry().getLocationManaged("kubernetes");
+        watchable = new RecordingWatchable();
+        resource = new AtomicReference<String>();
+        gets = new AtomicInteger();
+        getter = new Callable<String>() {
+            @Override public String call() {
+                gets.incrementAndGet();
+                return resource.get();
+            }};
+    }
+
+    @AfterMethod(alwaysRun = true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReturnsImmediatelyIfAlreadySatisfied() throws Exception {
+        resource.set("ready");
+        String result = loc.waitForResource("ready", watchable, getter, Predicates.equalTo("ready"));
+        assertEquals(result, "ready");
+        assertEquals(gets.get(), 1);
+        assertTrue(watchable.closed);
+    }
+
+    @Test
+    public void testCompletesOnWatchEventWithoutPolling() throws Exception {
+        ListenableFuture<String> future = executor.submit(new Callable<String>() {
+            @Override public String call() {
+                return loc.waitForResource("ready", watchable, getter, Predicates.equalTo("ready"));
+            }});
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(gets.get(), 1);
+            }});
+
+        watchable.watcher.eventReceived(Action.MODIFIED, "pending");
+        watchable.watcher.eventReceived(Action.MODIFIED, "ready");
+
+        assertEquals(future.get(), "ready");
+        assertEquals(gets.get(), 1);
+        assertTrue(watchable.closed);
+    }
+
+    @Test
+    public void testDeletionReportedAsNull() throws Exception {
+        resource.set("present");
+        ListenableFuture<String> future = executor.submit(new Callable<String>() {
+            @Override public String call() {
+                return loc.waitForResource("deleted", watchable, getter, Predicates.isNull());
+            }});
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(gets.get(), 1);
+            }});
+
+        watchable.watcher.eventReceived(Action.DELETED, "present");
+        assertNull(future.get());
+    }
+
+    @Test
+    public void testPollsWhenWatchUnavailable() throws Exception {
+        watchable.failure = new KubernetesClientException("watch not supported");
+        ListenableFuture<String> future = executor.submit(new Callable<String>() {
+            @Override public String call() {
+                return loc.waitForResource("ready", watchable, getter, Predicates.equalTo("ready"));
+            }});
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(gets.get(), 1);
+            }});
+
+        resource.set("ready");
+        assertEquals(future.get(), "ready");
+        assertEquals(gets.get(), 2);
+    }
+
+    @Test
+    public void testFailsWhenNotSatisfiedInTime() throws Exception {
+        try {
+            loc.waitForResource("never ready", watchable, getter, Predicates.equalTo("ready"), Duration.millis(100));
+            fail();
+        } catch (IllegalStateException e) {
+            Asserts.expectedFailureContains(e, "never ready");
+        }
+        assertTrue(watchable.closed);
+    }
+
+    private static class RecordingWatchable implements Watchable<Watch, Watcher<String>> {
+        volatile Watcher<String> watcher;
+        volatile KubernetesClientException failure;
+        volatile boolean closed;
+
+        @Override
+        public Watch watch(Watcher<String> watcher) {
+            if (failure != null) throw failure;
+            this.watcher = watcher;
+            return new Watch() {
+                @Override public void close() {
+                    closed = true;
+                }};
+        }
+
+        @Override
+        public Watch watch(String resourceVersion, Watcher<String> watcher) {
+            return watch(watcher);
+        }
+    }
+}
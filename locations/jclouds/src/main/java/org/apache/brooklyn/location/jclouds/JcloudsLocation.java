@@ -40,6 +40,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -57,6 +58,7 @@ import org.apache.brooklyn.api.location.NoMachinesAvailableException;
 import org.apache.brooklyn.api.location.PortRange;
 import org.apache.brooklyn.api.mgmt.AccessController;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
 import org.apache.brooklyn.core.config.ConfigUtils;
@@ -144,6 +146,7 @@ import org.jclouds.compute.domain.OperatingSystem;
 import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.compute.domain.Template;
 import org.jclouds.compute.domain.TemplateBuilder;
+import org.jclouds.compute.domain.internal.TemplateImpl;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.LocationScope;
@@ -171,6 +174,8 @@ import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -182,6 +187,9 @@ import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
 
 /**
  * For provisioning and managing VMs in a particular provider/region, using jclouds.
@@ -214,6 +222,12 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     @SetFromFlag // so it's persisted
     private final Map<MachineLocation,String> vmInstanceIds = Collections.synchronizedMap(Maps.newLinkedHashMap());
 
+    /** Templates already resolved by jclouds, keyed by the config that determines them; see {@link #resolveTemplate(ComputeService, ConfigBag, TemplateBuilder)}. */
+    private final Cache<Object, ResolvedTemplate> resolvedTemplates = CacheBuilder.newBuilder().maximumSize(100).build();
+
+    /** Batches of node-creation requests still accepting more requests, guarded by synchronizing on the map; see {@link #MACHINE_CREATE_BATCH_WINDOW}. */
+    private final Map<Object, CreateBatch> pendingCreateBatches = Maps.newHashMap();
+
     static {
         Networking.init();
     }
@@ -598,6 +612,109 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
      * (for initial login, and a user potentially to create for subsequent ie normal access) */
     @Override
     public MachineLocation obtain(Map<?,?> flags) throws NoMachinesAvailableException {
+        return obtain(newObtainSetup(flags), null);
+    }
+
+    /**
+     * Obtains up to {@code count} machines. The template is resolved once, and the nodes are created
+     * with as few jclouds calls as {@link #MACHINE_CREATE_BATCH_MAX_SIZE} allows; the per-machine setup
+     * (e.g. waiting for ssh, and customizing) is then done in parallel, at most
+     * {@link #MAX_CONCURRENT_MACHINE_SETUPS} at a time.
+     * <p>
+     * Machines that fail their setup are retried individually (subject to {@link #MACHINE_CREATE_ATTEMPTS});
+     * any that still fail are omitted from the result.
+     */
+    @Override
+    public List<MachineLocation> obtain(final Map<?,?> flags, int count) throws NoMachinesAvailableException {
+        checkArgument(count >= 1, "count must be at least 1, but was %s", count);
+        if (count == 1) {
+            return ImmutableList.of(obtain(flags));
+        }
+        checkProvisioningAllowed();
+
+        ConfigBag setup = newObtainSetup(flags);
+        ConnectivityResolverOptions options = getConnectivityOptionsBuilder(setup, false).build();
+        if (options.usePortForwarding()) checkNotNull(setup.get(PORT_FORWARDER), "portForwarder, when use-port-forwarding enabled");
+        ComputeService computeService = getComputeService(setup);
+        CloudMachineNamer cloudMachineNamer = getCloudMachineNamer(setup);
+        String groupId = elvis(setup.get(GROUP_ID), cloudMachineNamer.generateNewGroupId(setup));
+        JcloudsLocationCustomizer customizersDelegate = LocationCustomizerDelegate.newInstance(getManagementContext(), setup);
+        int batchSize = Math.max(1, setup.get(MACHINE_CREATE_BATCH_MAX_SIZE));
+        int maxConcurrentSetups = Math.max(1, setup.get(MAX_CONCURRENT_MACHINE_SETUPS));
+
+        LOG.info("Creating "+count+" VMs "+getCreationString(setup)+" in "+this);
+        final List<Exception> exceptions = Collections.synchronizedList(Lists.<Exception>newArrayList());
+        List<CreatedNode> created = Lists.newArrayList();
+        for (int remaining = count; remaining > 0; remaining -= batchSize) {
+            try {
+                created.addAll(createNodes(computeService, setup, customizersDelegate, options, cloudMachineNamer, groupId, Math.min(remaining, batchSize), true));
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Failed to create "+Math.min(remaining, batchSize)+" VMs "+getCreationString(setup)+" in "+this+": "+e);
+                if (e instanceof RunNodesException) {
+                    releaseFailedNodesSafely((RunNodesException) e, setup);
+                }
+                exceptions.add(e);
+            }
+        }
+
+        // Each task records its own failure, so that one bad machine does not stop the rest of its lane
+        final List<MachineLocation> result = Collections.synchronizedList(Lists.<MachineLocation>newArrayList());
+        List<List<TaskAdaptable<?>>> lanes = Lists.newArrayList();
+        for (int i = 0; i < Math.min(maxConcurrentSetups, created.size()); i++) {
+            lanes.add(Lists.<TaskAdaptable<?>>newArrayList());
+        }
+        for (int i = 0; i < created.size(); i++) {
+            final CreatedNode node = created.get(i);
+            lanes.get(i % lanes.size()).add(Tasks.<Void>builder()
+                    .displayName("setting up "+node.node.getId())
+                    .body(new Callable<Void>() {
+                        @Override public Void call() {
+                            try {
+                                result.add(obtain(newObtainSetup(flags), node));
+                            } catch (Exception e) {
+                                Exceptions.propagateIfFatal(e);
+                                exceptions.add(e);
+                            }
+                            return null;
+                        }})
+                    .build());
+        }
+        if (!lanes.isEmpty()) {
+            List<TaskAdaptable<?>> laneTasks = Lists.newArrayList();
+            for (List<TaskAdaptable<?>> lane : lanes) {
+                laneTasks.add(Tasks.sequential(lane));
+            }
+            Task<List<?>> setupTask = Tasks.parallel("setting up "+created.size()+" machines in "+this, laneTasks);
+            DynamicTasks.queueIfPossible(setupTask)
+                    .executionContext(getManagementContext().getServerExecutionContext())
+                    .orSubmitAsync();
+            String oldBlockingDetails = Tasks.setBlockingDetails("waiting for "+created.size()+" machines to be set up in "+this);
+            try {
+                setupTask.getUnchecked();
+            } catch (RuntimeException e) {
+                // e.g. interrupted; the caller will never see the machines, so don't leave them running
+                setupTask.cancel(true);
+                for (MachineLocation machine : ImmutableList.copyOf(result)) {
+                    releaseSafely(machine);
+                }
+                throw e;
+            } finally {
+                Tasks.setBlockingDetails(oldBlockingDetails);
+            }
+        }
+
+        if (result.isEmpty()) {
+            String msg = "Failed to get any of "+count+" VMs in "+this;
+            throw new NoMachinesAvailableException(msg, exceptions.isEmpty() ? null : new CompoundRuntimeException(msg, exceptions));
+        } else if (result.size() < count) {
+            LOG.warn("Obtained only "+result.size()+" of "+count+" VMs "+getCreationString(setup)+" in "+this
+                    +"; first failure: "+(exceptions.isEmpty() ? "<none>" : exceptions.get(0)));
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    private ConfigBag newObtainSetup(Map<?,?> flags) {
         ConfigBag setupRaw = ConfigBag.newInstanceExtending(config().getBag(), flags);
         ConfigBag setup = ResolvingConfigBag.newInstanceExtending(getManagementContext(), setupRaw);
 
@@ -605,13 +722,20 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         Map<String, Object> baseTemplateOptions = config().get(TEMPLATE_OPTIONS);
         Map<String, Object> templateOptions = (Map<String, Object>) shallowMerge(Maybe.fromNullable(flagTemplateOptions), Maybe.fromNullable(baseTemplateOptions), TEMPLATE_OPTIONS).orNull();
         setup.put(TEMPLATE_OPTIONS, templateOptions);
+        return setup;
+    }
 
+    /**
+     * Obtains a machine, retrying on failure. If a node has already been created for this request it is
+     * used for the first attempt; any later attempts provision a new node.
+     */
+    private MachineLocation obtain(ConfigBag setup, @Nullable CreatedNode precreated) throws NoMachinesAvailableException {
         Integer attempts = setup.get(MACHINE_CREATE_ATTEMPTS);
         List<Exception> exceptions = Lists.newArrayList();
         if (attempts == null || attempts < 1) attempts = 1;
         for (int i = 1; i <= attempts; i++) {
             try {
-                return obtainOnce(setup);
+                return (i == 1 && precreated != null) ? obtainOnce(setup, precreated) : obtainOnce(setup);
             } catch (RuntimeException e) {
                 LOG.warn("Attempt #{}/{} to obtain machine threw error: {}", new Object[]{i, attempts, e});
                 exceptions.add(e);
@@ -660,13 +784,24 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         return builder;
     }
 
-    protected MachineLocation obtainOnce(ConfigBag setup) throws NoMachinesAvailableException {
+    private void checkProvisioningAllowed() {
         AccessController.Response access = getManagementContext().getAccessController().canProvisionLocation(this);
         if (!access.isAllowed()) {
             throw new IllegalStateException("Access controller forbids provisioning in "+this+": "+access.getMsg());
         }
+    }
+
+    protected MachineLocation obtainOnce(ConfigBag setup) throws NoMachinesAvailableException {
+        return obtainOnce(setup, null);
+    }
+
+    /**
+     * @param precreated a node already created for this request (e.g. by {@link #obtain(Map, int)}),
+     *        or null to create one
+     */
+    private MachineLocation obtainOnce(ConfigBag setup, @Nullable CreatedNode precreated) throws NoMachinesAvailableException {
+        checkProvisioningAllowed();
 
-        Predicate<? super HostAndPort> reachablePredicate = getReachableAddressesPredicate(setup);
         ConnectivityResolverOptions options = getConnectivityOptionsBuilder(setup, false).build();
 
         // FIXME How do we influence the node.getLoginPort, so it is set correctly for Windows?
@@ -684,85 +819,33 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         Duration provisionTimestamp = null;
         Duration usableTimestamp = null;
         Duration customizedTimestamp = null;
+        long startNanos = System.nanoTime();
         Stopwatch provisioningStopwatch = Stopwatch.createStarted();
 
         JcloudsLocationCustomizer customizersDelegate = LocationCustomizerDelegate.newInstance(getManagementContext(), setup);
 
         try {
-            LOG.info("Creating VM "+getCreationString(setup)+" in "+this);
-
-            Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
-            boolean acquired = machineCreationSemaphore.tryAcquire(0, TimeUnit.SECONDS);
-            if (!acquired) {
-                LOG.info("Waiting in {} for machine-creation permit ({} other queuing requests already)", new Object[] {this, machineCreationSemaphore.getQueueLength()});
-                Stopwatch blockStopwatch = Stopwatch.createStarted();
-                machineCreationSemaphore.acquire();
-                LOG.info("Acquired in {} machine-creation permit, after waiting {}", this, Time.makeTimeStringRounded(blockStopwatch));
+            CreatedNode created;
+            if (precreated != null) {
+                created = precreated;
             } else {
-                LOG.debug("Acquired in {} machine-creation permit immediately", this);
-            }
-            semaphoreTimestamp = Duration.of(provisioningStopwatch);
-
-            LoginCredentials userCredentials = null;
-            Set<? extends NodeMetadata> nodes;
-            Template template;
-
-            try {
-                // Create default network for Azure ARM if necessary
-                if ("azurecompute-arm".equals(this.getProvider())) {
-                    DefaultAzureArmNetworkCreator.createDefaultNetworkAndAddToTemplateOptionsIfRequired(computeService, setup);
-                }
-
-                // Setup the template
-                template = buildTemplate(computeService, setup, ImmutableList.of(customizersDelegate));
-                boolean expectWindows = isWindows(template, setup);
-                if (!options.skipJcloudsSshing()) {
-                    if (expectWindows) {
-                        // TODO Was this too early to look at template.getImage? e.g. customizeTemplate could subsequently modify it.
-                        LOG.warn("Ignoring invalid configuration for Windows provisioning of "+template.getImage()+": "+USE_JCLOUDS_SSH_INIT.getName()+" should be false");
-                        options = options.toBuilder()
-                                .skipJcloudsSshing(true)
-                                .build();
-                    } else if (options.waitForConnectable()) {
-                        userCredentials = initTemplateForCreateUser(template, setup);
-                    }
-                }
-
-                templateTimestamp = Duration.of(provisioningStopwatch);
-                // "Name" metadata seems to set the display name; at least in AWS
-                // TODO it would be nice if this salt comes from the location's ID (but we don't know that yet as the ssh machine location isn't created yet)
-                // TODO in softlayer we want to control the suffix of the hostname which is 3 random hex digits
-                template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(setup, groupId));
+                LOG.info("Creating VM "+getCreationString(setup)+" in "+this);
 
-                if (setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA)) {
-                    template.getOptions().getUserMetadata().put("brooklyn-user", System.getProperty("user.name"));
-
-                    Object context = setup.get(CALLER_CONTEXT);
-                    if (context instanceof Entity) {
-                        Entity entity = (Entity)context;
-                        template.getOptions().getUserMetadata().put("brooklyn-app-id", entity.getApplicationId());
-                        template.getOptions().getUserMetadata().put("brooklyn-app-name", entity.getApplication().getDisplayName());
-                        template.getOptions().getUserMetadata().put("brooklyn-entity-id", entity.getId());
-                        template.getOptions().getUserMetadata().put("brooklyn-entity-name", entity.getDisplayName());
-                        template.getOptions().getUserMetadata().put("brooklyn-server-creation-date", Time.makeDateSimpleStampString());
-                    }
+                Duration batchWindow = setup.get(MACHINE_CREATE_BATCH_WINDOW);
+                if (batchWindow != null && batchWindow.isPositive()) {
+                    created = createNodeInBatch(computeService, setup, customizersDelegate, options, cloudMachineNamer, groupId, batchWindow);
+                } else {
+                    created = Iterables.getOnlyElement(createNodes(computeService, setup, customizersDelegate, options, cloudMachineNamer, groupId, 1, true));
                 }
-
-                customizeTemplate(computeService, template, customizersDelegate);
-
-                LOG.debug("jclouds using template {} / options {} to provision machine in {}",
-                        new Object[] {template, template.getOptions(), getCreationString(setup)});
-
-                nodes = computeService.createNodesInGroup(groupId, 1, template);
-                provisionTimestamp = Duration.of(provisioningStopwatch);
-            } finally {
-                machineCreationSemaphore.release();
             }
-
-            node = Iterables.getOnlyElement(nodes, null);
+            node = created.node;
+            Template template = created.template;
+            LoginCredentials userCredentials = created.userCredentials;
+            options = created.options;
+            semaphoreTimestamp = Duration.nanos(Math.max(0, created.semaphoreNanos - startNanos));
+            templateTimestamp = Duration.nanos(Math.max(0, created.templateNanos - startNanos));
+            provisionTimestamp = Duration.nanos(Math.max(0, created.provisionNanos - startNanos));
             LOG.debug("jclouds created {} for {}", node, getCreationString(setup));
-            if (node == null)
-                throw new IllegalStateException("No nodes returned by jclouds create-nodes in " + getCreationString(setup));
 
             customizersDelegate.customize(this, node, setup);
 
@@ -1132,6 +1215,273 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         }
     }
 
+    /**
+     * Creates nodes from a single template, with a single jclouds call.
+     * <p>
+     * When creating more than one node, nodes that jclouds reports as failed are discarded (and destroyed
+     * if {@link #DESTROY_ON_FAILURE}), so fewer nodes than requested may be returned; an exception is thrown
+     * only if none were created.
+     *
+     * @param includeCallerMetadata whether to tag the nodes with the {@link #CALLER_CONTEXT} entity's details,
+     *        which should only be done if all the nodes are for that entity
+     */
+    private List<CreatedNode> createNodes(ComputeService computeService, ConfigBag setup, JcloudsLocationCustomizer customizersDelegate,
+            ConnectivityResolverOptions options, CloudMachineNamer cloudMachineNamer, String groupId, int count,
+            boolean includeCallerMetadata) throws Exception {
+        Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
+        boolean acquired = machineCreationSemaphore.tryAcquire(0, TimeUnit.SECONDS);
+        if (!acquired) {
+            LOG.info("Waiting in {} for machine-creation permit ({} other queuing requests already)", new Object[] {this, machineCreationSemaphore.getQueueLength()});
+            Stopwatch blockStopwatch = Stopwatch.createStarted();
+            machineCreationSemaphore.acquire();
+            LOG.info("Acquired in {} machine-creation permit, after waiting {}", this, Time.makeTimeStringRounded(blockStopwatch));
+        } else {
+            LOG.debug("Acquired in {} machine-creation permit immediately", this);
+        }
+        long semaphoreNanos = System.nanoTime();
+
+        LoginCredentials userCredentials = null;
+        Set<? extends NodeMetadata> nodes;
+        Template template;
+        long templateNanos;
+        long provisionNanos;
+
+        try {
+            // Create default network for Azure ARM if necessary
+            if ("azurecompute-arm".equals(this.getProvider())) {
+                DefaultAzureArmNetworkCreator.createDefaultNetworkAndAddToTemplateOptionsIfRequired(computeService, setup);
+            }
+
+            // Setup the template
+            template = buildTemplate(computeService, setup, ImmutableList.of(customizersDelegate));
+            boolean expectWindows = isWindows(template, setup);
+            if (!options.skipJcloudsSshing()) {
+                if (expectWindows) {
+                    // TODO Was this too early to look at template.getImage? e.g. customizeTemplate could subsequently modify it.
+                    LOG.warn("Ignoring invalid configuration for Windows provisioning of "+template.getImage()+": "+USE_JCLOUDS_SSH_INIT.getName()+" should be false");
+                    options = options.toBuilder()
+                            .skipJcloudsSshing(true)
+                            .build();
+                } else if (options.waitForConnectable()) {
+                    userCredentials = initTemplateForCreateUser(template, setup);
+                }
+            }
+
+            templateNanos = System.nanoTime();
+            if (count == 1) {
+                // "Name" metadata seems to set the display name; at least in AWS
+                // TODO it would be nice if this salt comes from the location's ID (but we don't know that yet as the ssh machine location isn't created yet)
+                // TODO in softlayer we want to control the suffix of the hostname which is 3 random hex digits
+                template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(setup, groupId));
+            } else {
+                // user metadata is shared by all the nodes, so give each its own name instead
+                List<String> names = Lists.newArrayListWithCapacity(count);
+                for (int i = 0; i < count; i++) {
+                    names.add(cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(setup, groupId));
+                }
+                template.getOptions().nodeNames(names);
+            }
+
+            if (setup.get(JcloudsLocationConfig.INCLUDE_BROOKLYN_USER_METADATA)) {
+                template.getOptions().getUserMetadata().put("brooklyn-user", System.getProperty("user.name"));
+
+                Object context = setup.get(CALLER_CONTEXT);
+                if (includeCallerMetadata && context instanceof Entity) {
+                    Entity entity = (Entity)context;
+                    template.getOptions().getUserMetadata().put("brooklyn-app-id", entity.getApplicationId());
+                    template.getOptions().getUserMetadata().put("brooklyn-app-name", entity.getApplication().getDisplayName());
+                    template.getOptions().getUserMetadata().put("brooklyn-entity-id", entity.getId());
+                    template.getOptions().getUserMetadata().put("brooklyn-entity-name", entity.getDisplayName());
+                    template.getOptions().getUserMetadata().put("brooklyn-server-creation-date", Time.makeDateSimpleStampString());
+                }
+            }
+
+            customizeTemplate(computeService, template, customizersDelegate);
+
+            LOG.debug("jclouds using template {} / options {} to provision {} machine(s) in {}",
+                    new Object[] {template, template.getOptions(), count, getCreationString(setup)});
+
+            try {
+                nodes = computeService.createNodesInGroup(groupId, count, template);
+            } catch (RunNodesException e) {
+                if (count == 1) throw e;
+                nodes = e.getSuccessfulNodes();
+                LOG.warn("jclouds created only "+nodes.size()+" of "+count+" nodes for "+getCreationString(setup)+" in "+this+": "+e.getMessage());
+                releaseFailedNodesSafely(e, setup);
+                if (nodes.isEmpty()) {
+                    // not rethrown as-is, because its failed nodes have already been dealt with
+                    throw new IllegalStateException("Failed to create any of "+count+" nodes for "+getCreationString(setup)+" in "+this, e);
+                }
+            }
+            provisionNanos = System.nanoTime();
+        } finally {
+            machineCreationSemaphore.release();
+        }
+
+        if (nodes.isEmpty())
+            throw new IllegalStateException("No nodes returned by jclouds create-nodes in " + getCreationString(setup));
+
+        List<CreatedNode> result = Lists.newArrayListWithCapacity(nodes.size());
+        for (NodeMetadata node : nodes) {
+            result.add(new CreatedNode(node, template, options, userCredentials, semaphoreNanos, templateNanos, provisionNanos));
+        }
+        return result;
+    }
+
+    private void releaseFailedNodesSafely(RunNodesException e, ConfigBag setup) {
+        if (Boolean.TRUE.equals(setup.get(DESTROY_ON_FAILURE))) {
+            for (NodeMetadata node : e.getNodeErrors().keySet()) {
+                releaseNodeSafely(node);
+            }
+        }
+    }
+
+    /**
+     * Creates a node, first waiting up to the given window for concurrent requests for identically configured
+     * nodes, so that they can all be created together. The first request waits, and then creates the nodes for
+     * everyone; the others wait for it to hand them their node (or failure).
+     */
+    private CreatedNode createNodeInBatch(ComputeService computeService, ConfigBag setup, JcloudsLocationCustomizer customizersDelegate,
+            ConnectivityResolverOptions options, CloudMachineNamer cloudMachineNamer, String groupId, Duration window) throws Exception {
+        Object key = getCreateBatchKey(setup);
+        int maxSize = Math.max(1, setup.get(MACHINE_CREATE_BATCH_MAX_SIZE));
+        SettableFuture<CreatedNode> future = SettableFuture.create();
+        CreateBatch batch;
+        boolean leader;
+        synchronized (pendingCreateBatches) {
+            batch = pendingCreateBatches.get(key);
+            leader = (batch == null);
+            if (leader) {
+                batch = new CreateBatch();
+                pendingCreateBatches.put(key, batch);
+            }
+            batch.requests.add(future);
+            batch.callers.add(setup.get(CALLER_CONTEXT));
+            if (batch.requests.size() >= maxSize) {
+                closeCreateBatch(key, batch);
+            }
+        }
+        if (!leader) {
+            return getCreatedNode(future);
+        }
+
+        List<SettableFuture<CreatedNode>> requests;
+        try {
+            long deadline = System.nanoTime() + window.nanos();
+            synchronized (pendingCreateBatches) {
+                long remaining;
+                while (!batch.closed && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(pendingCreateBatches, remaining);
+                }
+                closeCreateBatch(key, batch);
+                requests = ImmutableList.copyOf(batch.requests);
+            }
+            if (requests.size() > 1) {
+                LOG.debug("Creating batch of {} nodes for {} in {}", new Object[] {requests.size(), getCreationString(setup), this});
+            }
+            List<CreatedNode> nodes = createNodes(computeService, setup, customizersDelegate, options, cloudMachineNamer, groupId,
+                    requests.size(), batch.callers.size() == 1);
+            for (int i = 0; i < requests.size(); i++) {
+                if (i < nodes.size()) {
+                    requests.get(i).set(nodes.get(i));
+                } else {
+                    requests.get(i).setException(new IllegalStateException("Only "+nodes.size()+" of "+requests.size()
+                            +" nodes created in batch for "+getCreationString(setup)+" in "+this));
+                }
+            }
+        } catch (Exception e) {
+            synchronized (pendingCreateBatches) {
+                closeCreateBatch(key, batch);
+            }
+            for (SettableFuture<CreatedNode> request : batch.requests) {
+                request.setException(e);
+            }
+            throw e;
+        }
+        return getCreatedNode(future);
+    }
+
+    /** Stops further requests joining the batch, and wakes its leader. Must be called holding the lock on pendingCreateBatches. */
+    private void closeCreateBatch(Object key, CreateBatch batch) {
+        if (!batch.closed) {
+            batch.closed = true;
+            pendingCreateBatches.remove(key);
+            pendingCreateBatches.notifyAll();
+        }
+    }
+
+    /**
+     * Config, besides that determining the template (see {@link #getTemplateConfig(ConfigBag)}), that affects
+     * how a node is created; nodes created together share the leader's compute service, user and connectivity options.
+     */
+    private static final List<ConfigKey<?>> CREATE_BATCH_PROPERTIES = ImmutableList.<ConfigKey<?>>of(
+            CLOUD_ENDPOINT, ACCESS_IDENTITY,
+            USER, PASSWORD, PRIVATE_KEY_DATA, PRIVATE_KEY_FILE, PRIVATE_KEY_PASSPHRASE, PUBLIC_KEY_DATA, PUBLIC_KEY_FILE,
+            DONT_CREATE_USER, GRANT_USER_SUDO, DISABLE_ROOT_AND_PASSWORD_SSH, CUSTOM_TEMPLATE_OPTIONS_SCRIPT_CONTENTS,
+            INCLUDE_BROOKLYN_USER_METADATA, WAIT_FOR_SSHABLE, WAIT_FOR_WINRM_AVAILABLE, USE_JCLOUDS_SSH_INIT,
+            USE_PORT_FORWARDING, POLL_FOR_FIRST_REACHABLE_ADDRESS);
+
+    /**
+     * Requests with equal keys can share a template, so can be created together. Only the config used to create
+     * the node is included (e.g. image, hardware, region, security groups and user metadata), so that members of a
+     * cluster can be batched even though the rest of their config differs, but nodes are never shared between
+     * applications.
+     */
+    private Object getCreateBatchKey(ConfigBag setup) {
+        List<Object> result = getTemplateConfig(setup);
+        for (ConfigKey<?> key : Iterables.concat(SUPPORTED_TEMPLATE_OPTIONS_PROPERTIES.keySet(), CREATE_BATCH_PROPERTIES)) {
+            result.add(setup.containsKey(key) ? setup.get(key) : key.getDefaultValue());
+        }
+        Object context = setup.get(CALLER_CONTEXT);
+        result.add((context instanceof Entity) ? ((Entity)context).getApplicationId() : null);
+        return result;
+    }
+
+    private CreatedNode getCreatedNode(SettableFuture<CreatedNode> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        } catch (InterruptedException e) {
+            // nobody else will use the node, so get rid of it when it arrives
+            Futures.addCallback(future, new FutureCallback<CreatedNode>() {
+                @Override public void onSuccess(CreatedNode result) {
+                    releaseNodeSafely(result.node);
+                }
+                @Override public void onFailure(Throwable t) {
+                }});
+            throw e;
+        }
+    }
+
+    /** A node created by jclouds, along with how it was created, ready to be set up as a machine. */
+    private static class CreatedNode {
+        final NodeMetadata node;
+        final Template template;
+        final ConnectivityResolverOptions options;
+        final LoginCredentials userCredentials;
+        final long semaphoreNanos;
+        final long templateNanos;
+        final long provisionNanos;
+
+        CreatedNode(NodeMetadata node, Template template, ConnectivityResolverOptions options, @Nullable LoginCredentials userCredentials,
+                long semaphoreNanos, long templateNanos, long provisionNanos) {
+            this.node = node;
+            this.template = template;
+            this.options = options;
+            this.userCredentials = userCredentials;
+            this.semaphoreNanos = semaphoreNanos;
+            this.templateNanos = templateNanos;
+            this.provisionNanos = provisionNanos;
+        }
+    }
+
+    private static class CreateBatch {
+        final List<SettableFuture<CreatedNode>> requests = Lists.newArrayList();
+        final Set<Object> callers = Sets.newHashSet();
+        boolean closed;
+    }
+
     private void executeCommandThrowingOnError(SshMachineLocation loc, String name, List<String> commands) {
         executeCommandThrowingOnError(ImmutableMap.<String, Object>of(), loc, name, commands);
     }
@@ -1429,7 +1779,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         Template template = null;
         Image image;
         try {
-            template = templateBuilder.build();
+            template = resolveTemplate(computeService, config, templateBuilder);
             if (template==null) throw new IllegalStateException("No matching template; check image and hardware constraints (e.g. OS, RAM); using "+templateBuilder);
             image = template.getImage();
             LOG.debug("jclouds found template "+template+" (image "+image+") for provisioning in "+this+" for "+getCreationString(config));
@@ -1513,6 +1863,80 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     }
 
 
+    /**
+     * Builds the template, reusing the image, hardware and region resolved for an earlier request with
+     * the same constraints if that was less than {@link #TEMPLATE_CACHE_TTL} ago. Resolving means jclouds
+     * matching every image and hardware profile (and our image chooser ranking the candidates), which is
+     * slow on clouds with many images. The template options are always built afresh.
+     * <p>
+     * Only templates built by a {@link PortableTemplateBuilder} of our own are cached, as a supplied
+     * {@link #TEMPLATE_BUILDER} may be changed by its owner between requests.
+     */
+    protected Template resolveTemplate(ComputeService computeService, ConfigBag config, TemplateBuilder templateBuilder) {
+        Duration ttl = config.get(TEMPLATE_CACHE_TTL);
+        if (ttl == null || !ttl.isPositive() || config.get(TEMPLATE_BUILDER) != null || !(templateBuilder instanceof PortableTemplateBuilder)
+                || ((PortableTemplateBuilder<?>)templateBuilder).isForceCacheReload()) {
+            return templateBuilder.build();
+        }
+
+        Object key = getTemplateCacheKey(computeService, config);
+        ResolvedTemplate cached = resolvedTemplates.getIfPresent(key);
+        if (cached != null && Duration.nanos(System.nanoTime() - cached.resolvedNanos).isShorterThan(ttl)) {
+            LOG.debug("jclouds reusing image {} and hardware {} resolved {} ago for provisioning in {} for {}", new Object[] {
+                    cached.image.getId(), cached.hardware.getId(), Duration.nanos(System.nanoTime() - cached.resolvedNanos).toStringRounded(),
+                    this, getCreationString(config)});
+            TemplateOptions options = ((PortableTemplateBuilder<?>)templateBuilder).newJcloudsTemplateOptions(computeService);
+            return new TemplateImpl(cached.image, cached.hardware, cached.location, options);
+        }
+
+        Template result = templateBuilder.build();
+        if (result != null && result.getImage() != null && result.getHardware() != null) {
+            resolvedTemplates.put(key, new ResolvedTemplate(result));
+        }
+        return result;
+    }
+
+    /** The compute service, and the config that determines which image, hardware and region jclouds chooses from it. */
+    private Object getTemplateCacheKey(ComputeService computeService, ConfigBag config) {
+        return MutableList.<Object>of(computeService).appendAll(getTemplateConfig(config));
+    }
+
+    /**
+     * The config that determines which image, hardware and region jclouds chooses. Customizers are included
+     * as they can constrain the template builder; a customizer supplied afresh per request therefore
+     * prevents any reuse.
+     */
+    private List<Object> getTemplateConfig(ConfigBag config) {
+        List<Object> result = MutableList.<Object>of(config.get(CLOUD_REGION_ID),
+                config.getStringKey(IMAGE_CHOOSER.getName()),
+                config.getStringKey(JCLOUDS_LOCATION_CUSTOMIZER.getName()),
+                config.getStringKey(JCLOUDS_LOCATION_CUSTOMIZERS.getName()),
+                config.get(JCLOUDS_LOCATION_CUSTOMIZER_TYPE),
+                config.get(JCLOUDS_LOCATION_CUSTOMIZERS_SUPPLIER_TYPE));
+        for (ConfigKey<?> key : SUPPORTED_TEMPLATE_BUILDER_PROPERTIES.keySet()) {
+            result.add(config.containsKey(key) ? config.get(key) : key.getDefaultValue());
+        }
+        return result;
+    }
+
+    /** Forgets the templates resolved by this location (see {@link #TEMPLATE_CACHE_TTL}), e.g. after new images are published. */
+    public void invalidateTemplateCache() {
+        resolvedTemplates.invalidateAll();
+    }
+
+    private static class ResolvedTemplate {
+        final Image image;
+        final Hardware hardware;
+        final org.jclouds.domain.Location location;
+        final long resolvedNanos = System.nanoTime();
+
+        ResolvedTemplate(Template template) {
+            this.image = template.getImage();
+            this.hardware = template.getHardware();
+            this.location = template.getLocation();
+        }
+    }
+
     /**
      * See {@link https://issues.apache.org/jira/browse/JCLOUDS-1108}.
      * 
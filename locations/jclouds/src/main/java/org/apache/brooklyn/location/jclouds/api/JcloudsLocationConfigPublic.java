@@ -30,6 +30,7 @@ import org.apache.brooklyn.core.location.access.BrooklynAccessUtils;
 import org.apache.brooklyn.core.location.access.PortForwardManager;
 import org.apache.brooklyn.core.location.cloud.CloudLocationConfig;
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.time.Duration;
 import org.jclouds.Constants;
 
 import com.google.common.annotations.Beta;
@@ -210,6 +211,27 @@ public interface JcloudsLocationConfigPublic extends CloudLocationConfig {
     public static final ConfigKey<Integer> MACHINE_CREATE_ATTEMPTS = ConfigKeys.newIntegerConfigKey(
             "machineCreateAttempts", "Number of times to retry if jclouds fails to create a VM", 2);
 
+    @Beta
+    public static final ConfigKey<Duration> MACHINE_CREATE_BATCH_WINDOW = ConfigKeys.newDurationConfigKey(
+            "machineCreateBatchWindow", "How long to wait for other concurrent requests for identically configured "
+                    + "machines, so they can all be created with a single jclouds call; zero (the default) disables batching",
+            Duration.ZERO);
+
+    @Beta
+    public static final ConfigKey<Integer> MACHINE_CREATE_BATCH_MAX_SIZE = ConfigKeys.newIntegerConfigKey(
+            "machineCreateBatchMaxSize", "Maximum number of machines to create with a single jclouds call", 50);
+
+    @Beta
+    public static final ConfigKey<Duration> TEMPLATE_CACHE_TTL = ConfigKeys.newDurationConfigKey(
+            "templateCacheTtl", "How long the image, hardware and region that jclouds chooses for a given set of template "
+                    + "constraints are reused for later requests with the same constraints; zero disables caching",
+            Duration.FIVE_MINUTES);
+
+    @Beta
+    public static final ConfigKey<Integer> MAX_CONCURRENT_MACHINE_SETUPS = ConfigKeys.newIntegerConfigKey(
+            "maxConcurrentMachineSetups", "Maximum number of machines to set up (e.g. waiting for ssh, and customizing) "
+                    + "concurrently when obtaining machines in bulk", 20);
+
     public static final ConfigKey<Integer> MAX_CONCURRENT_MACHINE_CREATIONS = ConfigKeys.newIntegerConfigKey(
             "maxConcurrentMachineCreations", "Maximum number of concurrent machine-creations", Integer.MAX_VALUE);
 
@@ -22,9 +22,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Nullable;
@@ -50,6 +53,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import org.jclouds.aws.AWSResponseException;
@@ -70,7 +75,6 @@ import org.apache.brooklyn.location.jclouds.JcloudsLocation;
 import org.apache.brooklyn.location.jclouds.JcloudsLocationConfig;
 import org.apache.brooklyn.location.jclouds.JcloudsLocationCustomizer;
 import org.apache.brooklyn.location.jclouds.JcloudsMachineLocation;
-import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.net.Cidr;
@@ -108,6 +112,18 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
     /** Caches security groups unique to instances */
     private final Cache<String, SecurityGroup> uniqueGroupCache = CacheBuilder.newBuilder().build();
 
+    /**
+     * Serializes and coalesces the permission changes made to each group, keyed by group id.
+     * Entries are removed when the machine owning the group is released.
+     */
+    private final LoadingCache<String, GroupPermissionsUpdater> groupUpdaters = CacheBuilder.newBuilder()
+            .build(new CacheLoader<String, GroupPermissionsUpdater>() {
+                @Override
+                public GroupPermissionsUpdater load(String groupId) {
+                    return new GroupPermissionsUpdater();
+                }
+            });
+
     /** The context for this location customizer. */
     private final String applicationId;
 
@@ -221,13 +237,11 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
      * <p>
      * Takes no action if the location's compute service does not have a security group extension.
      * <p>
-     * The {@code synchronized} block is to serialize the permission changes, preventing race
-     * conditions in some clouds. If multiple customizations of the same group are done in parallel
-     * the changes may not be picked up by later customizations, meaning the same rule could possibly be
-     * added twice, which would fail. A finer grained mechanism would be preferable here, but
-     * we have no access to the information required, so this brute force serializing is required.
-     * TODO investigate whether this can be improved. Can the synchronization be moved to
-     * the class org.apache.brooklyn.location.jclouds.networking.SecurityGroupEditor?
+     * Changes to each security group are serialized, preventing race conditions in some clouds where
+     * concurrent changes to the same group may not be picked up by later changes. Rather than waiting
+     * their turn, permissions requested concurrently for the same group are applied together by
+     * whichever caller next gets to update the group, so that permissions with the same port range are
+     * added in a single call. Permissions that the group is already known to have are skipped.
      *
      * @param location Location to gain permissions
      * @param permissions The set of permissions to be applied to the location
@@ -241,9 +255,7 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
     public Collection<SecurityGroup> addPermissionsToLocationAndReturnSecurityGroup(
         final JcloudsMachineLocation location, final Iterable<IpPermission> permissions) {
 
-        synchronized (JcloudsLocationSecurityGroupCustomizer.class) {
-            return addPermissionsInternal(permissions, location).values();
-        }
+        return addPermissionsInternal(permissions, location).values();
     }
 
     /**
@@ -254,10 +266,7 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
      * @param permissions The set of permissions to be removed from the node
      */
     public void removePermissionsFromLocation(JcloudsMachineLocation location, Iterable<IpPermission> permissions) {
-
-        synchronized (JcloudsLocationSecurityGroupCustomizer.class) {
-            removePermissionsInternal(location, permissions);
-        }
+        removePermissionsInternal(location, permissions);
     }
 
     /**
@@ -281,7 +290,9 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
         final SecurityGroupEditor editor = createSecurityGroupEditor(securityApi.get(), location.getNode().getLocation());
         String locationId = computeService.getContext().unwrap().getId();
         SecurityGroup machineUniqueSecurityGroup = getMachineUniqueSecurityGroup(nodeId, locationId, editor);
-        editor.removePermissions(machineUniqueSecurityGroup, permissions);
+        SecurityGroup updated = groupUpdaters.getUnchecked(machineUniqueSecurityGroup.getId())
+                .removePermissions(editor, machineUniqueSecurityGroup, permissions);
+        uniqueGroupCache.put(nodeId, updated);
     }
 
 
@@ -315,9 +326,9 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
         // needed to call this method are not available until post-instance creation.
         String locationId = computeService.getContext().unwrap().getId();
         SecurityGroup machineUniqueSecurityGroup = getMachineUniqueSecurityGroup(nodeId, locationId, groupEditor);
-        MutableList<IpPermission> newPermissions = MutableList.copyOf(permissions);
-        Iterables.removeAll(newPermissions, machineUniqueSecurityGroup.getIpPermissions());
-        machineUniqueSecurityGroup = groupEditor.addPermissions(machineUniqueSecurityGroup, newPermissions);
+        machineUniqueSecurityGroup = groupUpdaters.getUnchecked(machineUniqueSecurityGroup.getId())
+                .addPermissions(groupEditor, machineUniqueSecurityGroup, permissions);
+        uniqueGroupCache.put(nodeId, machineUniqueSecurityGroup);
         return MutableMap.of(machineUniqueSecurityGroup.getId(), machineUniqueSecurityGroup);
     }
 
@@ -573,7 +584,22 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
     }
 
     /**
-     * Invalidates all entries in {@link #sharedGroupCache} and {@link #uniqueGroupCache}.
+     * Forgets the security group unique to the released machine. Jclouds deletes the group along
+     * with the node.
+     */
+    @Override
+    public void postRelease(JcloudsMachineLocation machine) {
+        String nodeId = machine.getJcloudsId();
+        if (nodeId == null) return;
+        SecurityGroup machineUniqueSecurityGroup = uniqueGroupCache.getIfPresent(nodeId);
+        uniqueGroupCache.invalidate(nodeId);
+        if (machineUniqueSecurityGroup != null) {
+            groupUpdaters.invalidate(machineUniqueSecurityGroup.getId());
+        }
+    }
+
+    /**
+     * Invalidates all entries in {@link #sharedGroupCache}, {@link #uniqueGroupCache} and {@link #groupUpdaters}.
      * Use to simulate the effects of rebinding Brooklyn to a deployment.
      */
     @VisibleForTesting
@@ -581,6 +607,7 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
         LOG.info("Clearing security group caches");
         sharedGroupCache.invalidateAll();
         uniqueGroupCache.invalidateAll();
+        groupUpdaters.invalidateAll();
     }
 
 
@@ -611,6 +638,93 @@ public class JcloudsLocationSecurityGroupCustomizer extends BasicJcloudsLocation
         }
     }
 
+    /**
+     * Applies the permission changes for a single security group, one change at a time. Additions requested
+     * while another change is in progress are queued, and then applied together by whichever caller next holds
+     * the lock. Each change starts from the caller's known state of the group, so that permissions removed
+     * from the group by others are added again.
+     */
+    private static class GroupPermissionsUpdater {
+        private final Queue<PendingAddition> pending = new ConcurrentLinkedQueue<PendingAddition>();
+        private final Object applyLock = new Object();
+
+        SecurityGroup addPermissions(SecurityGroupEditor editor, SecurityGroup knownGroup, Iterable<IpPermission> permissions) {
+            PendingAddition addition = new PendingAddition(permissions);
+            pending.add(addition);
+            synchronized (applyLock) {
+                if (!addition.result.isDone()) {
+                    applyPending(editor, knownGroup);
+                }
+            }
+            try {
+                return addition.result.get();
+            } catch (ExecutionException e) {
+                throw Exceptions.propagate(e.getCause());
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+
+        SecurityGroup removePermissions(SecurityGroupEditor editor, SecurityGroup knownGroup, Iterable<IpPermission> permissions) {
+            synchronized (applyLock) {
+                return editor.removePermissions(knownGroup, permissions);
+            }
+        }
+
+        private void applyPending(SecurityGroupEditor editor, SecurityGroup knownGroup) {
+            SecurityGroup group = knownGroup;
+            List<PendingAddition> batch = Lists.newArrayList();
+            for (PendingAddition addition = pending.poll(); addition != null; addition = pending.poll()) {
+                batch.add(addition);
+            }
+            if (batch.size() > 1) {
+                LOG.debug("Coalescing {} concurrent permission changes to security group {}", batch.size(), group.getName());
+            }
+            try {
+                List<IpPermission> permissions = Lists.newArrayList();
+                for (PendingAddition addition : batch) {
+                    Iterables.addAll(permissions, addition.permissions);
+                }
+                group = editor.addPermissions(group, permissions);
+                for (PendingAddition addition : batch) {
+                    addition.result.set(group);
+                }
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (batch.size() == 1) {
+                    batch.get(0).result.setException(e);
+                } else {
+                    // don't fail every caller because of one caller's permissions
+                    LOG.debug("Failed to add coalesced permissions to security group "+group.getName()+"; applying them separately", e);
+                    for (PendingAddition addition : batch) {
+                        try {
+                            group = editor.addPermissions(group, addition.permissions);
+                            addition.result.set(group);
+                        } catch (Exception e2) {
+                            Exceptions.propagateIfFatal(e2);
+                            addition.result.setException(e2);
+                        }
+                    }
+                }
+            } finally {
+                for (PendingAddition addition : batch) {
+                    if (!addition.result.isDone()) {
+                        addition.result.setException(new IllegalStateException("Aborted adding permissions to security group "+group.getName()));
+                    }
+                }
+            }
+        }
+    }
+
+    private static class PendingAddition {
+        final Iterable<IpPermission> permissions;
+        final SettableFuture<SecurityGroup> result = SettableFuture.create();
+
+        PendingAddition(Iterable<IpPermission> permissions) {
+            this.permissions = ImmutableList.copyOf(permissions);
+        }
+    }
+
     /**
      * A supplier of CIDRs that loads the external IP address of the localhost machine.
      */
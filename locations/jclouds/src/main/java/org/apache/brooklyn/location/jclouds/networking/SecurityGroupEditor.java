@@ -18,11 +18,17 @@
  */
 package org.apache.brooklyn.location.jclouds.networking;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.jclouds.aws.AWSResponseException;
 import org.jclouds.compute.domain.SecurityGroup;
@@ -32,8 +38,13 @@ import org.jclouds.net.domain.IpPermission;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -179,15 +190,29 @@ public class SecurityGroupEditor {
     }
 
     /**
-     * Add permissions to the security group, using {@link #addPermission(SecurityGroup, IpPermission)}.
+     * Add permissions to the security group. Permissions the group already has are skipped, and
+     * permissions with the same protocol and port range are merged so that each range needs only a
+     * single call to the cloud. If the cloud rejects a merged permission as a duplicate (i.e. some but
+     * not all of its sources were added concurrently) then its parts are added one at a time using
+     * {@link #addPermission(SecurityGroup, IpPermission)}.
      * @param group The group to update
      * @param permissions The new permissions
      * @return The updated group with the added permissions.
      */
     public SecurityGroup addPermissions(final SecurityGroup group, final Iterable<IpPermission> permissions) {
         SecurityGroup lastGroup = group;
-        for (IpPermission permission : permissions) {
-            lastGroup = addPermission(group, permission);
+        for (Collection<IpPermission> sameRange : groupByRange(withoutExisting(group, permissions))) {
+            IpPermission merged = merge(sameRange);
+            SecurityGroup updated = addPermission(lastGroup, merged, sameRange.size() == 1);
+            if (updated == null) {
+                LOG.debug("Merged permission {} partially exists on security group {}; adding its {} parts individually",
+                        new Object[] {merged, lastGroup.getName(), sameRange.size()});
+                for (IpPermission permission : sameRange) {
+                    lastGroup = addPermission(lastGroup, permission);
+                }
+            } else {
+                lastGroup = updated;
+            }
         }
         return lastGroup;
     }
@@ -200,17 +225,25 @@ public class SecurityGroupEditor {
      * @return The updated group with the added permissions.
      */
     public SecurityGroup addPermission(final SecurityGroup group, final IpPermission permission) {
+        return addPermission(group, permission, true);
+    }
+
+    /**
+     * @return the updated group, or null if the permission already exists and {@code ignoreDuplicate} is false.
+     */
+    private SecurityGroup addPermission(final SecurityGroup group, final IpPermission permission, final boolean ignoreDuplicate) {
         LOG.debug("Adding permission to security group {}: {}", group.getName(), permission);
         Callable<SecurityGroup> callable = new Callable<SecurityGroup>() {
             @Override
             public SecurityGroup call() throws Exception {
                 try {
-                    return securityApi.addIpPermission(permission, group);
+                    SecurityGroup result = securityApi.addIpPermission(permission, group);
+                    return (result != null) ? result : group;
                 } catch (Exception e) {
                     Exceptions.propagateIfFatal(e);
 
                     if (isDuplicate(e)) {
-                        return group;
+                        return ignoreDuplicate ? group : null;
                     }
 
                     throw Exceptions.propagate(e);
@@ -225,6 +258,95 @@ public class SecurityGroupEditor {
         return runOperationWithRetry(callable);
     }
 
+    /**
+     * Merges permissions that have the same protocol, port range and exclusions into a single permission
+     * allowing all of their sources.
+     */
+    @VisibleForTesting
+    static List<IpPermission> mergePermissions(Iterable<IpPermission> permissions) {
+        List<IpPermission> result = Lists.newArrayList();
+        for (Collection<IpPermission> sameRange : groupByRange(permissions)) {
+            result.add(merge(sameRange));
+        }
+        return result;
+    }
+
+    /**
+     * Splits a permission into permissions that each have a single source (a CIDR block, group id or
+     * tenant/group pair), so that permissions can be compared regardless of how sources were combined.
+     */
+    @VisibleForTesting
+    static Set<IpPermission> explode(IpPermission permission) {
+        int sources = permission.getCidrBlocks().size() + permission.getGroupIds().size()
+                + permission.getTenantIdGroupNamePairs().size();
+        if (sources <= 1) {
+            return ImmutableSet.of(permission);
+        }
+        ImmutableSet.Builder<IpPermission> result = ImmutableSet.builder();
+        for (String cidrBlock : permission.getCidrBlocks()) {
+            result.add(newPermissionWithoutSources(permission).cidrBlock(cidrBlock).build());
+        }
+        for (String groupId : permission.getGroupIds()) {
+            result.add(newPermissionWithoutSources(permission).groupId(groupId).build());
+        }
+        for (Map.Entry<String, String> pair : permission.getTenantIdGroupNamePairs().entries()) {
+            result.add(newPermissionWithoutSources(permission).tenantIdGroupNamePair(pair.getKey(), pair.getValue()).build());
+        }
+        return result.build();
+    }
+
+    /**
+     * @return the single-source parts of the given permissions that the group does not already allow
+     */
+    private static Set<IpPermission> withoutExisting(SecurityGroup group, Iterable<IpPermission> permissions) {
+        Set<IpPermission> existing = Sets.newHashSet();
+        if (group.getIpPermissions() != null) {
+            for (IpPermission permission : group.getIpPermissions()) {
+                existing.addAll(explode(permission));
+            }
+        }
+        Set<IpPermission> result = Sets.newLinkedHashSet();
+        for (IpPermission permission : permissions) {
+            for (IpPermission part : explode(permission)) {
+                if (!existing.contains(part)) {
+                    result.add(part);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Collection<Collection<IpPermission>> groupByRange(Iterable<IpPermission> permissions) {
+        Multimap<List<Object>, IpPermission> result = LinkedHashMultimap.create();
+        for (IpPermission permission : permissions) {
+            List<Object> range = Arrays.<Object>asList(permission.getIpProtocol(), permission.getFromPort(),
+                    permission.getToPort(), permission.getExclusionCidrBlocks());
+            result.put(range, permission);
+        }
+        return result.asMap().values();
+    }
+
+    private static IpPermission merge(Collection<IpPermission> sameRange) {
+        if (sameRange.size() == 1) {
+            return Iterables.getOnlyElement(sameRange);
+        }
+        IpPermission.Builder result = newPermissionWithoutSources(Iterables.getFirst(sameRange, null));
+        for (IpPermission permission : sameRange) {
+            result.cidrBlocks(permission.getCidrBlocks())
+                    .groupIds(permission.getGroupIds())
+                    .tenantIdGroupNamePairs(permission.getTenantIdGroupNamePairs());
+        }
+        return result.build();
+    }
+
+    private static IpPermission.Builder newPermissionWithoutSources(IpPermission permission) {
+        return IpPermission.builder()
+                .ipProtocol(permission.getIpProtocol())
+                .fromPort(permission.getFromPort())
+                .toPort(permission.getToPort())
+                .exclusionCidrBlocks(permission.getExclusionCidrBlocks());
+    }
+
     @Deprecated // TODO improve this - shouldn't have AWS specifics in here
     private boolean isDuplicate(Exception e) {
         // Sometimes AWSResponseException is wrapped in an IllegalStateException
@@ -243,7 +365,8 @@ public class SecurityGroupEditor {
         Callable<SecurityGroup> callable = new Callable<SecurityGroup>() {
             @Override
             public SecurityGroup call() throws Exception {
-                return securityApi.removeIpPermission(permission, group);
+                SecurityGroup result = securityApi.removeIpPermission(permission, group);
+                return (result != null) ? result : group;
             }
 
             @Override
@@ -263,13 +386,14 @@ public class SecurityGroupEditor {
 
     /**
      * Runs the given callable. Repeats until the operation succeeds or {@link #isExceptionRetryable} indicates
-     * that the request cannot be retried.
+     * that the request cannot be retried. The exponential backoff between attempts is jittered, so that
+     * concurrent callers throttled by the cloud do not all retry at the same moment.
      */
     protected <T> T runOperationWithRetry(Callable<T> operation) {
         int backoff = 64;
         Exception lastException = null;
         LOG.debug("Running operation {}", operation);
-        for (int retries = 0; retries < 12; retries++) { // 12 = keep trying for about 5 minutes
+        for (int retries = 0; retries < 12; retries++) { // 12 = keep trying for up to about 5 minutes
             try {
                 return operation.call();
             } catch (Exception e) {
@@ -277,7 +401,7 @@ public class SecurityGroupEditor {
                 if (isExceptionRetryable.apply(e)) {
                     LOG.debug("Attempt #{} failed to run operation, due to: {}", retries + 1, e.getMessage());
                     try {
-                        Thread.sleep(backoff);
+                        Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextInt(backoff / 2 + 1));
                     } catch (InterruptedException e1) {
                         throw Exceptions.propagate(e1);
                     }
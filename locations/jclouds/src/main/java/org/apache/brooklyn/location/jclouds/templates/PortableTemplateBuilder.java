@@ -76,6 +76,18 @@ public class PortableTemplateBuilder<T extends PortableTemplateBuilder<?>> exten
         return newJcloudsTemplateBuilder(svc).build();
     }
 
+    /** The options that {@link #newJcloudsTemplate(ComputeService)} would use, without resolving the image and hardware. */
+    public TemplateOptions newJcloudsTemplateOptions(ComputeService svc) {
+        TemplateOptions result = svc.templateOptions();
+        computeAggregatedOptions(true).copyTo(result);
+        return result;
+    }
+
+    /** Whether {@link #forceCacheReload()} has been called, so the template should be resolved afresh. */
+    public boolean isForceCacheReload() {
+        return Boolean.TRUE.equals(forceCacheReload);
+    }
+
     /** Adds template options which are used for building, but not for matching/filtering. 
      * (eg tags added here will be set on any machine created by this template,
      * but will not be required when matching this template to existing machines) */
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.location.jclouds.StubbedComputeServiceRegistry.BasicNodeCreator;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Checks that machines requested together are created with as few jclouds calls as allowed.
+ */
+public class JcloudsBulkObtainStubbedTest extends AbstractJcloudsStubbedUnitTest {
+
+    private ListeningExecutorService executor;
+    private List<Integer> createCounts;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        createCounts = Lists.newCopyOnWriteArrayList();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            super.tearDown();
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected BasicNodeCreator newNodeCreator() {
+        return new BasicNodeCreator() {
+            @Override
+            public Set<? extends NodeMetadata> createNodesInGroup(String group, int count, Template template) throws RunNodesException {
+                createCounts.add(count);
+                return super.createNodesInGroup(group, count, template);
+            }
+        };
+    }
+
+    @Test
+    public void testBulkObtainCreatesNodesInBatches() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_MAX_SIZE, 2,
+                JcloudsLocation.MAX_CONCURRENT_MACHINE_SETUPS, 2));
+
+        List<MachineLocation> result = jcloudsLocation.obtain(ImmutableMap.of(), 5);
+        for (MachineLocation machine : result) {
+            machines.add((JcloudsMachineLocation) machine);
+        }
+
+        assertEquals(result.size(), 5, "result="+result);
+        assertEquals(createCounts, ImmutableList.of(2, 2, 1));
+    }
+
+    @Test
+    public void testConcurrentObtainsAreCoalesced() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.ONE_MINUTE,
+                JcloudsLocation.MACHINE_CREATE_BATCH_MAX_SIZE, 3));
+
+        List<ListenableFuture<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override public JcloudsSshMachineLocation call() throws Exception {
+                    return obtainMachine();
+                }}));
+        }
+
+        // the batch is full, so is created without waiting for the window to expire
+        List<JcloudsSshMachineLocation> result = Futures.allAsList(futures).get();
+        assertEquals(createCounts, ImmutableList.of(3));
+        assertEquals(result.size(), 3, "result="+result);
+    }
+
+    @Test
+    public void testObtainsForClusterMembersAreCoalesced() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of(
+                JcloudsLocation.MACHINE_CREATE_BATCH_WINDOW, Duration.ONE_MINUTE,
+                JcloudsLocation.MACHINE_CREATE_BATCH_MAX_SIZE, 2));
+        TestApplication app = managementContext.getEntityManager().createEntity(EntitySpec.create(TestApplication.class)
+                .child(EntitySpec.create(TestEntity.class))
+                .child(EntitySpec.create(TestEntity.class)));
+
+        // each member's setup has its own caller and other config that does not affect the template
+        List<ListenableFuture<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        int memberIndex = 0;
+        for (final Entity member : app.getChildren()) {
+            final Map<?, ?> flags = ImmutableMap.of(
+                    JcloudsLocation.CALLER_CONTEXT, member,
+                    JcloudsLocation.SECURITY_GROUPS, ImmutableList.of("cluster"),
+                    "memberIndex", memberIndex++);
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override public JcloudsSshMachineLocation call() throws Exception {
+                    return obtainMachine(flags);
+                }}));
+        }
+
+        List<JcloudsSshMachineLocation> result = Futures.allAsList(futures).get();
+        assertEquals(createCounts, ImmutableList.of(2));
+        assertEquals(result.size(), 2, "result="+result);
+    }
+
+    @Test
+    public void testObtainIsNotDelayedWhenBatchingDisabled() throws Exception {
+        initNodeCreatorAndJcloudsLocation(newNodeCreator(), ImmutableMap.of());
+
+        obtainMachine();
+        obtainMachine();
+        assertEquals(createCounts, ImmutableList.of(1, 1));
+    }
+}
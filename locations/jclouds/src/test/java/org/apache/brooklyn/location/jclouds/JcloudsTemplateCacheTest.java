@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.time.Duration;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+/**
+ * Uses the jclouds in-memory "stub" provider to check when template resolution is reused.
+ */
+public class JcloudsTemplateCacheTest implements JcloudsLocationConfig {
+
+    private LocalManagementContext managementContext;
+    private AtomicInteger imageChooserCalls;
+    private Function<Iterable<? extends Image>, Image> imageChooser;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        managementContext = LocalManagementContextForTests.newInstance(BrooklynProperties.Factory.newEmpty());
+        imageChooserCalls = new AtomicInteger();
+        imageChooser = new Function<Iterable<? extends Image>, Image>() {
+            @Override public Image apply(Iterable<? extends Image> input) {
+                imageChooserCalls.incrementAndGet();
+                return Iterables.getFirst(input, null);
+            }};
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (managementContext != null) Entities.destroyAll(managementContext);
+    }
+
+    private JcloudsLocation newLocation(Map<?, ?> flags) {
+        return (JcloudsLocation) managementContext.getLocationRegistry().getLocationManaged("jclouds:stub", ImmutableMap.builder()
+                .put(ACCESS_IDENTITY.getName(), "stub-identity")
+                .put(ACCESS_CREDENTIAL.getName(), "stub-credential")
+                .put(IMAGE_CHOOSER.getName(), imageChooser)
+                .putAll(flags)
+                .build());
+    }
+
+    private Template buildTemplate(JcloudsLocation loc, Map<?, ?> flags) {
+        ConfigBag setup = ConfigBag.newInstanceExtending(loc.config().getBag(), flags);
+        ComputeService computeService = loc.getComputeService(setup);
+        return loc.buildTemplate(computeService, setup, LocationCustomizerDelegate.newInstance(managementContext, setup));
+    }
+
+    @Test
+    public void testReusesResolvedTemplate() throws Exception {
+        JcloudsLocation loc = newLocation(ImmutableMap.of());
+
+        Template template1 = buildTemplate(loc, ImmutableMap.of(INBOUND_PORTS.getName(), 22));
+        Template template2 = buildTemplate(loc, ImmutableMap.of(INBOUND_PORTS.getName(), 8080));
+
+        assertEquals(imageChooserCalls.get(), 1);
+        assertEquals(template2.getImage(), template1.getImage());
+        assertEquals(template2.getHardware(), template1.getHardware());
+        // options are never shared, as they are customized per machine
+        assertNotSame(template2.getOptions(), template1.getOptions());
+        assertEquals(template2.getOptions().getInboundPorts(), new int[] {8080});
+    }
+
+    @Test
+    public void testResolvesAgainWhenConstraintsDiffer() throws Exception {
+        JcloudsLocation loc = newLocation(ImmutableMap.of());
+
+        buildTemplate(loc, ImmutableMap.of(MIN_RAM.getName(), 512));
+        buildTemplate(loc, ImmutableMap.of(MIN_RAM.getName(), 1024));
+        assertEquals(imageChooserCalls.get(), 2);
+    }
+
+    @Test
+    public void testResolvesAgainAfterInvalidation() throws Exception {
+        JcloudsLocation loc = newLocation(ImmutableMap.of());
+
+        buildTemplate(loc, ImmutableMap.of());
+        loc.invalidateTemplateCache();
+        buildTemplate(loc, ImmutableMap.of());
+        assertEquals(imageChooserCalls.get(), 2);
+    }
+
+    @Test
+    public void testDoesNotReuseWhenDisabled() throws Exception {
+        JcloudsLocation loc = newLocation(ImmutableMap.of(TEMPLATE_CACHE_TTL.getName(), Duration.ZERO));
+
+        buildTemplate(loc, ImmutableMap.of());
+        buildTemplate(loc, ImmutableMap.of());
+        assertEquals(imageChooserCalls.get(), 2);
+    }
+}
@@ -28,6 +28,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
@@ -35,8 +36,11 @@ import static org.testng.Assert.assertTrue;
 import java.net.URI;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.brooklyn.location.jclouds.JcloudsMachineLocation;
+import org.apache.brooklyn.test.Asserts;
 import org.jclouds.aws.AWSResponseException;
 import org.jclouds.aws.domain.AWSError;
 import org.jclouds.compute.ComputeService;
@@ -50,6 +54,8 @@ import org.jclouds.net.domain.IpProtocol;
 import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -269,14 +275,36 @@ public class JcloudsLocationSecurityGroupCustomizerTest {
         when(securityApi.addIpPermission(ssh, updatedUniqueSecurityGroup)).thenReturn(updatedUniqueSecurityGroup);
 
         // Expect first call to list security groups on nodeId, second to use cached version
+        // (which already has the permission, so it is not added again)
         customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableSet.of(ssh));
         customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableSet.of(ssh));
 
         verify(securityApi, times(1)).listSecurityGroupsForNode(NODE_ID);
-        verify(securityApi, times(2)).addIpPermission(ssh, uniqueGroup);
+        verify(securityApi, times(1)).addIpPermission(ssh, uniqueGroup);
         verify(securityApi, never()).addIpPermission(any(IpPermission.class), eq(sharedGroup));
     }
 
+    @Test
+    public void testSecurityGroupsReloadedAfterMachineReleased() {
+        IpPermission ssh = newPermission(22);
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        SecurityGroup uniqueGroup = newGroup("unique");
+        SecurityGroup updatedUniqueSecurityGroup = newGroup(uniqueGroup.getId(), ImmutableSet.of(ssh));
+
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+        when(securityApi.addIpPermission(ssh, uniqueGroup)).thenReturn(updatedUniqueSecurityGroup);
+        when(jcloudsMachineLocation.getJcloudsId()).thenReturn(NODE_ID);
+
+        // Expect the group's state to be forgotten on release, so the permission is added again
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableSet.of(ssh));
+        customizer.postRelease(jcloudsMachineLocation);
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableSet.of(ssh));
+
+        verify(securityApi, times(2)).listSecurityGroupsForNode(NODE_ID);
+        verify(securityApi, times(2)).addIpPermission(ssh, uniqueGroup);
+    }
+
     @Test
     public void testAddRuleNotRetriedByDefault() {
         IpPermission ssh = newPermission(22);
@@ -357,6 +385,128 @@ public class JcloudsLocationSecurityGroupCustomizerTest {
         verify(securityApi, times(4)).addIpPermission(ssh, uniqueGroup);
     }
 
+    @Test
+    public void testPermissionsWithSameRangeAreMerged() {
+        IpPermission sshA = newPermission(22, "10.0.0.1/32");
+        IpPermission sshB = newPermission(22, "10.0.0.2/32");
+        IpPermission jmx = newPermission(31001);
+        IpPermission merged = IpPermission.builder()
+                .ipProtocol(IpProtocol.TCP)
+                .fromPort(22)
+                .toPort(22)
+                .cidrBlocks(ImmutableList.of("10.0.0.1/32", "10.0.0.2/32"))
+                .build();
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        SecurityGroup uniqueGroup = newGroup("unique");
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(securityApi.addIpPermission(any(IpPermission.class), eq(uniqueGroup))).thenReturn(uniqueGroup);
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(sshA, jmx, sshB));
+
+        verify(securityApi, times(1)).addIpPermission(merged, uniqueGroup);
+        verify(securityApi, times(1)).addIpPermission(jmx, uniqueGroup);
+        verify(securityApi, times(2)).addIpPermission(any(IpPermission.class), eq(uniqueGroup));
+    }
+
+    @Test
+    public void testPermissionsAlreadyOnGroupAreSkipped() {
+        IpPermission sshA = newPermission(22, "10.0.0.1/32");
+        IpPermission sshB = newPermission(22, "10.0.0.2/32");
+        IpPermission existing = IpPermission.builder()
+                .ipProtocol(IpProtocol.TCP)
+                .fromPort(22)
+                .toPort(22)
+                .cidrBlocks(ImmutableList.of("10.0.0.1/32", "10.0.0.3/32"))
+                .build();
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        SecurityGroup uniqueGroup = newGroup("unique", ImmutableSet.of(existing));
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(securityApi.addIpPermission(any(IpPermission.class), eq(uniqueGroup))).thenReturn(uniqueGroup);
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(sshA, sshB));
+
+        verify(securityApi, times(1)).addIpPermission(any(IpPermission.class), eq(uniqueGroup));
+        verify(securityApi).addIpPermission(sshB, uniqueGroup);
+    }
+
+    @Test
+    public void testMergedPermissionAddedSeparatelyWhenPartiallyDuplicate() {
+        IpPermission sshA = newPermission(22, "10.0.0.1/32");
+        IpPermission sshB = newPermission(22, "10.0.0.2/32");
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        SecurityGroup uniqueGroup = newGroup("unique");
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(securityApi.addIpPermission(any(IpPermission.class), eq(uniqueGroup)))
+                .thenThrow(newAwsResponseExceptionWithCode("InvalidPermission.Duplicate"))
+                .thenThrow(newAwsResponseExceptionWithCode("InvalidPermission.Duplicate"))
+                .thenReturn(uniqueGroup);
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+
+        customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(sshA, sshB));
+
+        verify(securityApi, times(3)).addIpPermission(any(IpPermission.class), eq(uniqueGroup));
+        verify(securityApi).addIpPermission(sshA, uniqueGroup);
+        verify(securityApi).addIpPermission(sshB, uniqueGroup);
+    }
+
+    @Test
+    public void testConcurrentAdditionsAreCoalesced() throws Exception {
+        final IpPermission ssh = newPermission(22);
+        final IpPermission httpA = newPermission(8080, "10.0.0.1/32");
+        final IpPermission httpB = newPermission(8080, "10.0.0.2/32");
+        IpPermission httpMerged = IpPermission.builder()
+                .ipProtocol(IpProtocol.TCP)
+                .fromPort(8080)
+                .toPort(8080)
+                .cidrBlocks(ImmutableList.of("10.0.0.1/32", "10.0.0.2/32"))
+                .build();
+        SecurityGroup sharedGroup = newGroup(customizer.getNameForSharedSecurityGroup());
+        final SecurityGroup uniqueGroup = newGroup("unique");
+        final CountDownLatch sshAdding = new CountDownLatch(1);
+        final CountDownLatch continueSsh = new CountDownLatch(1);
+        when(securityApi.listSecurityGroupsForNode(NODE_ID)).thenReturn(ImmutableSet.of(sharedGroup, uniqueGroup));
+        when(securityApi.addIpPermission(ssh, uniqueGroup)).thenAnswer(new Answer<SecurityGroup>() {
+            @Override public SecurityGroup answer(InvocationOnMock invocation) throws Throwable {
+                sshAdding.countDown();
+                continueSsh.await();
+                return uniqueGroup;
+            }});
+        when(securityApi.addIpPermission(httpMerged, uniqueGroup)).thenReturn(uniqueGroup);
+        when(computeService.getContext().unwrap().getId()).thenReturn("aws-ec2");
+
+        Thread sshThread = newAddPermissionsThread(ssh);
+        sshThread.start();
+        assertTrue(sshAdding.await(Asserts.DEFAULT_LONG_TIMEOUT.toMilliseconds(), TimeUnit.MILLISECONDS));
+        final Thread httpThreadA = newAddPermissionsThread(httpA);
+        final Thread httpThreadB = newAddPermissionsThread(httpB);
+        httpThreadA.start();
+        httpThreadB.start();
+        // Both wait for the update in progress
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(httpThreadA.getState(), Thread.State.BLOCKED);
+                assertEquals(httpThreadB.getState(), Thread.State.BLOCKED);
+            }});
+        continueSsh.countDown();
+        for (Thread thread : ImmutableList.of(sshThread, httpThreadA, httpThreadB)) {
+            thread.join(Asserts.DEFAULT_LONG_TIMEOUT.toMilliseconds());
+            assertFalse(thread.isAlive());
+        }
+
+        verify(securityApi, times(1)).addIpPermission(ssh, uniqueGroup);
+        verify(securityApi, times(1)).addIpPermission(httpMerged, uniqueGroup);
+        verify(securityApi, times(2)).addIpPermission(any(IpPermission.class), eq(uniqueGroup));
+    }
+
+    private Thread newAddPermissionsThread(final IpPermission permission) {
+        return new Thread(new Runnable() {
+            @Override public void run() {
+                customizer.addPermissionsToLocation(jcloudsMachineLocation, ImmutableList.of(permission));
+            }});
+    }
+
     private SecurityGroup newGroup(String id) {
         return newGroup(id, ImmutableSet.<IpPermission>of());
     }
@@ -381,11 +531,15 @@ public class JcloudsLocationSecurityGroupCustomizerTest {
     }
 
     private IpPermission newPermission(int port) {
+        return newPermission(port, "0.0.0.0/0");
+    }
+
+    private IpPermission newPermission(int port, String cidrBlock) {
         return IpPermission.builder()
                 .ipProtocol(IpProtocol.TCP)
                 .fromPort(port)
                 .toPort(port)
-                .cidrBlock("0.0.0.0/0")
+                .cidrBlock(cidrBlock)
                 .build();
     }
 
@@ -541,8 +541,12 @@ public class BrooklynRestResourceUtils {
 
     
     public Iterable<Entity> descendantsOfAnyType(String application, String entity) {
-        List<Entity> result = Lists.newArrayList();
         Entity e = getEntity(application, entity);
+        if (e instanceof Application && e.getParent() == null) {
+            // all the entities of a top-level application, so can use the entity manager's index rather than walk the tree
+            return mgmt.getEntityManager().getEntitiesInApplication((Application) e);
+        }
+        List<Entity> result = Lists.newArrayList();
         gatherAllDescendants(e, result);
         return result;
     }
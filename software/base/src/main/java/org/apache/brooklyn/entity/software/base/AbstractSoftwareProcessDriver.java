@@ -34,6 +34,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -426,9 +427,18 @@ public abstract class AbstractSoftwareProcessDriver implements SoftwareProcessDr
         if (files == null) files = Collections.emptyMap();
         if (templates == null) templates = Collections.emptyMap();
 
-        final List<TaskAdaptable<?>> tasks = new ArrayList<>(files.size() + templates.size());
-        applyFnToResourcesAppendToList(files, newCopyResourceFunction(), destinationParentDir, tasks);
-        applyFnToResourcesAppendToList(templates, newCopyTemplateFunction(), destinationParentDir, tasks);
+        final List<TaskAdaptable<?>> fileTasks = new ArrayList<>(files.size());
+        final List<String> fileDestinations = new ArrayList<>(files.size());
+        final List<TaskAdaptable<?>> templateTasks = new ArrayList<>(templates.size());
+        final List<String> templateDestinations = new ArrayList<>(templates.size());
+        applyFnToResourcesAppendToList(files, newCopyResourceFunction(), destinationParentDir, fileTasks, fileDestinations);
+        applyFnToResourcesAppendToList(templates, newCopyTemplateFunction(), destinationParentDir, templateTasks, templateDestinations);
+
+        Integer parallelism = entity.getConfig(SoftwareProcess.FILES_COPY_PARALLELISM);
+        int maxConcurrent = (parallelism == null) ? 1 : parallelism;
+        final List<TaskAdaptable<?>> tasks = new ArrayList<>(2);
+        if (!fileTasks.isEmpty()) tasks.add(inParallel("Copying files", fileTasks, fileDestinations, maxConcurrent));
+        if (!templateTasks.isEmpty()) tasks.add(inParallel("Copying templates", templateTasks, templateDestinations, maxConcurrent));
 
         if (!tasks.isEmpty()) {
             String oldBlockingDetails = Tasks.setBlockingDetails("Copying resources");
@@ -440,9 +450,60 @@ public abstract class AbstractSoftwareProcessDriver implements SoftwareProcessDr
         }
     }
 
+    /**
+     * Runs the copy tasks with at most the given number at a time, by splitting them between that many
+     * sequential tasks run in parallel. Copies whose destinations overlap (the same file, or one under
+     * the other) are kept in the same lane, in their original order, so the last still wins.
+     */
+    private static TaskAdaptable<?> inParallel(String name, List<TaskAdaptable<?>> tasks, List<String> destinations, int maxConcurrent) {
+        if (maxConcurrent <= 1 || tasks.size() <= 1) {
+            return Tasks.sequential(name, tasks);
+        }
+        // group the copies by overlapping destination
+        int[] group = new int[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            group[i] = i;
+            for (int j = 0; j < i; j++) {
+                if (group[j] != group[i] && isOverlappingDestination(destinations.get(i), destinations.get(j))) {
+                    // merge i's group into j's
+                    int from = group[i], to = group[j];
+                    for (int k = 0; k <= i; k++) {
+                        if (group[k] == from) group[k] = to;
+                    }
+                }
+            }
+        }
+        // then deal the groups between the lanes, in order of first appearance
+        Map<Integer, Integer> laneOfGroup = new LinkedHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!laneOfGroup.containsKey(group[i])) laneOfGroup.put(group[i], laneOfGroup.size() % maxConcurrent);
+        }
+        List<List<TaskAdaptable<?>>> lanes = new ArrayList<>();
+        for (int i = 0; i < Math.min(maxConcurrent, laneOfGroup.size()); i++) {
+            lanes.add(new ArrayList<TaskAdaptable<?>>());
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            lanes.get(laneOfGroup.get(group[i])).add(tasks.get(i));
+        }
+        if (lanes.size() == 1) {
+            return Tasks.sequential(name, lanes.get(0));
+        }
+        List<TaskAdaptable<?>> laneTasks = new ArrayList<>(lanes.size());
+        for (List<TaskAdaptable<?>> lane : lanes) {
+            laneTasks.add(Tasks.sequential(lane));
+        }
+        return Tasks.parallel(name, laneTasks);
+    }
+
+    private static boolean isOverlappingDestination(String a, String b) {
+        String dirA = a.endsWith("/") ? a : a + "/";
+        String dirB = b.endsWith("/") ? b : b + "/";
+        return dirA.startsWith(dirB) || dirB.startsWith(dirA);
+    }
+
     private void applyFnToResourcesAppendToList(
             Map<String, String> resources, final Function<SourceAndDestination, Task<?>> function,
-            String destinationParentDir, final List<TaskAdaptable<?>> tasks) {
+            String destinationParentDir, final List<TaskAdaptable<?>> tasks, final List<String> destinations) {
 
         for (Map.Entry<String, String> entry : resources.entrySet()) {
             final String source = checkNotNull(entry.getKey(), "Missing source for resource");
@@ -462,7 +523,9 @@ public abstract class AbstractSoftwareProcessDriver implements SoftwareProcessDr
                         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
                             if (attrs.isRegularFile()) {
                                 Path relativePath = file.subpath(startElements, file.getNameCount());
-                                tasks.add(function.apply(new SourceAndDestination(file.toString(), Os.mergePathsUnix(destination, relativePath.toString()))));
+                                String fileDestination = Os.mergePathsUnix(destination, relativePath.toString());
+                                tasks.add(function.apply(new SourceAndDestination(file.toString(), fileDestination)));
+                                destinations.add(fileDestination);
                             }
                             return FileVisitResult.CONTINUE;
                         }
@@ -472,6 +535,7 @@ public abstract class AbstractSoftwareProcessDriver implements SoftwareProcessDr
                 }
             } else {
                 tasks.add(function.apply(new SourceAndDestination(source, destination)));
+                destinations.add(destination);
             }
         }
     }
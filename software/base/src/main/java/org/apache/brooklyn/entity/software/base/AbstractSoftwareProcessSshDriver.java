@@ -22,6 +22,7 @@ import static org.apache.brooklyn.util.JavaGroovyEquivalents.elvis;
 import static org.apache.brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,7 @@ import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.entity.drivers.downloads.DownloadCache;
 import org.apache.brooklyn.core.feed.ConfigToAttributes;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.entity.software.base.lifecycle.NaiveScriptRunner;
@@ -54,6 +56,7 @@ import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.ssh.BashCommands;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
 import org.apache.brooklyn.util.text.StringPredicates;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
@@ -61,10 +64,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -90,8 +96,19 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
 
     protected volatile DownloadResolver resolver;
 
+    /**
+     * Pre- and post- commands waiting to run as part of the next lifecycle script,
+     * when {@link SoftwareProcess#COMPOSE_LIFECYCLE_SCRIPTS} is set; guarded by itself.
+     */
+    private final List<DeferredCommand> deferredCommands = Lists.newArrayList();
+
     @Override
     public void prepare() {
+        synchronized (deferredCommands) {
+            // left over if a previous start failed part way through
+            deferredCommands.clear();
+        }
+
         // Check if we should create a download resolver?
         String downloadUrl = getEntity().config().get(SoftwareProcess.DOWNLOAD_URL);
         if (Strings.isNonEmpty(downloadUrl)) {
@@ -270,6 +287,9 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
             // could cause us to resolve config (e.g. block for attributeWhenReady) too early.
             environment = getShellEnvironment();
         }
+        if (Boolean.TRUE.equals(flags.remove(LIFECYCLE_SCRIPT_FLAG))) {
+            script = withDeferredCommands(script, environment);
+        }
         if (Tasks.current()!=null) {
             // attach tags here, as well as in ScriptHelper, because they may have just been read from the driver
             if (environment!=null) {
@@ -309,6 +329,7 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
 
     @Override
     public void copyInstallResources() {
+        executeDeferredCommandsIfPreCommandPending();
         final WithMutexes mutexSupport = getLocation().mutexes();
         String mutexId = "installation lock at host";
         mutexSupport.acquireMutex(mutexId, "installation lock at host for files and templates");
@@ -324,6 +345,7 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
 
     @Override
     public void copyCustomizeResources() {
+        executeDeferredCommandsIfPreCommandPending();
         final WithMutexes mutexSupport = getLocation().mutexes();
         String mutexId = "installation lock at host";
         mutexSupport.acquireMutex(mutexId, "installation lock at host for files and templates");
@@ -337,8 +359,26 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
         }
     }
 
-    private void executeSuccessfully(ConfigKey<String> configKey, String label) {
+    @Override
+    public void copyRuntimeResources() {
+        executeDeferredCommandsIfPreCommandPending();
+        super.copyRuntimeResources();
+    }
+
+    /**
+     * @param deferrable whether the commands may be run with the next lifecycle script, when
+     *                   {@link SoftwareProcess#COMPOSE_LIFECYCLE_SCRIPTS} is set
+     */
+    private void executeSuccessfully(ConfigKey<String> configKey, String label, boolean deferrable) {
         if(Strings.isNonBlank(getEntity().getConfig(configKey))) {
+            if (deferrable && isComposingLifecycleScripts()) {
+                log.debug("Deferring {} on entity {}, to run with the next lifecycle script", label, entity.getDisplayName());
+                synchronized (deferredCommands) {
+                    deferredCommands.add(new DeferredCommand(configKey.getName(), getEntity().getConfig(configKey), getShellEnvironment(),
+                            configKey.getName().startsWith("pre.")));
+                }
+                return;
+            }
             log.debug("Executing {} on entity {}", label, entity.getDisplayName());
             int result = execute(ImmutableList.of(getEntity().getConfig(configKey)), label);
             if (0 != result) {
@@ -348,34 +388,113 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
         }
     }
 
+    /**
+     * Runs any deferred pre- and post- commands that have not yet been run as part of a lifecycle script,
+     * in a single session.
+     */
+    protected void executeDeferredCommands() {
+        List<String> script = withDeferredCommands(ImmutableList.<String>of(), null);
+        if (script.isEmpty()) return;
+        log.debug("Executing deferred lifecycle commands on entity {}", entity.getDisplayName());
+        int result = execute(script, "running deferred lifecycle commands");
+        if (0 != result) {
+            log.debug("Executing deferred lifecycle commands failed with return code {}", result);
+            throw new IllegalStateException("deferred lifecycle commands failed with return code " + result + " (see stderr for the failed command)");
+        }
+    }
+
+    /**
+     * Runs the deferred commands now if one of them is a pre- command (e.g. pre-customize, when customize had
+     * no script to run it with), so that it does not run after the resources for a later phase are copied.
+     */
+    private void executeDeferredCommandsIfPreCommandPending() {
+        boolean prePending = false;
+        synchronized (deferredCommands) {
+            for (DeferredCommand command : deferredCommands) {
+                prePending |= command.pre;
+            }
+        }
+        if (prePending) executeDeferredCommands();
+    }
+
+    protected boolean isComposingLifecycleScripts() {
+        return Boolean.TRUE.equals(getEntity().getConfig(SoftwareProcess.COMPOSE_LIFECYCLE_SCRIPTS));
+    }
+
+    /**
+     * Prepends any deferred commands to the script, each run in a subshell (with its own environment, where that
+     * differs from the given environment) and ending the script with the command's exit code if it fails.
+     * Only that exit code and a line on stderr naming the failed command are reported; the results of the
+     * individual commands are not otherwise returned.
+     */
+    private List<String> withDeferredCommands(List<String> script, Map<String, String> environment) {
+        List<DeferredCommand> commands;
+        synchronized (deferredCommands) {
+            if (deferredCommands.isEmpty()) return script;
+            commands = ImmutableList.copyOf(deferredCommands);
+            deferredCommands.clear();
+        }
+        List<String> result = Lists.newArrayList();
+        for (DeferredCommand command : commands) {
+            result.add("# " + command.name);
+            result.add("(");
+            for (Map.Entry<String, String> entry : command.environment.entrySet()) {
+                if (environment == null || !Objects.equal(environment.get(entry.getKey()), entry.getValue())) {
+                    result.add("export " + entry.getKey() + "=" + BashStringEscapes.wrapBash(entry.getValue()));
+                }
+            }
+            result.add(command.command);
+            result.add(") || { BROOKLYN_RESULT=$?; echo \"" + command.name + " failed with exit code $BROOKLYN_RESULT\" >&2; exit $BROOKLYN_RESULT; }");
+        }
+        result.addAll(script);
+        return result;
+    }
+
+    private static class DeferredCommand {
+        final String name;
+        final String command;
+        final Map<String, String> environment;
+        final boolean pre;
+
+        DeferredCommand(String name, String command, Map<String, String> environment, boolean pre) {
+            this.name = name;
+            this.command = command;
+            this.environment = (environment == null) ? ImmutableMap.<String, String>of() : ImmutableMap.copyOf(environment);
+            this.pre = pre;
+        }
+    }
+
     @Override
     public void runPreInstallCommand() {
-        executeSuccessfully(BrooklynConfigKeys.PRE_INSTALL_COMMAND, "running pre-install commands");
+        // never deferred: setup and the copying of install resources come before the install script
+        executeSuccessfully(BrooklynConfigKeys.PRE_INSTALL_COMMAND, "running pre-install commands", false);
     }
 
     @Override
     public void runPostInstallCommand() {
-        executeSuccessfully(BrooklynConfigKeys.POST_INSTALL_COMMAND, "running post-install commands");
+        executeSuccessfully(BrooklynConfigKeys.POST_INSTALL_COMMAND, "running post-install commands", true);
     }
 
     @Override
     public void runPreCustomizeCommand() {
-        executeSuccessfully(BrooklynConfigKeys.PRE_CUSTOMIZE_COMMAND, "running pre-customize commands");
+        executeSuccessfully(BrooklynConfigKeys.PRE_CUSTOMIZE_COMMAND, "running pre-customize commands", true);
     }
 
     @Override
     public void runPostCustomizeCommand() {
-        executeSuccessfully(BrooklynConfigKeys.POST_CUSTOMIZE_COMMAND, "running post-customize commands");
+        executeSuccessfully(BrooklynConfigKeys.POST_CUSTOMIZE_COMMAND, "running post-customize commands", true);
     }
 
     @Override
     public void runPreLaunchCommand() {
-        executeSuccessfully(BrooklynConfigKeys.PRE_LAUNCH_COMMAND, "running pre-launch commands");
+        executeSuccessfully(BrooklynConfigKeys.PRE_LAUNCH_COMMAND, "running pre-launch commands", true);
     }
 
     @Override
     public void runPostLaunchCommand() {
-        executeSuccessfully(BrooklynConfigKeys.POST_LAUNCH_COMMAND, "running post-launch commands");
+        executeSuccessfully(BrooklynConfigKeys.POST_LAUNCH_COMMAND, "running post-launch commands", true);
+        // nothing follows launch, so run whatever has not yet been run with a lifecycle script
+        executeDeferredCommands();
     }
 
     /**
@@ -474,6 +593,74 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
         return result;
     }
 
+    /**
+     * Copies the artifact to the given path on the machine from the management node's {@link DownloadCache},
+     * if that is enabled, fetching it into the cache first unless another entity has already done so.
+     * <p>
+     * If the artifact cannot be fetched, the caller should download it on the machine instead; unless
+     * {@link SoftwareProcess#DOWNLOAD_CHECKSUM a checksum} is configured, in which case this fails rather
+     * than install an artifact which has not been verified.
+     *
+     * @return whether the artifact was copied; false if the cache is disabled or the artifact could not be fetched
+     */
+    protected boolean copyFromDownloadCache(DownloadResolver resolver, String target) {
+        DownloadCache cache = DownloadCache.getInstance(((EntityInternal)entity).getManagementContext().getConfig());
+        if (cache == null) return false;
+
+        String checksum = getEntity().getConfig(SoftwareProcess.DOWNLOAD_CHECKSUM);
+        if (Strings.isBlank(checksum)) checksum = null;
+        File artifact;
+        try {
+            artifact = cache.get(resource, resolver.getTargets(), resolver.getFilename(), checksum);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            if (checksum != null) throw Exceptions.propagate(e);
+            log.warn("Unable to fetch "+resolver.getFilename()+" into "+cache+" for "+entity+"; downloading at "+getMachine()+" instead: "+Exceptions.collapseText(e));
+            return false;
+        }
+        // not using copyResource, as that would first try to fetch the (local) path on the machine
+        String destination = Os.isAbsolutish(target) ? target : Os.mergePathsUnix(getRunDir(), target);
+        int result;
+        try {
+            int lastSlashIndex = destination.lastIndexOf("/");
+            if (lastSlashIndex > 0) {
+                getMachine().execCommands("createParentDir", ImmutableList.of("mkdir -p "+destination.substring(0, lastSlashIndex)));
+            }
+            String prevBlockingDetails = Tasks.setBlockingDetails("copying "+resolver.getFilename()+" from download cache to server at "+destination);
+            try {
+                result = getMachine().copyTo(getSshFlags(), artifact, destination);
+            } finally {
+                Tasks.setBlockingDetails(prevBlockingDetails);
+            }
+        } finally {
+            // so it can be evicted, once no other entity is copying it
+            cache.release(artifact);
+        }
+        if (result != 0) {
+            throw new IllegalStateException("Error copying "+artifact+" from download cache to "+destination+" at "+getMachine()+": result "+result);
+        }
+        log.debug("Copied {} from download cache for {} to {} on {}", new Object[] { artifact, entity, destination, getMachine() });
+        return true;
+    }
+
+    /**
+     * Commands which check the given file on the machine against {@link SoftwareProcess#DOWNLOAD_CHECKSUM},
+     * if one is configured, exiting with an error if it does not match. For artifacts downloaded on the machine
+     * itself; those {@link #copyFromDownloadCache(DownloadResolver, String) copied from the download cache}
+     * are verified on the management node.
+     */
+    protected List<String> commandsToVerifyDownloadChecksum(String file) {
+        String checksum = getEntity().getConfig(SoftwareProcess.DOWNLOAD_CHECKSUM);
+        if (Strings.isBlank(checksum)) return ImmutableList.of();
+        // e.g. sha256sum, from coreutils
+        String command = DownloadCache.algorithm(checksum) + "sum";
+        String digest = DownloadCache.digest(checksum).toLowerCase();
+        return ImmutableList.of(
+                "BROOKLYN_CHECKSUM=$(" + command + " " + BashStringEscapes.wrapBash(file) + " | cut -d ' ' -f 1)",
+                "if [ \"$BROOKLYN_CHECKSUM\" != " + BashStringEscapes.wrapBash(digest) + " ]; then "
+                        + "echo " + BashStringEscapes.wrapBash(file + " does not match checksum " + checksum) + " >&2; exit 1; fi");
+    }
+
     public void checkNoHostnameBug() {
         try {
             ProcessTaskWrapper<Integer> hostnameTask = DynamicTasks.queue(SshEffectorTasks.ssh("echo FOREMARKER; hostname; echo AFTMARKER")).block();
@@ -537,6 +724,12 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
      */
     public static final String DEBUG = "debug";
 
+    /**
+     * Set on the scripts for {@link #INSTALLING}, {@link #CUSTOMIZING} and {@link #LAUNCHING}, when
+     * {@link SoftwareProcess#COMPOSE_LIFECYCLE_SCRIPTS} is set, so deferred commands are run with them.
+     */
+    private static final String LIFECYCLE_SCRIPT_FLAG = "brooklyn.lifecycleScript";
+
     /** Permitted flags for {@link #newScript(Map, String)}. */
     public static final List<String> VALID_FLAGS =
             ImmutableList.of(USE_PID_FILE, PROCESS_OWNER, NON_STANDARD_LAYOUT, INSTALL_INCOMPLETE, DEBUG);
@@ -621,6 +814,9 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
         if (ImmutableSet.of(INSTALLING, LAUNCHING).contains(phase)) {
             s.updateTaskAndFailOnNonZeroResultCode();
         }
+        if (ImmutableSet.of(INSTALLING, CUSTOMIZING, LAUNCHING).contains(phase) && isComposingLifecycleScripts()) {
+            s.setFlag(LIFECYCLE_SCRIPT_FLAG, true);
+        }
         if (phase.equalsIgnoreCase(CHECK_RUNNING)) {
             s.setInessential();
             s.setTransient();
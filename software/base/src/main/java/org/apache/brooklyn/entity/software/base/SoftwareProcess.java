@@ -124,6 +124,25 @@ public interface SoftwareProcess extends Entity, Startable {
     @SetFromFlag("postLaunchCommand")
     ConfigKey<String> POST_LAUNCH_COMMAND = BrooklynConfigKeys.POST_LAUNCH_COMMAND;
 
+    /**
+     * Whether ssh drivers run the pre- and post- commands of customize and launch, and the post-install
+     * command, in the same session as the next lifecycle script, rather than each in a session of its own.
+     * <p>
+     * This only saves the sessions for those commands: each phase still runs its install, customize or launch
+     * script (and any resource copying) separately, and no per-command results are reported. If a deferred
+     * command fails, the script fails with its exit code, and the command is named only on stderr.
+     */
+    @Beta
+    @SetFromFlag("composeLifecycleScripts")
+    ConfigKey<Boolean> COMPOSE_LIFECYCLE_SCRIPTS = ConfigKeys.newBooleanConfigKey("softwareProcess.composeLifecycleScripts",
+            "Whether to run the post-install and the pre- and post- customize and launch commands as part of the next "
+                    + "install, customize or launch script, rather than each with its own ssh session (ssh drivers only). "
+                    + "The commands still run in order, but a post- command may run after the resources for the "
+                    + "next phase have been copied. A pre- command always runs before any later copy, and the "
+                    + "pre-install command always runs on its own. A failed command fails the script it was "
+                    + "run with, and is named on that script's stderr",
+            false);
+
     @SetFromFlag("env")
     MapConfigKey<Object> SHELL_ENVIRONMENT = BrooklynConfigKeys.SHELL_ENVIRONMENT;
 
@@ -133,6 +152,13 @@ public interface SoftwareProcess extends Entity, Startable {
     @SetFromFlag("downloadUrl")
     AttributeSensorAndConfigKey<String,String> DOWNLOAD_URL = Attributes.DOWNLOAD_URL;
 
+    @SetFromFlag("downloadChecksum")
+    ConfigKey<String> DOWNLOAD_CHECKSUM = ConfigKeys.newStringConfigKey("download.checksum",
+            "Checksum of the artifact at the download URL, verified when it is fetched into the management node's "
+            + "download cache (see DownloadCache), or otherwise on the machine after downloading it there (needing the "
+            + "coreutils md5sum, sha1sum, sha256sum or sha512sum); a hex string, optionally prefixed with the algorithm, "
+            + "e.g. 'sha256:...'");
+
     @SetFromFlag("downloadAddonUrls")
     AttributeSensorAndConfigKey<Map<String,String>,Map<String,String>> DOWNLOAD_ADDON_URLS = Attributes.DOWNLOAD_ADDON_URLS;
 
@@ -299,6 +325,18 @@ public interface SoftwareProcess extends Entity, Startable {
             .runtimeInheritance(BasicConfigInheritance.NOT_REINHERITED_ELSE_DEEP_MERGE)
             .build();
 
+    /**
+     * The number of files (and templates) of each phase to copy to the server concurrently.
+     *
+     * @see #INSTALL_FILES
+     */
+    @Beta
+    @SetFromFlag("filesCopyParallelism")
+    ConfigKey<Integer> FILES_COPY_PARALLELISM = ConfigKeys.newIntegerConfigKey("files.copy.parallelism",
+            "Maximum number of files (or templates) of each phase to copy to the server concurrently; "
+            + "all files are copied before any templates, and files whose destinations overlap are copied in order; "
+            + "1 (the default) copies them one at a time, in order", 1);
+
     @SetFromFlag("provisioningProperties")
     MapConfigKey<Object> PROVISIONING_PROPERTIES = BrooklynConfigKeys.PROVISIONING_PROPERTIES;
 
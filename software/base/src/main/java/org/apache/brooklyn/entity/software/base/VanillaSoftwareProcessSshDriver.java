@@ -90,7 +90,10 @@ public class VanillaSoftwareProcessSshDriver extends AbstractSoftwareProcessSshD
             downloadedFilename = resolver.getFilename();
 
             List<String> commands = new LinkedList<String>();
-            commands.addAll(BashCommands.commandsToDownloadUrlsAs(urls, downloadedFilename));
+            if (!copyFromDownloadCache(resolver, Urls.mergePaths(getInstallDir(), downloadedFilename))) {
+                commands.addAll(BashCommands.commandsToDownloadUrlsAs(urls, downloadedFilename));
+                commands.addAll(commandsToVerifyDownloadChecksum(downloadedFilename));
+            }
             commands.addAll(ArchiveUtils.installCommands(downloadedFilename));
 
             int result = newScript(ImmutableMap.of(INSTALL_INCOMPLETE, true), INSTALLING)
@@ -107,6 +110,11 @@ public class VanillaSoftwareProcessSshDriver extends AbstractSoftwareProcessSshD
                 }
                 if (result != 0) 
                     throw new IllegalStateException("Error installing archive: " + downloadedFilename);
+                List<String> verify = commandsToVerifyDownloadChecksum(Urls.mergePaths(getInstallDir(), downloadedFilename));
+                if (!verify.isEmpty() && execute(verify, "verifying checksum of "+downloadedFilename) != 0) {
+                    throw new IllegalStateException("Archive " + downloadedFilename + " does not match checksum "
+                            + getEntity().getConfig(SoftwareProcess.DOWNLOAD_CHECKSUM));
+                }
             }
         }
         
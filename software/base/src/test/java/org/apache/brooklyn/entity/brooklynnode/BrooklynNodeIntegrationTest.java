@@ -25,7 +25,6 @@ import static org.testng.Assert.fail;
 
 import java.io.File;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.util.Collections;
 import java.util.List;
@@ -689,7 +688,7 @@ services:
     
     private BrooklynNodeSshDriver getDriver(BrooklynNode brooklynNode) {
         try {
-            EntityProxyImpl entityProxy = (EntityProxyImpl)Proxy.getInvocationHandler(brooklynNode);
+            EntityProxyImpl entityProxy = EntityProxyImpl.getProxyHandler(brooklynNode);
             Method getDriver = BrooklynNodeImpl.class.getMethod("getDriver");
             return (BrooklynNodeSshDriver)entityProxy.invoke(brooklynNode, getDriver, new Object[]{});
         } catch (Throwable e) {
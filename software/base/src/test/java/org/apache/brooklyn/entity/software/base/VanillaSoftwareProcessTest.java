@@ -20,9 +20,11 @@ package org.apache.brooklyn.entity.software.base;
 
 import static org.apache.brooklyn.util.core.internal.ssh.ExecCmdAsserts.*;
 
+import java.io.File;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.Location;
@@ -32,6 +34,7 @@ import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityAsserts;
+import org.apache.brooklyn.core.entity.drivers.downloads.DownloadCache;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.sensor.function.FunctionSensor;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
@@ -45,17 +48,22 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
 import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.CustomResponse;
 import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.CustomResponseGenerator;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.ExecCmd;
 import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.ExecCmdPredicates;
 import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.ExecParams;
+import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.time.Duration;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Functions;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 public class VanillaSoftwareProcessTest extends BrooklynAppUnitTestSupport {
 
@@ -108,6 +116,93 @@ public class VanillaSoftwareProcessTest extends BrooklynAppUnitTestSupport {
         assertExecContains(RecordingSshTool.getLastExecCmd(), "stopCommand");
     }
 
+    @Test
+    public void testComposedLifecycleScripts() throws Exception {
+        app.createAndManageChild(EntitySpec.create(VanillaSoftwareProcess.class)
+                .configure(VanillaSoftwareProcess.COMPOSE_LIFECYCLE_SCRIPTS, true)
+                .configure(VanillaSoftwareProcess.PRE_INSTALL_COMMAND, "preInstallCommand")
+                .configure(VanillaSoftwareProcess.INSTALL_COMMAND, "installCommand")
+                .configure(VanillaSoftwareProcess.POST_INSTALL_COMMAND, "postInstallCommand")
+                .configure(VanillaSoftwareProcess.PRE_CUSTOMIZE_COMMAND, "preCustomizeCommand")
+                .configure(VanillaSoftwareProcess.CUSTOMIZE_COMMAND, "customizeCommand")
+                .configure(VanillaSoftwareProcess.POST_CUSTOMIZE_COMMAND, "postCustomizeCommand")
+                .configure(VanillaSoftwareProcess.PRE_LAUNCH_COMMAND, "preLaunchCommand")
+                .configure(VanillaSoftwareProcess.LAUNCH_COMMAND, "launchCommand")
+                .configure(VanillaSoftwareProcess.POST_LAUNCH_COMMAND, "postLaunchCommand")
+                .configure(VanillaSoftwareProcess.CHECK_RUNNING_COMMAND, "checkRunningCommand"));
+        app.start(ImmutableList.of(loc));
+
+        // each other pre- and post- command runs once, in the same session as the next lifecycle script
+        for (String cmd : ImmutableList.of("preInstallCommand", "postInstallCommand", "preCustomizeCommand",
+                "postCustomizeCommand", "preLaunchCommand", "postLaunchCommand")) {
+            assertExecHasOnlyOnce(RecordingSshTool.getExecCmds(), cmd);
+        }
+        // pre-install is not deferred past setup and the copying of install resources
+        assertExecNotContains(findExecContaining(RecordingSshTool.getExecCmds(), "preInstallCommand"), ImmutableList.of("installCommand"));
+        ExecCmd customize = findExecContaining(RecordingSshTool.getExecCmds(), "customizeCommand");
+        assertExecContains(customize, "postInstallCommand");
+        assertExecContains(customize, "preCustomizeCommand");
+        ExecCmd launch = findExecContaining(RecordingSshTool.getExecCmds(), "launchCommand");
+        assertExecContains(launch, "postCustomizeCommand");
+        assertExecContains(launch, "preLaunchCommand");
+        assertExecNotContains(findExecContaining(RecordingSshTool.getExecCmds(), "postLaunchCommand"), ImmutableList.of("launchCommand"));
+    }
+
+    @Test
+    public void testInstallsFromDownloadCache() throws Exception {
+        File tempDir = Os.newTempDir(getClass());
+        try {
+            File artifact = new File(tempDir, "myartifact.tar.gz");
+            Files.write("my artifact", artifact, Charsets.UTF_8);
+            String url = artifact.toURI().toString();
+            mgmt.getBrooklynProperties().put(DownloadCache.ENABLED, true);
+            mgmt.getBrooklynProperties().put(DownloadCache.PATH, new File(tempDir, "cache").getAbsolutePath());
+
+            app.createAndManageChild(EntitySpec.create(VanillaSoftwareProcess.class)
+                    .configure(VanillaSoftwareProcess.DOWNLOAD_URL, url)
+                    .configure(VanillaSoftwareProcess.DOWNLOAD_CHECKSUM, Files.hash(artifact, Hashing.sha256()).toString())
+                    .configure(VanillaSoftwareProcess.LAUNCH_COMMAND, "launchCommand")
+                    .configure(VanillaSoftwareProcess.CHECK_RUNNING_COMMAND, "checkRunningCommand"));
+            app.start(ImmutableList.of(loc));
+
+            // copied from the management node, rather than downloaded by the machine
+            assertExecsNotContains(RecordingSshTool.getExecCmds(), ImmutableList.of(".*curl.*" + Pattern.quote(url) + ".*"));
+            assertExecHasOnlyOnce(RecordingSshTool.getExecCmds(), "launchCommand");
+        } finally {
+            Os.deleteRecursively(tempDir);
+        }
+    }
+
+    @Test
+    public void testVerifiesChecksumOnMachineWithoutDownloadCache() throws Exception {
+        String sha256 = Hashing.sha256().hashString("my artifact", Charsets.UTF_8).toString();
+        app.createAndManageChild(EntitySpec.create(VanillaSoftwareProcess.class)
+                .configure(VanillaSoftwareProcess.DOWNLOAD_URL, "http://example.com/myartifact.tar.gz")
+                .configure(VanillaSoftwareProcess.DOWNLOAD_CHECKSUM, "sha256:"+sha256)
+                .configure(VanillaSoftwareProcess.LAUNCH_COMMAND, "launchCommand")
+                .configure(VanillaSoftwareProcess.CHECK_RUNNING_COMMAND, "checkRunningCommand"));
+        app.start(ImmutableList.of(loc));
+
+        // checked in the same script that downloads it
+        ExecCmd download = findExecContaining(RecordingSshTool.getExecCmds(), ".*curl.*myartifact.tar.gz.*");
+        assertExecContains(download, ".*sha256sum.*");
+        assertExecContains(download, ".*" + sha256 + ".*");
+    }
+
+    @Test
+    public void testComposedPreCommandNotDeferredPastResourceCopy() throws Exception {
+        app.createAndManageChild(EntitySpec.create(VanillaSoftwareProcess.class)
+                .configure(VanillaSoftwareProcess.COMPOSE_LIFECYCLE_SCRIPTS, true)
+                .configure(VanillaSoftwareProcess.PRE_CUSTOMIZE_COMMAND, "preCustomizeCommand")
+                .configure(VanillaSoftwareProcess.LAUNCH_COMMAND, "launchCommand")
+                .configure(VanillaSoftwareProcess.CHECK_RUNNING_COMMAND, "checkRunningCommand"));
+        app.start(ImmutableList.of(loc));
+
+        // with no customize script to run it with, pre-customize runs before the runtime resources are copied
+        assertExecHasOnlyOnce(RecordingSshTool.getExecCmds(), "preCustomizeCommand");
+        assertExecNotContains(findExecContaining(RecordingSshTool.getExecCmds(), "preCustomizeCommand"), ImmutableList.of("launchCommand"));
+    }
+
     // See https://issues.apache.org/jira/browse/BROOKLYN-273
     @Test
     public void testRestartCmds() throws Exception {
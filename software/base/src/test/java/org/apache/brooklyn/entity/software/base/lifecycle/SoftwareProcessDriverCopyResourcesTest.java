@@ -91,6 +91,45 @@ public class SoftwareProcessDriverCopyResourcesTest extends BrooklynAppUnitTestS
         testPhase(SoftwareProcess.RUNTIME_FILES, SoftwareProcess.RUNTIME_TEMPLATES, SoftwareProcess.RUN_DIR);
     }
 
+    @Test
+    public void testCopiesManyFilesConcurrently() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Files.write(TEST_CONTENT_FILE+i, new File(sourceFileDir, "file"+i), Charset.defaultCharset());
+        }
+        final EmptySoftwareProcess testEntity =
+            app.createAndManageChild(EntitySpec.create(EmptySoftwareProcess.class)
+                .configure(SoftwareProcess.FILES_COPY_PARALLELISM, 3)
+                .configure(SoftwareProcess.INSTALL_FILES.getName(),
+                    ImmutableMap.of(sourceFileDir.getAbsolutePath(), "files")));
+
+        app.start(ImmutableList.of(location));
+        final File installDir = new File(testEntity.sensors().get(SoftwareProcess.INSTALL_DIR));
+        for (int i = 0; i < 10; i++) {
+            File installed = new File(new File(installDir, "files"), "file"+i);
+            assertEquals(Files.readFirstLine(installed, Charset.defaultCharset()), TEST_CONTENT_FILE+i);
+        }
+    }
+
+    @Test
+    public void testOverlappingDestinationsCopiedInOrderWhenConcurrent() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Files.write(TEST_CONTENT_FILE+i, new File(sourceFileDir, "file"+i), Charset.defaultCharset());
+        }
+        File override = new File(sourceTemplateDir, "override");
+        Files.write("overridden", override, Charset.defaultCharset());
+        final EmptySoftwareProcess testEntity =
+            app.createAndManageChild(EntitySpec.create(EmptySoftwareProcess.class)
+                .configure(SoftwareProcess.FILES_COPY_PARALLELISM, 3)
+                .configure(SoftwareProcess.INSTALL_FILES.getName(), ImmutableMap.of(
+                    sourceFileDir.getAbsolutePath(), "files",
+                    override.getAbsolutePath(), "files/file9")));
+
+        app.start(ImmutableList.of(location));
+        final File installDir = new File(testEntity.sensors().get(SoftwareProcess.INSTALL_DIR));
+        assertEquals(Files.readFirstLine(new File(new File(installDir, "files"), "file9"), Charset.defaultCharset()), "overridden");
+        assertEquals(Files.readFirstLine(new File(new File(installDir, "files"), "file0"), Charset.defaultCharset()), TEST_CONTENT_FILE+0);
+    }
+
     private void testPhase(MapConfigKey<String> filePhase, MapConfigKey<String> templatePhase,
                            AttributeSensor<String> directory) throws IOException {
 
@@ -86,6 +86,14 @@ public interface WinRmTool {
             "Size of file chunks (in bytes) to be used when copying a file to the remote server", 
             1024);
 
+    // May be ignored by implementations that do not use shells, or that cannot keep them open.
+    @Beta
+    ConfigKey<Boolean> REUSE_SHELLS = ConfigKeys.newBooleanConfigKey(
+            "winrm.reuseShells",
+            "Whether to keep WinRM shells open between commands, running later commands to the same machine "
+                    + "(with the same credentials) in an existing shell rather than creating and deleting one each time",
+            false);
+
     ConfigKey<String> ADDITIONAL_CONNECTION_METADATA = newStringConfigKey("additional.connection.metadata",
             "Can be used to pass additional custom data to the WinrmTool, which is especially useful " +
                     "if writing a bespoke tool implementation");
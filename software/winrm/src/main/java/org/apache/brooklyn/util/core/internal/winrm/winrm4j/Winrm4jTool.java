@@ -20,11 +20,22 @@ package org.apache.brooklyn.util.core.internal.winrm.winrm4j;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.Closeable;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.ws.soap.SOAPFaultException;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.config.ConfigKey;
@@ -37,6 +48,9 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.internal.winrm.WinRmException;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.javalang.Threads;
+import org.apache.brooklyn.util.pool.BasicPool;
+import org.apache.brooklyn.util.pool.Lease;
+import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
@@ -46,11 +60,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import io.cloudsoft.winrm4j.client.WinRmClient;
 import io.cloudsoft.winrm4j.client.WinRmClientContext;
 import io.cloudsoft.winrm4j.winrm.WinRmTool;
 import io.cloudsoft.winrm4j.winrm.WinRmToolResponse;
@@ -69,6 +94,35 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
             "Whether to log the WinRM credentials used - strongly recommended never be used in production, as it is a big security hole!",
             false);
 
+    /** Pooled shells idle for longer than this are deleted rather than reused. */
+    public static final Duration SHELL_MAX_IDLE = Duration.ONE_MINUTE;
+
+    /** How often {@link #SHELL_POOLS} is checked for pools to close; the cache does not expire them on its own. */
+    private static final Duration SHELL_POOL_REAP_PERIOD = Duration.TEN_SECONDS;
+
+    /**
+     * Idle shells, keyed by everything used to create them (with the password hashed). Pools unused for
+     * a while are closed by {@link #shellPoolReaper}, deleting their shells.
+     */
+    private static final Cache<List<Object>, ShellPool> SHELL_POOLS = CacheBuilder.newBuilder()
+            .expireAfterAccess(SHELL_MAX_IDLE.toMilliseconds(), TimeUnit.MILLISECONDS)
+            .removalListener(new RemovalListener<List<Object>, ShellPool>() {
+                @Override
+                public void onRemoval(RemovalNotification<List<Object>, ShellPool> notification) {
+                    Streams.closeQuietly(notification.getValue());
+                }})
+            .build();
+
+    /** Closes expired pools in {@link #SHELL_POOLS}; only runs while there are pools. Guarded by the class lock. */
+    private static ScheduledExecutorService shellPoolReaper;
+
+    /**
+     * Shared by all instances that are not given a {@link #CONTEXT}, so they do not each start their own CXF bus.
+     * Shut down when no command or pool is using it. Guarded by the class lock, as is {@link #sharedContextUsers}.
+     */
+    private static WinRmClientContext sharedContext;
+    private static int sharedContextUsers;
+
     private final ConfigBag bag;
     private final String host;
     private final Integer port;
@@ -83,6 +137,9 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
     private final String operationTimeout;
     private final Integer retriesOfNetworkFailures;
     private final Map<String, String> environment;
+    private final boolean reuseShells;
+    /** The context given in config, or null to use {@link #sharedContext}. */
+    private final WinRmClientContext context;
 
     private ManagementContext mgmt;
 
@@ -105,6 +162,8 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
         operationTimeout = config.get(OPERATION_TIMEOUT);
         retriesOfNetworkFailures = config.get(RETRIES_OF_NETWORK_FAILURES);
         environment = config.get(ENVIRONMENT);
+        reuseShells = Boolean.TRUE.equals(config.get(REUSE_SHELLS));
+        context = config.get(CONTEXT);
     }
 
     @Override
@@ -118,7 +177,7 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
             @Override public WinRmToolResponse apply(io.cloudsoft.winrm4j.winrm.WinRmTool tool) {
                 return tool.executeCommand(commands);
             }
-        });
+        }, joinCommands(commands));
     }
 
     @Override
@@ -133,7 +192,7 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
             @Override public WinRmToolResponse apply(io.cloudsoft.winrm4j.winrm.WinRmTool tool) {
                 return tool.executePs(commands);
             }
-        });
+        }, compilePs(joinPs(commands)));
     }
 
     @Override
@@ -163,35 +222,40 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
         }
     }
 
-    private org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse exec(Function<io.cloudsoft.winrm4j.winrm.WinRmTool, io.cloudsoft.winrm4j.winrm.WinRmToolResponse> task) {
+    /**
+     * Runs the task on a new {@link WinRmTool}, or if {@link #REUSE_SHELLS} is set runs the equivalent
+     * command line on a pooled shell.
+     */
+    private org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse exec(Function<io.cloudsoft.winrm4j.winrm.WinRmTool, io.cloudsoft.winrm4j.winrm.WinRmToolResponse> task, String shellCommand) {
         Collection<Throwable> exceptions = Lists.newArrayList();
         Stopwatch totalStopwatch = Stopwatch.createStarted();
         
         for (int i = 0; i < execTries; i++) {
             Stopwatch stopwatch = Stopwatch.createStarted();
-            Duration connectTimestamp = null;
             Duration execTimestamp = null;
             try {
-                WinRmTool tool = connect();
-                tool.setRetriesForConnectionFailures(retriesOfNetworkFailures);
-                tool.setOperationTimeout(Duration.of(operationTimeout).toMilliseconds());
-                connectTimestamp = Duration.of(stopwatch);
-                WinRmToolResponse result = task.apply(tool);
+                org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse result;
+                if (reuseShells) {
+                    result = execOnPooledShell(shellCommand);
+                } else {
+                    WinRmTool tool = connect();
+                    tool.setRetriesForConnectionFailures(retriesOfNetworkFailures);
+                    tool.setOperationTimeout(Duration.of(operationTimeout).toMilliseconds());
+                    result = wrap(task.apply(tool));
+                }
                 execTimestamp = Duration.of(stopwatch);
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Finished WinRM exec on "+user+"@"+host+":"+port+" "
                             + (logCredentials ? "password=" + password : "")
-                            + " done after "+Duration.of(execTimestamp).toStringRounded()
-                            + " (connected in "+Duration.of(connectTimestamp).toStringRounded() + ")");
+                            + " done after "+Duration.of(execTimestamp).toStringRounded());
                 }
-                return wrap(result);
+                return result;
             } catch (Exception e) {
                 Exceptions.propagateIfFatal(e);
                 Duration sleep = Duration.millis(Math.min(Math.pow(2, i) * 1000, execRetryDelay.toMilliseconds()));
                 Duration failTimestamp = Duration.of(stopwatch);
                 String timeMsg = "total time "+Duration.of(totalStopwatch).toStringRounded()
-                        + ", this attempt failed after "+Duration.of(failTimestamp).toStringRounded()
-                        + (connectTimestamp != null ? ", connected in "+Duration.of(connectTimestamp).toStringRounded() : "");
+                        + ", this attempt failed after "+Duration.of(failTimestamp).toStringRounded();
                 
                 if ((i + 1) == execTries) {
                     LOG.info("Propagating exception - WinRM failed on "+user+"@"+host+":"+port+" "
@@ -214,6 +278,120 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
         throw propagate(Exceptions.create("failed to execute command", exceptions), "");
     }
 
+    /**
+     * Runs the command on an idle shell from the pool for this endpoint and credentials, creating one if
+     * there is none. If a shell that has been used before rejects the command, it is assumed to have been
+     * deleted by the server (e.g. after its idle timeout) so is discarded, and the command is tried on another
+     * shell. Any other failure is propagated as normal: once the server has accepted the command it may have
+     * run, so it is not sent again here.
+     */
+    private org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse execOnPooledShell(String command) throws Exception {
+        final List<Object> poolKey = ImmutableList.<Object>of(getEndpointUrl(host, useSecureWinrm, port), String.valueOf(authenticationScheme), String.valueOf(computerName),
+                user, Hashing.sha256().hashString(password, StandardCharsets.UTF_8).toString(), String.valueOf(environment),
+                String.valueOf(operationTimeout), String.valueOf(retriesOfNetworkFailures), Optional.fromNullable(context));
+        // holds the shared context while the command runs, even if the pool is closed meanwhile
+        acquireContext();
+        try {
+            while (true) {
+                ShellPool pool = SHELL_POOLS.get(poolKey, new Callable<ShellPool>() {
+                    @Override public ShellPool call() {
+                        return new ShellPool(acquireContext(), context == null);
+                    }
+                });
+                startShellPoolReaper();
+                Lease<Shell> lease;
+                try {
+                    lease = pool.shells.leaseObject();
+                } catch (IllegalStateException e) {
+                    // pool was closed on expiry just after we looked it up; the next look-up creates a new one
+                    SHELL_POOLS.asMap().remove(poolKey, pool);
+                    continue;
+                }
+                Shell shell = lease.leasedObject();
+                boolean reused = shell.uses > 0;
+                try {
+                    return shell.command(command);
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    shell.broken = true;
+                    if (!reused || shell.accepted || Exceptions.getFirstThrowableOfType(e, SOAPFaultException.class) == null) throw e;
+                    if (LOG.isDebugEnabled()) LOG.debug("WinRM shell on "+this+" rejected command after "+(shell.uses-1)+" use(s); retrying on another shell", e);
+                } finally {
+                    Streams.closeQuietly(lease);
+                }
+            }
+        } finally {
+            releaseContext();
+        }
+    }
+
+    /** Returns the context for new clients, which must be given back with {@link #releaseContext()}. */
+    private WinRmClientContext acquireContext() {
+        return (context != null) ? context : acquireSharedContext();
+    }
+
+    private void releaseContext() {
+        if (context == null) releaseSharedContext();
+    }
+
+    /**
+     * The idle shells for one key of {@link #SHELL_POOLS}, all created with the same context. Holds
+     * the shared context (if that is what it uses) until closed.
+     */
+    private class ShellPool implements Closeable {
+        private final BasicPool<Shell> shells;
+        private final boolean usesSharedContext;
+
+        ShellPool(final WinRmClientContext context, boolean usesSharedContext) {
+            this.usesSharedContext = usesSharedContext;
+            this.shells = BasicPool.<Shell>builder()
+                    .name(Winrm4jTool.this.toString())
+                    .supplier(new Supplier<Shell>() {
+                        @Override public Shell get() {
+                            return newShell(context);
+                        }})
+                    .viabilityChecker(new Predicate<Shell>() {
+                        @Override public boolean apply(Shell input) {
+                            return !input.broken && System.currentTimeMillis() - input.lastUsed < SHELL_MAX_IDLE.toMilliseconds();
+                        }})
+                    .closer(new Function<Shell, Void>() {
+                        @Override public Void apply(Shell input) {
+                            input.disconnect();
+                            return null;
+                        }})
+                    .build();
+        }
+
+        @Override
+        public void close() {
+            try {
+                Streams.closeQuietly(shells);
+            } finally {
+                if (usesSharedContext) releaseSharedContext();
+            }
+        }
+    }
+
+    private Shell newShell(WinRmClientContext context) {
+        WinRmClient.Builder builder = WinRmClient.builder(getEndpointUrl(host, useSecureWinrm, port), authenticationScheme)
+                .credentials(computerName, user, password)
+                .operationTimeout(Duration.of(operationTimeout).toMilliseconds())
+                .context(context);
+        if (retriesOfNetworkFailures != null) {
+            builder.retriesForConnectionFailures(retriesOfNetworkFailures);
+        }
+        if (environment != null) {
+            builder.environment(environment);
+        }
+
+        // FIXME USE_HTTPS_WINRM shouldn't disable certificates checks
+        // However to do that Winrm4JTool should also support whitelisting certificates.
+        if (useSecureWinrm) {
+            builder.disableCertificateChecks(true);
+        }
+        return new Shell(builder.build());
+    }
+
     private io.cloudsoft.winrm4j.winrm.WinRmTool connect() {
         WinRmTool.Builder builder = WinRmTool.Builder.builder(host, computerName, user, password)
                 .setAuthenticationScheme(authenticationScheme)
@@ -231,6 +409,154 @@ public class Winrm4jTool implements org.apache.brooklyn.util.core.internal.winrm
         return builder.build();
     }
 
+    // The methods below give pooled shells the same endpoint and command lines as WinRmTool,
+    // whose own versions are private; they follow winrm4j 0.5.0 exactly.
+
+    private static final Pattern ENDPOINT_PORT = Pattern.compile(".*:(\\d+)$");
+
+    /** As {@code WinRmTool.Builder.getEndpointUrl}. */
+    @VisibleForTesting
+    static String getEndpointUrl(String address, Boolean useHttps, Integer port) {
+        if (address.startsWith("http:") || address.startsWith("https:")) {
+            if (useHttps != null) {
+                if (useHttps && address.startsWith("http:"))
+                    throw new IllegalArgumentException("Invalid setting useHttps and address starting http://");
+                if (!useHttps && address.startsWith("https:"))
+                    throw new IllegalArgumentException("Invalid setting useHttp and address starting https://");
+            }
+            return address;
+        }
+        Matcher matcher = ENDPOINT_PORT.matcher(address);
+        if (matcher.matches()) {
+            if (useHttps == null) {
+                useHttps = matcher.group(1).equals("5986");
+            }
+            return (useHttps ? "https" : "http") + "://" + address + "/wsman";
+        }
+        if (useHttps != null) {
+            port = (port != null) ? port : (useHttps ? WinRmTool.DEFAULT_WINRM_HTTPS_PORT : WinRmTool.DEFAULT_WINRM_PORT);
+        }
+        if (useHttps != null && useHttps) {
+            return "https://" + address + ":" + port + "/wsman";
+        } else {
+            return "http://" + address + ":" + port + "/wsman";
+        }
+    }
+
+    /** As {@code WinRmTool.joinCommands}. */
+    @VisibleForTesting
+    static String joinCommands(List<String> commands) {
+        return join(commands, " & ", false);
+    }
+
+    /** As {@code WinRmTool.joinPs}. */
+    @VisibleForTesting
+    static String joinPs(List<String> commands) {
+        return join(commands, "\r\n", true);
+    }
+
+    private static String join(List<String> commands, String delim, boolean endWithDelim) {
+        StringBuilder result = new StringBuilder();
+        boolean first = true;
+        for (String command : commands) {
+            if (first) {
+                first = false;
+            } else {
+                result.append(delim);
+            }
+            result.append(command);
+        }
+        if (endWithDelim) {
+            result.append(delim);
+        }
+        return result.toString();
+    }
+
+    /** As {@code WinRmTool.compilePs}. */
+    @VisibleForTesting
+    static String compilePs(String script) {
+        byte[] bytes = script.getBytes(StandardCharsets.UTF_16LE);
+        return "powershell -encodedcommand " + new String(Base64.encodeBase64(bytes), StandardCharsets.US_ASCII);
+    }
+
+    private static synchronized WinRmClientContext acquireSharedContext() {
+        if (sharedContext == null) {
+            sharedContext = WinRmClientContext.newInstance();
+        }
+        sharedContextUsers++;
+        return sharedContext;
+    }
+
+    private static synchronized void releaseSharedContext() {
+        if (--sharedContextUsers == 0) {
+            sharedContext.shutdown();
+            sharedContext = null;
+        }
+    }
+
+    private static synchronized void startShellPoolReaper() {
+        if (shellPoolReaper != null) return;
+        shellPoolReaper = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("brooklyn-winrm-shell-reaper-%d").setDaemon(true).build());
+        shellPoolReaper.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    reapShellPools();
+                }},
+                SHELL_POOL_REAP_PERIOD.toMilliseconds(), SHELL_POOL_REAP_PERIOD.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void reapShellPools() {
+        // closes expired pools through the removal listener, outside the class lock as that releases the shared context
+        SHELL_POOLS.cleanUp();
+        synchronized (Winrm4jTool.class) {
+            // a pool added after this is seen by startShellPoolReaper, which starts a new reaper
+            if (SHELL_POOLS.size() == 0 && shellPoolReaper != null) {
+                shellPoolReaper.shutdown();
+                shellPoolReaper = null;
+            }
+        }
+    }
+
+    /**
+     * A remote shell; the server creates it on the first command, and later commands run in the same shell
+     * until it is disconnected. Only ever used by one lessee at a time.
+     */
+    private static class Shell {
+        private final WinRmClient client;
+        private volatile int uses;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile boolean broken;
+        /** Whether the server accepted the last command, so it may have run even if the call then failed. */
+        private volatile boolean accepted;
+
+        Shell(WinRmClient client) {
+            this.client = client;
+        }
+
+        org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse command(String command) {
+            StringWriter out = new StringWriter();
+            StringWriter err = new StringWriter();
+            try {
+                int exitCode = client.command(command, out, err);
+                return new org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse(out.toString(), err.toString(), exitCode);
+            } finally {
+                // the client starts receiving output only once the server has accepted the command
+                accepted = client.getNumberOfReceiveCalls() > 0;
+                uses++;
+                lastUsed = System.currentTimeMillis();
+            }
+        }
+
+        void disconnect() {
+            try {
+                client.disconnect();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (LOG.isDebugEnabled()) LOG.debug("Error disconnecting WinRM shell (continuing)", e);
+            }
+        }
+    }
+
     private <T> T getRequiredConfig(ConfigBag bag, ConfigKey<T> key) {
         T result = bag.get(key);
         if (result == null) {
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.internal.winrm.winrm4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.commons.codec.binary.Base64;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal WS-Man endpoint on localhost, enough for winrm4j to create a shell, run commands in it and
+ * delete it. Each command succeeds, echoing its command line to stdout. Records what it is asked to do.
+ */
+public class WinRmStubServer implements AutoCloseable {
+
+    private static final Pattern ACTION = Pattern.compile("<(?:\\w+:)?Action[^>]*>([^<]*)</");
+    private static final Pattern SHELL_ID = Pattern.compile("<(?:\\w+:)?Selector Name=\"ShellId\"[^>]*>([^<]*)</");
+    private static final Pattern COMMAND = Pattern.compile("<(?:\\w+:)?Command>([^<]*)</");
+    private static final Pattern MESSAGE_ID = Pattern.compile("<(?:\\w+:)?MessageID[^>]*>([^<]*)</");
+    private static final Pattern COMMAND_ID = Pattern.compile("CommandId=\"([^\"]*)\"");
+
+    private static final String ACTION_PREFIX_TRANSFER = "http://schemas.xmlsoap.org/ws/2004/09/transfer/";
+    private static final String ACTION_PREFIX_SHELL = "http://schemas.microsoft.com/wbem/wsman/1/windows/shell/";
+
+    private final HttpServer server;
+    private final AtomicInteger counter = new AtomicInteger();
+    private final List<String> shellsCreated = MutableList.of();
+    private final List<String> shellsDeleted = MutableList.of();
+    /** The shell each command ran in, and its (unescaped) command line. */
+    private final List<Map.Entry<String, String>> commands = MutableList.of();
+    private final Map<String, String> commandLinesById = MutableMap.of();
+
+    public WinRmStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/wsman", new HttpHandler() {
+            @Override public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    respond(exchange, Streams.readFullyString(exchange.getRequestBody()));
+                } finally {
+                    exchange.close();
+                }
+            }});
+        server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/wsman";
+    }
+
+    public synchronized List<String> getShellsCreated() {
+        return ImmutableList.copyOf(shellsCreated);
+    }
+
+    public synchronized List<String> getShellsDeleted() {
+        return ImmutableList.copyOf(shellsDeleted);
+    }
+
+    public synchronized List<Map.Entry<String, String>> getCommands() {
+        return ImmutableList.copyOf(commands);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange, String request) throws IOException {
+        String action = find(ACTION, request);
+        String body;
+        synchronized (this) {
+            if ((ACTION_PREFIX_TRANSFER + "Create").equals(action)) {
+                String shellId = "shell-" + counter.incrementAndGet();
+                shellsCreated.add(shellId);
+                body = "<x:ResourceCreated xmlns:x=\"http://schemas.xmlsoap.org/ws/2004/09/transfer\""
+                        + " xmlns:a=\"http://schemas.xmlsoap.org/ws/2004/08/addressing\""
+                        + " xmlns:w=\"http://schemas.dmtf.org/wbem/wsman/1/wsman.xsd\">"
+                        + "<a:Address>" + getEndpoint() + "</a:Address>"
+                        + "<a:ReferenceParameters><w:ResourceURI>http://schemas.microsoft.com/wbem/wsman/1/windows/shell/cmd</w:ResourceURI>"
+                        + "<w:SelectorSet><w:Selector Name=\"ShellId\">" + shellId + "</w:Selector></w:SelectorSet>"
+                        + "</a:ReferenceParameters></x:ResourceCreated>";
+            } else if ((ACTION_PREFIX_SHELL + "Command").equals(action)) {
+                String commandId = "command-" + counter.incrementAndGet();
+                String commandLine = unescape(find(COMMAND, request));
+                commands.add(Maps.immutableEntry(find(SHELL_ID, request), commandLine));
+                commandLinesById.put(commandId, commandLine);
+                body = "<w:CommandResponse xmlns:w=\"http://schemas.dmtf.org/wbem/wsman/1/wsman.xsd\""
+                        + " xmlns:rsp=\"http://schemas.microsoft.com/wbem/wsman/1/windows/shell\">"
+                        + "<rsp:CommandId>" + commandId + "</rsp:CommandId></w:CommandResponse>";
+            } else if ((ACTION_PREFIX_SHELL + "Receive").equals(action)) {
+                String commandId = find(COMMAND_ID, request);
+                String stdout = Base64.encodeBase64String(commandLinesById.get(commandId).getBytes(StandardCharsets.UTF_8));
+                body = "<rsp:ReceiveResponse xmlns:rsp=\"http://schemas.microsoft.com/wbem/wsman/1/windows/shell\">"
+                        + "<rsp:Stream Name=\"stdout\" CommandId=\"" + commandId + "\">" + stdout + "</rsp:Stream>"
+                        + "<rsp:Stream Name=\"stdout\" CommandId=\"" + commandId + "\" End=\"true\"></rsp:Stream>"
+                        + "<rsp:Stream Name=\"stderr\" CommandId=\"" + commandId + "\" End=\"true\"></rsp:Stream>"
+                        + "<rsp:CommandState CommandId=\"" + commandId + "\" State=\"" + ACTION_PREFIX_SHELL + "CommandState/Done\">"
+                        + "<rsp:ExitCode>0</rsp:ExitCode></rsp:CommandState></rsp:ReceiveResponse>";
+            } else if ((ACTION_PREFIX_SHELL + "Signal").equals(action)) {
+                body = "<w:SignalResponse xmlns:w=\"http://schemas.dmtf.org/wbem/wsman/1/wsman.xsd\"/>";
+            } else if ((ACTION_PREFIX_TRANSFER + "Delete").equals(action)) {
+                shellsDeleted.add(find(SHELL_ID, request));
+                body = "";
+            } else {
+                throw new IllegalStateException("Unexpected WS-Man action " + action + " in " + request);
+            }
+        }
+        // winrm4j's client insists on the addressing headers
+        String header = "<a:Action>" + action + "Response</a:Action>"
+                + "<a:MessageID>uuid:response-" + counter.incrementAndGet() + "</a:MessageID>"
+                + "<a:RelatesTo>" + find(MESSAGE_ID, request) + "</a:RelatesTo>"
+                + "<a:To>http://schemas.xmlsoap.org/ws/2004/08/addressing/role/anonymous</a:To>";
+        byte[] response = ("<s:Envelope xmlns:s=\"http://www.w3.org/2003/05/soap-envelope\""
+                + " xmlns:a=\"http://schemas.xmlsoap.org/ws/2004/08/addressing\">"
+                + "<s:Header>" + header + "</s:Header><s:Body>"
+                + body + "</s:Body></s:Envelope>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/soap+xml;charset=UTF-8");
+        exchange.sendResponseHeaders(200, response.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(response);
+        out.close();
+    }
+
+    private static String find(Pattern pattern, String request) {
+        Matcher matcher = pattern.matcher(request);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String unescape(String xml) {
+        return xml.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+    }
+}
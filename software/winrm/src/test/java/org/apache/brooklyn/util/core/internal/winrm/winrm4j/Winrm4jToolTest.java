@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.internal.winrm.winrm4j;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.util.core.internal.winrm.WinRmTool;
+import org.apache.brooklyn.util.core.internal.winrm.WinRmToolResponse;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+public class Winrm4jToolTest {
+
+    private WinRmStubServer server;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        server = new WinRmStubServer();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (server != null) server.close();
+    }
+
+    private Winrm4jTool newTool(boolean reuseShells) {
+        return new Winrm4jTool(ImmutableMap.<String, Object>builder()
+                .put(WinRmTool.PROP_HOST.getName(), server.getEndpoint())
+                .put(WinRmTool.PROP_PORT.getName(), 5985)
+                .put(WinRmTool.PROP_USER.getName(), "myuser")
+                .put(WinRmTool.PROP_PASSWORD.getName(), "mypassword")
+                .put(WinRmTool.REUSE_SHELLS.getName(), reuseShells)
+                .build());
+    }
+
+    @Test
+    public void testExecuteCommandInNewShell() throws Exception {
+        WinRmToolResponse response = newTool(false).executeCommand(ImmutableList.of("echo a", "echo b"));
+
+        assertEquals(response.getStatusCode(), 0);
+        assertEquals(response.getStdOut(), "echo a & echo b");
+        assertEquals(server.getShellsCreated().size(), 1);
+        assertEquals(server.getShellsDeleted(), server.getShellsCreated());
+    }
+
+    @Test
+    public void testExecutePsInNewShell() throws Exception {
+        WinRmToolResponse response = newTool(false).executePs(ImmutableList.of("Write-Host a", "Write-Host b"));
+
+        assertEquals(response.getStatusCode(), 0);
+        assertEquals(response.getStdOut(), Winrm4jTool.compilePs("Write-Host a\r\nWrite-Host b\r\n"));
+        assertEquals(server.getShellsDeleted(), server.getShellsCreated());
+    }
+
+    @Test
+    public void testExecuteCommandOnPooledShellSendsSameCommandLine() throws Exception {
+        List<String> commands = ImmutableList.of("echo a", "echo b");
+        List<String> psCommands = ImmutableList.of("Write-Host a", "Write-Host b");
+        newTool(false).executeCommand(commands);
+        newTool(false).executePs(psCommands);
+        List<Map.Entry<String, String>> expected = server.getCommands();
+
+        Winrm4jTool tool = newTool(true);
+        WinRmToolResponse response = tool.executeCommand(commands);
+        tool.executePs(psCommands);
+        List<Map.Entry<String, String>> actual = server.getCommands().subList(expected.size(), server.getCommands().size());
+
+        assertEquals(response.getStatusCode(), 0);
+        assertEquals(response.getStdOut(), "echo a & echo b");
+        assertEquals(actual.get(0).getValue(), expected.get(0).getValue());
+        assertEquals(actual.get(1).getValue(), expected.get(1).getValue());
+    }
+
+    @Test
+    public void testReusesShellAcrossCalls() throws Exception {
+        newTool(true).executeCommand(ImmutableList.of("echo a"));
+        newTool(true).executeCommand(ImmutableList.of("echo b"));
+        newTool(true).executePs(ImmutableList.of("Write-Host c"));
+
+        assertEquals(server.getShellsCreated().size(), 1);
+        assertEquals(server.getShellsDeleted(), ImmutableList.of());
+        String shellId = Iterables.getOnlyElement(server.getShellsCreated());
+        for (Map.Entry<String, String> command : server.getCommands()) {
+            assertEquals(command.getKey(), shellId, "command="+command.getValue());
+        }
+        assertEquals(server.getCommands().size(), 3);
+    }
+
+    @Test
+    public void testEndpointUrlMatchesWinrm4j() throws Exception {
+        assertEquals(Winrm4jTool.getEndpointUrl("10.0.0.1", false, 5985), "http://10.0.0.1:5985/wsman");
+        assertEquals(Winrm4jTool.getEndpointUrl("10.0.0.1", true, null), "https://10.0.0.1:5986/wsman");
+        assertEquals(Winrm4jTool.getEndpointUrl("10.0.0.1:5986", null, null), "https://10.0.0.1:5986/wsman");
+        assertEquals(Winrm4jTool.getEndpointUrl("10.0.0.1:5986", false, 5985), "http://10.0.0.1:5986/wsman");
+        assertEquals(Winrm4jTool.getEndpointUrl("https://10.0.0.1:5986/wsman", true, 5985), "https://10.0.0.1:5986/wsman");
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void testEndpointUrlRejectsHttpAddressWithHttps() throws Exception {
+        Winrm4jTool.getEndpointUrl("http://10.0.0.1:5985/wsman", true, 5985);
+    }
+}
@@ -83,6 +83,7 @@ import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -573,9 +574,17 @@ public class HttpTool {
     }
     
     public static HttpToolResponse execAndConsume(HttpClient httpClient, HttpUriRequest req) {
+        return execAndConsume(httpClient, req, null);
+    }
+
+    /**
+     * As {@link #execAndConsume(HttpClient, HttpUriRequest)}, but with a per-request context, e.g. to supply
+     * credentials or cookies when the client is shared.
+     */
+    public static HttpToolResponse execAndConsume(HttpClient httpClient, HttpUriRequest req, HttpContext context) {
         long startTime = System.currentTimeMillis();
         try {
-            HttpResponse httpResponse = httpClient.execute(req);
+            HttpResponse httpResponse = httpClient.execute(req, context);
             
             try {
                 return new HttpToolResponse(httpResponse, startTime);
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.http.executor.apacheclient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.http.HttpTool;
+import org.apache.brooklyn.util.http.HttpToolResponse;
+import org.apache.brooklyn.util.http.executor.HttpConfig;
+import org.apache.brooklyn.util.http.executor.HttpExecutor;
+import org.apache.brooklyn.util.http.executor.HttpRequest;
+import org.apache.brooklyn.util.http.executor.HttpResponse;
+import org.apache.brooklyn.util.javalang.Threads;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.http.ProtocolException;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultRedirectStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * An {@link HttpExecutor} which sends every request through one of a small number of
+ * process-wide pooled clients, rather than building a new client (and connection) per request
+ * as {@link HttpExecutorImpl} does.
+ * <p>
+ * There is one client per trust mode (strict, trust-self-signed and trust-all), each with a bounded
+ * connection pool. Connections are kept alive between requests to the same route, and each trust mode
+ * reuses a single SSL context so TLS sessions are resumed. Credentials and cookies are scoped to the
+ * individual request, so nothing leaks between callers sharing a pool.
+ * <p>
+ * Instances are stateless, so any number can be created cheaply; the props passed to the constructor
+ * are currently ignored. The clients are closed by {@link #closeClients()}, which is also run on shutdown.
+ */
+@Beta
+public class PooledHttpExecutorImpl implements HttpExecutor {
+
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+    private static final HttpConfig DEFAULT_CONFIG = HttpConfig.builder()
+            .laxRedirect(false)
+            .trustAll(false)
+            .trustSelfSigned(false)
+            .build();
+
+    /** Maximum number of pooled connections for each trust mode. */
+    public static final int MAX_CONNECTIONS_TOTAL = 512;
+
+    /** Maximum number of pooled connections to any one host:port, for each trust mode. */
+    public static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+
+    /** Pooled connections idle for longer than this are closed by a background evictor. */
+    public static final long MAX_IDLE_MILLIS = 30*1000;
+
+    /** Pooled connections idle for longer than this are checked for staleness before being reused. */
+    public static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 1000;
+
+    /**
+     * How long a request waits for a pooled connection when all {@link #MAX_CONNECTIONS_PER_ROUTE} to its
+     * host:port are in use, before failing rather than blocking its caller (e.g. a feed's poll) indefinitely.
+     */
+    public static final int CONNECTION_REQUEST_TIMEOUT_MILLIS = 30*1000;
+
+    private static final String LAX_REDIRECT_ATTRIBUTE = PooledHttpExecutorImpl.class.getName()+".laxRedirect";
+
+    private enum TrustMode { STRICT, SELF_SIGNED, ALL }
+
+    private static final ConcurrentMap<TrustMode, CloseableHttpClient> CLIENTS = new ConcurrentHashMap<TrustMode, CloseableHttpClient>();
+
+    /** Closes the clients on shutdown; set while there are any. Guarded by {@link #CLIENTS}. */
+    private static Thread shutdownHook;
+
+    public static PooledHttpExecutorImpl newInstance() {
+        return new PooledHttpExecutorImpl();
+    }
+
+    /**
+     * A must have constructor.
+     */
+    public PooledHttpExecutorImpl(Map<?, ?> props) {
+    }
+
+    public PooledHttpExecutorImpl() {
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        HttpConfig config = (request.config() != null) ? request.config() : DEFAULT_CONFIG;
+        URI uri = request.uri();
+
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(new BasicCookieStore());
+        if (config.laxRedirect()) {
+            context.setAttribute(LAX_REDIRECT_ATTRIBUTE, Boolean.TRUE);
+        }
+        if (request.credentials() != null) {
+            CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()),
+                    new UsernamePasswordCredentials(request.credentials().getUser(), request.credentials().getPassword()));
+            context.setCredentialsProvider(credentialsProvider);
+        }
+
+        HttpUriRequest httpRequest;
+        switch (request.method().toUpperCase()) {
+        case HttpExecutor.GET:
+            httpRequest = new HttpTool.HttpGetBuilder(uri).headers(request.headers()).build();
+            break;
+        case HttpExecutor.HEAD:
+            httpRequest = new HttpTool.HttpHeadBuilder(uri).headers(request.headers()).build();
+            break;
+        case HttpExecutor.POST:
+            httpRequest = new HttpTool.HttpPostBuilder(uri).headers(request.headers()).body(orEmpty(request.body())).build();
+            break;
+        case HttpExecutor.PUT:
+            httpRequest = new HttpTool.HttpPutBuilder(uri).headers(request.headers()).body(orEmpty(request.body())).build();
+            break;
+        case HttpExecutor.DELETE:
+            httpRequest = new HttpTool.HttpDeleteBuilder(uri).headers(request.headers()).build();
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported method '"+request.method()+"' for URI "+uri);
+        }
+
+        HttpToolResponse response = HttpTool.execAndConsume(getClient(toTrustMode(config)), httpRequest, context);
+        return new HttpResponseWrapper(response);
+    }
+
+    protected byte[] orEmpty(byte[] val) {
+        return (val != null) ? val : EMPTY_BYTE_ARRAY;
+    }
+
+    private static TrustMode toTrustMode(HttpConfig config) {
+        if (config.trustAll()) return TrustMode.ALL;
+        if (config.trustSelfSigned()) return TrustMode.SELF_SIGNED;
+        return TrustMode.STRICT;
+    }
+
+    private static CloseableHttpClient getClient(TrustMode trustMode) {
+        CloseableHttpClient result = CLIENTS.get(trustMode);
+        if (result == null) {
+            synchronized (CLIENTS) {
+                result = CLIENTS.get(trustMode);
+                if (result == null) {
+                    result = newClient(trustMode);
+                    CLIENTS.put(trustMode, result);
+                    if (shutdownHook == null) {
+                        shutdownHook = Threads.addShutdownHook(new Runnable() {
+                            @Override public void run() {
+                                closeClients();
+                            }});
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes the shared clients and their pooled connections. Requests in progress on them may fail;
+     * later requests create new clients.
+     */
+    public static void closeClients() {
+        synchronized (CLIENTS) {
+            for (CloseableHttpClient client : CLIENTS.values()) {
+                Streams.closeQuietly(client);
+            }
+            CLIENTS.clear();
+            if (shutdownHook != null) {
+                Threads.removeShutdownHook(shutdownHook);
+                shutdownHook = null;
+            }
+        }
+    }
+
+    private static CloseableHttpClient newClient(TrustMode trustMode) {
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", newSslSocketFactory(trustMode))
+                .build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setRedirectStrategy(new PerRequestRedirectStrategy())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MILLIS)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static SSLConnectionSocketFactory newSslSocketFactory(TrustMode trustMode) {
+        try {
+            switch (trustMode) {
+            case ALL:
+                return new SSLConnectionSocketFactory(
+                        SSLContexts.custom().loadTrustMaterial(null, new HttpTool.TrustAllStrategy()).build(),
+                        NoopHostnameVerifier.INSTANCE);
+            case SELF_SIGNED:
+                return new SSLConnectionSocketFactory(
+                        SSLContexts.custom().loadTrustMaterial(null, new TrustSelfSignedStrategy()).build(),
+                        NoopHostnameVerifier.INSTANCE);
+            default:
+                // Based on default java truststore, which is pretty strict!
+                return SSLConnectionSocketFactory.getSocketFactory();
+            }
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * The clients are shared between requests with and without {@link HttpConfig#laxRedirect()},
+     * so the choice of redirect behaviour is made per request from the context.
+     */
+    private static class PerRequestRedirectStrategy extends LaxRedirectStrategy {
+        @Override
+        public boolean isRedirected(org.apache.http.HttpRequest request, org.apache.http.HttpResponse response, HttpContext context) throws ProtocolException {
+            if (Boolean.TRUE.equals(context.getAttribute(LAX_REDIRECT_ATTRIBUTE))) {
+                return super.isRedirected(request, response, context);
+            } else {
+                return DefaultRedirectStrategy.INSTANCE.isRedirected(request, response, context);
+            }
+        }
+    }
+}
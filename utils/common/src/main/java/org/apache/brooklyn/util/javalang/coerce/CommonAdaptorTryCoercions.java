@@ -58,7 +58,7 @@ public class CommonAdaptorTryCoercions {
         coercer.registerAdapter(fn);
     }
     
-    protected static class TryCoercerWithFromMethod implements TryCoercer {
+    protected static class TryCoercerWithFromMethod implements TryCoercerDeterminedByType {
         @Override
         @SuppressWarnings("unchecked")
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
@@ -90,7 +90,7 @@ public class CommonAdaptorTryCoercions {
         }
     }
     
-    protected static class TryCoercerToEnum implements TryCoercer {
+    protected static class TryCoercerToEnum implements TryCoercerDeterminedByType {
         @Override
         @SuppressWarnings("unchecked")
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
@@ -105,7 +105,7 @@ public class CommonAdaptorTryCoercions {
         }
     }
 
-    protected static class TryCoercerToArray implements TryCoercer {
+    protected static class TryCoercerToArray implements TryCoercerDeterminedByType {
         private final TypeCoercerExtensible coercer;
         
         public TryCoercerToArray(TypeCoercerExtensible coercer) {
@@ -141,7 +141,7 @@ public class CommonAdaptorTryCoercions {
         }
     }
 
-    protected static class TryCoercerForPrimitivesAndStrings implements TryCoercer {
+    protected static class TryCoercerForPrimitivesAndStrings implements TryCoercerDeterminedByType {
         @Override
         public <T> Maybe<T> tryCoerce(Object input, TypeToken<T> targetType) {
             return PrimitiveStringTypeCoercions.tryCoerce(input, targetType.getRawType());
@@ -0,0 +1,29 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.javalang.coerce;
+
+/**
+ * Marker for a {@link TryCoercer} which returns null (i.e. does not apply) depending only on the class 
+ * of the input and the target type, never on the input value itself.
+ * <p>
+ * {@link TypeCoercerExtensible} remembers which such coercers do not apply for a given
+ * (input class, target type) pair and skips them on subsequent coercions.
+ */
+interface TryCoercerDeterminedByType extends TryCoercer {
+}
@@ -25,6 +25,9 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.AnyExceptionSupplier;
@@ -41,6 +44,7 @@ import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -94,6 +98,74 @@ public class TypeCoercerExtensible implements TypeCoercer {
     /** Store the generic coercers. */
     private final List<TryCoercer> genericCoercers = Lists.newCopyOnWriteArrayList();
 
+    /** Incremented whenever adapters are registered, so that any {@link CoercionPlan} computed previously is discarded. */
+    private final AtomicLong adaptersVersion = new AtomicLong();
+
+    /**
+     * What we have learned about coercing from a given class to a given type, see {@link #getCoercionPlan(Class, TypeToken)};
+     * held against the source class, so that classes (and their bundles' class loaders) can still be unloaded.
+     */
+    private final ClassValue<ConcurrentMap<TypeToken<?>, CoercionPlan>> coercionPlans = new ClassValue<ConcurrentMap<TypeToken<?>, CoercionPlan>>() {
+        @Override
+        protected ConcurrentMap<TypeToken<?>, CoercionPlan> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<TypeToken<?>, CoercionPlan>();
+        }
+    };
+
+    /**
+     * The strategies to try when coercing a value of a given class to a given type; these are the same strategies as 
+     * in the general case, but omitting any {@link TryCoercerDeterminedByType} known not to apply, and with the 
+     * registry adapters applicable to the source class resolved once.
+     */
+    private static class CoercionPlan {
+        final long version;
+        final List<TryCoercer> genericCoercers;
+        /** set (racily, but only ever from false to true) when the corresponding generic coercer returns null */
+        final boolean[] genericCoercerNotApplicable;
+        /** registry adapters whose source type is assignable from the class, in registry order; computed on first use */
+        volatile List<Map.Entry<Class<?>, Function<?,?>>> adapters;
+        
+        CoercionPlan(long version, List<TryCoercer> genericCoercers) {
+            this.version = version;
+            this.genericCoercers = genericCoercers;
+            this.genericCoercerNotApplicable = new boolean[genericCoercers.size()];
+        }
+    }
+
+    protected CoercionPlan getCoercionPlan(Class<?> sourceType, TypeToken<?> targetType) {
+        long version = adaptersVersion.get();
+        ConcurrentMap<TypeToken<?>, CoercionPlan> plans = coercionPlans.get(sourceType);
+        CoercionPlan result = plans.get(targetType);
+        if (result==null || result.version!=version) {
+            result = new CoercionPlan(version, ImmutableList.copyOf(genericCoercers));
+            plans.put(targetType, result);
+        }
+        return result;
+    }
+
+    private List<Map.Entry<Class<?>, Function<?,?>>> getAdapters(CoercionPlan plan, Class<?> sourceType, Class<?> targetType) {
+        List<Map.Entry<Class<?>, Function<?,?>>> result = plan.adapters;
+        if (result==null) {
+            List<Map.Entry<Class<?>, Function<?,?>>> adapters = Lists.newArrayList();
+            synchronized (registry) {
+                for (Map.Entry<Class<?>, Function<?,?>> entry : registry.row(targetType).entrySet()) {
+                    if (entry.getKey().isAssignableFrom(sourceType)) {
+                        adapters.add(Maps.<Class<?>, Function<?,?>>immutableEntry(entry.getKey(), entry.getValue()));
+                    }
+                }
+            }
+            result = ImmutableList.copyOf(adapters);
+            plan.adapters = result;
+        }
+        return result;
+    }
+
+    /** Discards everything learned about which strategies apply, e.g. because adapters have changed. */
+    protected void clearCoercionPlans() {
+        // plans from an earlier version are replaced when next looked up
+        adaptersVersion.incrementAndGet();
+    }
+
     @Override
     public <T> T coerce(Object value, Class<T> targetType) {
         return coerce(value, TypeToken.of(targetType));
@@ -146,8 +218,14 @@ public class TypeCoercerExtensible implements TypeCoercer {
         if (targetType.isInstance(value)) return Maybe.of( (T) value );
 
         targetTypeToken = TypeTokens.getTypeToken(targetTypeToken, targetType);
-        for (TryCoercer coercer : genericCoercers) {
+        CoercionPlan plan = getCoercionPlan(value.getClass(), targetTypeToken);
+        for (int i=0; i<plan.genericCoercers.size(); i++) {
+            if (plan.genericCoercerNotApplicable[i]) continue;
+            TryCoercer coercer = plan.genericCoercers.get(i);
             result = coercer.tryCoerce(value, targetTypeToken);
+            if (result==null && coercer instanceof TryCoercerDeterminedByType) {
+                plan.genericCoercerNotApplicable[i] = true;
+            }
             
             if (result!=null && result.isPresent()) {
                 // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
@@ -185,47 +263,43 @@ public class TypeCoercerExtensible implements TypeCoercer {
         }
         
         //now look in registry
-        synchronized (registry) {
-            Map<Class<?>, Function<?,?>> adapters = registry.row(targetType);
-            for (Map.Entry<Class<?>, Function<?,?>> entry : adapters.entrySet()) {
-                if (entry.getKey().isInstance(value)) {
-                    try {
-                        T resultT = ((Function<Object,T>)entry.getValue()).apply(value);
-                        
-                        // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
-                        // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
-                        // First check that value has changed, to avoid stack overflow!
-                        if (!Objects.equal(value, resultT) && targetTypeToken.getType() instanceof ParameterizedType) {
-                            // Could duplicate check for `result instanceof Collection` etc; but recursive call
-                            // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
-                            // and just return the result.
-                            Maybe<T> resultM = tryCoerce(resultT, targetTypeToken);
-                            if (resultM!=null) {
-                                if (resultM.isPresent()) return resultM;
-                                // if couldn't coerce parameterized types then back out of this coercer
-                                // but remember the error if we were first
-                                if (firstError==null) firstError = resultM;
-                            }
-                        } else {
-                            return Maybe.of(resultT);
-                        }
-                    } catch (Exception e) {
-                        Exceptions.propagateIfFatal(e);
-                        if (log.isDebugEnabled()) {
-                            log.debug("When coercing, registry adapter "+entry+" gave error on "+value+" -> "+targetType+" "
-                                + (firstError==null ? "(rethrowing)" : "(suppressing as there is already an error)")
-                                + ": "+e, e);
-                        }
-                        if (firstError==null) {
-                            if (e instanceof ClassCoercionException) {
-                                firstError = Maybe.absent(e);
-                            } else {
-                                firstError = Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetTypeToken+" ("+value+"): registered coercer failed", e));
-                            }
-                        }
-                        continue;
+        // (adapters matching the source class are resolved once per plan, so no need to synchronize on the registry)
+        for (Map.Entry<Class<?>, Function<?,?>> entry : getAdapters(plan, value.getClass(), targetType)) {
+            try {
+                T resultT = ((Function<Object,T>)entry.getValue()).apply(value);
+                
+                // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
+                // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
+                // First check that value has changed, to avoid stack overflow!
+                if (!Objects.equal(value, resultT) && targetTypeToken.getType() instanceof ParameterizedType) {
+                    // Could duplicate check for `result instanceof Collection` etc; but recursive call
+                    // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
+                    // and just return the result.
+                    Maybe<T> resultM = tryCoerce(resultT, targetTypeToken);
+                    if (resultM!=null) {
+                        if (resultM.isPresent()) return resultM;
+                        // if couldn't coerce parameterized types then back out of this coercer
+                        // but remember the error if we were first
+                        if (firstError==null) firstError = resultM;
+                    }
+                } else {
+                    return Maybe.of(resultT);
+                }
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (log.isDebugEnabled()) {
+                    log.debug("When coercing, registry adapter "+entry+" gave error on "+value+" -> "+targetType+" "
+                        + (firstError==null ? "(rethrowing)" : "(suppressing as there is already an error)")
+                        + ": "+e, e);
+                }
+                if (firstError==null) {
+                    if (e instanceof ClassCoercionException) {
+                        firstError = Maybe.absent(e);
+                    } else {
+                        firstError = Maybe.absent(new ClassCoercionException("Cannot coerce type "+value.getClass().getCanonicalName()+" to "+targetTypeToken+" ("+value+"): registered coercer failed", e));
                     }
                 }
+                continue;
             }
         }
 
@@ -315,12 +389,18 @@ public class TypeCoercerExtensible implements TypeCoercer {
     /** Registers an adapter for use with type coercion. Returns any old adapter registered for this pair. */
     @SuppressWarnings("unchecked")
     public synchronized <A,B> Function<? super A,B> registerAdapter(Class<A> sourceType, Class<B> targetType, Function<? super A,B> fn) {
-        return (Function<? super A,B>) registry.put(targetType, sourceType, fn);
+        Function<? super A,B> result;
+        synchronized (registry) {
+            result = (Function<? super A,B>) registry.put(targetType, sourceType, fn);
+        }
+        clearCoercionPlans();
+        return result;
     }
     
     /** Registers a generic adapter for use with type coercion. */
     @Beta
     public synchronized void registerAdapter(TryCoercer fn) {
         genericCoercers.add(fn);
+        clearCoercionPlans();
     }
 }
@@ -19,17 +19,23 @@ package org.apache.brooklyn.util.net;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.net.InetSocketAddress;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.RuntimeInterruptedException;
-import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,23 +43,60 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.net.HostAndPort;
+import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * For finding an open/reachable ip:port for a node.
+ * <p>
+ * Finders share process-wide threads, so any number of searches (e.g. for many machines being
+ * provisioned at once) can run concurrently without each starting threads of their own.
  */
 public class ReachableSocketFinder {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReachableSocketFinder.class);
 
+    /** Maximum time to wait for any one connection attempt, with the default socket tester. */
+    public static final Duration ATTEMPT_TIMEOUT = Duration.TEN_SECONDS;
+
+    /** Maximum number of checks run at once with a custom socket tester, across all finders. */
+    public static final int MAX_CONCURRENT_CHECKS = 64;
+
+    private static final Duration INITIAL_RETRY_DELAY = Duration.millis(10);
+    private static final double RETRY_DELAY_MULTIPLIER = 1.2;
+    private static final Duration MAX_RETRY_DELAY = Duration.FIVE_SECONDS;
+
+    private static final ScheduledExecutorService SCHEDULER;
+    private static final ListeningExecutorService CHECK_EXECUTOR;
+    static {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-reachable-socket-finder-scheduler-%d")
+                .setDaemon(true)
+                .build());
+        scheduler.setRemoveOnCancelPolicy(true);
+        SCHEDULER = scheduler;
+
+        ThreadPoolExecutor checkExecutor = new ThreadPoolExecutor(MAX_CONCURRENT_CHECKS, MAX_CONCURRENT_CHECKS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-reachable-socket-finder-%d")
+                .setDaemon(true)
+                .build());
+        checkExecutor.allowCoreThreadTimeOut(true);
+        CHECK_EXECUTOR = MoreExecutors.listeningDecorator(checkExecutor);
+    }
+
     private final Predicate<? super HostAndPort> socketTester;
     private final Duration gracePeriod;
+    private final boolean useSocketProber;
 
     public ReachableSocketFinder() {
         this(Networking.isReachablePredicate());
@@ -70,6 +113,8 @@ public class ReachableSocketFinder {
     public ReachableSocketFinder(Predicate<? super HostAndPort> socketTester, Duration gracePeriod) {
         this.socketTester = checkNotNull(socketTester, "socketTester");
         this.gracePeriod = checkNotNull(gracePeriod, "gracePeriod");
+        // subclasses may test something other than just connecting
+        this.useSocketProber = socketTester.getClass() == Networking.IsReachablePredicate.class;
     }
 
     /**
@@ -122,79 +167,168 @@ public class ReachableSocketFinder {
     private Iterable<Optional<HostAndPort>> tryReachable(
             Iterable<? extends HostAndPort> sockets, final Duration timeout, final boolean useGracePeriod) {
         LOG.debug("Blocking on reachable sockets in {} for {}", sockets, timeout);
-        final List<ListenableFuture<Optional<HostAndPort>>> futures = Lists.newArrayList();
-        final AtomicReference<Stopwatch> sinceFirstCompleted = new AtomicReference<>();
-        final ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
-
-        for (final HostAndPort socket : sockets) {
-            futures.add(executor.submit(new Callable<Optional<HostAndPort>>() {
-                Future<Boolean> checker;
-
-                private void reschedule() {
-                    checker = executor.submit(new SocketChecker(socket, socketTester));
-                }
+        Search search = new Search(timeout, useGracePeriod);
+        for (HostAndPort socket : sockets) {
+            search.add(socket);
+        }
+        List<Optional<HostAndPort>> builtList = search.run();
+        LOG.debug("Determined reachability of sockets {}: {}", sockets, builtList);
+        return builtList;
+    }
 
-                private boolean gracePeriodExpired() {
-                    Stopwatch firstCompleted = sinceFirstCompleted.get();
-                    return firstCompleted != null
-                            && (!useGracePeriod || gracePeriod.subtract(Duration.of(firstCompleted)).isNegative());
-                }
+    /**
+     * Checks each socket repeatedly (backing off between attempts) until it is reachable, or until the search
+     * is finished: by the timeout, or by the first socket found reachable (immediately if not
+     * using the grace period, otherwise once the grace period has elapsed). Any checks still running when the
+     * search finishes are cancelled.
+     * <p>
+     * No thread is dedicated to a socket: waits between attempts are scheduled, and checks with the default
+     * {@link Networking.IsReachablePredicate} are non-blocking connects (see {@link SocketProber}). Checks
+     * with any other predicate run on a shared, bounded pool.
+     */
+    private class Search {
+        final Duration timeout;
+        final boolean useGracePeriod;
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final List<Poller> pollers = Lists.newArrayList();
+        final AtomicBoolean firstReached = new AtomicBoolean();
+        final List<Future<?>> timers = new CopyOnWriteArrayList<Future<?>>();
 
-                /** Checks checker for completion and reschedules it if time allows. */
-                private boolean isComplete() throws ExecutionException, InterruptedException {
-                    final boolean currentCheckComplete = checker.isDone();
-                    if (currentCheckComplete && checker.get()) {
-                        LOG.trace("{} determined that {} is reachable", this, socket);
-                        sinceFirstCompleted.compareAndSet(null, Stopwatch.createStarted());
-                        return true;
-                    } else if (currentCheckComplete) {
-                        LOG.trace("{} unsure if {} is reachable, scheduling another check", this, socket);
-                        reschedule();
-                    }
-                    return false;
-                }
+        Search(Duration timeout, boolean useGracePeriod) {
+            this.timeout = timeout;
+            this.useGracePeriod = useGracePeriod;
+        }
 
-                @Override
-                public Optional<HostAndPort> call() throws Exception {
-                    LOG.trace("Checking reachability of {}", socket);
-                    reschedule();
-                    Repeater.create()
-                            .limitTimeTo(timeout)
-                            .backoffTo(Duration.FIVE_SECONDS)
-                            .until(new Callable<Boolean>() {
-                                @Override
-                                public Boolean call() throws Exception {
-                                    return isComplete() || gracePeriodExpired();
-                                }
-                            })
-                            .run();
-                    if (checker.isDone() && checker.get()) {
-                        LOG.trace("Finished checking reachability of {}: success", socket);
-                        return Optional.of(socket);
-                    } else {
-                        LOG.trace("Finished checking reachability of {}: failure", socket);
-                        checker.cancel(true);
-                        return Optional.absent();
-                    }
-                }
-            }));
+        void add(HostAndPort socket) {
+            pollers.add(new Poller(socket));
         }
 
-        ImmutableList.Builder<Optional<HostAndPort>> results = ImmutableList.builder();
-        for (ListenableFuture<Optional<HostAndPort>> f : futures) {
+        List<Optional<HostAndPort>> run() {
+            List<ListenableFuture<Optional<HostAndPort>>> results = Lists.newArrayList();
+            for (Poller poller : pollers) {
+                results.add(poller.result);
+            }
+            timers.add(SCHEDULER.schedule(new Runnable() {
+                @Override public void run() {
+                    finish();
+                }}, timeout.toMilliseconds(), TimeUnit.MILLISECONDS));
+            for (Poller poller : pollers) {
+                LOG.trace("Checking reachability of {}", poller.socket);
+                poller.attempt();
+            }
+
             try {
-                // Each future uses the timeout so we don't need to include it here.
-                results.add(f.get());
+                return Futures.allAsList(results).get();
             } catch (InterruptedException e) {
                 throw new RuntimeInterruptedException(e);
             } catch (ExecutionException e) {
-                LOG.trace("Suppressed exception waiting for " + f, e);
+                // results are only ever set
+                throw Exceptions.propagate(e);
+            } finally {
+                finish();
             }
         }
-        executor.shutdownNow();
-        List<Optional<HostAndPort>> builtList = results.build();
-        LOG.debug("Determined reachability of sockets {}: {}", sockets, builtList);
-        return builtList;
+
+        void onReached() {
+            if (!useGracePeriod || gracePeriod.toMilliseconds() <= 0) {
+                finish();
+            } else if (firstReached.compareAndSet(false, true)) {
+                timers.add(SCHEDULER.schedule(new Runnable() {
+                    @Override public void run() {
+                        finish();
+                    }}, gracePeriod.toMilliseconds(), TimeUnit.MILLISECONDS));
+            }
+        }
+
+        /** Marks every socket not yet found reachable as unreachable, cancelling any outstanding checks. */
+        void finish() {
+            for (Poller poller : pollers) {
+                poller.abandon();
+            }
+            for (Future<?> timer : timers) {
+                timer.cancel(false);
+            }
+        }
+
+        private class Poller {
+            final HostAndPort socket;
+            final SettableFuture<Optional<HostAndPort>> result = SettableFuture.create();
+            /** The check in progress, or the wait before the next check. */
+            volatile Future<?> pending;
+            Duration delay = INITIAL_RETRY_DELAY;
+
+            Poller(HostAndPort socket) {
+                this.socket = socket;
+            }
+
+            void attempt() {
+                Duration remaining = timeout.subtract(Duration.of(stopwatch));
+                if (result.isDone() || !remaining.isPositive()) return;
+                final ListenableFuture<Boolean> check = check(socket, Duration.min(remaining, ATTEMPT_TIMEOUT));
+                setPending(check);
+                check.addListener(new Runnable() {
+                    @Override public void run() {
+                        onChecked(check);
+                    }}, MoreExecutors.directExecutor());
+            }
+
+            void onChecked(ListenableFuture<Boolean> check) {
+                if (result.isDone() || check.isCancelled()) return;
+                boolean reachable = false;
+                try {
+                    reachable = Boolean.TRUE.equals(check.get());
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    LOG.trace("Suppressed exception checking reachability of " + socket, e);
+                }
+                if (reachable) {
+                    LOG.trace("Determined that {} is reachable", socket);
+                    result.set(Optional.of(socket));
+                    onReached();
+                } else {
+                    LOG.trace("Unsure if {} is reachable, scheduling another check in {}", socket, delay);
+                    setPending(SCHEDULER.schedule(new Runnable() {
+                        @Override public void run() {
+                            attempt();
+                        }}, delay.toMilliseconds(), TimeUnit.MILLISECONDS));
+                    delay = Duration.min(delay.multiply(RETRY_DELAY_MULTIPLIER), MAX_RETRY_DELAY);
+                }
+            }
+
+            private void setPending(Future<?> val) {
+                pending = val;
+                // in case we raced with abandon()
+                if (result.isDone()) val.cancel(true);
+            }
+
+            void abandon() {
+                if (result.set(Optional.<HostAndPort>absent())) {
+                    LOG.trace("Finished checking reachability of {}: failure", socket);
+                }
+                Future<?> pendingRef = pending;
+                if (pendingRef != null) pendingRef.cancel(true);
+            }
+        }
+    }
+
+    private ListenableFuture<Boolean> check(final HostAndPort socket, final Duration attemptTimeout) {
+        if (!useSocketProber) {
+            return CHECK_EXECUTOR.submit(new SocketChecker(socket, socketTester));
+        } else if (InetAddresses.isInetAddress(socket.getHostText())) {
+            InetSocketAddress address = new InetSocketAddress(InetAddresses.forString(socket.getHostText()), socket.getPort());
+            return SocketProber.getInstance().probe(address, attemptTimeout);
+        } else {
+            // resolve host names on the pool, so as not to block the scheduler
+            ListenableFuture<InetSocketAddress> address = CHECK_EXECUTOR.submit(new Callable<InetSocketAddress>() {
+                @Override public InetSocketAddress call() {
+                    return new InetSocketAddress(socket.getHostText(), socket.getPort());
+                }});
+            return Futures.transform(address, new AsyncFunction<InetSocketAddress, Boolean>() {
+                @Override public ListenableFuture<Boolean> apply(InetSocketAddress input) {
+                    if (input.isUnresolved()) return Futures.immediateFuture(false);
+                    return SocketProber.getInstance().probe(input, attemptTimeout);
+                }});
+        }
     }
 
     private static class SocketChecker implements Callable<Boolean> {
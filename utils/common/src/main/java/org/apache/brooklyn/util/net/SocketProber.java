@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.brooklyn.util.net;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Tests whether sockets accept TCP connections, using non-blocking connects driven by a single
+ * selector thread, rather than tying up a thread for each connect.
+ * <p>
+ * At most {@link #MAX_CONCURRENT_CONNECTS} connects are in progress at once; any further probes
+ * wait their turn. Each probe's future completes with true if the connection was established within
+ * the probe's timeout, or false if it was refused, failed or timed out. Cancelling the future abandons
+ * the probe, closing its channel.
+ */
+class SocketProber {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SocketProber.class);
+
+    /** Maximum number of connects the shared instance has in progress at once. */
+    static final int MAX_CONCURRENT_CONNECTS = 256;
+
+    private static final SocketProber INSTANCE = new SocketProber(MAX_CONCURRENT_CONNECTS);
+
+    /** The instance shared by the whole process. */
+    static SocketProber getInstance() {
+        return INSTANCE;
+    }
+
+    private final int maxConcurrentConnects;
+    private final Queue<Probe> queued = new ConcurrentLinkedQueue<Probe>();
+    /** Probes with a connect in progress; only accessed by the selector thread. */
+    private final List<Probe> connecting = Lists.newArrayList();
+    private Selector selector;
+
+    SocketProber(int maxConcurrentConnects) {
+        checkArgument(maxConcurrentConnects >= 1, "maxConcurrentConnects must be at least 1, but was %s", maxConcurrentConnects);
+        this.maxConcurrentConnects = maxConcurrentConnects;
+    }
+
+    /**
+     * Attempts a connection to the given address, giving up after the given timeout (which includes
+     * any time spent waiting for other probes to finish).
+     */
+    ListenableFuture<Boolean> probe(InetSocketAddress address, Duration timeout) {
+        final Probe probe = new Probe(checkNotNull(address, "address"), System.nanoTime() + checkNotNull(timeout, "timeout").nanos());
+        final Selector selector = getSelector();
+        probe.result.addListener(new Runnable() {
+            @Override public void run() {
+                // so the selector thread notices promptly, and closes the channel
+                if (probe.result.isCancelled()) selector.wakeup();
+            }}, MoreExecutors.directExecutor());
+        queued.add(probe);
+        selector.wakeup();
+        return probe.result;
+    }
+
+    private synchronized Selector getSelector() {
+        if (selector == null) {
+            try {
+                selector = Selector.open();
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+            Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    runSelectLoop();
+                }}, "brooklyn-socket-prober");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return selector;
+    }
+
+    private void runSelectLoop() {
+        while (true) {
+            try {
+                startQueued();
+                long waitMillis = closeFinished();
+                selector.select(waitMillis);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    finishConnect((Probe) key.attachment());
+                }
+            } catch (Throwable t) {
+                // never let the thread die, as it is shared by everything
+                LOG.warn("Problem probing sockets (continuing)", t);
+            }
+        }
+    }
+
+    private void startQueued() {
+        while (connecting.size() < maxConcurrentConnects) {
+            Probe probe = queued.poll();
+            if (probe == null) {
+                break;
+            } else if (probe.result.isDone()) {
+                continue;
+            } else if (System.nanoTime() - probe.deadlineNanos >= 0) {
+                probe.result.set(false);
+                continue;
+            }
+
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                if (channel.connect(probe.address)) {
+                    closeQuietly(channel);
+                    probe.result.set(true);
+                } else {
+                    probe.channel = channel;
+                    channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                    connecting.add(probe);
+                }
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (LOG.isTraceEnabled()) LOG.trace("Error connecting to "+probe.address+" during reachability check (returning false)", e);
+                closeQuietly(channel);
+                probe.result.set(false);
+            }
+        }
+    }
+
+    private void finishConnect(Probe probe) {
+        boolean connected;
+        try {
+            connected = probe.channel.finishConnect();
+            if (!connected) return;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            if (LOG.isTraceEnabled()) LOG.trace("Error reaching "+probe.address+" during reachability check (returning false)", e);
+            connected = false;
+        }
+        connecting.remove(probe);
+        closeQuietly(probe.channel);
+        probe.result.set(connected);
+    }
+
+    /**
+     * Closes the channels of probes that have been cancelled or have timed out.
+     * @return millis until the next in-progress probe times out, or 0 if there are none
+     */
+    private long closeFinished() {
+        long now = System.nanoTime();
+        long nextDeadline = Long.MAX_VALUE;
+        List<Probe> timedOut = Lists.newArrayList();
+        for (Iterator<Probe> iter = connecting.iterator(); iter.hasNext();) {
+            Probe probe = iter.next();
+            if (probe.result.isDone() || now - probe.deadlineNanos >= 0) {
+                iter.remove();
+                closeQuietly(probe.channel);
+                timedOut.add(probe);
+            } else {
+                nextDeadline = Math.min(nextDeadline, probe.deadlineNanos - now);
+            }
+        }
+        // completed outside the loop, as listeners may queue more probes
+        for (Probe probe : timedOut) {
+            probe.result.set(false);
+        }
+        return (nextDeadline == Long.MAX_VALUE) ? 0 : Math.max(1, nextDeadline / 1000000);
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                /* ignore */
+            }
+        }
+    }
+
+    private static class Probe {
+        final InetSocketAddress address;
+        final long deadlineNanos;
+        final SettableFuture<Boolean> result = SettableFuture.create();
+        SocketChannel channel;
+
+        Probe(InetSocketAddress address, long deadlineNanos) {
+            this.address = address;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -18,10 +18,14 @@
  */
 package org.apache.brooklyn.util.pool;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
 import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -30,6 +34,7 @@ import org.apache.brooklyn.util.text.Identifiers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.MoreObjects;
@@ -37,6 +42,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class BasicPool<T> implements Pool<T> {
 
@@ -53,6 +59,8 @@ public class BasicPool<T> implements Pool<T> {
         private Supplier<? extends T> supplier;
         private Predicate<? super T> viabilityChecker = Predicates.alwaysTrue();
         private Function<? super T, ?> closer = Functions.identity();
+        private int maxLeasesPerObject = 1;
+        private Predicate<? super T> shareabilityChecker = Predicates.alwaysTrue();
         
         public Builder<T> name(String val) {
             this.name = val;
@@ -74,6 +82,28 @@ public class BasicPool<T> implements Pool<T> {
             return this;
         }
         
+        /**
+         * The number of concurrent leases an object may be handed out for; defaults to 1,
+         * i.e. each lessee has exclusive use of its object. When greater than 1, an object already
+         * leased may be handed to another lessee (if it passes the {@link #shareabilityChecker(Predicate)})
+         * rather than creating a new object, once there are no idle objects left in the pool.
+         */
+        @Beta
+        public Builder<T> maxLeasesPerObject(int val) {
+            this.maxLeasesPerObject = val;
+            return this;
+        }
+        
+        /**
+         * Whether a given object is safe to lease concurrently; only relevant if
+         * {@link #maxLeasesPerObject(int)} is greater than 1.
+         */
+        @Beta
+        public Builder<T> shareabilityChecker(Predicate<? super T> val) {
+            this.shareabilityChecker = val;
+            return this;
+        }
+        
         public BasicPool<T> build() {
             return new BasicPool<T>(this);
         }
@@ -83,19 +113,29 @@ public class BasicPool<T> implements Pool<T> {
     private final Supplier<? extends T> supplier;
     private final Predicate<? super T> viabilityChecker;
     private Function<? super T, ?> closer;
+    private final int maxLeasesPerObject;
+    private final Predicate<? super T> shareabilityChecker;
     private final Deque<T> pool = Lists.newLinkedList();
+    /** Number of current leases of each leased object; guarded by {@link #pool}. */
+    private final Map<T, Integer> leaseCounts = new IdentityHashMap<T, Integer>();
+    /** Leased objects found to be no longer viable, so not to be shared; guarded by {@link #pool}. */
+    private final Set<T> unshareable = Sets.newIdentityHashSet();
     private AtomicBoolean closed = new AtomicBoolean(false);
     
     private AtomicInteger currentLeasedCount = new AtomicInteger(0);
     private AtomicInteger totalLeasedCount = new AtomicInteger(0);
     private AtomicInteger totalCreatedCount = new AtomicInteger(0);
     private AtomicInteger totalClosedCount = new AtomicInteger(0);
+    private AtomicInteger totalSharedCount = new AtomicInteger(0);
     
     private BasicPool(Builder<T> builder) {
         this.name = (builder.name != null) ? "Pool("+builder.name+")" : "Pool-"+Identifiers.makeRandomId(8);
         this.supplier = checkNotNull(builder.supplier, "supplier");
         this.viabilityChecker = checkNotNull(builder.viabilityChecker, "viabilityChecker");
         this.closer = checkNotNull(builder.closer, closer);
+        this.maxLeasesPerObject = builder.maxLeasesPerObject;
+        this.shareabilityChecker = checkNotNull(builder.shareabilityChecker, "shareabilityChecker");
+        checkArgument(maxLeasesPerObject >= 1, "maxLeasesPerObject must be at least 1, but was %s", maxLeasesPerObject);
     }
     
     @Override
@@ -115,6 +155,7 @@ public class BasicPool<T> implements Pool<T> {
                 }
                 if (pool.size() > 0) {
                     existing = pool.removeLast();
+                    leaseCounts.put(existing, 1);
                 }
             }
             
@@ -124,6 +165,9 @@ public class BasicPool<T> implements Pool<T> {
                     if (LOG.isTraceEnabled()) LOG.trace("{} reusing existing pool entry {} ({})", new Object[] {this, existing, getMetrics()});
                     return new BasicLease(existing);
                 } else {
+                    synchronized (pool) {
+                        leaseCounts.remove(existing);
+                    }
                     totalClosedCount.incrementAndGet();
                     if (LOG.isDebugEnabled()) LOG.debug("{} not reusing entry {} as no longer viable; discarding and trying again", this, existing);
                     closer.apply(existing);
@@ -131,13 +175,59 @@ public class BasicPool<T> implements Pool<T> {
             }
         } while (existing != null);
         
+        T shared = leaseShared();
+        if (shared != null) {
+            return new BasicLease(shared);
+        }
+        
         T result = supplier.get();
         totalCreatedCount.incrementAndGet();
+        synchronized (pool) {
+            leaseCounts.put(result, 1);
+        }
         currentLeasedCount.incrementAndGet();
         if (LOG.isDebugEnabled()) LOG.debug("{} acquired and returning new entry {} ({})", new Object[] {this, result, getMetrics()});
         return new BasicLease(result);
     }
 
+    /**
+     * Finds an object that is already leased but can take another concurrent lease, if
+     * {@link Builder#maxLeasesPerObject(int)} allows.
+     */
+    private T leaseShared() {
+        if (maxLeasesPerObject <= 1) return null;
+        while (true) {
+            T candidate = null;
+            synchronized (pool) {
+                if (closed.get()) {
+                    throw new IllegalStateException("Pool closed for "+this);
+                }
+                for (Map.Entry<T, Integer> entry : leaseCounts.entrySet()) {
+                    if (entry.getValue() < maxLeasesPerObject && !unshareable.contains(entry.getKey()) && shareabilityChecker.apply(entry.getKey())) {
+                        candidate = entry.getKey();
+                        entry.setValue(entry.getValue() + 1);
+                        break;
+                    }
+                }
+            }
+            if (candidate == null) {
+                return null;
+            }
+            currentLeasedCount.incrementAndGet();
+            if (viabilityChecker.apply(candidate)) {
+                totalSharedCount.incrementAndGet();
+                if (LOG.isTraceEnabled()) LOG.trace("{} sharing leased pool entry {} ({})", new Object[] {this, candidate, getMetrics()});
+                return candidate;
+            } else {
+                if (LOG.isDebugEnabled()) LOG.debug("{} not sharing entry {} as no longer viable; trying again", this, candidate);
+                synchronized (pool) {
+                    unshareable.add(candidate);
+                }
+                returnLeasee(candidate);
+            }
+        }
+    }
+
     @Override
     public <R> R exec(Function<? super T,R> receiver) {
         Lease<T> lease = leaseObject();
@@ -166,6 +256,14 @@ public class BasicPool<T> implements Pool<T> {
     private void returnLeasee(T val) {
         currentLeasedCount.decrementAndGet();
         synchronized (pool) {
+            Integer count = leaseCounts.get(val);
+            if (count != null && count > 1) {
+                leaseCounts.put(val, count - 1);
+                if (LOG.isTraceEnabled()) LOG.trace("{} returned shared lease of {}, still leased {} times ({})", new Object[] {this, val, count - 1, getMetrics()});
+                return;
+            }
+            leaseCounts.remove(val);
+            unshareable.remove(val);
             if (closed.get()) {
                 totalClosedCount.incrementAndGet();
                 if (LOG.isDebugEnabled()) LOG.debug("{} closing returned leasee {}, because pool closed ({})", new Object[] {this, val, getMetrics()});
@@ -178,8 +276,8 @@ public class BasicPool<T> implements Pool<T> {
     }
     
     private String getMetrics() {
-        return String.format("currentLeased=%s; totalLeased=%s; totalCreated=%s; totalClosed=%s", 
-                currentLeasedCount, totalLeasedCount, totalCreatedCount, totalClosedCount);
+        return String.format("currentLeased=%s; totalLeased=%s; totalShared=%s; totalCreated=%s; totalClosed=%s", 
+                currentLeasedCount, totalLeasedCount, totalSharedCount, totalCreatedCount, totalClosedCount);
 
     }
     private class BasicLease implements Lease<T> {
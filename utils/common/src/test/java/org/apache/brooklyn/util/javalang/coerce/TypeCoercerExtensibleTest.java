@@ -19,12 +19,14 @@
 package org.apache.brooklyn.util.javalang.coerce;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 import java.util.Objects;
 
 import org.apache.brooklyn.util.guava.Maybe;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.reflect.TypeToken;
 
@@ -56,6 +58,28 @@ public class TypeCoercerExtensibleTest {
         assertEquals(coerce("abc", MyClazz.class), new MyClazz("myprefixabc"));
     }
     
+    @Test
+    public void testRegisterAdapterAfterFailedCoercion() {
+        assertFalse(coercer.tryCoerce("abc", MyClazz.class).isPresent());
+        
+        coercer.registerAdapter(String.class, MyClazz.class, new Function<String, MyClazz>() {
+            @Override
+            public MyClazz apply(String input) {
+                return new MyClazz("adapted"+input);
+            }
+        });
+        
+        assertEquals(coerce("abc", MyClazz.class), new MyClazz("adaptedabc"));
+    }
+    
+    @Test
+    public void testRepeatedCoercionsOfSameTypes() {
+        for (int i=0; i<3; i++) {
+            assertEquals(coerce(""+i, Integer.class), (Integer)i);
+            assertEquals(coerce(i, String.class), ""+i);
+        }
+    }
+    
     public static class MyClazz {
         private final String val;
 
@@ -18,6 +18,7 @@ package org.apache.brooklyn.util.net;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.net.ServerSocket;
@@ -37,6 +38,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Predicate;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -168,6 +170,31 @@ public class ReachableSocketFinderTest {
         }
     }
 
+    // Mark as integration, as can't rely (in Apache infra) for a port to stay unused during test!
+    @Test(groups="Integration")
+    public void testReturnsRealReachableSocketAmongManyUnreachable() throws Exception {
+        ReachableSocketFinder realFinder = new ReachableSocketFinder();
+        ServerSocket socket = connectToPort();
+        try {
+            String host = socket.getInetAddress().getHostAddress();
+            HostAndPort addr = HostAndPort.fromParts(host, socket.getLocalPort());
+            ImmutableList.Builder<HostAndPort> candidates = ImmutableList.builder();
+            int port = findAvailablePort();
+            for (int i = 0; i < 500; i++) {
+                candidates.add(HostAndPort.fromParts(host, port));
+            }
+            candidates.add(addr);
+
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            assertEquals(realFinder.findOpenSocketOnNode(candidates.build(), TIMEOUT), addr);
+            assertTrue(Duration.of(stopwatch).isShorterThan(TIMEOUT), "took "+Duration.of(stopwatch));
+        } finally {
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+
     // Mark as integration, as can't rely (in Apache infra) for a port to stay unused during test!
     // And slow test - takes 5 seconds.
     @Test(groups="Integration")
@@ -162,6 +162,40 @@ public class BasicPoolTest {
         assertEquals(lease2.leasedObject(), (Integer)1);
     }
     
+    @Test
+    public void testSharesLeasedValsUpToMax() throws Exception {
+        Pool<Integer> pool = BasicPool.<Integer>builder().supplier(supplier).maxLeasesPerObject(2).closer(closer).build();
+        
+        Lease<Integer> lease1 = pool.leaseObject();
+        Lease<Integer> lease2 = pool.leaseObject();
+        Lease<Integer> lease3 = pool.leaseObject();
+        assertEquals(lease1.leasedObject(), (Integer)0);
+        assertEquals(lease2.leasedObject(), (Integer)0);
+        assertEquals(lease3.leasedObject(), (Integer)1);
+        
+        // still leased by lease2, so not returned to the pool
+        lease1.close();
+        pool.close();
+        assertEquals(closedVals, ImmutableList.of());
+        
+        lease2.close();
+        lease3.close();
+        assertEquals(closedVals, ImmutableList.of(0, 1));
+    }
+    
+    @Test
+    public void testDoesNotShareUnshareableOrUnviableVals() throws Exception {
+        Pool<Integer> pool = BasicPool.<Integer>builder().supplier(supplier).maxLeasesPerObject(2)
+                .shareabilityChecker(Predicates.equalTo(1)).viabilityChecker(Predicates.not(Predicates.equalTo(1))).build();
+        
+        Lease<Integer> lease1 = pool.leaseObject();
+        Lease<Integer> lease2 = pool.leaseObject();
+        Lease<Integer> lease3 = pool.leaseObject();
+        assertEquals(lease1.leasedObject(), (Integer)0);
+        assertEquals(lease2.leasedObject(), (Integer)1);
+        assertEquals(lease3.leasedObject(), (Integer)2);
+    }
+    
     @Test
     public void testConcurrentCallsNeverHaveSameVal() throws Exception {
         final Pool<Integer> pool = BasicPool.<Integer>builder().supplier(supplier).build();